@@ -83,7 +83,7 @@ copy /Y "%JCODEC_AWT%" "%USERPROFILE%\bin\lib\" >nul
 
 (
   echo @echo off
-  echo java -cp "%%~dp0MicroLisp.jar;%%~dp0lib\jcodec-0.2.3.jar;%%~dp0lib\jcodec-javase-0.2.3.jar" MicroLisp %%*
+  echo java -XX:+AutoCreateSharedArchive -XX:SharedArchiveFile="%%~dp0microlisp.jsa" -cp "%%~dp0MicroLisp.jar;%%~dp0lib\jcodec-0.2.3.jar;%%~dp0lib\jcodec-javase-0.2.3.jar" MicroLisp %%*
 ) > "%USERPROFILE%\bin\microlisp.bat"
 
 echo Launcher created at %USERPROFILE%\bin\microlisp.bat
@@ -110,7 +110,8 @@ echo =============================================
 echo Testing Build
 echo =============================================
 
-"%JAVABIN%\java" -cp "out;%JCODEC_CP%" MicroLispTest
+:: Tree-walking evaluator, then the same suite on the bytecode VM (-b) and jit-compiled (-j)
+for %%M in ("" "-b" "-j") do "%JAVABIN%\java" -cp "out;%JCODEC_CP%" MicroLispTest %%~M
 echo MicroLisp Installed
 echo You can now run 'microlisp' in a new terminal
 echo =============================================
@@ -237,7 +237,12 @@ if [ -d "\$LIB" ]; then
   CP="\$CP:\$LIB/jcodec-0.2.3.jar:\$LIB/jcodec-javase-0.2.3.jar"
 fi
 
-exec java -cp "\$CP" $MAIN_RUN_CLASS "\$@"
+# Class data sharing: the first run dumps the classes it loaded (builtins' lambdas included)
+# into an archive next to the jar, later runs map it instead of loading them again. The JVM
+# rebuilds the archive by itself when the jar changes.
+JSA="$PROJ_ABS_DIR/$DIST_DIR/microlisp.jsa"
+
+exec java -XX:+AutoCreateSharedArchive -XX:SharedArchiveFile="\$JSA" -cp "\$CP" $MAIN_RUN_CLASS "\$@"
 EOF
 chmod +x "$LAUNCHER"
 echo "  • installed: $LAUNCHER"
@@ -260,11 +265,14 @@ echo " Testing build"
 echo "============================================="
 # Classpath for test (compiled classes + libs)
 TEST_CP="$OUT_DIR:$JCODEC_CP"
-if java -cp "$TEST_CP" "$MAIN_TEST_CLASS"; then
-  echo "OK: $MAIN_TEST_CLASS ran"
-else
-  echo "WARN: $MAIN_TEST_CLASS did not run (skipping) — continuing"
-fi
+# Tree-walking evaluator, then the same suite on the bytecode VM (-b) and jit-compiled (-j)
+for TEST_MODE in "" -b -j; do
+  if java -cp "$TEST_CP" "$MAIN_TEST_CLASS" $TEST_MODE; then
+    echo "OK: $MAIN_TEST_CLASS $TEST_MODE ran"
+  else
+    echo "WARN: $MAIN_TEST_CLASS $TEST_MODE did not run (skipping) — continuing"
+  fi
+done
 
 echo
 echo "✅ MicroLisp installed. Open a new terminal and run: microlisp"
@@ -0,0 +1,248 @@
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ Elementary functions of BigDecimal arguments, to the precision of a MathContext, for BIGFLOAT
+ numbers. Each function works GUARD digits past the requested precision, plus whatever its
+ argument reduction cancels, and rounds once at the end.
+
+ Series are only summed over small arguments:
+   exp   x = k ln 2 + r, then r is halved s times and the result squared back s times;
+   log   x = m 2^b 10^-scale with m near 1, summed as 2 atanh((m-1)/(m+1));
+   sin, cos   x = q pi/2 + r with |r| <= pi/4, the quadrant picking the series and the sign;
+   atan  1/x past 1, then half-angle steps until x < 1/10.
+ pi, ln 2 and ln 10 come from Machin-like atan and atanh formulas of reciprocal integers, computed
+ once per working precision and cached.
+*/
+final class BigMath {
+    private static final int GUARD = 10;
+    private static final BigDecimal TWO = BigDecimal.valueOf(2);
+    private static final BigDecimal TENTH = new BigDecimal("0.1");
+    // Working precision to {pi, ln 2, ln 10}.
+    private static final Map<Integer, BigDecimal[]> constants = new ConcurrentHashMap<>();
+
+    private BigMath() {}
+
+    static BigDecimal pi(MathContext mc) {
+        return constants(mc.getPrecision())[0].round(mc);
+    }
+
+    static BigDecimal sqrt(BigDecimal x, MathContext mc) {
+        if (x.signum() < 0) {
+            throw new ArithmeticException("sqrt of a negative number: " + x);
+        }
+        return x.sqrt(mc);
+    }
+
+    static BigDecimal exp(BigDecimal x, MathContext mc) {
+        if (x.signum() == 0) {
+            return BigDecimal.ONE;
+        }
+        int p = mc.getPrecision() + GUARD;
+        double estimate = x.doubleValue() / Math.log(2);
+        if (Math.abs(estimate) > 999_999_999) {
+            throw new ArithmeticException("exp out of range: " + x);
+        }
+        int k = (int) Math.round(estimate);
+        MathContext w = working(p + digits(k));
+        BigDecimal r = x.subtract(constants(w.getPrecision())[1].multiply(BigDecimal.valueOf(k)), w);
+
+        // halve until the series needs few terms, then square back up
+        int s = (int) Math.sqrt(p);
+        r = r.divide(TWO.pow(s), w);
+        BigDecimal sum = BigDecimal.ONE;
+        BigDecimal term = BigDecimal.ONE;
+        BigDecimal eps = BigDecimal.ONE.movePointLeft(w.getPrecision());
+        for (int n = 1; term.abs().compareTo(eps) > 0; n++) {
+            term = term.multiply(r, w).divide(BigDecimal.valueOf(n), w);
+            sum = sum.add(term, w);
+        }
+        for (int i = 0; i < s; i++) {
+            sum = sum.multiply(sum, w);
+        }
+        BigDecimal scale = k >= 0 ? TWO.pow(k, w) : BigDecimal.ONE.divide(TWO.pow(-k, w), w);
+        return sum.multiply(scale, mc);
+    }
+
+    static BigDecimal log(BigDecimal x, MathContext mc) {
+        if (x.signum() <= 0) {
+            throw new ArithmeticException("log of a non-positive number: " + x);
+        }
+        int p = mc.getPrecision() + GUARD;
+        if (x.compareTo(BigDecimal.valueOf(0.5)) >= 0 && x.compareTo(TWO) <= 0) {
+            // near 1 the direct series keeps the small result's relative precision
+            MathContext w = working(p);
+            return atanh(x.subtract(BigDecimal.ONE).divide(x.add(BigDecimal.ONE), w), w).multiply(TWO, mc);
+        }
+        BigInteger u = x.unscaledValue();
+        int b = u.bitLength();
+        int scale = x.scale();
+        MathContext w = working(p + digits(b) + digits(scale));
+        BigDecimal m = new BigDecimal(u).divide(new BigDecimal(BigInteger.ONE.shiftLeft(b)), w);
+        if (m.compareTo(new BigDecimal("0.7071")) < 0) {
+            m = m.multiply(TWO);
+            b--;
+        }
+        BigDecimal[] k = constants(w.getPrecision());
+        BigDecimal lnM = atanh(m.subtract(BigDecimal.ONE).divide(m.add(BigDecimal.ONE), w), w).multiply(TWO);
+        return lnM.add(k[1].multiply(BigDecimal.valueOf(b)))
+                  .subtract(k[2].multiply(BigDecimal.valueOf(scale)), mc);
+    }
+
+    static BigDecimal sin(BigDecimal x, MathContext mc) {
+        return sinCos(x, mc, true);
+    }
+
+    static BigDecimal cos(BigDecimal x, MathContext mc) {
+        return sinCos(x, mc, false);
+    }
+
+    private static BigDecimal sinCos(BigDecimal x, MathContext mc, boolean sine) {
+        int p = mc.getPrecision() + GUARD;
+        MathContext w = working(p + Math.max(0, x.precision() - x.scale()));
+        BigDecimal halfPi = constants(w.getPrecision())[0].divide(TWO, w);
+        BigInteger q = x.divide(halfPi, w).setScale(0, RoundingMode.HALF_EVEN).toBigInteger();
+        BigDecimal r = x.subtract(halfPi.multiply(new BigDecimal(q)), w);
+        int quadrant = q.mod(BigInteger.valueOf(4)).intValue() + (sine ? 0 : 1);
+        BigDecimal value = quadrant % 2 == 0 ? sinSeries(r, w) : cosSeries(r, w);
+        return (quadrant & 2) == 0 ? value.round(mc) : value.negate(mc);
+    }
+
+    private static BigDecimal sinSeries(BigDecimal r, MathContext w) {
+        if (r.signum() == 0) {
+            return BigDecimal.ZERO;
+        }
+        BigDecimal r2 = r.multiply(r, w);
+        BigDecimal term = r;
+        BigDecimal sum = r;
+        BigDecimal eps = r.abs().movePointLeft(w.getPrecision());
+        for (int n = 1; term.abs().compareTo(eps) > 0; n++) {
+            term = term.multiply(r2, w).divide(BigDecimal.valueOf((2L * n) * (2L * n + 1)), w).negate();
+            sum = sum.add(term, w);
+        }
+        return sum;
+    }
+
+    private static BigDecimal cosSeries(BigDecimal r, MathContext w) {
+        BigDecimal r2 = r.multiply(r, w);
+        BigDecimal term = BigDecimal.ONE;
+        BigDecimal sum = BigDecimal.ONE;
+        BigDecimal eps = BigDecimal.ONE.movePointLeft(w.getPrecision());
+        for (int n = 1; term.abs().compareTo(eps) > 0; n++) {
+            term = term.multiply(r2, w).divide(BigDecimal.valueOf((2L * n - 1) * (2L * n)), w).negate();
+            sum = sum.add(term, w);
+        }
+        return sum;
+    }
+
+    static BigDecimal atan(BigDecimal x, MathContext mc) {
+        if (x.signum() == 0) {
+            return BigDecimal.ZERO;
+        }
+        MathContext w = working(mc.getPrecision() + GUARD);
+        BigDecimal a = x.abs();
+        boolean invert = a.compareTo(BigDecimal.ONE) > 0;
+        if (invert) {
+            a = BigDecimal.ONE.divide(a, w);
+        }
+        // atan a = 2 atan(a / (1 + sqrt(1 + a^2)))
+        int doublings = 0;
+        while (a.compareTo(TENTH) > 0) {
+            a = a.divide(BigDecimal.ONE.add(BigDecimal.ONE.add(a.multiply(a, w)).sqrt(w)), w);
+            doublings++;
+        }
+        BigDecimal a2 = a.multiply(a, w);
+        BigDecimal power = a;
+        BigDecimal sum = a;
+        BigDecimal eps = a.movePointLeft(w.getPrecision());
+        for (int n = 1; power.compareTo(eps) > 0; n++) {
+            power = power.multiply(a2, w);
+            BigDecimal term = power.divide(BigDecimal.valueOf(2L * n + 1), w);
+            sum = n % 2 == 0 ? sum.add(term, w) : sum.subtract(term, w);
+        }
+        sum = sum.multiply(TWO.pow(doublings));
+        if (invert) {
+            sum = constants(w.getPrecision())[0].divide(TWO, w).subtract(sum, w);
+        }
+        return x.signum() < 0 ? sum.negate(mc) : sum.round(mc);
+    }
+
+    // x^y for x > 0, as exp(y log x).
+    static BigDecimal pow(BigDecimal x, BigDecimal y, MathContext mc) {
+        if (x.signum() <= 0) {
+            throw new ArithmeticException("pow of a non-positive base: " + x);
+        }
+        MathContext w = working(mc.getPrecision() + GUARD);
+        BigDecimal exponent = y.multiply(log(x, w), w);
+        int integerDigits = exponent.precision() - exponent.scale();
+        if (integerDigits > 0) {
+            // exp turns the exponent's absolute error into relative error of the result
+            MathContext wider = working(w.getPrecision() + integerDigits);
+            exponent = y.multiply(log(x, wider), wider);
+        }
+        return exp(exponent, mc);
+    }
+
+    // ---- series over small arguments ----
+
+    // atanh z = z + z^3/3 + z^5/5 + ..., for |z| well below 1.
+    private static BigDecimal atanh(BigDecimal z, MathContext w) {
+        if (z.signum() == 0) {
+            return BigDecimal.ZERO;
+        }
+        BigDecimal z2 = z.multiply(z, w);
+        BigDecimal power = z;
+        BigDecimal sum = z;
+        BigDecimal eps = z.abs().movePointLeft(w.getPrecision());
+        for (int n = 1; power.abs().compareTo(eps) > 0; n++) {
+            power = power.multiply(z2, w);
+            sum = sum.add(power.divide(BigDecimal.valueOf(2L * n + 1), w), w);
+        }
+        return sum;
+    }
+
+    // atan(1/n) when alternating is set, else atanh(1/n).
+    private static BigDecimal reciprocalSeries(int n, boolean alternating, MathContext w) {
+        BigDecimal n2 = BigDecimal.valueOf((long) n * n);
+        BigDecimal power = BigDecimal.ONE.divide(BigDecimal.valueOf(n), w);
+        BigDecimal sum = power;
+        BigDecimal eps = BigDecimal.ONE.movePointLeft(w.getPrecision() + 1);
+        for (int k = 1; power.compareTo(eps) > 0; k++) {
+            power = power.divide(n2, w);
+            BigDecimal term = power.divide(BigDecimal.valueOf(2L * k + 1), w);
+            sum = alternating && k % 2 == 1 ? sum.subtract(term, w) : sum.add(term, w);
+        }
+        return sum;
+    }
+
+    private static BigDecimal[] constants(int precision) {
+        return constants.computeIfAbsent(precision, p -> {
+            MathContext w = working(p + GUARD);
+            // Machin: pi = 16 atan(1/5) - 4 atan(1/239)
+            BigDecimal pi = reciprocalSeries(5, true, w).multiply(BigDecimal.valueOf(16))
+                    .subtract(reciprocalSeries(239, true, w).multiply(BigDecimal.valueOf(4)));
+            // ln 2 = 18 atanh(1/26) - 2 atanh(1/4801) + 8 atanh(1/8749)
+            BigDecimal ln2 = reciprocalSeries(26, false, w).multiply(BigDecimal.valueOf(18))
+                    .subtract(reciprocalSeries(4801, false, w).multiply(TWO))
+                    .add(reciprocalSeries(8749, false, w).multiply(BigDecimal.valueOf(8)));
+            // ln 10 = 3 ln 2 + ln(5/4) = 3 ln 2 + 2 atanh(1/9)
+            BigDecimal ln10 = ln2.multiply(BigDecimal.valueOf(3))
+                    .add(reciprocalSeries(9, false, w).multiply(TWO));
+            MathContext mc = working(p);
+            return new BigDecimal[] { pi.round(mc), ln2.round(mc), ln10.round(mc) };
+        });
+    }
+
+    private static MathContext working(int precision) {
+        return new MathContext(precision, RoundingMode.HALF_EVEN);
+    }
+
+    // Decimal digits of |n|, at least 1.
+    private static int digits(long n) {
+        return Long.toString(Math.abs(n)).length();
+    }
+}
@@ -0,0 +1,28 @@
+/*
+ MicroLisp's booleans. There are exactly two instances, so truth is tested by identity
+ (value == Bool.TRUE) and no predicate result is ever allocated. They print as #t and #f.
+*/
+public final class Bool {
+    public static final Bool TRUE = new Bool("#t");
+    public static final Bool FALSE = new Bool("#f");
+
+    private final String name;
+
+    private Bool(String name) {
+        this.name = name;
+    }
+
+    public static Bool of(boolean value) {
+        return value ? TRUE : FALSE;
+    }
+
+    // Value of a #t or #f token.
+    static Bool of(String literal) {
+        return "#t".equals(literal) ? TRUE : FALSE;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
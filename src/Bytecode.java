@@ -0,0 +1,232 @@
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/*
+ Compiled form of one lambda body, or of one top-level expression, for the register VM.
+
+ The instructions are a flat int[]: an opcode followed by its operands. Operands name registers,
+ constant-pool entries or jump targets. Registers are the slots of the procedure's Frame, so
+ parameters occupy the first registers and lets, body defines and temporaries follow; a closure
+ created in the body captures the frame and reaches outer registers with (depth, register).
+
+ Bytecode is a Code, so its closures are ordinary Closure values: the tree evaluator, primitives
+ and the VM can call each other's procedures. A tail call to another closure is handed back
+ through the Machine registers like any other tail call; a self tail call restarts the loop.
+*/
+final class Bytecode extends Code {
+    // ---------- instruction set ----------
+    static final int CONST    = 0;  // dst, k              r[dst] = K[k]
+    static final int LOAD     = 1;  // dst, depth, reg     r[dst] = frame.up(depth)[reg], must be bound
+    static final int STORE    = 2;  // reg, src            r[reg] = r[src]
+    static final int GLOBAL   = 3;  // dst, k              r[dst] = value of global cell K[k]
+    static final int DEFINE   = 4;  // k, src              global cell K[k] = r[src]
+    static final int JUMP     = 5;  // target
+    static final int JUMPF    = 6;  // src, target         jump unless r[src] is #t
+    static final int CLOSURE  = 7;  // dst, k              r[dst] = closure of prototype K[k] over this frame
+    static final int CALL     = 8;  // dst, fn, base, argc, k    r[dst] = r[fn](r[base]...); K[k] names fn
+    static final int TAILCALL = 9;  // fn, base, argc, k
+    static final int RETURN   = 10; // src
+    static final int QQUOTE   = 11; // dst, k, base        expand template K[k] with unquoted values from r[base]...
+    static final int TUPLE    = 12; // dst, base, n
+    static final int VECTOR   = 13; // dst, base, n
+    static final int LIST     = 14; // dst, base, n, tail  tail is a register or -1 for a proper list
+    static final int IMPORT   = 15; // dst, kModule, kCell
+    static final int FAIL     = 16; // k                   throw RuntimeException(K[k])
+
+    // Quasi-quote template with its unquote nodes in expansion order.
+    record Template(Node<Token> template, List<Node<Token>> unquoted) {}
+
+    final int[] code;
+    final Object[] constants;
+    // Token each instruction was compiled from, indexed by the instruction's first word.
+    final Token<?>[] sources;
+    final int frameSize;
+    // A top-level expression runs in a fresh frame of its own instead of a caller's.
+    final boolean topLevel;
+
+    Bytecode(Token<?> source, int[] code, Object[] constants, Token<?>[] sources,
+             int frameSize, boolean topLevel) {
+        super(source);
+        this.code = code;
+        this.constants = constants;
+        this.sources = sources;
+        this.frameSize = frameSize;
+        this.topLevel = topLevel;
+    }
+
+    @Override Object evalT(Frame frame, Machine m) {
+        if (topLevel) {
+            frame = newFrame(new Object[0], frameSize, frame);
+        }
+        return run(frame, m);
+    }
+
+    private Object run(Frame frame, Machine m) {
+        final int[] c = code;
+        final Object[] k = constants;
+        Object[] r = frame.slots;
+        int pc = 0;
+        int at = 0;
+        try {
+            for (;;) {
+                at = pc;
+                switch (c[pc]) {
+                    case CONST:
+                        r[c[pc + 1]] = k[c[pc + 2]];
+                        pc += 3;
+                        break;
+                    case LOAD: {
+                        Object[] slots = c[pc + 2] == 0 ? r : frame.up(c[pc + 2]).slots;
+                        Object v = slots[c[pc + 3]];
+                        if (v == Frame.UNBOUND) {
+                            throw new RuntimeException("Unbound symbol: " + sources[at].value());
+                        }
+                        r[c[pc + 1]] = v;
+                        pc += 4;
+                        break;
+                    }
+                    case STORE:
+                        r[c[pc + 1]] = r[c[pc + 2]];
+                        pc += 3;
+                        break;
+                    case GLOBAL:
+                        r[c[pc + 1]] = ((Environment.Cell) k[c[pc + 2]]).get();
+                        pc += 3;
+                        break;
+                    case DEFINE:
+                        ((Environment.Cell) k[c[pc + 1]]).set(r[c[pc + 2]]);
+                        pc += 3;
+                        break;
+                    case JUMP:
+                        pc = c[pc + 1];
+                        break;
+                    case JUMPF:
+                        pc = r[c[pc + 1]] == Bool.TRUE ? pc + 3 : c[pc + 2];
+                        break;
+                    case CLOSURE: {
+                        Proto p = (Proto) k[c[pc + 2]];
+                        r[c[pc + 1]] = new Closure(p.params, p.body, frame, p.body.frameSize, p.name);
+                        pc += 3;
+                        break;
+                    }
+                    case CALL:
+                        r[c[pc + 1]] = call(r[c[pc + 2]], r, c[pc + 3], c[pc + 4], (String) k[c[pc + 5]], m);
+                        pc += 6;
+                        break;
+                    case TAILCALL: {
+                        Object op = r[c[pc + 1]];
+                        Object[] args = args(r, c[pc + 2], c[pc + 3]);
+                        String name = (String) k[c[pc + 4]];
+                        if (!(op instanceof Closure closure)) {
+                            return Evaluator.applyT(op, args, name, m);
+                        }
+                        Evaluator.applyProcedureT(closure, args, m);
+                        if (m.next != this) {
+                            return Machine.TAIL_CALL;
+                        }
+                        // self tail call: run this body again in the new frame
+                        frame = m.nextFrame;
+                        r = frame.slots;
+                        pc = 0;
+                        break;
+                    }
+                    case RETURN:
+                        return r[c[pc + 1]];
+                    case QQUOTE: {
+                        Template t = (Template) k[c[pc + 2]];
+                        IdentityHashMap<Node<Token>, Object> values = new IdentityHashMap<>();
+                        int base = c[pc + 3];
+                        for (int i = 0; i < t.unquoted().size(); i++) {
+                            values.put(t.unquoted().get(i), r[base + i]);
+                        }
+                        r[c[pc + 1]] = Evaluator.expandQuasiQuote(t.template(), values);
+                        pc += 4;
+                        break;
+                    }
+                    case TUPLE:
+                        r[c[pc + 1]] = Tuple.of(args(r, c[pc + 2], c[pc + 3]));
+                        pc += 4;
+                        break;
+                    case VECTOR:
+                        r[c[pc + 1]] = Vector.of(args(r, c[pc + 2], c[pc + 3]));
+                        pc += 4;
+                        break;
+                    case LIST:
+                        r[c[pc + 1]] = list(r, c[pc + 2], c[pc + 3], c[pc + 4]);
+                        pc += 5;
+                        break;
+                    case IMPORT: {
+                        Object importer = ((Environment.Cell) k[c[pc + 3]]).value;
+                        if (!(importer instanceof Primitive p)) {
+                            throw new RuntimeException("import function not bound");
+                        }
+                        r[c[pc + 1]] = p.invoke1(k[c[pc + 2]]);
+                        pc += 4;
+                        break;
+                    }
+                    case FAIL:
+                        throw new RuntimeException((String) k[c[pc + 1]]);
+                    default:
+                        throw new IllegalStateException("bad opcode " + c[pc] + " at " + pc);
+                }
+            }
+        } catch (Evaluator.ContextException e) {
+            e.depth++;
+            throw e;
+        } catch (StackOverflowError e) {
+            throw new Evaluator.ContextException("Stack overflow", sources[at], e);
+        } catch (RuntimeException e) {
+            if (sources[at] == null) {
+                throw e;
+            }
+            throw new Evaluator.ContextException(e.getMessage(), sources[at], e);
+        }
+    }
+
+    // Non-tail call: primitives take their arguments straight from the registers, anything else
+    // goes through applyT and any tail calls it hands back are run to completion here.
+    private static Object call(Object op, Object[] r, int base, int argc, String name, Machine m) {
+        if (op instanceof Primitive p) {
+            switch (argc) {
+                case 0: return p.invoke0();
+                case 1: return p.invoke1(r[base]);
+                case 2: return p.invoke2(r[base], r[base + 1]);
+                case 3: return p.invoke3(r[base], r[base + 1], r[base + 2]);
+                case 4: return p.invoke4(r[base], r[base + 1], r[base + 2], r[base + 3]);
+                default: return p.invoke(args(r, base, argc));
+            }
+        }
+        Object value = Evaluator.applyT(op, args(r, base, argc), name, m);
+        while (value == Machine.TAIL_CALL) {
+            value = m.next.evalT(m.nextFrame, m);
+        }
+        return value;
+    }
+
+    private static Object[] args(Object[] r, int base, int n) {
+        Object[] out = new Object[n];
+        System.arraycopy(r, base, out, 0, n);
+        return out;
+    }
+
+    private static Object list(Object[] r, int base, int n, int tailReg) {
+        if (tailReg < 0) {
+            ArrayList<Object> values = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                values.add(r[base + i]);
+            }
+            return new LinkedList<>(values);
+        }
+        Object cell = r[tailReg];
+        for (int i = n - 1; i >= 0; i--) {
+            cell = (cell instanceof LinkedList)
+                ? new LinkedList<>(r[base + i], (LinkedList<?>) cell)
+                : new LinkedList<>(r[base + i], cell); // improper tail stays raw
+        }
+        return cell;
+    }
+
+    // Constant-pool entry for a lambda: everything CLOSURE needs besides the frame.
+    record Proto(String[] params, Bytecode body, String name) {}
+}
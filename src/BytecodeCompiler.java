@@ -0,0 +1,574 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ Compiles a parsed expression into Bytecode for the register VM; the counterpart of Compiler for
+ the tree evaluator, with the same scoping rules and the same syntax errors.
+
+ Each lambda body becomes a Bytecode of its own. Within one body, parameters, let and letr
+ bindings, named-let procedures and body defines each get a register that is never reused, since
+ a closure made in the body may still read it through the frame. Temporaries for intermediate
+ values are handed out stack-wise above them and released once the value has been consumed.
+*/
+public class BytecodeCompiler {
+    final Environment env;
+
+    public BytecodeCompiler(Environment env) {
+        this.env = env;
+    }
+
+    // Code, constants and registers of the procedure being compiled.
+    private static final class Fn {
+        final Fn parent;
+        final boolean topLevel;
+        int[] code = new int[32];
+        Token<?>[] sources = new Token<?>[32];
+        int length;
+        final ArrayList<Object> constants = new ArrayList<>();
+        // names in scope in this body and their registers, innermost last
+        final ArrayList<String> names = new ArrayList<>();
+        final ArrayList<Integer> regs = new ArrayList<>();
+        int top;      // next free register
+        int floor;    // registers below this may be captured and are never released
+        int max;      // registers needed for the frame
+        int letDepth; // lets open around the current form, for telling top-level defines apart
+
+        Fn(Fn parent, boolean topLevel) {
+            this.parent = parent;
+            this.topLevel = topLevel;
+        }
+
+        int temp() {
+            int r = top++;
+            max = Math.max(max, top);
+            return r;
+        }
+
+        int local() {
+            int r = temp();
+            floor = top;
+            return r;
+        }
+
+        void release(int mark) {
+            top = Math.max(mark, floor);
+        }
+
+        void bind(String name, int reg) {
+            names.add(name);
+            regs.add(reg);
+        }
+
+        void unbind(int mark) {
+            names.subList(mark, names.size()).clear();
+            regs.subList(mark, regs.size()).clear();
+        }
+
+        // Register bound to name at or after index from, or -1.
+        int lookup(String name, int from) {
+            for (int i = names.size() - 1; i >= from; i--) {
+                if (names.get(i).equals(name)) {
+                    return regs.get(i);
+                }
+            }
+            return -1;
+        }
+
+        int constant(Object value) {
+            for (int i = 0; i < constants.size(); i++) {
+                if (constants.get(i) == value) {
+                    return i;
+                }
+            }
+            constants.add(value);
+            return constants.size() - 1;
+        }
+
+        int emit(Token<?> source, int... words) {
+            int at = length;
+            if (length + words.length > code.length) {
+                int size = Math.max(code.length * 2, length + words.length);
+                code = Arrays.copyOf(code, size);
+                sources = Arrays.copyOf(sources, size);
+            }
+            System.arraycopy(words, 0, code, length, words.length);
+            sources[at] = source;
+            length += words.length;
+            return at;
+        }
+
+        Bytecode finish(Token<?> source) {
+            return new Bytecode(source, Arrays.copyOf(code, length), constants.toArray(),
+                                Arrays.copyOf(sources, length), max, topLevel);
+        }
+    }
+
+    public Code compile(Node<Token> expr) {
+        Fn fn = new Fn(null, true);
+        expr(expr, fn, fn.temp(), true);
+        return fn.finish(expr.getValue());
+    }
+
+    // Emits code leaving the value of node in register dst, or returning it when tail is set.
+    private void expr(Node<Token> node, Fn fn, int dst, boolean tail) {
+        Token<?> t = node.getValue();
+        List<Node<Token>> children = node.getChildren();
+        TokenType type = t.type();
+
+        switch (type) {
+            case NUMBER:
+            case BOOLEAN:
+            case STRING:
+                fn.emit(t, Bytecode.CONST, dst, fn.constant(Compiler.literal(node)));
+                break;
+            case QUOTE:
+                if (children.size() != 1) {
+                    throw new SyntaxException("quote takes exactly one argument, got: " + children.size());
+                }
+                fn.emit(t, Bytecode.CONST, dst, fn.constant(Evaluator.quoteToValue(children.get(0))));
+                break;
+            case QQUOTE:
+                if (children.size() != 1) {
+                    throw new SyntaxException("quasi-quote takes exactly one argument, got: " + children.size());
+                }
+                quasiQuote(t, children.get(0), fn, dst);
+                break;
+            case DEFINE:
+                define(t, children, fn, dst);
+                break;
+            case COND:
+                cond(t, children, fn, dst, tail);
+                return;
+            case DO:
+                if (children.isEmpty()) {
+                    throw new SyntaxException("Do blocks require at least one expression");
+                }
+                sequence(children, fn, dst, tail);
+                return;
+            case LET:
+                let(t, children, fn, dst, tail);
+                return;
+            case LETS:
+                lets(t, children, fn, dst, tail);
+                return;
+            case LETR:
+                letr(t, children, fn, dst, tail);
+                return;
+            case LET_NAMED:
+                letNamed(t, children, fn, dst, tail);
+                return;
+            case LAMBDA:
+                lambda(t, children, fn, dst, null);
+                break;
+            case SYMBOL:
+            case LIST: {
+                Object literal = Compiler.literal(node);
+                if (literal != Compiler.NOT_LITERAL) {
+                    fn.emit(t, Bytecode.CONST, dst, fn.constant(literal));
+                    break;
+                }
+                if (type == TokenType.LIST) {
+                    list(t, children, fn, dst);
+                    break;
+                }
+                if (symbol(t, children, fn, dst, tail)) {
+                    return;
+                }
+                break;
+            }
+            case APPLY: {
+                if (children.isEmpty()) {
+                    throw new SyntaxException("APPLY requires an operator expression");
+                }
+                int mark = fn.top;
+                int op = fn.temp();
+                expr(children.get(0), fn, op, false);
+                call(t, op, children.subList(1, children.size()), null, fn, dst, tail);
+                fn.release(mark);
+                return;
+            }
+            default:
+                throw new SyntaxException("Cannot evaluate expression with head: " + t);
+        }
+        if (tail) {
+            fn.emit(t, Bytecode.RETURN, dst);
+        }
+    }
+
+    private void sequence(List<Node<Token>> nodes, Fn fn, int dst, boolean tail) {
+        int last = nodes.size() - 1;
+        for (int i = 0; i < last; i++) {
+            int mark = fn.top;
+            expr(nodes.get(i), fn, fn.temp(), false);
+            fn.release(mark);
+        }
+        expr(nodes.get(last), fn, dst, tail);
+    }
+
+    // Evaluates nodes into consecutive fresh registers and returns the first of them.
+    private int consecutive(List<Node<Token>> nodes, Fn fn) {
+        int base = fn.top;
+        for (int i = 0; i < nodes.size(); i++) {
+            fn.temp();
+        }
+        for (int i = 0; i < nodes.size(); i++) {
+            expr(nodes.get(i), fn, base + i, false);
+        }
+        return base;
+    }
+
+    // ---------- symbols and calls ----------
+
+    // Returns true when the emitted code already returns in tail position.
+    private boolean symbol(Token<?> t, List<Node<Token>> children, Fn fn, int dst, boolean tail) {
+        String sym = (String) t.value();
+        switch (sym) {
+            case "::":
+            case "$": {
+                int mark = fn.top;
+                int base = consecutive(children, fn);
+                fn.emit(t, sym.equals("::") ? Bytecode.TUPLE : Bytecode.VECTOR, dst, base, children.size());
+                fn.release(mark);
+                return false;
+            }
+            case "import":
+                importForm(t, children, fn, dst);
+                return false;
+        }
+        if (children.isEmpty()) {
+            reference(t, sym, fn, dst);
+            return false;
+        }
+        // (symbol arg1 arg2 ...); a CALL0 marker stands for an empty argument list
+        ArrayList<Node<Token>> argNodes = new ArrayList<>(children.size());
+        for (Node<Token> child : children) {
+            if (child.getValue().type() != TokenType.CALL0) {
+                argNodes.add(child);
+            }
+        }
+        int mark = fn.top;
+        int op = fn.temp();
+        reference(t, sym, fn, op);
+        call(t, op, argNodes, sym, fn, dst, tail);
+        fn.release(mark);
+        return true;
+    }
+
+    private void call(Token<?> t, int op, List<Node<Token>> argNodes, String name, Fn fn, int dst, boolean tail) {
+        int base = consecutive(argNodes, fn);
+        if (tail) {
+            fn.emit(t, Bytecode.TAILCALL, op, base, argNodes.size(), fn.constant(name));
+        } else {
+            fn.emit(t, Bytecode.CALL, dst, op, base, argNodes.size(), fn.constant(name));
+        }
+    }
+
+    // Loads a variable from the enclosing bodies' registers, or from its global cell.
+    private void reference(Token<?> t, String sym, Fn fn, int dst) {
+        int depth = 0;
+        for (Fn f = fn; f != null; f = f.parent, depth++) {
+            int reg = f.lookup(sym, 0);
+            if (reg >= 0) {
+                fn.emit(t, Bytecode.LOAD, dst, depth, reg);
+                return;
+            }
+        }
+        fn.emit(t, Bytecode.GLOBAL, dst, fn.constant(env.cell(sym)));
+    }
+
+    private void importForm(Token<?> t, List<Node<Token>> children, Fn fn, int dst) {
+        if (children.size() != 1) {
+            throw new SyntaxException("import takes exactly one argument");
+        }
+        Token<?> argTok = children.get(0).getValue();
+        TokenType argType = argTok.type();
+        Object module;
+        if (argType == TokenType.SYMBOL) {
+            module = Symbol.intern((String) argTok.value());
+        } else if (argType == TokenType.STRING) {
+            module = argTok.value();
+        } else {
+            throw new SyntaxException("import: expected symbol or string, got " + argTok.type());
+        }
+        fn.emit(t, Bytecode.IMPORT, dst, fn.constant(module), fn.constant(env.cell("import")));
+    }
+
+    // ---------- special forms ----------
+
+    private void define(Token<?> t, List<Node<Token>> children, Fn fn, int dst) {
+        if (children.size() != 2) {
+            throw new SyntaxException("define requires a name and one expression", t);
+        }
+        String label = (String) children.get(0).getValue().value();
+        int mark = fn.top;
+        int value = fn.temp();
+        Node<Token> valueNode = children.get(1);
+        Token<?> valueTok = valueNode.getValue();
+        if (valueTok != null && valueTok.type() == TokenType.LAMBDA) {
+            lambda(valueTok, valueNode.getChildren(), fn, value, label);
+        } else {
+            expr(valueNode, fn, value, false);
+        }
+        if (fn.topLevel && fn.letDepth == 0) {
+            fn.emit(t, Bytecode.DEFINE, fn.constant(env.cell(label)), value);
+        } else {
+            // a define inside a body fills the register reserved for it
+            int reg = fn.lookup(label, 0);
+            if (reg < 0) {
+                reg = fn.local();
+                fn.bind(label, reg);
+            }
+            fn.emit(t, Bytecode.STORE, reg, value);
+        }
+        fn.release(mark);
+        fn.emit(t, Bytecode.CONST, dst, fn.constant(env));
+    }
+
+    // Reserves registers for the defines in body that are not already bound since index from.
+    private void reserveDefines(Node<Token> body, Fn fn, int from) {
+        for (String name : Compiler.definedNames(body)) {
+            if (fn.lookup(name, from) < 0) {
+                fn.bind(name, fn.local());
+            }
+        }
+    }
+
+    private void cond(Token<?> t, List<Node<Token>> clauses, Fn fn, int dst, boolean tail) {
+        ArrayList<Integer> exits = new ArrayList<>();
+        boolean hasElse = false;
+        for (Node<Token> clause : clauses) {
+            List<Node<Token>> kids = clause.getChildren();
+            if (kids.isEmpty()) {
+                continue;
+            }
+            Node<Token> predNode = kids.get(0);
+            List<Node<Token>> body = kids.subList(1, kids.size());
+            Token<?> predTok = predNode.getValue();
+            boolean isElse = predTok.type() == TokenType.SYMBOL && "else".equals(predTok.value());
+            if (isElse && body.isEmpty()) {
+                throw new SyntaxException("cond else clause requires at least one body expression");
+            }
+            if (isElse) {
+                sequence(body, fn, dst, tail);
+                hasElse = true;
+                break;
+            }
+            int mark = fn.top;
+            int pred = fn.temp();
+            expr(predNode, fn, pred, false);
+            int branch = fn.emit(predTok, Bytecode.JUMPF, pred, -1);
+            if (body.isEmpty()) {
+                // a clause without a body yields the predicate's value
+                if (tail) {
+                    fn.emit(predTok, Bytecode.RETURN, pred);
+                } else {
+                    fn.emit(predTok, Bytecode.STORE, dst, pred);
+                }
+            } else {
+                sequence(body, fn, dst, tail);
+            }
+            fn.release(mark);
+            if (!tail) {
+                exits.add(fn.emit(t, Bytecode.JUMP, -1) + 1);
+            }
+            fn.code[branch + 2] = fn.length;
+        }
+        if (!hasElse) {
+            fn.emit(t, Bytecode.FAIL, fn.constant("cond: no true clause and no else clause"));
+        }
+        for (int exit : exits) {
+            fn.code[exit] = fn.length;
+        }
+    }
+
+    // ----- LET (parallel bindings) -----
+    private void let(Token<?> t, List<Node<Token>> let, Fn fn, int dst, boolean tail) {
+        if (let.size() != 2) {
+            throw new SyntaxException("let requires a binding list and one body expression");
+        }
+        List<Node<Token>> bindingPairs = let.get(0).getChildren();
+        if (bindingPairs.isEmpty()) {
+            expr(let.get(1), fn, dst, tail);
+            return;
+        }
+        int[] regs = new int[bindingPairs.size()];
+        String[] names = new String[regs.length];
+        for (int i = 0; i < regs.length; i++) {
+            Node<Token> binding = bindingPairs.get(i);
+            if (binding.getChildren().size() != 2) {
+                throw new SyntaxException("Each let binding must be a (symbol expr) pair");
+            }
+            names[i] = (String) binding.getChildren().get(0).getValue().value();
+            regs[i] = fn.local();
+            expr(binding.getChildren().get(1), fn, regs[i], false);
+        }
+        int scope = fn.names.size();
+        for (int i = 0; i < regs.length; i++) {
+            fn.bind(names[i], regs[i]);
+        }
+        body(let.get(1), fn, scope, dst, tail);
+    }
+
+    // ----- LETS (sequential bindings) -----
+    private void lets(Token<?> t, List<Node<Token>> lets, Fn fn, int dst, boolean tail) {
+        if (lets.size() != 2) {
+            throw new SyntaxException("lets requires a binding list and one body expression");
+        }
+        List<Node<Token>> bindingPairs = lets.get(0).getChildren();
+        if (bindingPairs.isEmpty()) {
+            expr(lets.get(1), fn, dst, tail);
+            return;
+        }
+        int scope = fn.names.size();
+        for (Node<Token> binding : bindingPairs) {
+            if (binding.getChildren().size() != 2) {
+                throw new SyntaxException("Each lets binding must be a (symbol expr) pair");
+            }
+            int reg = fn.local();
+            expr(binding.getChildren().get(1), fn, reg, false);
+            fn.bind((String) binding.getChildren().get(0).getValue().value(), reg);
+        }
+        // body defines share a frame with the last binding only
+        body(lets.get(1), fn, fn.names.size() - 1, scope, dst, tail);
+    }
+
+    // ----- LETR (recursive bindings): every init sees all of the names -----
+    private void letr(Token<?> t, List<Node<Token>> letr, Fn fn, int dst, boolean tail) {
+        if (letr.size() != 2) {
+            throw new SyntaxException("letr requires a binding list and one body expression");
+        }
+        List<Node<Token>> bindingPairs = letr.get(0).getChildren();
+        int scope = fn.names.size();
+        int[] regs = new int[bindingPairs.size()];
+        for (int i = 0; i < regs.length; i++) {
+            Node<Token> binding = bindingPairs.get(i);
+            if (binding.getChildren().size() != 2) {
+                throw new SyntaxException("Each letr binding must be a (symbol expr) pair");
+            }
+            regs[i] = fn.local();
+            fn.bind((String) binding.getChildren().get(0).getValue().value(), regs[i]);
+        }
+        fn.letDepth++;
+        reserveDefines(letr.get(1), fn, scope);
+        for (int i = 0; i < regs.length; i++) {
+            int mark = fn.top;
+            int value = fn.temp();
+            expr(bindingPairs.get(i).getChildren().get(1), fn, value, false);
+            String name = (String) bindingPairs.get(i).getChildren().get(0).getValue().value();
+            fn.emit(t, Bytecode.STORE, fn.lookup(name, scope), value);
+            fn.release(mark);
+        }
+        expr(letr.get(1), fn, dst, tail);
+        fn.letDepth--;
+        fn.unbind(scope);
+    }
+
+    private void body(Node<Token> body, Fn fn, int scope, int dst, boolean tail) {
+        body(body, fn, scope, scope, dst, tail);
+    }
+
+    // Compiles a let body whose own bindings start at index defineScope, then drops every
+    // binding from index scope on.
+    private void body(Node<Token> body, Fn fn, int defineScope, int scope, int dst, boolean tail) {
+        fn.letDepth++;
+        reserveDefines(body, fn, defineScope);
+        expr(body, fn, dst, tail);
+        fn.letDepth--;
+        fn.unbind(scope);
+    }
+
+    // ----- named let: (let name ((v1 e1) (v2 e2)) body) -----
+    private void letNamed(Token<?> t, List<Node<Token>> parts, Fn fn, int dst, boolean tail) {
+        if (parts.size() != 3) {
+            throw new SyntaxException("named let must have a name, bindings, and body");
+        }
+        String fnName = (String) parts.get(0).getValue().value();
+        List<Node<Token>> bindingPairs = parts.get(1).getChildren();
+        ArrayList<String> params = new ArrayList<>(bindingPairs.size());
+        ArrayList<Node<Token>> inits = new ArrayList<>(bindingPairs.size());
+        for (Node<Token> binding : bindingPairs) {
+            if (binding.getChildren().size() != 2) {
+                throw new SyntaxException("Each binding must be a (symbol expr) pair");
+            }
+            params.add((String) binding.getChildren().get(0).getValue().value());
+            inits.add(binding.getChildren().get(1));
+        }
+        int mark = fn.top;
+        int base = consecutive(inits, fn);
+        int self = fn.local();
+        int scope = fn.names.size();
+        fn.bind(fnName, self);
+        Bytecode.Proto proto = procedure(t, params, parts.get(2), fn, fnName);
+        fn.emit(t, Bytecode.CLOSURE, self, fn.constant(proto));
+        fn.unbind(scope);
+        if (tail) {
+            fn.emit(t, Bytecode.TAILCALL, self, base, params.size(), fn.constant(fnName));
+        } else {
+            fn.emit(t, Bytecode.CALL, dst, self, base, params.size(), fn.constant(fnName));
+        }
+        fn.release(mark);
+    }
+
+    private void lambda(Token<?> t, List<Node<Token>> children, Fn fn, int dst, String name) {
+        if (children.size() != 2) {
+            throw new SyntaxException("lambda requires a parameter list and one body expression", t);
+        }
+        ArrayList<String> params = new ArrayList<>();
+        for (Node<Token> p : children.get(0).getChildren()) {
+            params.add((String) p.getValue().value());
+        }
+        fn.emit(t, Bytecode.CLOSURE, dst, fn.constant(procedure(t, params, children.get(1), fn, name)));
+    }
+
+    // Compiles a procedure body nested in fn; the parameters take its first registers.
+    private Bytecode.Proto procedure(Token<?> t, List<String> params, Node<Token> body, Fn fn, String name) {
+        Fn inner = new Fn(fn, false);
+        for (String param : params) {
+            inner.bind(param, inner.local());
+        }
+        reserveDefines(body, inner, 0);
+        expr(body, inner, inner.temp(), true);
+        return new Bytecode.Proto(params.toArray(new String[0]), inner.finish(t), name);
+    }
+
+    // ---------- data ----------
+
+    // (list ...) literal node, with an optional dotted tail
+    private void list(Token<?> t, List<Node<Token>> kids, Fn fn, int dst) {
+        int dot = -1;
+        for (int i = 0; i < kids.size(); i++) {
+            if (kids.get(i).getValue().type() == TokenType.DOT) { dot = i; break; }
+        }
+        int mark = fn.top;
+        if (dot < 0) {
+            int base = consecutive(kids, fn);
+            fn.emit(t, Bytecode.LIST, dst, base, kids.size(), -1);
+        } else {
+            Node<Token> dotNode = kids.get(dot);
+            if (dotNode.getChildren().isEmpty()) {
+                throw new SyntaxException("Dot without following cdr expression");
+            }
+            List<Node<Token>> elems = kids.subList(0, dot);
+            int base = consecutive(elems, fn);
+            int tailReg = fn.temp();
+            expr(dotNode.getChildren().get(0), fn, tailReg, false);
+            fn.emit(t, Bytecode.LIST, dst, base, elems.size(), tailReg);
+        }
+        fn.release(mark);
+    }
+
+    private void quasiQuote(Token<?> t, Node<Token> template, Fn fn, int dst) {
+        List<Node<Token>> nodes = Compiler.unquotedNodes(template);
+        int mark = fn.top;
+        int base = fn.top;
+        for (int i = 0; i < nodes.size(); i++) {
+            fn.temp();
+        }
+        for (int i = 0; i < nodes.size(); i++) {
+            expr(nodes.get(i).getChildren().get(0), fn, base + i, false);
+        }
+        fn.emit(t, Bytecode.QQUOTE, dst, fn.constant(new Bytecode.Template(template, nodes)), base);
+        fn.release(mark);
+    }
+}
@@ -0,0 +1,360 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/*
+ Minimal writer for JVM class files, just enough for the Jit to emit one class with a few static
+ fields and methods. Classes are written as version 49 (Java 5), the last version verified by
+ type inference, so no StackMapTable has to be computed for branches and exception handlers.
+
+ Instructions are appended to a Method one at a time; each emit method tracks the operand stack
+ height so max_stack comes out right without a separate analysis pass.
+*/
+final class ClassAssembler {
+    // ---------- opcodes ----------
+    static final int ACONST_NULL = 0x01, ICONST_0 = 0x03, BIPUSH = 0x10, SIPUSH = 0x11;
+    static final int LDC_W = 0x13, ILOAD = 0x15, ALOAD = 0x19, AALOAD = 0x32;
+    static final int ISTORE = 0x36, ASTORE = 0x3a, AASTORE = 0x53;
+    static final int POP = 0x57, DUP = 0x59, SWAP = 0x5f;
+    static final int IFEQ = 0x99, IF_ACMPEQ = 0xa5, IF_ACMPNE = 0xa6, GOTO = 0xa7;
+    static final int ARETURN = 0xb0, RETURN = 0xb1;
+    static final int GETSTATIC = 0xb2, PUTSTATIC = 0xb3, GETFIELD = 0xb4;
+    static final int INVOKEVIRTUAL = 0xb6, INVOKESPECIAL = 0xb7, INVOKESTATIC = 0xb8;
+    static final int NEW = 0xbb, ANEWARRAY = 0xbd, ATHROW = 0xbf, CHECKCAST = 0xc0, WIDE = 0xc4;
+
+    static final int ACC_PUBLIC = 0x0001, ACC_STATIC = 0x0008, ACC_FINAL = 0x0010, ACC_SUPER = 0x0020;
+
+    private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+    private final DataOutputStream pool = new DataOutputStream(poolBytes);
+    private final HashMap<String, Integer> poolIndex = new HashMap<>();
+    private int poolCount = 1;
+
+    private final String name;
+    private final String superName;
+    private final ArrayList<byte[]> fields = new ArrayList<>();
+    private final ArrayList<Method> methods = new ArrayList<>();
+
+    ClassAssembler(String name, String superName) {
+        this.name = name;
+        this.superName = superName;
+    }
+
+    // ---------- constant pool ----------
+
+    private int entry(String key, int tag, int... refs) {
+        Integer index = poolIndex.get(key);
+        if (index != null) {
+            return index;
+        }
+        try {
+            pool.writeByte(tag);
+            for (int ref : refs) {
+                pool.writeShort(ref);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        poolIndex.put(key, poolCount);
+        return poolCount++;
+    }
+
+    int utf8(String s) {
+        Integer index = poolIndex.get("U" + s);
+        if (index != null) {
+            return index;
+        }
+        try {
+            pool.writeByte(1);
+            pool.writeUTF(s);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        poolIndex.put("U" + s, poolCount);
+        return poolCount++;
+    }
+
+    int classRef(String internalName) {
+        return entry("C" + internalName, 7, utf8(internalName));
+    }
+
+    int string(String s) {
+        return entry("S" + s, 8, utf8(s));
+    }
+
+    private int nameAndType(String name, String desc) {
+        return entry("N" + name + ":" + desc, 12, utf8(name), utf8(desc));
+    }
+
+    int fieldRef(String owner, String name, String desc) {
+        return entry("F" + owner + "." + name + ":" + desc, 9, classRef(owner), nameAndType(name, desc));
+    }
+
+    int methodRef(String owner, String name, String desc) {
+        return entry("M" + owner + "." + name + desc, 10, classRef(owner), nameAndType(name, desc));
+    }
+
+    // ---------- members ----------
+
+    void field(int access, String name, String desc) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeShort(access);
+            out.writeShort(utf8(name));
+            out.writeShort(utf8(desc));
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        fields.add(bytes.toByteArray());
+    }
+
+    Method method(int access, String name, String desc, int maxLocals) {
+        Method m = new Method(access, name, desc, maxLocals);
+        methods.add(m);
+        return m;
+    }
+
+    byte[] toByteArray() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        // every pool entry has to exist before the pool is written out
+        int thisClass = classRef(name);
+        int superClass = classRef(superName);
+        int codeName = utf8("Code");
+        try {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(49);
+            out.writeShort(poolCount);
+            pool.flush();
+            poolBytes.writeTo(out);
+            out.writeShort(ACC_FINAL | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(0);
+            out.writeShort(fields.size());
+            for (byte[] f : fields) {
+                out.write(f);
+            }
+            out.writeShort(methods.size());
+            for (Method m : methods) {
+                m.writeTo(out, codeName);
+            }
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    // Forward or backward branch target inside one Method.
+    static final class Label {
+        int offset = -1;
+        final ArrayList<Integer> uses = new ArrayList<>();
+    }
+
+    final class Method {
+        final int access;
+        final String name;
+        private final int nameIndex;
+        private final int descIndex;
+        int maxLocals;
+        private byte[] code = new byte[256];
+        private int length;
+        private int stack;
+        private int maxStack;
+        private final ArrayList<int[]> handlers = new ArrayList<>();
+
+        Method(int access, String name, String desc, int maxLocals) {
+            this.access = access;
+            this.name = name;
+            this.nameIndex = utf8(name);
+            this.descIndex = utf8(desc);
+            this.maxLocals = maxLocals;
+        }
+
+        int length() {
+            return length;
+        }
+
+        private void u1(int b) {
+            if (length == code.length) {
+                code = Arrays.copyOf(code, length * 2);
+            }
+            code[length++] = (byte) b;
+        }
+
+        private void u2(int v) {
+            u1(v >> 8);
+            u1(v);
+        }
+
+        private void adjust(int delta) {
+            stack += delta;
+            if (stack > maxStack) {
+                maxStack = stack;
+            }
+        }
+
+        // Operand stack height; set it explicitly where code resumes after an unconditional jump.
+        int stack() {
+            return stack;
+        }
+
+        void stack(int height) {
+            stack = height;
+        }
+
+        // Opcodes without operands, with their effect on the stack.
+        void op(int opcode) {
+            u1(opcode);
+            switch (opcode) {
+                case ACONST_NULL, DUP -> adjust(1);
+                case POP, ARETURN, ATHROW -> adjust(-1);
+                case AALOAD -> adjust(-1);
+                case AASTORE -> adjust(-3);
+                case SWAP, RETURN -> { }
+                default -> throw new IllegalArgumentException("op " + opcode);
+            }
+        }
+
+        void iconst(int value) {
+            if (value >= -1 && value <= 5) {
+                u1(ICONST_0 + value);
+            } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+                u1(BIPUSH);
+                u1(value);
+            } else {
+                u1(SIPUSH);
+                u2(value);
+            }
+            adjust(1);
+        }
+
+        void ldc(int poolEntry) {
+            u1(LDC_W);
+            u2(poolEntry);
+            adjust(1);
+        }
+
+        void load(int opcode, int local) {
+            local(opcode, local);
+            adjust(1);
+        }
+
+        void store(int opcode, int local) {
+            local(opcode, local);
+            adjust(-1);
+        }
+
+        // A load or store of local, widened when its index does not fit in a byte.
+        private void local(int opcode, int local) {
+            if (local > 255) {
+                u1(WIDE);
+                u1(opcode);
+                u2(local);
+            } else {
+                u1(opcode);
+                u1(local);
+            }
+        }
+
+        void type(int opcode, String internalName) {
+            u1(opcode);
+            u2(classRef(internalName));
+            if (opcode == NEW) {
+                adjust(1);
+            }
+        }
+
+        void field(int opcode, String owner, String name, String desc) {
+            u1(opcode);
+            u2(fieldRef(owner, name, desc));
+            switch (opcode) {
+                case GETSTATIC -> adjust(1);
+                case PUTSTATIC -> adjust(-1);
+                default -> { } // GETFIELD replaces the object with the value
+            }
+        }
+
+        void invoke(int opcode, String owner, String name, String desc) {
+            u1(opcode);
+            u2(methodRef(owner, name, desc));
+            adjust(-argumentSlots(desc) - (opcode == INVOKESTATIC ? 0 : 1) + (desc.endsWith(")V") ? 0 : 1));
+        }
+
+        void jump(int opcode, Label target) {
+            int at = length;
+            u1(opcode);
+            switch (opcode) {
+                case IFEQ -> adjust(-1);
+                case IF_ACMPEQ, IF_ACMPNE -> adjust(-2);
+                default -> { }
+            }
+            if (target.offset >= 0) {
+                u2(target.offset - at);
+            } else {
+                target.uses.add(at);
+                u2(0);
+            }
+        }
+
+        void mark(Label label) {
+            label.offset = length;
+            for (int at : label.uses) {
+                int rel = length - at;
+                code[at + 1] = (byte) (rel >> 8);
+                code[at + 2] = (byte) rel;
+            }
+        }
+
+        // Catch-any handler for the code between start and end.
+        void handler(Label start, Label end, Label handler) {
+            handlers.add(new int[] { start.offset, end.offset, handler.offset });
+        }
+
+        private void writeTo(DataOutputStream out, int codeName) throws IOException {
+            if (length > 65535) {
+                throw new IllegalStateException("method too large: " + name);
+            }
+            out.writeShort(access);
+            out.writeShort(nameIndex);
+            out.writeShort(descIndex);
+            out.writeShort(1);
+            out.writeShort(codeName);
+            out.writeInt(12 + length + handlers.size() * 8);
+            out.writeShort(maxStack);
+            out.writeShort(maxLocals);
+            out.writeInt(length);
+            out.write(code, 0, length);
+            out.writeShort(handlers.size());
+            for (int[] h : handlers) {
+                out.writeShort(h[0]);
+                out.writeShort(h[1]);
+                out.writeShort(h[2]);
+                out.writeShort(0);
+            }
+            out.writeShort(0);
+        }
+    }
+
+    // Reference and int arguments each take one slot; this writer never passes longs or doubles.
+    private static int argumentSlots(String desc) {
+        int slots = 0;
+        for (int i = 1; desc.charAt(i) != ')'; i++) {
+            char c = desc.charAt(i);
+            while (c == '[') {
+                c = desc.charAt(++i);
+            }
+            if (c == 'L') {
+                i = desc.indexOf(';', i);
+            }
+            slots++;
+        }
+        return slots;
+    }
+}
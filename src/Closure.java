@@ -0,0 +1,28 @@
+/*
+ A procedure defined in MicroLisp: the compiled body of a lambda together with the frame it
+ closed over. Calling it puts the arguments in the leading slots of a fresh frame of frameSize
+ slots whose parent is the captured frame, and runs the body there.
+*/
+final class Closure {
+    final String[] params;
+    final Code body;
+    final Frame captured;
+    final int arity;
+    final int frameSize;
+    // Name the lambda was defined under, or null for an anonymous lambda.
+    final String name;
+
+    Closure(String[] params, Code body, Frame captured, int frameSize, String name) {
+        this.params = params;
+        this.body = body;
+        this.captured = captured;
+        this.arity = params.length;
+        this.frameSize = frameSize;
+        this.name = name;
+    }
+
+    @Override
+    public String toString() {
+        return name == null ? "#<procedure>" : "#<procedure " + name + ">";
+    }
+}
@@ -0,0 +1,622 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/*
+ Executable form of a parsed expression. The Compiler walks a Node<Token> tree once and
+ produces a tree of Code objects, so evaluation never has to look at token types again.
+
+ Every form implements evalT, which evaluates the form in tail position: a form that ends in
+ a procedure call (cond, do, let, calls) loads the call into the Machine registers and returns
+ Machine.TAIL_CALL instead of growing the Java stack. eval runs a form to completion and is
+ what non-tail subexpressions use.
+*/
+abstract class Code {
+    // Token the form was compiled from, kept for error reporting.
+    final Token<?> source;
+
+    Code(Token<?> source) {
+        this.source = source;
+    }
+
+    abstract Object evalT(Frame frame, Machine m);
+
+    Object eval(Frame frame, Machine m) {
+        return Evaluator.execute(this, frame, m);
+    }
+
+    // Value of the form as a fixnum, for a specialized Arith that expects one; a value of any
+    // other kind is thrown back to it as an UnexpectedKind.
+    long evalLong(Frame frame, Machine m) {
+        Object value = eval(frame, m);
+        if (value instanceof Number n && n.type == Number.Type.INT) {
+            return n.intVal();
+        }
+        throw new UnexpectedKind(value);
+    }
+
+    // Value of the form as a flonum, likewise.
+    double evalDouble(Frame frame, Machine m) {
+        Object value = eval(frame, m);
+        if (value instanceof Number n && n.type == Number.Type.FLOAT) {
+            return n.floatVal();
+        }
+        throw new UnexpectedKind(value);
+    }
+
+    // A value of another kind than a specialized form expected, already computed.
+    static final class UnexpectedKind extends RuntimeException {
+        final Object value;
+        UnexpectedKind(Object value) {
+            super(null, null, false, false);
+            this.value = value;
+        }
+    }
+
+    // ---------- constants and variables ----------
+
+    // Self-evaluating atom or literal: numbers, booleans, strings and constant data.
+    static final class Const extends Code {
+        final Object value;
+        Const(Token<?> source, Object value) {
+            super(source);
+            this.value = value;
+        }
+        @Override Object eval(Frame frame, Machine m) { return value; }
+        @Override Object evalT(Frame frame, Machine m) { return value; }
+    }
+
+    // Reference to a parameter or let-bound variable, resolved to a frame depth and slot.
+    static final class LocalRef extends Code {
+        final String name;
+        final int depth;
+        final int slot;
+        LocalRef(Token<?> source, String name, int depth, int slot) {
+            super(source);
+            this.name = name;
+            this.depth = depth;
+            this.slot = slot;
+        }
+        @Override Object eval(Frame frame, Machine m) {
+            Frame f = frame;
+            for (int i = depth; i > 0; i--) {
+                f = f.parent;
+            }
+            Object value = f.slots[slot];
+            if (value == Frame.UNBOUND) {
+                throw new RuntimeException("Unbound symbol: " + name);
+            }
+            return value;
+        }
+        @Override Object evalT(Frame frame, Machine m) { return eval(frame, m); }
+    }
+
+    // Reference to a top-level definition or builtin, resolved to its global cell at compile time.
+    static final class GlobalRef extends Code {
+        final Environment.Cell cell;
+        GlobalRef(Token<?> source, Environment.Cell cell) {
+            super(source);
+            this.cell = cell;
+        }
+        @Override Object eval(Frame frame, Machine m) {
+            return cell.get();
+        }
+        @Override Object evalT(Frame frame, Machine m) { return eval(frame, m); }
+    }
+
+    // ---------- special forms ----------
+
+    // (define name expr) at top level
+    static final class Define extends Code {
+        final Environment.Cell cell;
+        final Code value;
+        final Environment env;
+        Define(Token<?> source, Environment.Cell cell, Code value, Environment env) {
+            super(source);
+            this.cell = cell;
+            this.value = value;
+            this.env = env;
+        }
+        @Override Object evalT(Frame frame, Machine m) {
+            cell.set(value.eval(frame, m));
+            return env;
+        }
+    }
+
+    // (define name expr) inside a lambda or let body fills a slot reserved in that body's frame.
+    static final class LocalDefine extends Code {
+        final int slot;
+        final Code value;
+        final Environment env;
+        LocalDefine(Token<?> source, int slot, Code value, Environment env) {
+            super(source);
+            this.slot = slot;
+            this.value = value;
+            this.env = env;
+        }
+        @Override Object evalT(Frame frame, Machine m) {
+            frame.slots[slot] = value.eval(frame, m);
+            return env;
+        }
+    }
+
+    // (cond (pred body...) ... (else body...)); an else clause has a null predicate.
+    static final class Cond extends Code {
+        final Code[] predicates;
+        final Code[][] bodies;
+        Cond(Token<?> source, Code[] predicates, Code[][] bodies) {
+            super(source);
+            this.predicates = predicates;
+            this.bodies = bodies;
+        }
+        @Override Object evalT(Frame frame, Machine m) {
+            for (int i = 0; i < predicates.length; i++) {
+                Code[] body = bodies[i];
+                if (predicates[i] == null) {
+                    return evalSequenceT(body, frame, m);
+                }
+                Object predValue = predicates[i].eval(frame, m);
+                if (predValue == Bool.TRUE) {
+                    if (body.length == 0) {
+                        return predValue;
+                    }
+                    return evalSequenceT(body, frame, m);
+                }
+            }
+            throw new RuntimeException("cond: no true clause and no else clause");
+        }
+    }
+
+    // (do expr...) evaluates each expression in turn, the last one in tail position.
+    static final class Sequence extends Code {
+        final Code[] body;
+        Sequence(Token<?> source, Code[] body) {
+            super(source);
+            this.body = body;
+        }
+        @Override Object evalT(Frame frame, Machine m) {
+            return evalSequenceT(body, frame, m);
+        }
+    }
+
+    static Object evalSequenceT(Code[] body, Frame frame, Machine m) {
+        int last = body.length - 1;
+        for (int i = 0; i < last; i++) {
+            body[i].eval(frame, m);
+        }
+        return body[last].evalT(frame, m);
+    }
+
+    // (lambda (params...) body) builds a closure over the current frame; name is the symbol
+    // a (define name (lambda ...)) binds it to, or null.
+    static final class Lambda extends Code {
+        final String[] params;
+        final Code body;
+        final int frameSize;
+        final String name;
+        Lambda(Token<?> source, String[] params, Code body, int frameSize, String name) {
+            super(source);
+            this.params = params;
+            this.body = body;
+            this.frameSize = frameSize;
+            this.name = name;
+        }
+        @Override Object evalT(Frame frame, Machine m) {
+            return new Closure(params, body, frame, frameSize, name);
+        }
+    }
+
+    // Fresh frame for a let or call: the values fill the leading slots and any slots
+    // reserved for body defines start out unbound.
+    static Frame newFrame(Object[] values, int frameSize, Frame parent) {
+        Object[] slots = values;
+        if (frameSize > values.length) {
+            slots = new Object[frameSize];
+            System.arraycopy(values, 0, slots, 0, values.length);
+            Arrays.fill(slots, values.length, frameSize, Frame.UNBOUND);
+        }
+        return new Frame(slots, parent);
+    }
+
+    // (let ((name init)...) body): inits are evaluated in the outer frame.
+    static final class Let extends Code {
+        final Code[] inits;
+        final Code body;
+        final int frameSize;
+        Let(Token<?> source, Code[] inits, Code body, int frameSize) {
+            super(source);
+            this.inits = inits;
+            this.body = body;
+            this.frameSize = frameSize;
+        }
+        @Override Object evalT(Frame frame, Machine m) {
+            return body.evalT(newFrame(evalAll(inits, frame, m), frameSize, frame), m);
+        }
+    }
+
+    // (let name ((var init)...) body): a self-referencing closure applied to the inits.
+    // The closure lives in a one-slot frame of its own so the body can call it by name.
+    static final class LetNamed extends Code {
+        final String name;
+        final String[] params;
+        final Code[] inits;
+        final Code body;
+        final int frameSize;
+        LetNamed(Token<?> source, String name, String[] params, Code[] inits, Code body, int frameSize) {
+            super(source);
+            this.name = name;
+            this.params = params;
+            this.inits = inits;
+            this.body = body;
+            this.frameSize = frameSize;
+        }
+        @Override Object evalT(Frame frame, Machine m) {
+            Object[] args = evalAll(inits, frame, m);
+            Frame selfFrame = new Frame(new Object[1], frame);
+            Closure self = new Closure(params, body, selfFrame, frameSize, name);
+            selfFrame.slots[0] = self;
+            return Evaluator.applyProcedureT(self, args, m);
+        }
+    }
+
+    // ---------- data ----------
+
+    // (quasi-quote template); the unquoted expressions are evaluated in template order and their
+    // values looked up by node while the template is expanded.
+    static final class QuasiQuote extends Code {
+        final Node<Token> template;
+        final List<Node<Token>> unquotedNodes;
+        final Code[] unquoted;
+        QuasiQuote(Token<?> source, Node<Token> template, List<Node<Token>> unquotedNodes, Code[] unquoted) {
+            super(source);
+            this.template = template;
+            this.unquotedNodes = unquotedNodes;
+            this.unquoted = unquoted;
+        }
+        @Override Object evalT(Frame frame, Machine m) {
+            IdentityHashMap<Node<Token>, Object> values = new IdentityHashMap<>();
+            for (int i = 0; i < unquoted.length; i++) {
+                values.put(unquotedNodes.get(i), unquoted[i].eval(frame, m));
+            }
+            return Evaluator.expandQuasiQuote(template, values);
+        }
+    }
+
+    // (:: a b ...) tuple literal
+    static final class TupleLiteral extends Code {
+        final Code[] elems;
+        TupleLiteral(Token<?> source, Code[] elems) {
+            super(source);
+            this.elems = elems;
+        }
+        @Override Object evalT(Frame frame, Machine m) {
+            return Tuple.of(evalAll(elems, frame, m));
+        }
+    }
+
+    // ($ a b ...) vector literal
+    static final class VectorLiteral extends Code {
+        final Code[] elems;
+        VectorLiteral(Token<?> source, Code[] elems) {
+            super(source);
+            this.elems = elems;
+        }
+        @Override Object evalT(Frame frame, Machine m) {
+            return Vector.of(evalAll(elems, frame, m));
+        }
+    }
+
+    // (1 2 3) or (list ...) literal; a non-null tail builds an improper list.
+    static final class ListLiteral extends Code {
+        final Code[] elems;
+        final Code tail;
+        ListLiteral(Token<?> source, Code[] elems, Code tail) {
+            super(source);
+            this.elems = elems;
+            this.tail = tail;
+        }
+        @Override Object evalT(Frame frame, Machine m) {
+            if (tail == null) {
+                ArrayList<Object> values = new ArrayList<>(elems.length);
+                for (Code elem : elems) {
+                    values.add(elem.eval(frame, m));
+                }
+                return new LinkedList<>(values);
+            }
+            Object cell = tail.eval(frame, m);
+            for (int i = elems.length - 1; i >= 0; i--) {
+                cell = (cell instanceof LinkedList)
+                    ? new LinkedList<>(elems[i].eval(frame, m), (LinkedList<?>) cell)
+                    : new LinkedList<>(elems[i].eval(frame, m), cell); // improper tail stays raw
+            }
+            return cell;
+        }
+    }
+
+    // (import name) passes the unevaluated symbol or string to the bound import procedure.
+    static final class Import extends Code {
+        final Object module;
+        final Environment.Cell importer;
+        Import(Token<?> source, Object module, Environment.Cell importer) {
+            super(source);
+            this.module = module;
+            this.importer = importer;
+        }
+        @Override Object evalT(Frame frame, Machine m) {
+            Object importer = this.importer.value;
+            if (importer == Environment.Cell.UNBOUND || importer == null) {
+                throw new RuntimeException("import function not bound");
+            }
+            if (importer instanceof Primitive p) {
+                return p.invoke1(module);
+            }
+            throw new SyntaxException("import binding is not callable: " + importer);
+        }
+    }
+
+    // ---------- application ----------
+
+    // (op arg...) where op is any expression; name is used in error messages.
+    //
+    // Each call site keeps a monomorphic inline cache of the last primitive it called. While the
+    // operator keeps evaluating to that primitive, arguments go straight to its fixed-arity entry
+    // point with no type test and no argument array; any other operator takes the general path
+    // and, if it is a primitive, becomes the new cached target.
+    static final class Call extends Code {
+        final Code operator;
+        final Code[] args;
+        final String name;
+        private Primitive cached;
+        Call(Token<?> source, Code operator, Code[] args, String name) {
+            super(source);
+            this.operator = operator;
+            this.args = args;
+            this.name = name;
+        }
+        @Override Object evalT(Frame frame, Machine m) {
+            Object op = operator.eval(frame, m);
+            Primitive prim = cached;
+            if (op != prim) {
+                if (!(op instanceof Primitive p)) {
+                    return Evaluator.applyT(op, evalAll(args, frame, m), name, m);
+                }
+                cached = prim = p;
+            }
+            return invoke(prim, frame, m);
+        }
+        private Object invoke(Primitive prim, Frame frame, Machine m) {
+            Code[] a = args;
+            switch (a.length) {
+                case 0: return prim.invoke0();
+                case 1: return prim.invoke1(a[0].eval(frame, m));
+                case 2: return prim.invoke2(a[0].eval(frame, m), a[1].eval(frame, m));
+                case 3: return prim.invoke3(a[0].eval(frame, m), a[1].eval(frame, m), a[2].eval(frame, m));
+                case 4: return prim.invoke4(a[0].eval(frame, m), a[1].eval(frame, m), a[2].eval(frame, m),
+                                            a[3].eval(frame, m));
+                default: return prim.invoke(evalAll(a, frame, m));
+            }
+        }
+    }
+
+    // (op a b) where op is a global that held a binary use of + - * / < > <= >= = when compiled.
+    //
+    // The site records the kinds of its operands and specializes to them: with two fixnums it
+    // computes in longs, with flonums, or a flonum and a fixnum, in doubles. Operands that are
+    // themselves specialized Arith sites hand their values over unboxed through evalLong and
+    // evalDouble, so in (+ (* zr zr) (* zi zi)) only the sum becomes a Number. An operand of
+    // another kind deoptimizes the site: the values computed so far finish through the builtin
+    // and the next run specializes again, up to MAX_DEOPTS times before it stays generic. An
+    // overflow, an inexact fixnum quotient or a non-finite double is handed to the builtin, so
+    // every result is the one the numeric tower gives. If the global is redefined, the site
+    // makes the plain call. A site shared by isolates may read a kind another thread recorded;
+    // a wrong kind only costs a deoptimization.
+    static final class Arith extends Code {
+        static final int MAX_DEOPTS = 4;
+        private static final String OPS = "+-*/<>{}=";   // { and } stand for <= and >=
+        private static final byte UNSEEN = 0, LONG = 1, DOUBLE = 2, GENERIC = 3;
+        // Largest magnitude up to which every long converts to a double exactly.
+        private static final long EXACT_DOUBLE = 1L << 53;
+
+        final Call generic;
+        final Environment.Cell cell;
+        final Primitive target;
+        final Code left, right;
+        final char op;
+        final boolean comparison;
+        private byte state;
+        private boolean leftLong, rightLong; // operand kinds while specialized to DOUBLE
+        private int deopts;
+
+        private Arith(Call generic, GlobalRef ref, Primitive target, char op) {
+            super(generic.source);
+            this.generic = generic;
+            this.cell = ref.cell;
+            this.target = target;
+            this.left = generic.args[0];
+            this.right = generic.args[1];
+            this.op = op;
+            this.comparison = OPS.indexOf(op) >= 4;
+        }
+
+        // call itself, or a specializing site for it when it is a binary arithmetic builtin call.
+        static Code of(Call call) {
+            if (call.args.length != 2 || call.name == null
+                    || !(call.operator instanceof GlobalRef ref)
+                    || !(ref.cell.value instanceof Primitive p) || !p.name.equals(call.name)) {
+                return call;
+            }
+            char op = switch (call.name) {
+                case "+", "-", "*", "/", "<", ">", "=" -> call.name.charAt(0);
+                case "<=" -> '{';
+                case ">=" -> '}';
+                default -> 0;
+            };
+            return op == 0 ? call : new Arith(call, ref, p, op);
+        }
+
+        @Override Object evalT(Frame frame, Machine m) {
+            if (cell.value != target) {
+                return generic.evalT(frame, m);
+            }
+            switch (state) {
+                case LONG, DOUBLE:
+                    if (comparison) {
+                        return Bool.of(test(frame, m));
+                    }
+                    try {
+                        return state == LONG ? Number.integer(longValue(frame, m))
+                                             : Number.real(doubleValue(frame, m));
+                    } catch (UnexpectedKind e) {
+                        return e.value;
+                    }
+                case UNSEEN: {
+                    Object a = left.eval(frame, m);
+                    Object b = right.eval(frame, m);
+                    specialize(a, b);
+                    return target.invoke2(a, b);
+                }
+                default:
+                    return target.invoke2(left.eval(frame, m), right.eval(frame, m));
+            }
+        }
+
+        @Override long evalLong(Frame frame, Machine m) {
+            if (state != LONG || comparison || cell.value != target) {
+                return super.evalLong(frame, m);
+            }
+            return longValue(frame, m);
+        }
+
+        @Override double evalDouble(Frame frame, Machine m) {
+            if (state != DOUBLE || comparison || cell.value != target) {
+                return super.evalDouble(frame, m);
+            }
+            return doubleValue(frame, m);
+        }
+
+        boolean isLong() {
+            return state == LONG;
+        }
+
+        private void specialize(Object a, Object b) {
+            if (a instanceof Number x && b instanceof Number y && Number.isFixOrFlo(x) && Number.isFixOrFlo(y)) {
+                leftLong = x.type == Number.Type.INT;
+                rightLong = y.type == Number.Type.INT;
+                state = leftLong && rightLong ? LONG : DOUBLE;
+            } else {
+                state = GENERIC;
+            }
+        }
+
+        // Leaves the specialization, finishing this run with values already computed.
+        private Object deopt(Object a, Object b) {
+            state = ++deopts < MAX_DEOPTS ? UNSEEN : GENERIC;
+            return target.invoke2(a, b);
+        }
+
+        // Value of an arithmetic site specialized to two fixnums.
+        private long longValue(Frame frame, Machine m) {
+            long a, b;
+            try {
+                a = left.evalLong(frame, m);
+            } catch (UnexpectedKind e) {
+                throw new UnexpectedKind(deopt(e.value, right.eval(frame, m)));
+            }
+            try {
+                b = right.evalLong(frame, m);
+            } catch (UnexpectedKind e) {
+                throw new UnexpectedKind(deopt(Number.integer(a), e.value));
+            }
+            try {
+                switch (op) {
+                    case '+': return Math.addExact(a, b);
+                    case '-': return Math.subtractExact(a, b);
+                    case '*': return Math.multiplyExact(a, b);
+                    default:
+                        if (b != 0 && a % b == 0) {
+                            return Math.divideExact(a, b);
+                        }
+                }
+            } catch (ArithmeticException overflow) {
+                // the builtin promotes to a bignum
+            }
+            // the operands were the kinds expected, so the site stays specialized
+            throw new UnexpectedKind(target.invoke2(Number.integer(a), Number.integer(b)));
+        }
+
+        // Value of an arithmetic site specialized to flonums, or a flonum and a fixnum.
+        private double doubleValue(Frame frame, Machine m) {
+            long la = 0, lb = 0;
+            double a, b;
+            try {
+                a = leftLong ? (la = left.evalLong(frame, m)) : left.evalDouble(frame, m);
+            } catch (UnexpectedKind e) {
+                throw new UnexpectedKind(deopt(e.value, right.eval(frame, m)));
+            }
+            try {
+                b = rightLong ? (lb = right.evalLong(frame, m)) : right.evalDouble(frame, m);
+            } catch (UnexpectedKind e) {
+                throw new UnexpectedKind(deopt(box(leftLong, la, a), e.value));
+            }
+            double r = switch (op) {
+                case '+' -> a + b;
+                case '-' -> a - b;
+                case '*' -> a * b;
+                default  -> a / b;
+            };
+            if (Double.isFinite(r)) {
+                return r;
+            }
+            throw new UnexpectedKind(target.invoke2(box(leftLong, la, a), box(rightLong, lb, b)));
+        }
+
+        // Truth of a comparison site specialized to fixnums or flonums. Mixed operands compare
+        // as doubles only while that is exact; the builtin decides the rest.
+        private boolean test(Frame frame, Machine m) {
+            boolean longs = state == LONG;
+            long la = 0, lb = 0;
+            double a = 0, b = 0;
+            try {
+                if (longs || leftLong) a = la = left.evalLong(frame, m); else a = left.evalDouble(frame, m);
+            } catch (UnexpectedKind e) {
+                return deopt(e.value, right.eval(frame, m)) == Bool.TRUE;
+            }
+            try {
+                if (longs || rightLong) b = lb = right.evalLong(frame, m); else b = right.evalDouble(frame, m);
+            } catch (UnexpectedKind e) {
+                return deopt(box(longs || leftLong, la, a), e.value) == Bool.TRUE;
+            }
+            if (longs) {
+                return compare(Long.compare(la, lb));
+            }
+            if (Double.isFinite(a) && Double.isFinite(b)
+                    && (!leftLong || Math.abs(la) <= EXACT_DOUBLE) && (!rightLong || Math.abs(lb) <= EXACT_DOUBLE)) {
+                return compare(Double.compare(a == 0.0 ? 0.0 : a, b == 0.0 ? 0.0 : b));
+            }
+            return target.invoke2(box(leftLong, la, a), box(rightLong, lb, b)) == Bool.TRUE;
+        }
+
+        private boolean compare(int c) {
+            return switch (op) {
+                case '<' -> c < 0;
+                case '>' -> c > 0;
+                case '{' -> c <= 0;
+                case '}' -> c >= 0;
+                default  -> c == 0;
+            };
+        }
+
+        private static Number box(boolean isLong, long l, double d) {
+            return isLong ? Number.integer(l) : Number.real(d);
+        }
+    }
+
+    static Object[] evalAll(Code[] codes, Frame frame, Machine m) {
+        Object[] values = new Object[codes.length];
+        for (int i = 0; i < codes.length; i++) {
+            values[i] = codes[i].eval(frame, m);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,479 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ The Compiler is the analysis pass between the Parser and evaluation. It walks a Node<Token>
+ tree once, resolves which special form every node is and whether each symbol refers to a
+ local binding (as a frame depth and slot) or a global, and builds the matching tree of Code
+ objects. Syntax errors in special forms are reported here instead of every time the form runs.
+*/
+public class Compiler {
+    // Globals are looked up here; references to names no enclosing scope binds resolve to it.
+    final Environment env;
+
+    public Compiler(Environment env) {
+        this.env = env;
+    }
+
+    /* Compile-time view of one Frame: slot i of the frame holds names.get(i). The parameters
+       or let names come first, followed by a slot for every define found in the body. */
+    static final class Scope {
+        final ArrayList<String> names;
+        final Scope parent;
+
+        Scope(List<String> names, Scope parent) {
+            this.names = new ArrayList<>(names);
+            this.parent = parent;
+        }
+
+        // Reserves a slot for name in this frame, reusing an existing one.
+        int slotFor(String name) {
+            int slot = names.lastIndexOf(name);
+            if (slot < 0) {
+                names.add(name);
+                slot = names.size() - 1;
+            }
+            return slot;
+        }
+    }
+
+    public Code compile(Node<Token> expr) {
+        return compile(expr, null);
+    }
+
+    Code compile(Node<Token> expr, Scope scope) {
+        Token<?> t = expr.getValue();
+        List<Node<Token>> children = expr.getChildren();
+        TokenType type = t.type();
+
+        switch (type) {
+            case NUMBER:
+            case BOOLEAN:
+            case STRING:
+                return new Code.Const(t, literal(expr));
+            case QUOTE:
+                if (children.size() != 1) {
+                    throw new SyntaxException("quote takes exactly one argument, got: " + children.size());
+                }
+                return new Code.Const(t, Evaluator.quoteToValue(children.get(0)));
+            case QQUOTE:
+                if (children.size() != 1) {
+                    throw new SyntaxException("quasi-quote takes exactly one argument, got: " + children.size());
+                }
+                return compileQuasiQuote(t, children.get(0), scope);
+            case DEFINE:
+                return compileDefine(t, children, scope);
+            case COND:
+                return compileCond(t, children, scope);
+            case DO:
+                if (children.isEmpty()) {
+                    throw new SyntaxException("Do blocks require at least one expression");
+                }
+                return new Code.Sequence(t, compileAll(children, scope));
+            case LET:
+                return compileLet(t, children, scope);
+            case LET_NAMED:
+                return compileLetNamed(t, children, scope);
+            case LETS:
+                return compileLets(t, children, scope);
+            case LETR:
+                return compileLetr(t, children, scope);
+            case LAMBDA:
+                return compileLambda(t, children, scope, null);
+            case SYMBOL:
+                return compileSymbol(t, children, scope);
+            case LIST:
+                return compileList(t, children, scope);
+            case APPLY:
+                if (children.isEmpty()) {
+                    throw new SyntaxException("APPLY requires an operator expression");
+                }
+                Code op = compile(children.get(0), scope);
+                Code[] args = compileAll(children.subList(1, children.size()), scope);
+                return new Code.Call(t, op, args, null);
+            default:
+                throw new SyntaxException("Cannot evaluate expression with head: " + t);
+        }
+    }
+
+    Code[] compileAll(List<Node<Token>> nodes, Scope scope) {
+        Code[] out = new Code[nodes.size()];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = compile(nodes.get(i), scope);
+        }
+        return out;
+    }
+
+    private Code compileSymbol(Token<?> t, List<Node<Token>> children, Scope scope) {
+        String sym = (String) t.value();
+        switch (sym) {
+            case "::":
+            case "$": {
+                Object literal = literal(t, children);
+                if (literal != NOT_LITERAL) {
+                    return new Code.Const(t, literal);
+                }
+                Code[] elems = compileAll(children, scope);
+                return sym.equals("::") ? new Code.TupleLiteral(t, elems) : new Code.VectorLiteral(t, elems);
+            }
+            case "import":
+                return compileImport(t, children);
+        }
+        Code ref = reference(t, sym, scope);
+        if (children.isEmpty()) {
+            return ref;
+        }
+        // (symbol arg1 arg2 ...); a CALL0 marker stands for an empty argument list
+        ArrayList<Node<Token>> argNodes = new ArrayList<>(children.size());
+        for (Node<Token> child : children) {
+            if (child.getValue().type() != TokenType.CALL0) {
+                argNodes.add(child);
+            }
+        }
+        return Code.Arith.of(new Code.Call(t, ref, compileAll(argNodes, scope), sym));
+    }
+
+    // Resolves a variable to a (depth, slot) in the enclosing frames, or to a global.
+    private Code reference(Token<?> t, String sym, Scope scope) {
+        int depth = 0;
+        for (Scope s = scope; s != null; s = s.parent, depth++) {
+            int slot = s.names.lastIndexOf(sym);
+            if (slot >= 0) {
+                return new Code.LocalRef(t, sym, depth, slot);
+            }
+        }
+        return new Code.GlobalRef(t, env.cell(sym));
+    }
+
+    private Code compileImport(Token<?> t, List<Node<Token>> children) {
+        if (children.size() != 1) {
+            throw new SyntaxException("import takes exactly one argument");
+        }
+        Token<?> argTok = children.get(0).getValue();
+        TokenType argType = argTok.type();
+        if (argType == TokenType.SYMBOL) {
+            return new Code.Import(t, Symbol.intern((String) argTok.value()), env.cell("import"));
+        } else if (argType == TokenType.STRING) {
+            return new Code.Import(t, argTok.value(), env.cell("import"));
+        }
+        throw new SyntaxException("import: expected symbol or string, got " + argTok.type());
+    }
+
+    private Code compileDefine(Token<?> t, List<Node<Token>> children, Scope scope) {
+        if (children.size() != 2) {
+            throw new SyntaxException("define requires a name and one expression", t);
+        }
+        String label = (String) children.get(0).getValue().value();
+        Node<Token> valueNode = children.get(1);
+        Token<?> valueTok = valueNode.getValue();
+        Code value = valueTok != null && valueTok.type() == TokenType.LAMBDA
+            ? compileLambda(valueTok, valueNode.getChildren(), scope, label)
+            : compile(valueNode, scope);
+        if (scope == null) {
+            return new Code.Define(t, env.cell(label), value, env);
+        }
+        // a define inside a body binds in that body's frame
+        int slot = scope.slotFor(label);
+        return new Code.LocalDefine(t, slot, value, env);
+    }
+
+    private Code compileCond(Token<?> t, List<Node<Token>> clauses, Scope scope) {
+        ArrayList<Code> predicates = new ArrayList<>();
+        ArrayList<Code[]> bodies = new ArrayList<>();
+        for (Node<Token> clause : clauses) {
+            List<Node<Token>> kids = clause.getChildren();
+            if (kids.isEmpty()) {
+                continue;
+            }
+            Node<Token> predNode = kids.get(0);
+            Code[] body = compileAll(kids.subList(1, kids.size()), scope);
+            Token<?> predTok = predNode.getValue();
+            boolean isElse = predTok.type() == TokenType.SYMBOL && "else".equals(predTok.value());
+            if (isElse && body.length == 0) {
+                throw new SyntaxException("cond else clause requires at least one body expression");
+            }
+            predicates.add(isElse ? null : compile(predNode, scope));
+            bodies.add(body);
+        }
+        return new Code.Cond(t, predicates.toArray(new Code[0]), bodies.toArray(new Code[0][]));
+    }
+
+    private Code compileLambda(Token<?> t, List<Node<Token>> children, Scope scope, String name) {
+        if (children.size() != 2) {
+            throw new SyntaxException("lambda requires a parameter list and one body expression", t);
+        }
+        ArrayList<String> params = namesOf(children.get(0).getChildren());
+        Scope inner = bodyScope(params, children.get(1), scope);
+        Code body = tiered(compile(children.get(1), inner), params.size());
+        return new Code.Lambda(t, params.toArray(new String[0]), body, inner.names.size(), name);
+    }
+
+    // Wraps a procedure body for the Jit when tiered execution is on.
+    private Code tiered(Code body, int arity) {
+        int threshold = env.machine.jitThreshold;
+        return threshold > 0 ? new Jit.Tiered(body, arity, threshold) : body;
+    }
+
+    private static ArrayList<String> namesOf(List<Node<Token>> params) {
+        ArrayList<String> names = new ArrayList<>(params.size());
+        for (Node<Token> p : params) {
+            names.add((String) p.getValue().value());
+        }
+        return names;
+    }
+
+    // Scope for a lambda or let body: its bound names plus a slot for every define in the body,
+    // reserved up front so that closures created earlier in the body see later defines.
+    private static Scope bodyScope(List<String> names, Node<Token> body, Scope parent) {
+        Scope scope = new Scope(names, parent);
+        for (String name : definedNames(body)) {
+            scope.slotFor(name);
+        }
+        return scope;
+    }
+
+    // Names bound by defines in a body, outside any nested lambda or let, in order of appearance.
+    static List<String> definedNames(Node<Token> body) {
+        ArrayList<String> names = new ArrayList<>();
+        collectDefines(body, names);
+        return names;
+    }
+
+    private static void collectDefines(Node<Token> node, List<String> names) {
+        switch (node.getValue().type()) {
+            case DEFINE:
+                if (!node.getChildren().isEmpty()) {
+                    String name = (String) node.getChildren().get(0).getValue().value();
+                    if (!names.contains(name)) {
+                        names.add(name);
+                    }
+                }
+                break;
+            case LAMBDA:
+            case LET:
+            case LETS:
+            case LETR:
+            case LET_NAMED:
+            case QUOTE:
+            case QQUOTE:
+                // these open a frame of their own, or are data
+                return;
+            default:
+                break;
+        }
+        for (Node<Token> child : node.getChildren()) {
+            collectDefines(child, names);
+        }
+    }
+
+    // ----- LET (parallel bindings) -----
+    private Code compileLet(Token<?> t, List<Node<Token>> let, Scope scope) {
+        if (let.size() != 2) {
+            throw new SyntaxException("let requires a binding list and one body expression");
+        }
+        List<Node<Token>> bindingPairs = let.get(0).getChildren();
+        if (bindingPairs.isEmpty()) {
+            return compile(let.get(1), scope);
+        }
+        ArrayList<String> names = new ArrayList<>(bindingPairs.size());
+        Code[] inits = new Code[bindingPairs.size()];
+        for (int i = 0; i < inits.length; i++) {
+            Node<Token> binding = bindingPairs.get(i);
+            if (binding.getChildren().size() != 2) {
+                throw new SyntaxException("Each let binding must be a (symbol expr) pair");
+            }
+            names.add((String) binding.getChildren().get(0).getValue().value());
+            inits[i] = compile(binding.getChildren().get(1), scope);
+        }
+        Scope inner = bodyScope(names, let.get(1), scope);
+        Code body = compile(let.get(1), inner);
+        return new Code.Let(t, inits, body, inner.names.size());
+    }
+
+    // ----- LETS (sequential bindings) -----
+    // Expanded into one frame whose slots are filled in order, each init seeing only the names
+    // bound before it, rather than one nested frame per binding.
+    private Code compileLets(Token<?> t, List<Node<Token>> lets, Scope scope) {
+        if (lets.size() != 2) {
+            throw new SyntaxException("lets requires a binding list and one body expression");
+        }
+        List<Node<Token>> bindingPairs = lets.get(0).getChildren();
+        Node<Token> body = lets.get(1);
+        if (bindingPairs.isEmpty()) {
+            return compile(body, scope);
+        }
+        Scope inner = new Scope(List.of(), scope);
+        Code[] steps = new Code[bindingPairs.size() + 1];
+        String last = null;
+        for (int i = 0; i < bindingPairs.size(); i++) {
+            Node<Token> binding = bindingPairs.get(i);
+            if (binding.getChildren().size() != 2) {
+                throw new SyntaxException("Each lets binding must be a (symbol expr) pair");
+            }
+            last = (String) binding.getChildren().get(0).getValue().value();
+            Code init = compile(binding.getChildren().get(1), inner);
+            inner.names.add(last);
+            steps[i] = new Code.LocalDefine(t, inner.names.size() - 1, init, env);
+        }
+        // body defines share a binding's slot only with the last binding, as if every binding
+        // had a frame of its own
+        for (String name : definedNames(body)) {
+            if (!name.equals(last)) {
+                inner.names.add(name);
+            }
+        }
+        steps[steps.length - 1] = compile(body, inner);
+        return new Code.Let(t, new Code[0], new Code.Sequence(t, steps), inner.names.size());
+    }
+
+    // ----- LETR (recursive bindings): every init sees all of the names -----
+    private Code compileLetr(Token<?> t, List<Node<Token>> letr, Scope scope) {
+        if (letr.size() != 2) {
+            throw new SyntaxException("letr requires a binding list and one body expression");
+        }
+        List<Node<Token>> bindingPairs = letr.get(0).getChildren();
+        ArrayList<String> names = new ArrayList<>(bindingPairs.size());
+        for (Node<Token> binding : bindingPairs) {
+            if (binding.getChildren().size() != 2) {
+                throw new SyntaxException("Each letr binding must be a (symbol expr) pair");
+            }
+            names.add((String) binding.getChildren().get(0).getValue().value());
+        }
+        Scope inner = bodyScope(names, letr.get(1), scope);
+        // the names start out unbound and are filled in order, like body defines
+        Code[] steps = new Code[bindingPairs.size() + 1];
+        for (int i = 0; i < bindingPairs.size(); i++) {
+            Code init = compile(bindingPairs.get(i).getChildren().get(1), inner);
+            steps[i] = new Code.LocalDefine(t, inner.slotFor(names.get(i)), init, env);
+        }
+        steps[steps.length - 1] = compile(letr.get(1), inner);
+        return new Code.Let(t, new Code[0], new Code.Sequence(t, steps), inner.names.size());
+    }
+
+    // ----- named let: (let name ((v1 e1) (v2 e2)) body) -----
+    private Code compileLetNamed(Token<?> t, List<Node<Token>> parts, Scope scope) {
+        if (parts.size() != 3) {
+            throw new SyntaxException("named let must have a name, bindings, and body");
+        }
+        String fnName = (String) parts.get(0).getValue().value();
+        List<Node<Token>> bindingPairs = parts.get(1).getChildren();
+        ArrayList<String> params = new ArrayList<>(bindingPairs.size());
+        Code[] inits = new Code[bindingPairs.size()];
+        for (int i = 0; i < inits.length; i++) {
+            Node<Token> binding = bindingPairs.get(i);
+            if (binding.getChildren().size() != 2) {
+                throw new SyntaxException("Each binding must be a (symbol expr) pair");
+            }
+            params.add((String) binding.getChildren().get(0).getValue().value());
+            inits[i] = compile(binding.getChildren().get(1), scope);
+        }
+        Scope self = new Scope(List.of(fnName), scope);
+        Scope inner = bodyScope(params, parts.get(2), self);
+        Code body = tiered(compile(parts.get(2), inner), params.size());
+        return new Code.LetNamed(t, fnName, params.toArray(new String[0]), inits, body, inner.names.size());
+    }
+
+    // (list ...) literal node, with an optional dotted tail
+    private Code compileList(Token<?> t, List<Node<Token>> kids, Scope scope) {
+        int dot = -1;
+        for (int i = 0; i < kids.size(); i++) {
+            if (kids.get(i).getValue().type() == TokenType.DOT) { dot = i; break; }
+        }
+        if (dot < 0) {
+            Object literal = literal(t, kids);
+            if (literal != NOT_LITERAL) {
+                return new Code.Const(t, literal);
+            }
+            return new Code.ListLiteral(t, compileAll(kids, scope), null);
+        }
+        Node<Token> dotNode = kids.get(dot);
+        if (dotNode.getChildren().isEmpty()) {
+            throw new SyntaxException("Dot without following cdr expression");
+        }
+        Code tail = compile(dotNode.getChildren().get(0), scope);
+        return new Code.ListLiteral(t, compileAll(kids.subList(0, dot), scope), tail);
+    }
+
+    // Returned by literal for anything that has to be evaluated.
+    static final Object NOT_LITERAL = new Object();
+
+    /* Value of a form made only of constants: atoms, quoted data, and list, $ and :: literals
+       whose elements are all literals. Such forms are built once when they are compiled and the
+       value is shared by every evaluation; nothing in the language mutates a list, vector or
+       tuple, so the sharing cannot be observed. */
+    static Object literal(Node<Token> node) {
+        Token<?> t = node.getValue();
+        List<Node<Token>> children = node.getChildren();
+        switch (t.type()) {
+            case NUMBER:
+            case STRING:
+                return t.value();
+            case BOOLEAN:
+                return Bool.of((String) t.value());
+            case QUOTE:
+                return children.size() == 1 ? Evaluator.quoteToValue(children.get(0)) : NOT_LITERAL;
+            case SYMBOL:
+            case LIST:
+                return literal(t, children);
+            default:
+                return NOT_LITERAL;
+        }
+    }
+
+    private static Object literal(Token<?> t, List<Node<Token>> children) {
+        boolean list = t.type() == TokenType.LIST;
+        boolean vector = "$".equals(t.value());
+        boolean tuple = "::".equals(t.value()) && children.size() >= 2 && children.size() <= 9;
+        if (!list && !vector && !tuple) {
+            return NOT_LITERAL;
+        }
+        Object[] values = new Object[children.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = literal(children.get(i));
+            if (values[i] == NOT_LITERAL) {
+                return NOT_LITERAL;
+            }
+        }
+        if (list) {
+            return new LinkedList<>(new ArrayList<>(Arrays.asList(values)));
+        }
+        return vector ? Vector.of(values) : Tuple.of(values);
+    }
+
+    // Quasi-quote templates are data except for the unquoted expressions, which are compiled here.
+    private Code compileQuasiQuote(Token<?> t, Node<Token> template, Scope scope) {
+        List<Node<Token>> nodes = unquotedNodes(template);
+        Code[] unquoted = new Code[nodes.size()];
+        for (int i = 0; i < unquoted.length; i++) {
+            unquoted[i] = compile(nodes.get(i).getChildren().get(0), scope);
+        }
+        return new Code.QuasiQuote(t, template, nodes, unquoted);
+    }
+
+    // The unquote and unquote-splice nodes of a template that belong to it rather than to a
+    // nested quasi-quote, in the order expansion visits them.
+    static List<Node<Token>> unquotedNodes(Node<Token> template) {
+        ArrayList<Node<Token>> out = new ArrayList<>();
+        collectUnquoted(template, out);
+        return out;
+    }
+
+    private static void collectUnquoted(Node<Token> node, List<Node<Token>> out) {
+        TokenType type = node.getValue().type();
+        switch (type) {
+            case UNQUOTE:
+            case UNQUOTESPLICE:
+                out.add(node);
+                break;
+            case LIST:
+                for (Node<Token> child : node.getChildren()) {
+                    collectUnquoted(child, out);
+                }
+                break;
+            default:
+                // nested quasi-quotes and atoms stay literal
+                break;
+        }
+    }
+}
@@ -1,70 +1,158 @@
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
-// Single lexical frame with a parent link; environments share parent chains instead of copying them.
-class Frame {
-    final Map<String, Object> bindings;
-    final Frame parent;
+/*
+ Global namespace: one flat table from symbol name to a value cell. A cell is created the first
+ time a name is defined or referenced and is never replaced, so compiled code can resolve a
+ global to its cell once and read or write the value directly from then on. Redefining a name
+ updates the existing cell, which every call site already holding it sees immediately.
+*/
+public class Environment {
+    // Mutable home of one global binding; value is UNBOUND until the name is first defined.
+    static final class Cell {
+        static final Object UNBOUND = new Object();
+
+        final String name;
+        Object value = UNBOUND;
+        // Compiled lambda bodies that assumed this cell keeps its current value.
+        private ArrayList<Jit.Tiered> dependents;
+        // Set once the cell belongs to a shared prelude: it never changes again.
+        private boolean frozen;
+
+        Cell(String name) {
+            this.name = name;
+        }
+
+        void set(Object v) {
+            if (frozen) {
+                throw new RuntimeException("Cannot redefine " + name + " in a shared prelude");
+            }
+            value = v;
+            if (dependents != null) {
+                ArrayList<Jit.Tiered> invalid = dependents;
+                dependents = null;
+                for (Jit.Tiered t : invalid) {
+                    t.invalidate();
+                }
+            }
+        }
 
-    Frame(Map<String, Object> bindings, Frame parent) {
-        this.bindings = bindings;
-        this.parent = parent;
+        void addDependent(Jit.Tiered t) {
+            if (frozen) {
+                return; // never invalidated, and shared by threads compiling the same bodies
+            }
+            if (dependents == null) {
+                dependents = new ArrayList<>();
+            }
+            dependents.add(t);
+        }
+
+        Object get() {
+            Object v = value;
+            if (v == UNBOUND) {
+                throw new RuntimeException("Unbound symbol: " + name);
+            }
+            return v;
+        }
     }
-}
 
-public class Environment {
-    private Frame head;
+    private final Map<String, Cell> cells;
+    // A frozen table is read-only, so any number of threads may fork it at once.
+    private boolean frozen;
+    // Evaluation state for code running against this namespace.
+    final Machine machine = new Machine();
+    // Modules imported into this namespace.
+    final ModuleRegistry modules;
 
     Environment() {
-        this.head = null;
+        this.cells = new HashMap<>();
+        this.modules = new ModuleRegistry();
     }
 
-    @SafeVarargs
-    @SuppressWarnings("varargs")
-    Environment(Pair<String, Object>... firstFrame) {
-        this.head = buildFrame(Arrays.asList(firstFrame), null);
+    private Environment(Map<String, Cell> cells, ModuleRegistry modules) {
+        this.cells = cells;
+        this.modules = modules;
     }
 
-    private Frame buildFrame(List<Pair<String, Object>> bindings, Frame parent) {
-        Map<String, Object> map = new HashMap<>(bindings.size());
-        for (Pair<String, Object> p : bindings) {
-            map.put(p.first, p.second);
+    // Cell for name, created unbound if the name has not been seen yet.
+    Cell cell(String name) {
+        Cell c = cells.get(name);
+        if (c == null) {
+            if (frozen) {
+                throw new RuntimeException("Unbound symbol: " + name);
+            }
+            c = new Cell(name);
+            cells.put(name, c);
+        }
+        return c;
+    }
+
+    public void define(String name, Object value) {
+        cell(name).set(value);
+    }
+
+    public void addPrimitives(Primitive... primitives) {
+        for (Primitive p : primitives) {
+            define(p.name, p);
         }
-        return new Frame(map, parent);
     }
 
+    // Binds each pair in the global table; later pairs and later calls overwrite earlier ones.
+    // Lambdas on the older functional interfaces are wrapped as primitives on the way in.
     @SuppressWarnings("unchecked")
     public void addFrame(Pair<String, Object>... bindings) {
-        this.head = buildFrame(Arrays.asList(bindings), this.head);
+        addFrame(Arrays.asList(bindings));
     }
 
     public void addFrame(List<Pair<String, Object>> bindings) {
-        this.head = buildFrame(bindings, this.head);
+        for (Pair<String, Object> p : bindings) {
+            Primitive prim = Primitive.adapt(p.first, p.second);
+            define(p.first, prim != null ? prim : p.second);
+        }
+    }
+
+    // Makes the table and its cells read-only; see Interpreter.Prelude.
+    void freeze() {
+        for (Cell c : cells.values()) {
+            c.frozen = true;
+        }
+        frozen = true;
     }
 
-    // Create a new environment that shares the existing chain; new frames will not mutate the parent.
+    // Copy of the table with fresh cells, so definitions in the fork do not reach the original.
+    // The values themselves are shared.
     public Environment fork() {
-        Environment env = new Environment();
-        env.head = this.head;
+        Map<String, Cell> copy = new HashMap<>(cells.size() * 2);
+        for (Cell c : cells.values()) {
+            Cell fresh = new Cell(c.name);
+            fresh.value = c.value;
+            copy.put(c.name, fresh);
+        }
+        Environment env = new Environment(copy, modules.fork());
+        env.machine.diagnostics = machine.diagnostics;
+        env.machine.bytecode = machine.bytecode;
+        env.machine.jitThreshold = machine.jitThreshold;
         return env;
     }
 
+    Iterable<Cell> cells() {
+        return cells.values();
+    }
+
     @Override
     public String toString() {
         return "";
     }
 
     public Optional<Object> lookup(String key) {
-        Frame current = head;
-        while (current != null) {
-            if (current.bindings.containsKey(key)) {
-                return Optional.ofNullable(current.bindings.get(key));
-            }
-            current = current.parent;
+        Cell c = cells.get(key);
+        if (c == null || c.value == Cell.UNBOUND) {
+            return Optional.empty();
         }
-        return Optional.empty();
+        return Optional.ofNullable(c.value);
     }
 }
@@ -5,9 +5,7 @@
 import java.util.Scanner;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.stream.Stream;
 import java.util.ArrayList;
 import java.util.function.Supplier;
 import java.util.function.BiFunction;
@@ -15,13 +13,13 @@ import java.util.function.Function;
 
 public class FileHandling{
   public static void addFileHandlingEnv(Environment env){
-        env.addFrame(
-            new Pair<>("read", (Supplier<Object>) () ->{
+        env.addPrimitives(
+            Primitive.of("read", (Supplier<Object>) () ->{
                 Scanner sc = new Scanner(System.in);
                 Parser parser = new Parser(sc.nextLine());
                 return Evaluator.eval(parser.parse(), env);
             }),
-            new Pair<>("read-from-file", (Function<Object, Object>) (name) ->{
+            Primitive.of("read-from-file", (Function<Object, Object>) (name) ->{
                 if (name instanceof File){
                     try (BufferedReader reader = new BufferedReader(new FileReader((File) name))){
                         StringBuilder sb = new StringBuilder("");
@@ -55,14 +53,14 @@ public class FileHandling{
                     return LinkedList.fromString("Error unknown");
                 }
             }),
-            new Pair<>("make-file", (Function<Object, File>) (name) -> {
+            Primitive.of("make-file", (Function<Object, File>) (name) -> {
                 String filename;
                 if (name instanceof String s) {
                     filename = s;
                 } else if (name instanceof LinkedList<?> list && !list.isEmpty()) {
                     filename = LinkedList.listToRawString(list);
                 } else {
-                    throw new RuntimeException("make-file: expected string, got " + name.getClass().getSimpleName());
+                    throw new RuntimeException("make-file: expected string, got " + GlobalEnvironment.typeName(name));
                 }
 
                 File f = new File(filename);
@@ -73,7 +71,7 @@ public class FileHandling{
                 }
                 return f;
             }),
-            new Pair<>("make-directory", (Function<Object, String>) (name) -> {
+            Primitive.of("make-directory", (Function<Object, Bool>) (name) -> {
                 String dirname;
                 if (name instanceof String s) {
                     dirname = s;
@@ -84,24 +82,24 @@ public class FileHandling{
                 }
                 File dir = new File(dirname);
                 if (dir.exists()) {
-                    return dir.isDirectory() ? "#t" : "#f";
+                    return Bool.of(dir.isDirectory());
                 }
                 if (dir.mkdirs()) {
-                    return "#t";
+                    return Bool.TRUE;
                 }
                 System.out.println("Error creating directory: " + dirname);
-                return "#f";
+                return Bool.FALSE;
             }),
-            new Pair<>("write-to-file", (BiFunction<File, LinkedList, String>) (file, text)->{
+            Primitive.of("write-to-file", (BiFunction<File, LinkedList, Bool>) (file, text)->{
                 try(FileWriter writer = new FileWriter(file)){
                     writer.write(LinkedList.listToRawString(text));
-                    return "#t";
+                    return Bool.TRUE;
                 } catch (IOException e) {
                     System.out.println("Error writing to file: " + file.getName() + " " +e);
-                    return "#f";
+                    return Bool.FALSE;
                 }
             }),
-            new Pair<>("write-lines", (BiFunction<File, LinkedList, String>) (file, lines) -> {
+            Primitive.of("write-lines", (BiFunction<File, LinkedList, Bool>) (file, lines) -> {
                 try (FileWriter writer = new FileWriter(file)) {
                     LinkedList<?> current = lines;
                     while (current != null && current.head() != null) {
@@ -123,13 +121,13 @@ public class FileHandling{
                             break;
                         }
                     }
-                    return "#t";
+                    return Bool.TRUE;
                 } catch (IOException e) {
                     System.out.println("Error writing lines to file: " + file.getName() + " " + e);
-                    return "#f";
+                    return Bool.FALSE;
                 }
             }),
-            new Pair<>("read-lines", (Function<Object, LinkedList<LinkedList<String>>>) (name) -> {
+            Primitive.of("read-lines", (Function<Object, LinkedList<LinkedList<String>>>) (name) -> {
                 File f;
                 if (name instanceof File file) {
                     f = file;
@@ -154,7 +152,7 @@ public class FileHandling{
                 }
                 return new LinkedList<>(lines);
             }),
-            new Pair<>("split-by-comma", (Function<Object, LinkedList<LinkedList<String>>>) (value) -> {
+            Primitive.of("split-by-comma", (Function<Object, LinkedList<LinkedList<String>>>) (value) -> {
                 String s;
                 if (value instanceof LinkedList<?> list) {
                     s = LinkedList.listToRawString(list);
@@ -172,66 +170,62 @@ public class FileHandling{
                 }
                 return new LinkedList<>(cells);
             }),
-            new Pair<>("import", (Function<Object, String>) (resource) -> {
+            Primitive.of("dump-image", (Function<Object, Bool>) (name) -> {
                 String filename;
+                if (name instanceof String s) {
+                    filename = s;
+                } else if (name instanceof LinkedList<?> list && !list.isEmpty()) {
+                    filename = LinkedList.listToRawString(list);
+                } else {
+                    throw new RuntimeException("dump-image: expected string, got " + name);
+                }
+                try {
+                    Image.dump(env, Path.of(filename));
+                } catch (IOException e) {
+                    throw new RuntimeException("dump-image: " + e.getMessage(), e);
+                }
+                return Bool.TRUE;
+            }),
+            Primitive.of("import", (Function<Object, Bool>) (resource) -> {
+                String name;
                 if (resource instanceof Symbol sym) {
-                    filename = sym.name;
+                    name = sym.name;
                 } else if (resource instanceof String s) {
-                    filename = s;
+                    name = s;
                 } else {
                     throw new RuntimeException("import: expected symbol or string, got " + resource);
                 }
-                if (!filename.endsWith(".mu"))
-                    filename += ".mu"; 
+                String filename = ModuleRegistry.fileName(name);
+                ModuleRegistry.Module module;
                 try {
-                    InputStream in = resolveImportStream(filename);
-                    // Read source and evaluate sequentially
-                    String src = new String(in.readAllBytes(), StandardCharsets.UTF_8);
-                    Parser parser = new Parser(src);
-                    Node current = parser.parse();
-                    while (!((Token) current.value).type().equals("EOF")) {
+                    module = env.modules.resolve(filename);
+                } catch (FileNotFoundException e) {
+                    throw new RuntimeException("import: cannot find " + filename);
+                } catch (IOException e) {
+                    throw new RuntimeException("Failed to import resource: " + filename, e);
+                }
+                if (!env.modules.claim(module)) {
+                    return Bool.TRUE; // already loaded, or being loaded by an import cycle
+                }
+                boolean done = false;
+                try (ModuleCache.Forms forms = ModuleCache.forms(module.source())) {
+                    // Evaluate sequentially as the forms are read
+                    Node current = forms.next();
+                    while (((Token) current.value).type() != TokenType.EOF) {
                         Evaluator.eval(current, env);
-                        current = parser.parse();
+                        current = forms.next();
                     }
+                    done = true;
+                    return Bool.TRUE;
 
-                    return "#t";
-
-                } catch (FileNotFoundException e) {
-                    throw new RuntimeException("import: cannot find " + filename);
                 } catch (IOException e) {
                     throw new RuntimeException("Failed to import resource: " + filename, e);
+                } finally {
+                    if (!done) {
+                        env.modules.forget(module);
+                    }
                 }
             })
         );
   }
-
-  private static InputStream resolveImportStream(String filename) throws IOException {
-      Path localPath = Path.of(filename);
-      if (Files.exists(localPath)) {
-          return Files.newInputStream(localPath);
-      }
-
-      Path found = findInWorkspace(filename);
-      if (found != null) {
-          return Files.newInputStream(found);
-      }
-
-      InputStream in = FileHandling.class.getResourceAsStream("/lib/" + filename);
-      if (in != null) {
-          return in;
-      }
-
-      throw new FileNotFoundException("File not found in lib/ or workspace: " + filename);
-  }
-
-  private static Path findInWorkspace(String filename) throws IOException {
-      Path start = Path.of(".").toAbsolutePath().normalize();
-      try (Stream<Path> stream = Files.walk(start)) {
-          return stream
-                  .filter(Files::isRegularFile)
-                  .filter(p -> p.getFileName().toString().equals(filename))
-                  .findFirst()
-                  .orElse(null);
-      }
-  }
 }
@@ -0,0 +1,25 @@
+/*
+ Activation frame for one lambda call or let. The Compiler resolves every local variable to a
+ (depth, slot) pair at compile time: depth counts parent links to follow and slot indexes the
+ array, so a lookup is a few field loads instead of hashing names along a chain of maps.
+*/
+final class Frame {
+    // Marks a slot reserved for a body define that has not run yet.
+    static final Object UNBOUND = new Object();
+
+    final Object[] slots;
+    final Frame parent;
+
+    Frame(Object[] slots, Frame parent) {
+        this.slots = slots;
+        this.parent = parent;
+    }
+
+    Frame up(int depth) {
+        Frame f = this;
+        for (int i = 0; i < depth; i++) {
+            f = f.parent;
+        }
+        return f;
+    }
+}
@@ -3,60 +3,62 @@ import java.util.function.BiFunction;
 import java.util.function.Supplier;
 import java.math.BigInteger;
 import java.math.BigDecimal;
+import java.math.MathContext;
 import java.math.RoundingMode;
 
 public class GlobalEnvironment {
     public static Environment initGlobalEnvironment(){
-        Environment environment = new Environment(
-            new Pair<>("else", "#t"),
-            new Pair<>("null?", (Function<Object,String>) (x) -> {
-                if (x == null) return "#t";
+        Environment environment = new Environment();
+        environment.define("else", Bool.TRUE);
+        environment.addPrimitives(
+            Primitive.of("null?", (Function<Object, Bool>) (x) -> {
+                if (x == null) return Bool.TRUE;
                 if (x instanceof LinkedList<?> list) {
-                    if (list.isEmpty()) return "#t";
-                    if (list.isCharList() && list.size() == 0) return "#t";
-                    return "#f";
+                    if (list.isEmpty()) return Bool.TRUE;
+                    if (list.isCharList() && list.size() == 0) return Bool.TRUE;
+                    return Bool.FALSE;
                 }
                 if (x instanceof String s) {
-                    return s.isEmpty() ? "#t" : "#f";
+                    return Bool.of(s.isEmpty());
                 }
-                return "#f";
+                return Bool.FALSE;
             }),                                
-            new Pair<>("number?", (Function<Object,String>) (x) -> {
-                if (x instanceof Number) return "#t";
-                return "#f";
+            Primitive.of("number?", (Function<Object, Bool>) (x) -> {
+                if (x instanceof Number) return Bool.TRUE;
+                return Bool.FALSE;
             }),
-            new Pair<>("symbol?", (Function<Object,String>) (x) -> {
-                if (x instanceof Symbol) return "#t";
-                return "#f";
+            Primitive.of("symbol?", (Function<Object, Bool>) (x) -> {
+                if (x instanceof Symbol) return Bool.TRUE;
+                return Bool.FALSE;
             }),
-            new Pair<>("list?", (Function<Object,String>) (x) -> {
-                if (x instanceof LinkedList) return "#t";
-                return "#f";
+            Primitive.of("list?", (Function<Object, Bool>) (x) -> {
+                if (x instanceof LinkedList) return Bool.TRUE;
+                return Bool.FALSE;
             }),
-            new Pair<>("even?", (Function<Object, String>) (x) -> {
+            Primitive.of("even?", (Function<Object, Bool>) (x) -> {
                 if (!(x instanceof Number n))
                     throw new RuntimeException("even?: expected number, got " + x);
                 Number remainder = Number.mod(n, Number.integer(2));
-                return Number.numericEquals(remainder, Number.zero(remainder)) ? "#t" : "#f";
+                return Bool.of(Number.numericEquals(remainder, Number.zero(remainder)));
             }),
-            new Pair<>("odd?", (Function<Object, String>) (x) -> {
+            Primitive.of("odd?", (Function<Object, Bool>) (x) -> {
                 if (!(x instanceof Number n))
                     throw new RuntimeException("odd?: expected number, got " + x);
                 Number remainder = Number.mod(n, Number.integer(2));
-                return Number.numericEquals(remainder, Number.zero(remainder)) ? "#f" : "#t";
+                return Bool.of(!Number.numericEquals(remainder, Number.zero(remainder)));
             }),
-            new Pair<>("!",(Function<String, String>) (x) -> x.equals("#t") ? "#f" : "#t"),
-            new Pair<>("and", (BiFunction<Object, Object, String>) (p, q) ->
-                (p.toString().equals("#t") && q.toString().equals("#t")) ? "#t" : "#f"
+            Primitive.of("!", (Function<Object, Bool>) (x) -> Bool.of(x != Bool.TRUE)),
+            Primitive.of("and", (BiFunction<Object, Object, Bool>) (p, q) ->
+                Bool.of(p == Bool.TRUE && q == Bool.TRUE)
             ),
-            new Pair<>("not", (Function<Object,String>) (x) -> x.toString().equals("#t") ? "#f" : "#t"),
-            new Pair<>("or", (BiFunction<Object, Object, String>) (p, q) ->
-                (p.toString().equals("#t") || q.toString().equals("#t")) ? "#t" : "#f"
+            Primitive.of("not", (Function<Object, Bool>) (x) -> Bool.of(x != Bool.TRUE)),
+            Primitive.of("or", (BiFunction<Object, Object, Bool>) (p, q) ->
+                Bool.of(p == Bool.TRUE || q == Bool.TRUE)
             ),
-            new Pair<>("xor", (BiFunction<String, String, String>) (p, q) ->
-                ((p.equals("#t") && !q.equals("#t")) || (q.equals("#t") && !p.equals("#t"))) ? "#t" : "#f"
+            Primitive.of("xor", (BiFunction<Object, Object, Bool>) (p, q) ->
+                Bool.of((p == Bool.TRUE) != (q == Bool.TRUE))
             ),
-            new Pair<>("head", (Function<Object,Object>) (x) -> {
+            Primitive.of("head", (Function<Object,Object>) (x) -> {
                 if (x instanceof LinkedList<?> list) {
                     Object head = list.head();
                     if (list.isCharList()) {
@@ -75,9 +77,9 @@ public class GlobalEnvironment {
                     }
                     return String.valueOf(s.charAt(0));
                 }
-                throw new RuntimeException("head: unsupported type " + x.getClass());
+                throw new RuntimeException("head: unsupported type " + typeName(x));
             }),
-            new Pair<>("tail", (Function<Object,Object>) (x) -> {
+            Primitive.of("tail", (Function<Object,Object>) (x) -> {
                 if (x instanceof LinkedList<?> list) {
                     Object tail = list.tail();
                     if (tail == null) {
@@ -94,19 +96,19 @@ public class GlobalEnvironment {
                     }
                     return LinkedList.fromString(s.substring(1));
                 }
-                throw new RuntimeException("tail: unsupported type " + x.getClass());
+                throw new RuntimeException("tail: unsupported type " + typeName(x));
             }),                
-            new Pair<>("length", (Function<Object, Number>) (xs) -> {
+            Primitive.of("length", (Function<Object, Number>) (xs) -> {
                 if (xs instanceof LinkedList<?> list) {
                     return Number.integer(list.size());
                 }
                 if (xs instanceof String s) {
                     return Number.integer(s.length());
                 }
-                throw new RuntimeException("length: unsupported type " + xs.getClass());
+                throw new RuntimeException("length: unsupported type " + typeName(xs));
             }
             ),
-            new Pair<>("print", (Function<Object, Object>) x1 -> {
+            Primitive.of("print", (Function<Object, Object>) x1 -> {
                 if (x1 == null) {
                     System.out.println("()");
                     return LinkedList.fromString("");
@@ -123,7 +125,7 @@ public class GlobalEnvironment {
                 System.out.println(out);
                 return LinkedList.fromString("");
             }),
-            new Pair<>("printf", (Function<Object, Object>) x1 -> {
+            Primitive.of("printf", (Function<Object, Object>) x1 -> {
                 if (x1 == null) return LinkedList.fromString("");
                 String out;
                 if (x1 instanceof LinkedList<?> list && list.isCharList()) {
@@ -137,45 +139,42 @@ public class GlobalEnvironment {
                 System.out.print(unescapeJava(out));
                 return LinkedList.fromString("");
             }),
-            new Pair<>("string", (Function<Object, LinkedList<String>>) x -> {
+            Primitive.of("string", (Function<Object, LinkedList<String>>) x -> {
                 return LinkedList.fromString(x == null ? "null" : x.toString());
             }),
-            new Pair<>("number->fixed-string", (BiFunction<Number, Number, String>) (value, placesNum) -> {
+            Primitive.of("number->fixed-string", (BiFunction<Number, Number, String>) (value, placesNum) -> {
                 if (value == null || placesNum == null) {
                     return "";
                 }
-                int places = Math.max(0, (int) placesNum.intVal);
+                int places = Math.max(0, (int) placesNum.intVal());
                 Number inexact = Number.toInexact(value);
                 BigDecimal bd;
                 switch (inexact.type) {
-                    case BIGFLOAT -> bd = inexact.bigFloatVal;
+                    case BIGFLOAT -> bd = inexact.bigFloatVal();
                     case FLOAT, INT, BIGINT, RATIONAL, BIGRATIONAL, COMPLEX, QUATERNION -> {
-                        bd = BigDecimal.valueOf(inexact.floatVal);
+                        bd = BigDecimal.valueOf(inexact.floatVal());
                     }
                     default -> bd = BigDecimal.ZERO;
                 }
                 return bd.setScale(places, RoundingMode.HALF_UP).toPlainString();
             }),
-            new Pair<>("chars->raw-string", (Function<Object, String>) (x) -> {
+            Primitive.of("chars->raw-string", (Function<Object, String>) (x) -> {
                 if (x instanceof LinkedList<?> list) {
                     return LinkedList.listToRawString(list);
                 }
                 return x == null ? "" : x.toString();
             }),
-            new Pair<>("to-inexact", (Function<Number, Number>) n -> Number.toInexact(n)),
-            new Pair<>("to-inexact-big", (Function<Number, Number>) n -> Number.toInexactBig(n)),
-            new Pair<>("clear", (Supplier<Object>) () -> {
+            Primitive.of("to-inexact", (Function<Number, Number>) n -> Number.toInexact(n)),
+            Primitive.of("to-inexact-big", (Function<Number, Number>) n -> Number.toInexactBig(n)),
+            Primitive.of("clear", (Supplier<Object>) () -> {
                 System.out.print("\u001b[2J\u001b[H");
                 System.out.flush();
-                return "#t";
+                return Bool.TRUE;
             })
         );
-        environment.addFrame(
-            new Pair<>("eval", (Function<Object,Object>) (str) -> {
-            Parser p = new Parser(str.toString());
-            return Evaluator.eval(p.parse(), environment);
-            }),
-            new Pair<>("cons", (BiFunction<Object,Object,LinkedList>) (fst, snd) -> {
+        addEvalEnv(environment);
+        environment.addPrimitives(
+            Primitive.of("cons", (BiFunction<Object,Object,LinkedList>) (fst, snd) -> {
                 if (fst == null) {
                     throw new SyntaxException("First element of a pair cannot be null");
                 }
@@ -215,8 +214,8 @@ public class GlobalEnvironment {
                 return new LinkedList<>(fst, snd);
             }) 
         );
-        environment.addFrame(
-            new Pair<>("+", (Function<LinkedList<?>, Object>) (args) -> {
+        environment.addPrimitives(
+            Primitive.variadic("+", (Function<LinkedList<?>, Object>) (args) -> {
                 if (args == null || args.head() == null) {
                     return Number.integer(0);
                 }
@@ -237,27 +236,17 @@ public class GlobalEnvironment {
                     return acc;
                 }
 
-                Number sum = Number.integer(0);
-                LinkedList<?> current = args;
-                while (current != null && current.head() != null) {
-                    Object head = current.head();
-                    if (!(head instanceof Number n))
-                        throw new RuntimeException("+: expected number, got " + head + " (type " + head.getClass() + ")");
-                    sum = Number.add(sum, n);
-                    Object tail = current.tail();
-                    if (!(tail instanceof LinkedList<?> next)) break;
-                    current = next;
-                }
-                return sum;
+                return fold('+', Number.integer(0), args);
             }),
-            new Pair<>("-", (Function<LinkedList<?>, Object>) (args) -> {
+            Primitive.variadic("-", (Function<LinkedList<?>, Object>) (args) -> {
                 if (args == null || args.head() == null)
                     return Number.integer(0);
                 Object first = args.head();
                 Object tail = args.tail();
+                boolean unary = tail == null || ((LinkedList<?>) tail).head() == null;
 
                 if (first instanceof Vector vec) {
-                    if (tail == null) {
+                    if (unary) {
                         return Number.multiply(Number.integer(-1), vec);
                     }
                     if (!(tail instanceof LinkedList<?> current)) {
@@ -278,22 +267,13 @@ public class GlobalEnvironment {
 
                 if (!(first instanceof Number result))
                     throw new RuntimeException("-: expected number, got " + first);
-                if (tail == null) {
+                if (unary) {
                     return Number.sub(Number.zero(result), result);
                 }
                 if (!(tail instanceof LinkedList<?> current)) return result;
-                while (current.head() != null) {
-                    Object head = current.head();
-                    if (!(head instanceof Number n))
-                        throw new RuntimeException("-: expected number, got " + head + " (type " + head.getClass() + ")");
-                    result = Number.sub(result, n);
-                    Object nextTail = current.tail();
-                    if (!(nextTail instanceof LinkedList<?> next)) break;
-                    current = next;
-                }
-                return result;
+                return fold('-', result, current);
             }),
-            new Pair<>("*", (Function<LinkedList<?>, Object>) (args) -> {
+            Primitive.variadic("*", (Function<LinkedList<?>, Object>) (args) -> {
                 if (args == null || args.head() == null) {
                     return Number.integer(1);
                 }
@@ -311,146 +291,249 @@ public class GlobalEnvironment {
                     return Number.multiply(vec, scalar);
                 }
 
-                Number prod = Number.integer(1);
-                current = args;
-                while (current != null && current.head() != null) {
-                    Object head = current.head();
-                    if (!(head instanceof Number n))
-                        throw new RuntimeException("*: expected number, got " + head + " (type " + head.getClass() + ")");
-                    prod = Number.multiply(prod, n);
-                    Object tail = current.tail();
-                    if (!(tail instanceof LinkedList<?> next)) break;
-                    current = next;
-                }
-                return prod;
+                return fold('*', Number.integer(1), args);
             }),
-            new Pair<>("/", (Function<LinkedList<?>, Object>) (args) -> {
+            Primitive.variadic("/", (Function<LinkedList<?>, Object>) (args) -> {
                 if (args == null || args.head() == null)
                     throw new SyntaxException("/ expects at least one argument");
                 Object first = args.head();
                 if (!(first instanceof Number result))
-                    throw new RuntimeException("/: expected number, got " + first + " (type " + first.getClass() + ")");
+                    throw new RuntimeException("/: expected number, got " + first + " (type " + typeName(first) + ")");
                 Object tail = args.tail();
-                if (!(tail instanceof LinkedList<?> current))
-                    return result;
-                while (current.head() != null) {
-                    Object head = current.head();
-                    if (!(head instanceof Number n))
-                        throw new RuntimeException("/: expected number, got " + head + " (type " + head.getClass() + ")");
-                    result = Number.divide(result, n);
-                    Object nextTail = current.tail();
-                    if (!(nextTail instanceof LinkedList<?> next)) break;
-                    current = next;
-                }
-                return result;
+                if (tail == null || ((LinkedList<?>) tail).head() == null)
+                    return Number.divide(Number.integer(1), result);
+                return fold('/', result, (LinkedList<?>) tail);
             }),               
-            new Pair<>("%", (BiFunction<Object, Object, Object>) (x, y) ->
+            Primitive.of("%", (BiFunction<Object, Object, Object>) (x, y) ->
                 Number.mod((Number) x, (Number) y)
             ),
-            new Pair<>("^", (BiFunction<Object, Object, Object>) (x, y) ->
+            Primitive.of("^", (BiFunction<Object, Object, Object>) (x, y) ->
                 Number.pow((Number) x, (Number) y)
             ),
-            new Pair<>("<", (BiFunction<Object, Object, String>) (x, y) ->
-                Number.lessThan((Number) x, (Number) y) ? "#t" : "#f"
+            Primitive.of("<", (BiFunction<Object, Object, Bool>) (x, y) ->
+                Bool.of(Number.lessThan((Number) x, (Number) y))
             ),
-            new Pair<>(">", (BiFunction<Object, Object, String>) (x, y) ->
-                Number.greaterThan((Number) x, (Number) y) ? "#t" : "#f"
+            Primitive.of(">", (BiFunction<Object, Object, Bool>) (x, y) ->
+                Bool.of(Number.greaterThan((Number) x, (Number) y))
             ),
-            new Pair<>("<=", (BiFunction<Object, Object, String>) (x, y) ->
-                Number.lessThanOrEqual((Number) x, (Number) y) ? "#t" : "#f"
+            Primitive.of("<=", (BiFunction<Object, Object, Bool>) (x, y) ->
+                Bool.of(Number.lessThanOrEqual((Number) x, (Number) y))
             ),
-            new Pair<>(">=", (BiFunction<Object, Object, String>) (x, y) ->
-                Number.greaterThanOrEqual((Number) x, (Number) y) ? "#t" : "#f"
+            Primitive.of(">=", (BiFunction<Object, Object, Bool>) (x, y) ->
+                Bool.of(Number.greaterThanOrEqual((Number) x, (Number) y))
             ),
-            new Pair<>("=", (BiFunction<Object, Object, String>) (x, y) -> {
+            Primitive.of("=", (BiFunction<Object, Object, Bool>) (x, y) -> {
                 if (x instanceof Number nx && y instanceof Number ny)
-                    return Number.numericEquals(nx, ny) ? "#t" : "#f";
+                    return Bool.of(Number.numericEquals(nx, ny));
                 if (x instanceof String sx && y instanceof String sy)
-                    return sx.equals(sy) ? "#t" : "#f";
+                    return Bool.of(sx.equals(sy));
                 if (x instanceof LinkedList<?> lx && y instanceof LinkedList<?> ly)
-                    return lx.equals(ly) ? "#t" : "#f";
-                return "#f";
+                    return Bool.of(lx.equals(ly));
+                return Bool.FALSE;
             }),
-            new Pair<>("real", (Function<Number,Number>) (z) -> {
+            Primitive.of("real", (Function<Number,Number>) (z) -> {
                 if (z.type == Number.Type.COMPLEX || z.type == Number.Type.QUATERNION){
-                    return z.real;
+                    return z.realPart();
                 } else {
                     return z;
                 }
             }),
-            new Pair<>("imaginary", (Function<Number,Number>) (z) -> {
+            Primitive.of("imaginary", (Function<Number,Number>) (z) -> {
                 if (z.type == Number.Type.COMPLEX) {
-                    return z.ipart;
+                    return z.ipart();
                 } else {
                     return Number.ZERO_INT;
                 }
             }),
-            new Pair<>("complex-magnitude", (Function<Number,Number>) (z) -> {
+            Primitive.of("complex-magnitude", (Function<Number,Number>) (z) -> {
                 if (z.type == Number.Type.COMPLEX) {
-                    return Number.real(Math.sqrt(Math.pow(Number.toDouble(z.real),2) + Math.pow(Number.toDouble(z.ipart),2)));
+                    return Number.real(Math.sqrt(Math.pow(Number.toDouble(z.realPart()),2) + Math.pow(Number.toDouble(z.ipart()),2)));
                 }else{
                   return z;
                 }
             }),
-            new Pair<>("floor", (Function<Number,Number>) (x) -> {
+            Primitive.of("floor", (Function<Number,Number>) (x) -> {
                 if (x.type == Number.Type.INT) {
                     return x;
                 }
                 if (x.type == Number.Type.RATIONAL) {
-                    return Number.integer((int) Math.floor((Number.toInexact(x)).floatVal));
+                    return Number.integer((int) Math.floor((Number.toInexact(x)).floatVal()));
                 }
                 if (x.type == Number.Type.FLOAT) {
-                    return Number.integer((int) Math.floor(x.floatVal));
+                    return Number.integer((int) Math.floor(x.floatVal()));
                 }
                 else{
                     return Number.ZERO_INT;
                 }
             }),
-            new Pair<>("sin", (Function<Number,Number>) (x) -> { 
-                return Number.real(Math.sin((double)Number.toInexact(x).floatVal));
-            }),
-            new Pair<>("cos", (Function<Number,Number>) (x) -> {
-                return Number.real(Math.cos((double)Number.toInexact(x).floatVal));
-            }), 
-            new Pair<>("tan", (Function<Number,Number>) (x) -> {
-                return Number.real(Math.tan((double)Number.toInexact(x).floatVal));
-            }), 
-            new Pair<>("arcsin", (Function<Number,Number>) (x) -> { 
-                return Number.real(Math.asin((double)Number.toInexact(x).floatVal));
-            }),
-            new Pair<>("arccos", (Function<Number,Number>) (x) -> {
-                return Number.real(Math.acos((double)Number.toInexact(x).floatVal));
-            }), 
-            new Pair<>("arctan", (Function<Number,Number>) (x) -> {
-                return Number.real(Math.atan((double)Number.toInexact(x).floatVal));
-            }),
-            new Pair<>("eq?", (Function<LinkedList<?>, Object>) (args) -> {
+            Primitive.of("sin", (Function<Number,Number>) Number::sin),
+            Primitive.of("cos", (Function<Number,Number>) Number::cos), 
+            Primitive.of("tan", (Function<Number,Number>) Number::tan), 
+            Primitive.of("arcsin", (Function<Number,Number>) Number::asin),
+            Primitive.of("arccos", (Function<Number,Number>) Number::acos), 
+            Primitive.of("arctan", (Function<Number,Number>) Number::atan),
+            Primitive.of("sqrt", (Function<Number,Number>) Number::sqrt),
+            Primitive.of("exp", (Function<Number,Number>) Number::exp),
+            Primitive.of("log", (Function<Number,Number>) Number::log),
+            Primitive.variadic("eq?", (Function<LinkedList<?>, Object>) (args) -> {
                 if (args == null || args.head() == null)
-                    return "#f";
+                    return Bool.FALSE;
                 // eq? must take exactly two arguments
                 LinkedList<?> rest = (LinkedList<?>) args.tail();
                 if (rest == null || rest.head() == null)
                     throw new SyntaxException("eq? expects 2 arguments");
                 Object a = args.head();
                 Object b = rest.head();
-                if (a == b) return "#t";
-                if (a == null || b == null) return "#f";
+                if (a == b) return Bool.TRUE;
+                if (a == null || b == null) return Bool.FALSE;
                 if (a instanceof Number && b instanceof Number)
-                    return Number.numericEquals((Number) a, (Number) b) ? "#t" : "#f";
+                    return Bool.of(Number.numericEquals((Number) a, (Number) b));
                 if (a instanceof BigInteger && b instanceof BigInteger)
-                    return ((BigInteger) a).equals(b) ? "#t" : "#f";
+                    return Bool.of(((BigInteger) a).equals(b));
                 if (a instanceof String && b instanceof String)
-                    return ((String) a).equals(b) ? "#t" : "#f";
-                if (a instanceof Symbol sa && b instanceof Symbol sb)
-                    return sa.name.equals(sb.name) ? "#t" : "#f";
+                    return Bool.of(((String) a).equals(b));
                 if (a instanceof LinkedList<?> la && b instanceof LinkedList<?> lb)
-                    return la.equals(lb) ? "#t" : "#f";
-                return "#f";
+                    return Bool.of(la.equals(lb));
+                return Bool.FALSE;
             })
         );
         // evalString("(define chars->string (lambda (chars) (foldl (lambda (acc ch) (cons ch acc)) \"\" (reverse chars))))", environment);
         return environment;
     }
+
+    // Builtins that evaluate in, or set up, the environment they are installed in; every isolate
+    // binds its own.
+    static void addEvalEnv(Environment environment) {
+        environment.addPrimitives(
+            Primitive.of("eval", (Function<Object,Object>) (str) -> {
+            Parser p = new Parser(str.toString());
+            return Evaluator.eval(p.parse(), environment);
+            }),
+            // digits kept by to-inexact-big numbers from here on
+            Primitive.of("precision", (Supplier<Number>) () ->
+                Number.integer(environment.machine.precision.getPrecision())
+            ),
+            Primitive.of("set-precision", (Function<Number,Number>) (digits) -> {
+                if (digits.type != Number.Type.INT || digits.intVal() < 1 || digits.intVal() > 1_000_000)
+                    throw new RuntimeException("set-precision: expected a digit count from 1 to 1000000, got " + digits);
+                environment.machine.precision = new MathContext((int) digits.intVal(), RoundingMode.HALF_EVEN);
+                Number.useContext(environment.machine.precision);
+                return digits;
+            })
+        );
+    }
+
+    // Kind of a value as error messages name it: the numeric type of a number, not the Java class
+    // that happens to hold it.
+    static String typeName(Object x) {
+        if (x == null) return "null";
+        if (x instanceof Number n) return n.type.toString();
+        return x.getClass().getSimpleName();
+    }
+
+    /*
+     Folds the numbers of args into result with the arithmetic operator op, left to right. While
+     the running value and the arguments are fixnums and flonums the running value stays in a
+     primitive long or double; an overflow, an inexact fixnum quotient, a non-finite double or
+     any other kind of number hands that step to the numeric tower, so the result is the one
+     the tower would give, with a Number allocated only at the end.
+
+     A sum or difference involving fractions runs the same way, as a numerator in fix over den.
+     The fraction is not reduced as it goes: a term over the same denominator is a single
+     addition, and another denominator costs one gcd of the two denominators. It is reduced once,
+     when boxed, or when a step overflows and is handed to the tower.
+    */
+    private static Number fold(char op, Number result, LinkedList<?> args) {
+        Number.Type kind = result.type; // for INT and FLOAT the running value is in fix or flo
+        long fix = kind == Number.Type.INT ? result.intVal() : 0;
+        double flo = kind == Number.Type.FLOAT ? result.floatVal() : 0.0;
+        long den = 0;                   // for RATIONAL with den > 0 the running value is fix/den
+
+        LinkedList<?> current = args;
+        while (current != null && current.head() != null) {
+            Object head = current.head();
+            if (!(head instanceof Number n))
+                throw new RuntimeException(op + ": expected number, got " + head + " (type " + typeName(head) + ")");
+            Object tail = current.tail();
+            current = tail instanceof LinkedList<?> next ? next : null;
+
+            if (kind == Number.Type.INT && n.type == Number.Type.INT) {
+                long b = n.intVal();
+                if (op != '/' || (b != 0 && fix % b == 0)) {
+                    try {
+                        fix = switch (op) {
+                            case '+' -> Math.addExact(fix, b);
+                            case '-' -> Math.subtractExact(fix, b);
+                            case '*' -> Math.multiplyExact(fix, b);
+                            default  -> Math.divideExact(fix, b);
+                        };
+                        continue;
+                    } catch (ArithmeticException overflow) {
+                        // the tower promotes to a bignum
+                    }
+                }
+            } else if ((kind == Number.Type.INT || kind == Number.Type.FLOAT) && Number.isFixOrFlo(n)) {
+                double a = kind == Number.Type.INT ? fix : flo;
+                double b = Number.toDouble(n);
+                double r = switch (op) {
+                    case '+' -> a + b;
+                    case '-' -> a - b;
+                    case '*' -> a * b;
+                    default  -> a / b;
+                };
+                if (Double.isFinite(r)) {
+                    kind = Number.Type.FLOAT;
+                    flo = r;
+                    continue;
+                }
+            } else if ((op == '+' || op == '-')
+                       && (kind == Number.Type.INT || kind == Number.Type.RATIONAL)
+                       && (n.type == Number.Type.INT || n.type == Number.Type.RATIONAL)) {
+                long p = kind == Number.Type.RATIONAL && den == 0 ? result.num() : fix;
+                long q = kind == Number.Type.INT ? 1 : den == 0 ? result.den() : den;
+                long c = n.type == Number.Type.INT ? n.intVal() : n.num();
+                long d = n.type == Number.Type.INT ? 1 : n.den();
+                try {
+                    if (d != q) {
+                        // over the least common denominator
+                        long g = Number.gcd(q, d);
+                        p = Math.multiplyExact(p, d / g);
+                        c = Math.multiplyExact(c, q / g);
+                        q = Math.multiplyExact(q, d / g);
+                    }
+                    fix = op == '+' ? Math.addExact(p, c) : Math.subtractExact(p, c);
+                    den = q;
+                    kind = Number.Type.RATIONAL;
+                    continue;
+                } catch (ArithmeticException overflow) {
+                    // the tower goes on from the reduced fraction
+                }
+            }
+
+            Number acc = box(kind, fix, den, flo, result);
+            result = switch (op) {
+                case '+' -> Number.add(acc, n);
+                case '-' -> Number.sub(acc, n);
+                case '*' -> Number.multiply(acc, n);
+                default  -> Number.divide(acc, n);
+            };
+            kind = result.type;
+            if (kind == Number.Type.INT) fix = result.intVal();
+            if (kind == Number.Type.FLOAT) flo = result.floatVal();
+            den = 0;
+        }
+        return box(kind, fix, den, flo, result);
+    }
+
+    private static Number box(Number.Type kind, long fix, long den, double flo, Number result) {
+        return switch (kind) {
+            case INT      -> Number.integer(fix);
+            case FLOAT    -> Number.real(flo);
+            case RATIONAL -> den > 0 ? Number.rational(fix, den) : result;
+            default       -> result;
+        };
+    }
+
     private static String unescapeJava(String s) {
         // Convert common ANSI escape encodings first
         s = s.replace("\\u001b", "\u001b").replace("\\033", "\u001b");
@@ -0,0 +1,711 @@
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/*
+ Startup image (.mui): everything an environment holds on top of its builtins, so a batch job
+ can restore its libraries and definitions instead of parsing and evaluating them again.
+ (dump-image "file") or :dump file writes one; passing a .mui file where a source file goes, on
+ the command line or to :load, restores it into the freshly initialized environment.
+
+ The image holds the value of every global that is not just its own builtin, closures included
+ with their compiled code, and the modules imported so far, so importing them again after a
+ restore does nothing. Builtins, global cells and the environment itself are written by name
+ and bound to the restoring interpreter's own; Java objects without a representation here
+ (windows, images, encoders) cannot be dumped. Jit-compiled code is not kept: a restored
+ procedure starts interpreted and tiers up again.
+
+ The encoding is ModuleCache's. Objects are numbered in the order they are first written, and a
+ second occurrence refers back by number, so sharing and cycles survive. The contents of frames,
+ lists and vectors, the only mutable containers, are written after the value that reached them,
+ from a queue: the container already exists when something inside it refers back to it, and a
+ long list does not recurse once per element.
+*/
+final class Image {
+    static final String VERSION = "mui-" + ModuleCache.fingerprint(layout());
+    private static final int MAGIC = 0x4D55491A; // "MUI" ^Z
+
+    // Value tags
+    private static final int NULL = 0, REF = 1, TRUE = 2, FALSE = 3, NUMBER = 4, STRING = 5,
+        SYMBOL = 6, LIST = 7, VECTOR = 8, TUPLE = 9, FRAME = 10, CLOSURE = 11, PRIMITIVE = 12,
+        CELL = 13, ENVIRONMENT = 14, UNBOUND = 15, CODE = 16, PROTO = 17, TEMPLATE = 18,
+        INTEGER = 19, BOOLEAN = 20;
+
+    // Code kinds, written after CODE
+    private static final int CONST = 0, LOCAL_REF = 1, GLOBAL_REF = 2, DEFINE = 3, LOCAL_DEFINE = 4,
+        COND = 5, SEQUENCE = 6, LAMBDA = 7, LET = 8, LET_NAMED = 9, QUASI_QUOTE = 10,
+        TUPLE_LITERAL = 11, VECTOR_LITERAL = 12, LIST_LITERAL = 13, IMPORT = 14, CALL = 15,
+        BYTECODE = 16, TIERED = 17;
+
+    private Image() {}
+
+    // What VERSION is a checksum of: ModuleCache's layout, the tags here, and the instance fields
+    // of every class whose state an image holds. A build that adds a Code kind, a field or a tag,
+    // or reorders the token kinds, refuses older images instead of misreading them.
+    private static String layout() {
+        TreeMap<String, Class<?>> classes = new TreeMap<>();
+        for (Class<?> host : new Class<?>[] { Code.class, Bytecode.class }) {
+            for (Class<?> c : host.getNestMembers()) {
+                classes.put(c.getName(), c);
+            }
+        }
+        for (Class<?> c : new Class<?>[] { Closure.class, Frame.class, Tuple.class, Vector.class, Jit.Tiered.class }) {
+            classes.put(c.getName(), c);
+        }
+        int[] tags = { NULL, REF, TRUE, FALSE, NUMBER, STRING, SYMBOL, LIST, VECTOR, TUPLE, FRAME, CLOSURE,
+            PRIMITIVE, CELL, ENVIRONMENT, UNBOUND, CODE, PROTO, TEMPLATE, INTEGER, BOOLEAN };
+        int[] kinds = { CONST, LOCAL_REF, GLOBAL_REF, DEFINE, LOCAL_DEFINE, COND, SEQUENCE, LAMBDA, LET,
+            LET_NAMED, QUASI_QUOTE, TUPLE_LITERAL, VECTOR_LITERAL, LIST_LITERAL, IMPORT, CALL, BYTECODE, TIERED };
+        StringBuilder sb = new StringBuilder(ModuleCache.layout());
+        sb.append(' ').append(Arrays.toString(tags)).append(Arrays.toString(kinds));
+        for (Class<?> c : classes.values()) {
+            TreeSet<String> fields = new TreeSet<>();
+            for (Field f : c.getDeclaredFields()) {
+                if (!Modifier.isStatic(f.getModifiers())) {
+                    fields.add(f.getType().getName() + " " + f.getName());
+                }
+            }
+            sb.append(' ').append(c.getName()).append(fields);
+        }
+        return sb.toString();
+    }
+
+    static void dump(Environment env, Path file) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + "." + ProcessHandle.current().pid() + ".tmp");
+        try {
+            try (ModuleCache.Output out = new ModuleCache.Output(Files.newOutputStream(temp))) {
+                out.int32(MAGIC);
+                out.utf8(VERSION);
+                List<String> modules = env.modules.ids();
+                out.varlong(modules.size());
+                for (String id : modules) {
+                    out.utf8(id);
+                }
+                Writer w = new Writer(out);
+                for (Environment.Cell c : env.cells()) {
+                    Object v = c.value;
+                    if (v == Environment.Cell.UNBOUND || (v instanceof Primitive p && p.name.equals(c.name))) {
+                        continue;
+                    }
+                    out.u1(1);
+                    out.string(c.name);
+                    w.value(v);
+                    w.drain();
+                }
+                out.u1(0);
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Reads the whole image before defining anything, so builtins it names are the restoring
+    // environment's own even when the image rebinds their names.
+    static void restore(Environment env, Path file) throws IOException {
+        try (ModuleCache.Input in = new ModuleCache.Input(Files.newInputStream(file))) {
+            if (in.int32() != MAGIC || !in.utf8().equals(VERSION)) {
+                throw new IOException(file + " is not an image of this interpreter version; dump it again");
+            }
+            ArrayList<String> modules = new ArrayList<>();
+            for (int n = in.varint(); n > 0; n--) {
+                modules.add(in.utf8());
+            }
+            Reader r = new Reader(in, env);
+            ArrayList<String> names = new ArrayList<>();
+            ArrayList<Object> values = new ArrayList<>();
+            while (in.u1() != 0) {
+                names.add(in.string());
+                values.add(r.value());
+                r.drain();
+            }
+            for (int i = 0; i < names.size(); i++) {
+                env.define(names.get(i), values.get(i));
+            }
+            env.modules.restore(modules);
+        }
+    }
+
+    // ---------- writing ----------
+
+    private static final class Writer {
+        private final ModuleCache.Output out;
+        private final IdentityHashMap<Object, Integer> ids = new IdentityHashMap<>();
+        private final ArrayDeque<Object> unfilled = new ArrayDeque<>();
+
+        Writer(ModuleCache.Output out) {
+            this.out = out;
+        }
+
+        // Writes a back-reference and returns false if o was written before; otherwise numbers it.
+        private boolean first(Object o) throws IOException {
+            Integer id = ids.get(o);
+            if (id != null) {
+                out.u1(REF);
+                out.varlong(id);
+                return false;
+            }
+            ids.put(o, ids.size());
+            return true;
+        }
+
+        void value(Object v) throws IOException {
+            if (v == null) {
+                out.u1(NULL);
+            } else if (v == Bool.TRUE) {
+                out.u1(TRUE);
+            } else if (v == Bool.FALSE) {
+                out.u1(FALSE);
+            } else if (v == Frame.UNBOUND) {
+                out.u1(UNBOUND);
+            } else if (v instanceof Number n) {
+                out.u1(NUMBER);
+                out.number(n);
+            } else if (v instanceof Integer i) { // colors and sizes some builtins return
+                out.u1(INTEGER);
+                out.signed(i);
+            } else if (v instanceof Boolean b) {
+                out.u1(BOOLEAN);
+                out.u1(b ? 1 : 0);
+            } else if (v instanceof String s) {
+                out.u1(STRING);
+                out.string(s);
+            } else if (v instanceof Symbol s) {
+                out.u1(SYMBOL);
+                out.string(s.name);
+            } else if (v instanceof Primitive p) {
+                out.u1(PRIMITIVE);
+                out.string(p.name);
+            } else if (v instanceof Environment.Cell c) {
+                out.u1(CELL);
+                out.string(c.name);
+            } else if (v instanceof Environment) {
+                out.u1(ENVIRONMENT);
+            } else if (!first(v)) {
+                // written before
+            } else if (v instanceof LinkedList<?> l) {
+                out.u1(LIST);
+                out.u1(l.charListTag ? 1 : 0);
+                unfilled.add(l);
+            } else if (v instanceof Vector vec) {
+                out.u1(VECTOR);
+                out.varlong(vec.size);
+                unfilled.add(vec);
+            } else if (v instanceof Frame f) {
+                out.u1(FRAME);
+                out.varlong(f.slots.length);
+                value(f.parent);
+                unfilled.add(f);
+            } else if (v instanceof Tuple t) {
+                out.u1(TUPLE);
+                out.varlong(t.size());
+                for (int i = 0; i < t.size(); i++) {
+                    value(t.get(i));
+                }
+            } else if (v instanceof Closure c) {
+                out.u1(CLOSURE);
+                strings(c.params);
+                value(c.body);
+                value(c.captured);
+                out.varlong(c.frameSize);
+                name(c.name);
+            } else if (v instanceof Code c) {
+                out.u1(CODE);
+                code(c);
+            } else if (v instanceof Bytecode.Proto p) {
+                out.u1(PROTO);
+                strings(p.params());
+                value(p.body());
+                name(p.name());
+            } else if (v instanceof Bytecode.Template t) {
+                out.u1(TEMPLATE);
+                template(t.template(), t.unquoted());
+            } else {
+                throw new IOException("cannot save a " + v.getClass().getSimpleName() + " in an image: " + v);
+            }
+        }
+
+        // Contents of the containers written so far, and of any they lead to.
+        void drain() throws IOException {
+            Object o;
+            while ((o = unfilled.poll()) != null) {
+                if (o instanceof LinkedList<?> l) {
+                    out.u1(l.list == null ? 0 : 1);
+                    if (l.list != null) {
+                        value(l.list.first);
+                        value(l.list.second);
+                    }
+                } else if (o instanceof Vector vec) {
+                    for (int i = 0; i < vec.size; i++) {
+                        value(vec.elems[i]);
+                    }
+                } else {
+                    for (Object slot : ((Frame) o).slots) {
+                        value(slot);
+                    }
+                }
+            }
+        }
+
+        private void name(String name) throws IOException {
+            out.u1(name == null ? 0 : 1);
+            if (name != null) {
+                out.string(name);
+            }
+        }
+
+        private void strings(String[] names) throws IOException {
+            out.varlong(names.length);
+            for (String n : names) {
+                out.string(n);
+            }
+        }
+
+        private void codes(Code[] codes) throws IOException {
+            out.varlong(codes.length);
+            for (Code c : codes) {
+                value(c);
+            }
+        }
+
+        private void token(Token<?> t) throws IOException {
+            out.u1(t == null ? 0 : 1);
+            if (t != null) {
+                out.node(new Node<Token>((Token) t));
+            }
+        }
+
+        // A quasi-quote template, followed by its unquote nodes as pre-order indexes into it.
+        private void template(Node<Token> template, List<Node<Token>> unquoted) throws IOException {
+            out.node(template);
+            IdentityHashMap<Node<Token>, Integer> order = new IdentityHashMap<>();
+            number(template, order);
+            out.varlong(unquoted.size());
+            for (Node<Token> n : unquoted) {
+                out.varlong(order.get(n));
+            }
+        }
+
+        private void code(Code c) throws IOException {
+            switch (c) {
+                case Code.Const k -> {
+                    out.u1(CONST);
+                    token(k.source);
+                    value(k.value);
+                }
+                case Code.LocalRef k -> {
+                    out.u1(LOCAL_REF);
+                    token(k.source);
+                    out.string(k.name);
+                    out.varlong(k.depth);
+                    out.varlong(k.slot);
+                }
+                case Code.GlobalRef k -> {
+                    out.u1(GLOBAL_REF);
+                    token(k.source);
+                    out.string(k.cell.name);
+                }
+                case Code.Define k -> {
+                    out.u1(DEFINE);
+                    token(k.source);
+                    out.string(k.cell.name);
+                    value(k.value);
+                }
+                case Code.LocalDefine k -> {
+                    out.u1(LOCAL_DEFINE);
+                    token(k.source);
+                    out.varlong(k.slot);
+                    value(k.value);
+                }
+                case Code.Cond k -> {
+                    out.u1(COND);
+                    token(k.source);
+                    codes(k.predicates);
+                    for (Code[] body : k.bodies) {
+                        codes(body);
+                    }
+                }
+                case Code.Sequence k -> {
+                    out.u1(SEQUENCE);
+                    token(k.source);
+                    codes(k.body);
+                }
+                case Code.Lambda k -> {
+                    out.u1(LAMBDA);
+                    token(k.source);
+                    strings(k.params);
+                    value(k.body);
+                    out.varlong(k.frameSize);
+                    name(k.name);
+                }
+                case Code.Let k -> {
+                    out.u1(LET);
+                    token(k.source);
+                    codes(k.inits);
+                    value(k.body);
+                    out.varlong(k.frameSize);
+                }
+                case Code.LetNamed k -> {
+                    out.u1(LET_NAMED);
+                    token(k.source);
+                    out.string(k.name);
+                    strings(k.params);
+                    codes(k.inits);
+                    value(k.body);
+                    out.varlong(k.frameSize);
+                }
+                case Code.QuasiQuote k -> {
+                    out.u1(QUASI_QUOTE);
+                    token(k.source);
+                    template(k.template, k.unquotedNodes);
+                    codes(k.unquoted);
+                }
+                case Code.TupleLiteral k -> {
+                    out.u1(TUPLE_LITERAL);
+                    token(k.source);
+                    codes(k.elems);
+                }
+                case Code.VectorLiteral k -> {
+                    out.u1(VECTOR_LITERAL);
+                    token(k.source);
+                    codes(k.elems);
+                }
+                case Code.ListLiteral k -> {
+                    out.u1(LIST_LITERAL);
+                    token(k.source);
+                    codes(k.elems);
+                    value(k.tail);
+                }
+                case Code.Import k -> {
+                    out.u1(IMPORT);
+                    token(k.source);
+                    value(k.module);
+                    out.string(k.importer.name);
+                }
+                case Code.Arith k -> code(k.generic); // specialized again when read
+                case Code.Call k -> {
+                    out.u1(CALL);
+                    token(k.source);
+                    value(k.operator);
+                    codes(k.args);
+                    name(k.name);
+                }
+                case Bytecode k -> {
+                    out.u1(BYTECODE);
+                    token(k.source);
+                    out.varlong(k.code.length);
+                    for (int word : k.code) {
+                        out.signed(word);
+                    }
+                    out.varlong(k.constants.length);
+                    for (Object constant : k.constants) {
+                        value(constant);
+                    }
+                    out.varlong(k.sources.length);
+                    for (Token<?> t : k.sources) {
+                        token(t);
+                    }
+                    out.varlong(k.frameSize);
+                    out.u1(k.topLevel ? 1 : 0);
+                }
+                case Jit.Tiered k -> {
+                    out.u1(TIERED);
+                    value(k.body);
+                    out.varlong(k.arity);
+                    out.varlong(k.threshold);
+                }
+                default -> throw new IOException("cannot save generated code in an image");
+            }
+        }
+    }
+
+    private static void number(Node<Token> node, IdentityHashMap<Node<Token>, Integer> order) {
+        order.put(node, order.size());
+        for (int i = 0; i < node.childCount(); i++) {
+            number(node.child(i), order);
+        }
+    }
+
+    private static void preorder(Node<Token> node, ArrayList<Node<Token>> order) {
+        order.add(node);
+        for (int i = 0; i < node.childCount(); i++) {
+            preorder(node.child(i), order);
+        }
+    }
+
+    // ---------- reading ----------
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static final class Reader {
+        private final ModuleCache.Input in;
+        private final Environment env;
+        private final ArrayList<Object> objects = new ArrayList<>();
+        private final ArrayDeque<Object> unfilled = new ArrayDeque<>();
+
+        Reader(ModuleCache.Input in, Environment env) {
+            this.in = in;
+            this.env = env;
+        }
+
+        // Numbers an object whose parts come next; set() fills the number in once it is built.
+        private int reserve() {
+            objects.add(null);
+            return objects.size() - 1;
+        }
+
+        private <T> T set(int id, T o) {
+            objects.set(id, o);
+            return o;
+        }
+
+        Object value() throws IOException {
+            int tag = in.u1();
+            switch (tag) {
+                case NULL:        return null;
+                case TRUE:        return Bool.TRUE;
+                case FALSE:       return Bool.FALSE;
+                case UNBOUND:     return Frame.UNBOUND;
+                case NUMBER:      return in.number();
+                case INTEGER:     return (int) in.signed();
+                case BOOLEAN:     return in.u1() != 0;
+                case STRING:      return in.string();
+                case SYMBOL:      return Symbol.intern(in.string());
+                case PRIMITIVE:   return primitive(in.string());
+                case CELL:        return env.cell(in.string());
+                case ENVIRONMENT: return env;
+                case REF: {
+                    Object o = objects.get(in.varint());
+                    if (o == null) {
+                        throw new IOException("corrupt image: reference to an object still being read");
+                    }
+                    return o;
+                }
+                case LIST: {
+                    LinkedList l = new LinkedList();
+                    l.charListTag = in.u1() != 0;
+                    objects.add(l);
+                    unfilled.add(l);
+                    return l;
+                }
+                case VECTOR: {
+                    Vector v = new Vector(new Object[in.varint()]);
+                    objects.add(v);
+                    unfilled.add(v);
+                    return v;
+                }
+                case FRAME: {
+                    int id = reserve();
+                    Object[] slots = new Object[in.varint()];
+                    Frame f = set(id, new Frame(slots, (Frame) value()));
+                    unfilled.add(f);
+                    return f;
+                }
+                case TUPLE: {
+                    int id = reserve();
+                    Object[] elems = new Object[in.varint()];
+                    for (int i = 0; i < elems.length; i++) {
+                        elems[i] = value();
+                    }
+                    return set(id, Tuple.of(elems));
+                }
+                case CLOSURE: {
+                    int id = reserve();
+                    String[] params = strings();
+                    Code body = (Code) value();
+                    Frame captured = (Frame) value();
+                    return set(id, new Closure(params, body, captured, in.varint(), name()));
+                }
+                case CODE: {
+                    int id = reserve();
+                    return set(id, code());
+                }
+                case PROTO: {
+                    int id = reserve();
+                    String[] params = strings();
+                    Bytecode body = (Bytecode) value();
+                    return set(id, new Bytecode.Proto(params, body, name()));
+                }
+                case TEMPLATE: {
+                    int id = reserve();
+                    Node<Token> template = in.node();
+                    return set(id, new Bytecode.Template(template, unquoted(template)));
+                }
+                default:
+                    throw new IOException("corrupt image: tag " + tag);
+            }
+        }
+
+        void drain() throws IOException {
+            Object o;
+            while ((o = unfilled.poll()) != null) {
+                if (o instanceof LinkedList l) {
+                    if (in.u1() != 0) {
+                        Object head = value();
+                        l.list = new Pair<>(head, value());
+                    }
+                } else if (o instanceof Vector v) {
+                    for (int i = 0; i < v.size; i++) {
+                        v.elems[i] = value();
+                    }
+                } else {
+                    Object[] slots = ((Frame) o).slots;
+                    for (int i = 0; i < slots.length; i++) {
+                        slots[i] = value();
+                    }
+                }
+            }
+        }
+
+        private Primitive primitive(String name) throws IOException {
+            if (env.lookup(name).orElse(null) instanceof Primitive p) {
+                return p;
+            }
+            throw new IOException("image refers to builtin " + name + ", which this interpreter does not define");
+        }
+
+        private String name() throws IOException {
+            return in.u1() == 0 ? null : in.string();
+        }
+
+        private String[] strings() throws IOException {
+            String[] names = new String[in.varint()];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = in.string();
+            }
+            return names;
+        }
+
+        private Code[] codes() throws IOException {
+            Code[] codes = new Code[in.varint()];
+            for (int i = 0; i < codes.length; i++) {
+                codes[i] = (Code) value();
+            }
+            return codes;
+        }
+
+        private Token<?> token() throws IOException {
+            return in.u1() == 0 ? null : in.node().getValue();
+        }
+
+        private List<Node<Token>> unquoted(Node<Token> template) throws IOException {
+            ArrayList<Node<Token>> order = new ArrayList<>();
+            preorder(template, order);
+            ArrayList<Node<Token>> unquoted = new ArrayList<>();
+            for (int n = in.varint(); n > 0; n--) {
+                unquoted.add(order.get(in.varint()));
+            }
+            return unquoted;
+        }
+
+        private Code code() throws IOException {
+            int kind = in.u1();
+            if (kind == TIERED) {
+                Code body = (Code) value();
+                int arity = in.varint();
+                return new Jit.Tiered(body, arity, in.varint());
+            }
+            Token<?> t = token();
+            switch (kind) {
+                case CONST:
+                    return new Code.Const(t, value());
+                case LOCAL_REF: {
+                    String name = in.string();
+                    int depth = in.varint();
+                    return new Code.LocalRef(t, name, depth, in.varint());
+                }
+                case GLOBAL_REF:
+                    return new Code.GlobalRef(t, env.cell(in.string()));
+                case DEFINE: {
+                    Environment.Cell cell = env.cell(in.string());
+                    return new Code.Define(t, cell, (Code) value(), env);
+                }
+                case LOCAL_DEFINE: {
+                    int slot = in.varint();
+                    return new Code.LocalDefine(t, slot, (Code) value(), env);
+                }
+                case COND: {
+                    Code[] predicates = codes();
+                    Code[][] bodies = new Code[predicates.length][];
+                    for (int i = 0; i < bodies.length; i++) {
+                        bodies[i] = codes();
+                    }
+                    return new Code.Cond(t, predicates, bodies);
+                }
+                case SEQUENCE:
+                    return new Code.Sequence(t, codes());
+                case LAMBDA: {
+                    String[] params = strings();
+                    Code body = (Code) value();
+                    return new Code.Lambda(t, params, body, in.varint(), name());
+                }
+                case LET: {
+                    Code[] inits = codes();
+                    Code body = (Code) value();
+                    return new Code.Let(t, inits, body, in.varint());
+                }
+                case LET_NAMED: {
+                    String name = in.string();
+                    String[] params = strings();
+                    Code[] inits = codes();
+                    Code body = (Code) value();
+                    return new Code.LetNamed(t, name, params, inits, body, in.varint());
+                }
+                case QUASI_QUOTE: {
+                    Node<Token> template = in.node();
+                    List<Node<Token>> unquotedNodes = unquoted(template);
+                    return new Code.QuasiQuote(t, template, unquotedNodes, codes());
+                }
+                case TUPLE_LITERAL:
+                    return new Code.TupleLiteral(t, codes());
+                case VECTOR_LITERAL:
+                    return new Code.VectorLiteral(t, codes());
+                case LIST_LITERAL: {
+                    Code[] elems = codes();
+                    return new Code.ListLiteral(t, elems, (Code) value());
+                }
+                case IMPORT: {
+                    Object module = value();
+                    return new Code.Import(t, module, env.cell(in.string()));
+                }
+                case CALL: {
+                    Code operator = (Code) value();
+                    Code[] args = codes();
+                    return Code.Arith.of(new Code.Call(t, operator, args, name()));
+                }
+                case BYTECODE: {
+                    int[] code = new int[in.varint()];
+                    for (int i = 0; i < code.length; i++) {
+                        code[i] = (int) in.signed();
+                    }
+                    Object[] constants = new Object[in.varint()];
+                    for (int i = 0; i < constants.length; i++) {
+                        constants[i] = value();
+                    }
+                    Token<?>[] sources = new Token<?>[in.varint()];
+                    for (int i = 0; i < sources.length; i++) {
+                        sources[i] = token();
+                    }
+                    int frameSize = in.varint();
+                    return new Bytecode(t, code, constants, sources, frameSize, in.u1() != 0);
+                }
+                default:
+                    throw new IOException("corrupt image: code kind " + kind);
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/*
+ One independent MicroLisp interpreter, or isolate: its own global table, evaluation state (tail-call
+ registers and diagnostics), imported modules and video recordings. Isolates share nothing mutable,
+ so many can run at once on different threads; a single isolate is used by one thread at a time.
+
+ Every isolate starts from a Prelude, a frozen environment holding the builtins and some libraries.
+ The isolate gets fresh cells for all of the prelude's globals, so what it defines stays its own,
+ but the values are the prelude's, shared by reference: no builtin or library procedure is built
+ again per isolate. The prelude's procedures keep referring to the prelude's cells, which can no
+ longer change. Builtins that evaluate in or keep state for their environment (eval, read, import,
+ recordings) are bound afresh for each isolate.
+
+   Interpreter.Prelude prelude = Interpreter.Prelude.standard();
+   pool.submit(() -> new Interpreter(prelude).load(script));
+*/
+public final class Interpreter {
+    final Environment env;
+
+    public Interpreter() {
+        this(Prelude.standard());
+    }
+
+    public Interpreter(Prelude prelude) {
+        this.env = prelude.env.fork();
+        bindLocal(env);
+    }
+
+    // Environment with every builtin, as the command line starts with.
+    static Environment builtins() {
+        Environment env = GlobalEnvironment.initGlobalEnvironment();
+        Vector.addVectorEnv(env);
+        FileHandling.addFileHandlingEnv(env);
+        PixelGraphics.addPixelGraphicsEnv(env);
+        VideoEncoder.addVideoEnv(env);
+        return env;
+    }
+
+    private static void bindLocal(Environment env) {
+        GlobalEnvironment.addEvalEnv(env);
+        FileHandling.addFileHandlingEnv(env);
+        VideoEncoder.addVideoEnv(env);
+    }
+
+    public Environment environment() {
+        return env;
+    }
+
+    // Evaluates the forms of source in turn and returns the value of the last one.
+    public Object eval(String source) {
+        Parser parser = new Parser(source);
+        Object result = null;
+        for (Node<Token> form = parser.parse(); form.getValue().type() != TokenType.EOF; form = parser.parse()) {
+            result = Evaluator.eval(form, env);
+        }
+        return result;
+    }
+
+    // Evaluates a source file, or restores a .mui image.
+    public void load(Path file) throws IOException {
+        if (file.toString().endsWith(".mui")) {
+            Image.restore(env, file);
+            return;
+        }
+        try (ModuleCache.Forms forms = ModuleCache.forms(() -> Files.newInputStream(file))) {
+            for (Node<Token> form = forms.next(); form.getValue().type() != TokenType.EOF; form = forms.next()) {
+                Evaluator.eval(form, env);
+            }
+        }
+    }
+
+    // Read-only starting point shared by any number of isolates.
+    public static final class Prelude {
+        final Environment env;
+
+        private Prelude(Environment env) {
+            env.freeze();
+            this.env = env;
+        }
+
+        // Builtins plus the lists library, built once per JVM on first use.
+        public static Prelude standard() {
+            return Standard.PRELUDE;
+        }
+
+        private static final class Standard {
+            static final Prelude PRELUDE = of("lists");
+        }
+
+        // Builtins plus the given modules, imported in order.
+        public static Prelude of(String... modules) {
+            Environment env = builtins();
+            Primitive importer = (Primitive) env.lookup("import").orElseThrow();
+            for (String module : modules) {
+                importer.invoke1(module);
+            }
+            return new Prelude(env);
+        }
+
+        // Builtins plus the definitions and modules of an image.
+        public static Prelude restore(Path image) throws IOException {
+            Environment env = builtins();
+            Image.restore(env, image);
+            return new Prelude(env);
+        }
+    }
+}
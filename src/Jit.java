@@ -0,0 +1,428 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+
+/*
+ Second tier for lambda bodies. With tiering on, the Compiler wraps every lambda and named-let
+ body in a Tiered node that counts calls; once a body has run threshold times it is translated
+ into the evalT method of a hidden class extending Code, which HotSpot then compiles and inlines
+ like any other Java method.
+
+ The translation covers the forms that make up hot loops: constants, local and global variables,
+ cond, do, let, body defines and calls. Any other form is kept as its interpreted Code and called from the
+ generated method. A call whose operator is a global currently bound to a primitive is compiled
+ as a direct call to that primitive, guarded by a check that the global still holds it; such a
+ global is a dependency of the body, and redefining it sends the body back to the interpreter
+ until it is hot again.
+
+ Every constant the generated code needs is a static final field, so the JVM can fold cells and
+ primitives into the machine code. The fields are filled from the hidden class's class data.
+*/
+final class Jit {
+    static final int DEFAULT_THRESHOLD = 1000;
+    // A body invalidated this many times stays interpreted.
+    static final int MAX_RECOMPILES = 4;
+
+    private static final String OBJECT = "java/lang/Object";
+    private static final String OBJ = "Ljava/lang/Object;";
+    private static final String FRAME = "LFrame;";
+    private static final String EVAL_DESC = "(LFrame;LMachine;)Ljava/lang/Object;";
+    private static final String CELL = "Environment$Cell";
+    private static final int MAX_CODE = 30000; // keeps every branch offset within 16 bits
+
+    private Jit() {}
+
+    // Lambda body that counts its calls and switches to generated code once it is hot.
+    static final class Tiered extends Code {
+        final Code body;
+        final int arity;
+        final int threshold;
+        private int calls;
+        private int recompiles;
+        private Code compiled;
+
+        Tiered(Code body, int arity, int threshold) {
+            super(body.source);
+            this.body = body;
+            this.arity = arity;
+            this.threshold = threshold;
+        }
+
+        @Override Object evalT(Frame frame, Machine m) {
+            Code c = compiled;
+            if (c != null) {
+                return c.evalT(frame, m);
+            }
+            if (++calls == threshold) {
+                compiled = compile(this);
+            }
+            return body.evalT(frame, m);
+        }
+
+        boolean isCompiled() {
+            return compiled != null;
+        }
+
+        // Called when a global the generated code speculated on is redefined.
+        void invalidate() {
+            compiled = null;
+            calls = ++recompiles < MAX_RECOMPILES ? 0 : Integer.MIN_VALUE;
+        }
+    }
+
+    // Generated code for t, or null if t's body cannot be compiled.
+    static Code compile(Tiered t) {
+        Translator tr = new Translator(t);
+        byte[] bytes;
+        try {
+            bytes = tr.translate();
+        } catch (IllegalStateException e) {
+            return null;
+        }
+        try {
+            MethodHandles.Lookup hidden = MethodHandles.lookup()
+                .defineHiddenClassWithClassData(bytes, tr.constants.toArray(), true);
+            Code code = (Code) hidden
+                .findConstructor(hidden.lookupClass(), MethodType.methodType(void.class, Token.class))
+                .invoke(t.source);
+            for (Environment.Cell cell : tr.dependencies) {
+                cell.addDependent(t);
+            }
+            return code;
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+
+    // ---------- runtime support for generated code ----------
+
+    // Non-tail call of anything callable, running any tail calls it hands back to completion.
+    static Object call(Object op, Object[] args, String name, Machine m) {
+        Object value = Evaluator.applyT(op, args, name, m);
+        while (value == Machine.TAIL_CALL) {
+            value = m.next.evalT(m.nextFrame, m);
+        }
+        return value;
+    }
+
+    // Error leaving generated code, tagged with the form that was running like Evaluator.execute
+    // would have done.
+    static Throwable fail(Throwable e, Token<?>[] sources, int at) {
+        if (e instanceof Evaluator.ContextException ce) {
+            ce.depth++;
+            return ce;
+        }
+        if (e instanceof StackOverflowError) {
+            return new Evaluator.ContextException("Stack overflow", sources[at], e);
+        }
+        if (e instanceof RuntimeException && sources[at] != null) {
+            return new Evaluator.ContextException(e.getMessage(), sources[at], e);
+        }
+        return e;
+    }
+
+    // ---------- translation ----------
+
+    private static final class Translator {
+        final Tiered tiered;
+        final ClassAssembler asm = new ClassAssembler("JitLambda", "Code");
+        // constants.get(i) ends up in static field "k" + i
+        final ArrayList<Object> constants = new ArrayList<>();
+        private final ArrayList<String> constantTypes = new ArrayList<>();
+        private final IdentityHashMap<Object, Integer> constantIndex = new IdentityHashMap<>();
+        private final ArrayList<Token<?>> sources = new ArrayList<>();
+        final LinkedHashSet<Environment.Cell> dependencies = new LinkedHashSet<>();
+        private ClassAssembler.Method mth;
+        private int nextLocal;
+        private int maxLocals;
+
+        // locals of the generated evalT
+        private static final int FRAME_LOCAL = 1, MACHINE = 2, AT = 3;
+
+        Translator(Tiered tiered) {
+            this.tiered = tiered;
+        }
+
+        byte[] translate() {
+            int sourcesField = constant(null, "[LToken;");
+            nextLocal = maxLocals = AT + 1;
+            mth = asm.method(ClassAssembler.ACC_PUBLIC, "evalT", EVAL_DESC, 0);
+            ClassAssembler.Label start = new ClassAssembler.Label();
+            ClassAssembler.Label end = new ClassAssembler.Label();
+            ClassAssembler.Label handler = new ClassAssembler.Label();
+            mth.iconst(source(tiered.body));
+            mth.store(ClassAssembler.ISTORE, AT);
+            mth.mark(start);
+            expr(tiered.body, FRAME_LOCAL, true);
+            mth.op(ClassAssembler.ARETURN);
+            mth.mark(end);
+            mth.mark(handler);
+            mth.stack(1);
+            mth.field(ClassAssembler.GETSTATIC, "JitLambda", "k" + sourcesField, "[LToken;");
+            mth.load(ClassAssembler.ILOAD, AT);
+            mth.invoke(ClassAssembler.INVOKESTATIC, "Jit", "fail",
+                       "(Ljava/lang/Throwable;[LToken;I)Ljava/lang/Throwable;");
+            mth.op(ClassAssembler.ATHROW);
+            mth.handler(start, end, handler);
+            mth.maxLocals = maxLocals;
+            if (mth.length() > MAX_CODE) {
+                throw new IllegalStateException("lambda body too large to compile");
+            }
+            constants.set(sourcesField, sources.toArray(new Token<?>[0]));
+
+            ClassAssembler.Method init = asm.method(0, "<init>", "(LToken;)V", 2);
+            init.load(ClassAssembler.ALOAD, 0);
+            init.load(ClassAssembler.ALOAD, 1);
+            init.invoke(ClassAssembler.INVOKESPECIAL, "Code", "<init>", "(LToken;)V");
+            init.op(ClassAssembler.RETURN);
+
+            ClassAssembler.Method clinit = asm.method(ClassAssembler.ACC_STATIC, "<clinit>", "()V", 1);
+            clinit.invoke(ClassAssembler.INVOKESTATIC, "java/lang/invoke/MethodHandles", "lookup",
+                          "()Ljava/lang/invoke/MethodHandles$Lookup;");
+            clinit.ldc(asm.string("_"));
+            clinit.ldc(asm.classRef("[Ljava/lang/Object;"));
+            clinit.invoke(ClassAssembler.INVOKESTATIC, "java/lang/invoke/MethodHandles", "classData",
+                          "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/Class;)Ljava/lang/Object;");
+            clinit.type(ClassAssembler.CHECKCAST, "[Ljava/lang/Object;");
+            clinit.store(ClassAssembler.ASTORE, 0);
+            for (int i = 0; i < constants.size(); i++) {
+                String desc = constantTypes.get(i);
+                asm.field(ClassAssembler.ACC_STATIC | ClassAssembler.ACC_FINAL, "k" + i, desc);
+                clinit.load(ClassAssembler.ALOAD, 0);
+                clinit.iconst(i);
+                clinit.op(ClassAssembler.AALOAD);
+                if (!desc.equals(OBJ)) {
+                    clinit.type(ClassAssembler.CHECKCAST, desc.startsWith("[") ? desc : desc.substring(1, desc.length() - 1));
+                }
+                clinit.field(ClassAssembler.PUTSTATIC, "JitLambda", "k" + i, desc);
+            }
+            clinit.op(ClassAssembler.RETURN);
+            return asm.toByteArray();
+        }
+
+        private int constant(Object value, String desc) {
+            Integer index = value == null ? null : constantIndex.get(value);
+            if (index == null) {
+                index = constants.size();
+                constants.add(value);
+                constantTypes.add(desc);
+                if (value != null) {
+                    constantIndex.put(value, index);
+                }
+            }
+            return index;
+        }
+
+        private void getConstant(Object value, String desc) {
+            int i = constant(value, desc);
+            mth.field(ClassAssembler.GETSTATIC, "JitLambda", "k" + i, constantTypes.get(i));
+        }
+
+        private int source(Code c) {
+            sources.add(c.source);
+            return sources.size() - 1;
+        }
+
+        // Records c as the running form, for errors raised by the code that follows.
+        private void at(Code c) {
+            mth.iconst(source(c));
+            mth.store(ClassAssembler.ISTORE, AT);
+        }
+
+        // Emits code leaving the value of c on the stack; in tail position that value may be
+        // Machine.TAIL_CALL.
+        private void expr(Code c, int frame, boolean tail) {
+            if (c instanceof Code.Const k) {
+                getConstant(k.value, OBJ);
+            } else if (c instanceof Code.LocalRef ref) {
+                localRef(ref, frame);
+            } else if (c instanceof Code.GlobalRef ref) {
+                at(ref);
+                getConstant(ref.cell, "L" + CELL + ";");
+                mth.invoke(ClassAssembler.INVOKEVIRTUAL, CELL, "get", "()" + OBJ);
+            } else if (c instanceof Code.Cond cond) {
+                cond(cond, frame, tail);
+            } else if (c instanceof Code.Sequence seq) {
+                sequence(seq.body, frame, tail);
+            } else if (c instanceof Code.Let let) {
+                let(let, frame, tail);
+            } else if (c instanceof Code.LocalDefine def) {
+                mth.load(ClassAssembler.ALOAD, frame);
+                mth.field(ClassAssembler.GETFIELD, "Frame", "slots", "[" + OBJ);
+                mth.iconst(def.slot);
+                expr(def.value, frame, false);
+                mth.op(ClassAssembler.AASTORE);
+                getConstant(def.env, OBJ);
+            } else if (c instanceof Code.Call call) {
+                call(call, frame, tail);
+            } else {
+                // any other form runs interpreted
+                at(c);
+                getConstant(c, "LCode;");
+                mth.load(ClassAssembler.ALOAD, frame);
+                mth.load(ClassAssembler.ALOAD, MACHINE);
+                mth.invoke(ClassAssembler.INVOKEVIRTUAL, "Code", tail ? "evalT" : "eval", EVAL_DESC);
+            }
+        }
+
+        private void localRef(Code.LocalRef ref, int frame) {
+            mth.load(ClassAssembler.ALOAD, frame);
+            for (int i = 0; i < ref.depth; i++) {
+                mth.field(ClassAssembler.GETFIELD, "Frame", "parent", FRAME);
+            }
+            mth.field(ClassAssembler.GETFIELD, "Frame", "slots", "[" + OBJ);
+            mth.iconst(ref.slot);
+            mth.op(ClassAssembler.AALOAD);
+            if (frame == FRAME_LOCAL && ref.depth == 0 && ref.slot < tiered.arity) {
+                return; // parameters are always bound
+            }
+            int height = mth.stack();
+            ClassAssembler.Label bound = new ClassAssembler.Label();
+            mth.op(ClassAssembler.DUP);
+            mth.field(ClassAssembler.GETSTATIC, "Frame", "UNBOUND", OBJ);
+            mth.jump(ClassAssembler.IF_ACMPNE, bound);
+            at(ref);
+            throwRuntime("Unbound symbol: " + ref.name);
+            mth.mark(bound);
+            mth.stack(height);
+        }
+
+        private void throwRuntime(String message) {
+            mth.type(ClassAssembler.NEW, "java/lang/RuntimeException");
+            mth.op(ClassAssembler.DUP);
+            mth.ldc(asm.string(message));
+            mth.invoke(ClassAssembler.INVOKESPECIAL, "java/lang/RuntimeException", "<init>", "(Ljava/lang/String;)V");
+            mth.op(ClassAssembler.ATHROW);
+        }
+
+        private void sequence(Code[] body, int frame, boolean tail) {
+            int last = body.length - 1;
+            for (int i = 0; i < last; i++) {
+                expr(body[i], frame, false);
+                mth.op(ClassAssembler.POP);
+            }
+            expr(body[last], frame, tail);
+        }
+
+        private void cond(Code.Cond cond, int frame, boolean tail) {
+            int height = mth.stack();
+            ClassAssembler.Label done = new ClassAssembler.Label();
+            boolean hasElse = false;
+            for (int i = 0; i < cond.predicates.length; i++) {
+                Code[] body = cond.bodies[i];
+                if (cond.predicates[i] == null) {
+                    sequence(body, frame, tail);
+                    mth.jump(ClassAssembler.GOTO, done);
+                    hasElse = true;
+                    break;
+                }
+                ClassAssembler.Label next = new ClassAssembler.Label();
+                expr(cond.predicates[i], frame, false);
+                if (body.length == 0) {
+                    // a clause without a body yields the predicate's value
+                    mth.op(ClassAssembler.DUP);
+                    jumpUnlessTrue(next);
+                    mth.jump(ClassAssembler.GOTO, done);
+                    mth.mark(next);
+                    mth.op(ClassAssembler.POP);
+                } else {
+                    jumpUnlessTrue(next);
+                    sequence(body, frame, tail);
+                    mth.jump(ClassAssembler.GOTO, done);
+                    mth.mark(next);
+                    mth.stack(height);
+                }
+            }
+            if (!hasElse) {
+                at(cond);
+                throwRuntime("cond: no true clause and no else clause");
+            }
+            mth.mark(done);
+            mth.stack(height + 1);
+        }
+
+        // Pops the value on the stack and jumps to target unless it is #t.
+        private void jumpUnlessTrue(ClassAssembler.Label target) {
+            mth.field(ClassAssembler.GETSTATIC, "Bool", "TRUE", "LBool;");
+            mth.jump(ClassAssembler.IF_ACMPNE, target);
+        }
+
+        private void let(Code.Let let, int frame, boolean tail) {
+            array(let.inits, frame);
+            mth.iconst(let.frameSize);
+            mth.load(ClassAssembler.ALOAD, frame);
+            mth.invoke(ClassAssembler.INVOKESTATIC, "Code", "newFrame", "([" + OBJ + "I" + FRAME + ")" + FRAME);
+            // the let's frame is dead once its body is done, so the next let reuses the local
+            int inner = nextLocal++;
+            maxLocals = Math.max(maxLocals, nextLocal);
+            mth.store(ClassAssembler.ASTORE, inner);
+            expr(let.body, inner, tail);
+            nextLocal--;
+        }
+
+        // Evaluates codes into a new Object[] left on the stack.
+        private void array(Code[] codes, int frame) {
+            mth.iconst(codes.length);
+            mth.type(ClassAssembler.ANEWARRAY, OBJECT);
+            for (int i = 0; i < codes.length; i++) {
+                mth.op(ClassAssembler.DUP);
+                mth.iconst(i);
+                expr(codes[i], frame, false);
+                mth.op(ClassAssembler.AASTORE);
+            }
+        }
+
+        private void call(Code.Call call, int frame, boolean tail) {
+            int height = mth.stack();
+            ClassAssembler.Label done = null;
+            if (call.operator instanceof Code.GlobalRef ref && ref.cell.value instanceof Primitive prim) {
+                // speculate that the global still holds the primitive it holds now
+                dependencies.add(ref.cell);
+                ClassAssembler.Label general = new ClassAssembler.Label();
+                done = new ClassAssembler.Label();
+                getConstant(ref.cell, "L" + CELL + ";");
+                mth.field(ClassAssembler.GETFIELD, CELL, "value", OBJ);
+                getConstant(prim, "LPrimitive;");
+                mth.jump(ClassAssembler.IF_ACMPNE, general);
+                getConstant(prim, "LPrimitive;");
+                int n = call.args.length;
+                if (n <= 4) {
+                    for (Code arg : call.args) {
+                        expr(arg, frame, false);
+                    }
+                    at(call);
+                    mth.invoke(ClassAssembler.INVOKEVIRTUAL, "Primitive", "invoke" + n,
+                               "(" + OBJ.repeat(n) + ")" + OBJ);
+                } else {
+                    array(call.args, frame);
+                    at(call);
+                    mth.invoke(ClassAssembler.INVOKEVIRTUAL, "Primitive", "invoke", "([" + OBJ + ")" + OBJ);
+                }
+                mth.jump(ClassAssembler.GOTO, done);
+                mth.mark(general);
+                mth.stack(height);
+            }
+            expr(call.operator, frame, false);
+            array(call.args, frame);
+            if (call.name == null) {
+                mth.op(ClassAssembler.ACONST_NULL);
+            } else {
+                mth.ldc(asm.string(call.name));
+            }
+            mth.load(ClassAssembler.ALOAD, MACHINE);
+            at(call);
+            if (tail) {
+                mth.invoke(ClassAssembler.INVOKESTATIC, "Evaluator", "applyT",
+                           "(" + OBJ + "[" + OBJ + "Ljava/lang/String;LMachine;)" + OBJ);
+            } else {
+                mth.invoke(ClassAssembler.INVOKESTATIC, "Jit", "call",
+                           "(" + OBJ + "[" + OBJ + "Ljava/lang/String;LMachine;)" + OBJ);
+            }
+            if (done != null) {
+                mth.mark(done);
+            }
+        }
+    }
+}
@@ -1,77 +1,117 @@
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
-/*The lexer, or tokenizer, takes in a source file as a string, and produces tokens using the
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+/*The lexer, or tokenizer, reads source text from a Reader and produces tokens using the
   getNextToken() method. When the entire source has been consumed, the method will always
   return an EOF token.
+
+  The source is read through a fixed-size buffer, so a file of any size is lexed in one pass
+  without being held in memory. Lookahead is bounded: at most one character past the current
+  one, and one token for peekNextToken(). Character classes of ASCII characters come from a
+  table; anything outside ASCII falls back to the Character predicates.
  */
 public class Lexer {
-    //Current position in the source
-    int pos = 0;
+    // ---------- character classes ----------
+    private static final int WHITESPACE = 1;
+    private static final int DIGIT      = 2;
+    private static final int LETTER     = 4;
+    private static final int SYMBOLIC   = 8;   // may appear in a symbol besides letters and digits
+    private static final int NUMERIC    = 16;  // may appear in a number besides digits
+    private static final byte[] CLASSES = new byte[128];
+    static {
+        for (int c = 0; c < 128; c++) {
+            if (Character.isWhitespace(c)) CLASSES[c] |= WHITESPACE;
+            if (Character.isDigit(c))      CLASSES[c] |= DIGIT;
+            if (Character.isLetter(c))     CLASSES[c] |= LETTER;
+        }
+        for (char c : "-+*%!?/|^&$\\:[]_=.<>".toCharArray()) CLASSES[c] |= SYMBOLIC;
+        for (char c : "ijk-+/.".toCharArray())               CLASSES[c] |= NUMERIC;
+    }
+
+    private static boolean is(int c, int classes) {
+        if (c < 128) {
+            return c >= 0 && (CLASSES[c] & classes) != 0;
+        }
+        return ((classes & WHITESPACE) != 0 && Character.isWhitespace(c))
+            || ((classes & DIGIT) != 0 && Character.isDigit(c))
+            || ((classes & LETTER) != 0 && Character.isLetter(c));
+    }
+
+    private static final int END = -1;
+
+    //The source and the window of it currently buffered
+    private final Reader in;
+    private final char[] buf = new char[8192];
+    private int pos = 0;
+    private int len = 0;
+    private boolean drained = false;
+    //Current character, or END once the source is consumed
+    private int currentChar;
+    //Position of the current character in the source
     int line = 1;
     int column = 1;
-    //The source code
-    String src;
-    Character currentChar;
-    //for comparing tokens to the EOF token
-    static Token eof = new Token("EOF", "EOF");
-    List<Character> parsableSymbols = Arrays.asList('-','+','*','%','!','?','/','|','^','&','$','\\',':','[',']','_','=','.','<','>');
-    List<Character> numericSymbols = Arrays.asList('i','j','k','-','+','/','.');
-    List<Token> tokens = new ArrayList<>();
-    //Constructor
-    Lexer (String src_){
-        src = src_;
-        if (src.isEmpty()) {
-            currentChar = '~';
-        } else {
-            currentChar = this.src.charAt(pos);
-        }
+    //Tokens read ahead by peekNextToken() or handed back by pushBack()
+    private final ArrayDeque<Token> pending = new ArrayDeque<>(2);
+
+    //Constructors
+    Lexer (String src){
+        this(new StringReader(src));
     }
-    /*Advances the position by one and sets the new current character.
-      If lexer reaches the end of the source, it replaces the current
-      character with # which causes getNextToken to return the EOF Token.
-    */
-    private void advance(){
-        if (pos < src.length()) {
-            char c = src.charAt(pos);
-            if (c == '\n') {
-                line++;
-                column = 1;
+
+    Lexer (Reader in){
+        this.in = in;
+        this.currentChar = lookahead(0);
+    }
+
+    //Character `ahead` positions past the current one, refilling the buffer when needed.
+    private int lookahead(int ahead) {
+        while (len - pos <= ahead) {
+            if (drained) {
+                return END;
+            }
+            if (pos > 0) {
+                System.arraycopy(buf, pos, buf, 0, len - pos);
+                len -= pos;
+                pos = 0;
+            }
+            int n;
+            try {
+                n = in.read(buf, len, buf.length - len);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (n < 0) {
+                drained = true;
             } else {
-                column++;
+                len += n;
             }
         }
-        if (pos < src.length() - 1){
-            pos++;
-            currentChar = this.src.charAt(pos);
-        }
-        else {
-            pos = src.length();
-            currentChar = '~';
-        }
+        return buf[pos + ahead];
     }
-    //backs up the current position and updates to previous character
-    public void backUp(){
-        if (pos == 0) {
+
+    //Advances the position by one and sets the new current character.
+    private void advance(){
+        if (currentChar == END) {
             return;
         }
-        pos--;
-        currentChar = this.src.charAt(pos);
         if (currentChar == '\n') {
-            line = Math.max(1, line - 1);
-            int idx = pos - 1;
-            int col = 1;
-            while (idx >= 0 && src.charAt(idx) != '\n') {
-                col++;
-                idx--;
-            }
-            column = col;
+            line++;
+            column = 1;
         } else {
-            column = Math.max(1, column - 1);
+            column++;
         }
+        pos++;
+        currentChar = pos < len ? buf[pos] : lookahead(0);
+    }
+
+    //Hands a token back so the next getNextToken() returns it again.
+    public void pushBack(Token tok){
+        pending.push(tok);
     }
 
-    private Token makeToken(String type, Object value, int startLine, int startCol) {
+    private Token makeToken(TokenType type, Object value, int startLine, int startCol) {
         return new Token<>(type, value, startLine, startCol);
     }
     //if a numeric character is detected, keep consuming until current character is not a digit,
@@ -80,84 +120,83 @@ public class Lexer {
         int startLine = line;
         int startCol = column;
         StringBuilder res = new StringBuilder();
-        while (Character.isDigit(this.currentChar)||numericSymbols.contains(this.currentChar)){
-            res.append(currentChar);
+        while (is(currentChar, DIGIT | NUMERIC)){
+            res.append((char) currentChar);
             this.advance();
         }
-        Token tok = new Token<>("NUMBER", res.toString(), startLine, startCol);
+        Token tok = new Token<>(TokenType.NUMBER, res.toString(), startLine, startCol);
         return tok;
     }
     //This detects contiguous letters and symbols, and creates a string, these could be keywords, variable names
-    //or functions. Returns a LABEL token with the label 
+    //or functions. Returns a LABEL token with the label
     private Token symbol() {
         int startLine = line;
         int startCol = column;
         StringBuilder res = new StringBuilder();
-        while (Character.isLetter(this.currentChar) || parsableSymbols.contains(this.currentChar) || Character.isDigit(this.currentChar)) {
-            res.append(currentChar);
+        while (is(currentChar, LETTER | SYMBOLIC | DIGIT)) {
+            res.append((char) currentChar);
             this.advance();
         }
         String res2 = res.toString();
         // --- special keywords ---
         switch (res2) {
-            case "lambda":         return makeToken("LAMBDA", "", startLine, startCol);
-            case "cond":           return makeToken("COND", "", startLine, startCol);
-            case "quote":          return makeToken("QUOTE", "", startLine, startCol);
-            case "quasi-quote":    return makeToken("QQUOTE", "", startLine, startCol);
-            case "unquote":        return makeToken("UNQUOTE","", startLine, startCol);
-            case "unquote-splice": return makeToken("UNQUOTESPLICE","", startLine, startCol);
-            case "define":         return makeToken("DEFINE", "", startLine, startCol);
-            case "list":           return makeToken("LIST", "", startLine, startCol);
-            case "do":             return makeToken("DO", "", startLine, startCol);
-            case "let":            return makeToken("LET", "", startLine, startCol);
-            case "lets":           return makeToken("LETS", "", startLine, startCol);
-            case "letr":           return makeToken("LETR", "", startLine, startCol);
-            case "eq?":            return makeToken("SYMBOL", "eq?", startLine, startCol); // eq? now just a symbol
-        }
-
-        // --- arithmetic and logical operators as symbols ---
-        if ("+-*/%^<>=!".contains(res2)) {
-            return new Token<>("SYMBOL", res2, startLine, startCol);
+            case "lambda":         return makeToken(TokenType.LAMBDA, "", startLine, startCol);
+            case "cond":           return makeToken(TokenType.COND, "", startLine, startCol);
+            case "quote":          return makeToken(TokenType.QUOTE, "", startLine, startCol);
+            case "quasi-quote":    return makeToken(TokenType.QQUOTE, "", startLine, startCol);
+            case "unquote":        return makeToken(TokenType.UNQUOTE, "", startLine, startCol);
+            case "unquote-splice": return makeToken(TokenType.UNQUOTESPLICE, "", startLine, startCol);
+            case "define":         return makeToken(TokenType.DEFINE, "", startLine, startCol);
+            case "list":           return makeToken(TokenType.LIST, "", startLine, startCol);
+            case "do":             return makeToken(TokenType.DO, "", startLine, startCol);
+            case "let":            return makeToken(TokenType.LET, "", startLine, startCol);
+            case "lets":           return makeToken(TokenType.LETS, "", startLine, startCol);
+            case "letr":           return makeToken(TokenType.LETR, "", startLine, startCol);
+            case "eq?":            return makeToken(TokenType.SYMBOL, "eq?", startLine, startCol); // eq? now just a symbol
         }
 
         // --- default symbol ---
-        return new Token<>("SYMBOL", res2, startLine, startCol);
+        // names are interned so all tokens for one symbol share a single String
+        return new Token<>(TokenType.SYMBOL, res2.intern(), startLine, startCol);
     }
     //Lexing booleans #t,#f, or chars #\c
     private Token special(){
         int startLine = line;
         int startCol = column;
         StringBuilder res = new StringBuilder();
-        res.append(currentChar);
+        res.append((char) currentChar);
         this.advance();
-        if (Character.isLetter(this.currentChar)) {
-            while (Character.isLetter(this.currentChar)) {
-                res.append(currentChar);
+        if (is(currentChar, LETTER)) {
+            while (is(currentChar, LETTER)) {
+                res.append((char) currentChar);
                 this.advance();
             }
-            Token tok = new Token<>("BOOLEAN", res.toString(), startLine, startCol);
+            Token tok = new Token<>(TokenType.BOOLEAN, res.toString(), startLine, startCol);
             return tok;
         }else if (currentChar == '\\'){
-            res.append(currentChar);
+            res.append((char) currentChar);
             this.advance();
-            while (Character.isLetter(this.currentChar)) {
-                res.append(currentChar);
+            while (is(currentChar, LETTER)) {
+                res.append((char) currentChar);
                 this.advance();
             }
-            Token tok = new Token<>("CHARACTER", res.toString(), startLine, startCol);
+            Token tok = new Token<>(TokenType.CHARACTER, res.toString(), startLine, startCol);
             return tok;
         }
         else {
             return null;
         }
 
-    }    
+    }
     private Token string() {
         int startLine = line;
         int startCol = column;
         this.advance(); // skip the opening quote
         StringBuilder res = new StringBuilder();
         while (this.currentChar != '\"') {
+            if (this.currentChar == END) {
+                throw new SyntaxException("Unterminated string starting at line " + startLine + ", column " + startCol);
+            }
             if (this.currentChar == '\\') {
                 this.advance();
                 switch (this.currentChar) {
@@ -166,25 +205,26 @@ public class Lexer {
                     case 'r' -> res.append('\r');
                     case '"' -> res.append('"');
                     case '\\' -> res.append('\\');
-                    default -> res.append(this.currentChar); // unknown escape — keep literal
+                    case END -> { continue; } // reported by the loop
+                    default -> res.append((char) this.currentChar); // unknown escape — keep literal
                 }
             } else {
-                res.append(this.currentChar);
+                res.append((char) this.currentChar);
             }
             this.advance();
         }
 
     this.advance(); // consume closing quote
-    return new Token<>("STRING", res.toString(), startLine, startCol);}
+    return new Token<>(TokenType.STRING, res.toString(), startLine, startCol);}
     //advances past any detected whitespaces
     private void skipWhitespace(){
-        while (Character.isWhitespace((this.currentChar))) {
+        while (is(currentChar, WHITESPACE)) {
             this.advance();
         }
     }
-    
+
     private void discardComment() {
-        while (pos < src.length() && this.currentChar != '\n' && this.currentChar != '~') {
+        while (this.currentChar != '\n' && this.currentChar != END) {
             this.advance();
         }
         if (this.currentChar == '\n') {
@@ -194,36 +234,43 @@ public class Lexer {
 
 
     // Peek ahead without consuming a token.
-    // Restores BOTH character index and currentChar sentinels.
-    public Token<?,?> peekNextToken() {
-        int oldPos = this.pos;
-        Character oldCh = this.currentChar;
-        int oldLine = this.line;
-        int oldCol = this.column;
-        Token<?,?> tok = this.getNextToken();
-        this.pos = oldPos;
-        this.currentChar = oldCh;
-        this.line = oldLine;
-        this.column = oldCol;
-        return tok;
+    public Token<?> peekNextToken() {
+        if (pending.isEmpty()) {
+            pending.push(lex());
+        }
+        return pending.peek();
     }
-    //This is where the magic happens, depending on what the current character is
-    //the conditionals will choose the correct kind of token to produce  
+
     public Token getNextToken() {
-        if (this.currentChar == '~') {
-            return makeToken("EOF", "EOF", line, column);
+        if (!pending.isEmpty()) {
+            return pending.pop();
+        }
+        return lex();
+    }
+
+    //This is where the magic happens, depending on what the current character is
+    //the conditionals will choose the correct kind of token to produce
+    private Token lex() {
+        for (;;) {
+            if (is(currentChar, WHITESPACE)) {
+                this.skipWhitespace();
+            } else if (this.currentChar == ';') {
+                // Discard everything after ';' until newline, then continue lexing
+                this.discardComment();
+            } else {
+                break;
+            }
         }
 
-        if (Character.isWhitespace(this.currentChar)) {
-            this.skipWhitespace();
-            return this.getNextToken();
+        if (this.currentChar == END) {
+            return makeToken(TokenType.EOF, "EOF", line, column);
         }
 
-        if (Character.isDigit(this.currentChar) || (this.currentChar == '-' && pos + 1 < src.length() && Character.isDigit(this.src.charAt(pos+1)))) {
+        if (is(currentChar, DIGIT) || (this.currentChar == '-' && is(lookahead(1), DIGIT))) {
             return this.number();
         }
 
-        else if (Character.isLetter(this.currentChar) || parsableSymbols.contains(this.currentChar)) {
+        else if (is(currentChar, LETTER | SYMBOLIC)) {
             return this.symbol();
         }
 
@@ -237,25 +284,25 @@ public class Lexer {
             int startLine = line;
             int startCol = column;
             this.advance();
-            return makeToken("LPAREN", null, startLine, startCol);
+            return makeToken(TokenType.LPAREN, null, startLine, startCol);
         }
         else if (this.currentChar == ')') {
             int startLine = line;
             int startCol = column;
             this.advance();
-            return makeToken("RPAREN", null, startLine, startCol);
+            return makeToken(TokenType.RPAREN, null, startLine, startCol);
         }
         else if (this.currentChar == '\'') {
             int startLine = line;
             int startCol = column;
             this.advance();
-            return makeToken("QUOTE", "", startLine, startCol);
+            return makeToken(TokenType.QUOTE, "", startLine, startCol);
         }
         else if (this.currentChar == '`') {
             int startLine = line;
             int startCol = column;
             this.advance();
-            return makeToken("QQUOTE", "", startLine, startCol);
+            return makeToken(TokenType.QQUOTE, "", startLine, startCol);
         }
         else if (this.currentChar == ',') {
             int startLine = line;
@@ -263,26 +310,18 @@ public class Lexer {
             this.advance();
             if (this.currentChar == '@') {
                 this.advance();
-                return makeToken("UNQUOTESPLICE","", startLine, startCol);
+                return makeToken(TokenType.UNQUOTESPLICE, "", startLine, startCol);
             }
-            return makeToken("UNQUOTE", "", startLine, startCol);
-        } 
+            return makeToken(TokenType.UNQUOTE, "", startLine, startCol);
+        }
         else if (this.currentChar == '.') {
             int startLine = line;
             int startCol = column;
             this.advance();
-            return makeToken("DOT", ".", startLine, startCol);
-        }
-        else if (this.currentChar == ';') {
-            // Discard everything after ';' until newline
-            this.discardComment();
-            // After discarding, also skip any trailing whitespace or newlines
-            this.skipWhitespace();
-            // Then continue lexing
-            return this.getNextToken();
+            return makeToken(TokenType.DOT, ".", startLine, startCol);
         }
 
         // --- fallback ---
-        throw new SyntaxException("Unexpected character '" + currentChar + "' at line " + line + ", column " + column);
+        throw new SyntaxException("Unexpected character '" + (char) currentChar + "' at line " + line + ", column " + column);
     }
 }
@@ -4,7 +4,7 @@ import java.util.Objects;
 
 public class LinkedList<T> {
   Pair<T, Object> list;
-  private boolean charListTag = false;
+  boolean charListTag = false;
 
   public LinkedList() {
       this.list = null;
@@ -0,0 +1,91 @@
+import java.math.MathContext;
+import java.util.Arrays;
+
+/*
+ Evaluation state of one interpreter: the tail-call registers and the diagnostics stack.
+
+ A form in tail position that ends in a procedure call does not make the call itself: it loads
+ the callee's body and new frame into next/nextFrame and returns TAIL_CALL, and the loop in
+ Evaluator.execute picks the call up from there. Tail calls therefore run in constant Java stack
+ and allocate nothing beyond the callee's frame. The registers are only live between a tail
+ call returning TAIL_CALL and the loop reading them, so nested evaluations can share them.
+
+ With diagnostics OFF nothing is recorded while code runs; when an error escapes a form, the
+ form's own source token says where it happened and the depth is counted as the error unwinds.
+ DETAILED additionally keeps the source position of every active form on an int stack, so the
+ error can also report the deepest nesting reached and the positions of the enclosing forms.
+*/
+final class Machine {
+    // Returned by evalT in place of a value when a tail call is pending in the registers.
+    static final Object TAIL_CALL = new Object();
+
+    static final int DIAGNOSTICS_OFF = 0;
+    static final int DIAGNOSTICS_DETAILED = 1;
+
+    Code next;
+    Frame nextFrame;
+
+    int diagnostics = DIAGNOSTICS_OFF;
+    // Compile top-level forms for the register VM in Bytecode instead of to a Code tree.
+    boolean bytecode;
+    // Calls after which a lambda body is compiled to JVM code; 0 keeps every body interpreted.
+    int jitThreshold;
+    // Precision of BIGFLOAT results, set for the running thread by Evaluator.eval.
+    MathContext precision = Number.DEFAULT_CONTEXT;
+    // Packed line/column of each active form, innermost on top; only used when DETAILED.
+    private int[] positions = new int[64];
+    private int depth;
+    private int maxDepth;
+
+    Object tailCall(Code body, Frame frame) {
+        next = body;
+        nextFrame = frame;
+        return TAIL_CALL;
+    }
+
+    // ---------- detailed diagnostics ----------
+
+    void enter(Token<?> source) {
+        if (depth == positions.length) {
+            positions = Arrays.copyOf(positions, depth * 2);
+        }
+        positions[depth++] = pack(source);
+        if (depth > maxDepth) {
+            maxDepth = depth;
+        }
+    }
+
+    void leave() {
+        depth--;
+    }
+
+    int depth() {
+        return depth;
+    }
+
+    int maxDepth() {
+        return maxDepth;
+    }
+
+    void resetMaxDepth() {
+        maxDepth = depth;
+    }
+
+    // Positions of the forms enclosing the innermost one, nearest first, at most limit of them.
+    int[] enclosingPositions(int limit) {
+        int n = Math.max(0, Math.min(limit, depth - 1));
+        int[] out = new int[n];
+        for (int i = 0; i < n; i++) {
+            out[i] = positions[depth - 2 - i];
+        }
+        return out;
+    }
+
+    // Packed source position as kept by Token, 0 when there is none.
+    static int pack(Token<?> source) {
+        return source == null ? 0 : source.position();
+    }
+
+    static int line(int packed) { return Token.lineOf(packed); }
+    static int column(int packed) { return Token.columnOf(packed); }
+}
@@ -5,6 +5,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Reader;
 import java.util.function.Supplier;
 import java.math.BigInteger;
 import java.util.ArrayList;
@@ -19,15 +20,11 @@ public class MicroLisp{
     private static int debugLevel = 0;
     private static boolean interactive = false;
     private static boolean prettyprint = false;
-    private static String availableFlags = "ilhp";
+    private static String availableFlags = "ilhpdbj";
 
     public static void main(String[] args){
         // ----- Create Initial Environment --------- 
-        Environment environment = GlobalEnvironment.initGlobalEnvironment();
-        Vector.addVectorEnv(environment);
-        FileHandling.addFileHandlingEnv(environment);
-        PixelGraphics.addPixelGraphicsEnv(environment);
-        VideoEncoder.addVideoEnv(environment);
+        Environment environment = Interpreter.builtins();
         // ----- decode flags ------
         try {
             if (args[0].charAt(0) == '-'){
@@ -42,6 +39,15 @@ public class MicroLisp{
                         case 'h':
                             debugLevel = 2;
                             break;
+                        case 'd':
+                            environment.machine.diagnostics = Machine.DIAGNOSTICS_DETAILED;
+                            break;
+                        case 'b':
+                            environment.machine.bytecode = true;
+                            break;
+                        case 'j':
+                            environment.machine.jitThreshold = Jit.DEFAULT_THRESHOLD;
+                            break;
                         case 'p':
                             prettyprint = true;
                         default:
@@ -67,7 +73,7 @@ public class MicroLisp{
                 System.out.println(RED+ "Could not find banner"+RESET);
             }
             System.out.println("\n"+YELLOW + "              MicroLisp v1.0 - (c)Jordan Jacobson 2025" + RESET);
-            System.out.println("Type "+BLUE+":exit"+RESET+" to quit, "+BLUE+":load filename"+RESET+" to load a file");
+            System.out.println("Type "+BLUE+":exit"+RESET+" to quit, "+BLUE+":load filename"+RESET+" to load a file, "+BLUE+":dump filename.mui"+RESET+" to save an image");
             
             // ------ Load files on opening if passed file names ----- 
             if (args.length > 1){
@@ -79,10 +85,11 @@ public class MicroLisp{
             }
         } else {
             // ------ Load files on opening if passed file names ----- 
-            Token eof = new Token<>("EOF","EOF");
+            Token eof = new Token<>(TokenType.EOF,"EOF");
             String src; 
-            if (args.length > 0){
-                environment = loadOnStart(environment,args,0);
+            int first = (args.length > 0 && args[0].startsWith("-")) ? 1 : 0;
+            if (args.length > first){
+                environment = loadOnStart(environment,args,first);
                 try {
                     Parser m = new Parser("(main #t)");
                     evalWithOverflowContext(m.parse(),environment);
@@ -97,17 +104,25 @@ public class MicroLisp{
         }
     }
     static Environment loadOnStart(Environment environment,String[] args,int start){
-        Token eof = new Token<>("EOF","EOF");
-        String src;  
+        Token eof = new Token<>(TokenType.EOF,"EOF");
         for (int i=start;i<args.length;i++){
-            try {
-                src = Files.readString(Path.of(args[i]));
-                Parser parser = new Parser(src);
-                Node current = parser.parse();
+            Path file = Path.of(args[i]);
+            if (args[i].endsWith(".mui")) {
+                try {
+                    Image.restore(environment, file);
+                    System.out.println(args[i]+ GREEN + " restored successfully" + RESET);
+                } catch (IOException | RuntimeException e) {
+                    System.out.println(RED +"Could not restore image "+ RESET + args[i]);
+                    System.out.println(e);
+                }
+                continue;
+            }
+            try (ModuleCache.Forms forms = ModuleCache.forms(() -> Files.newInputStream(file))) {
+                Node current = forms.next();
                 Object result = null;
-                while(!((Token) current.value).type().equals("EOF")){
+                while(((Token) current.value).type() != TokenType.EOF){
                     evalWithOverflowContext(current, environment);
-                    current = parser.parse();
+                    current = forms.next();
                 }
                 if (result != null) {
                     String out = result.toString();
@@ -134,20 +149,33 @@ public class MicroLisp{
             if(input.equals(":exit")){
                 break;
             }
-            else if(input.startsWith(":load")){
+            else if(input.startsWith(":dump")){
+                String file = input.substring(5).trim();
                 try {
+                    Image.dump(environment, Path.of(file));
+                    System.out.println(file + GREEN +" written" + RESET);
+                }
+                catch (IOException e){
+                    System.out.println(RED + "Could not write image "+ RESET + file);
+                    System.out.println(e);
+                }
+            }
+            else if(input.startsWith(":load") && input.trim().endsWith(".mui")){
+                loadOnStart(environment, new String[] { input.substring(5).trim() }, 0);
+            }
+            else if(input.startsWith(":load")){
                 String file = input.substring(5).trim();
-                String src = Files.readString(Path.of(file));
+                try (Reader src = Files.newBufferedReader(Path.of(file))) {
                 Parser l = new Parser(src);
                 Node current = l.parse();
-                while(!((Token) current.value).type().equals("EOF")){
+                while(((Token) current.value).type() != TokenType.EOF){
                     evalWithOverflowContext(current, environment);
                     current = l.parse();
                 }
                 System.out.println(file + GREEN +" loaded successfully" + RESET);
                 }
                 catch (IOException e){
-                System.out.println(RED + "Could not load file "+ RESET + input.substring(5).trim());
+                System.out.println(RED + "Could not load file "+ RESET + file);
                 System.out.println(e);
                 }
                 
@@ -194,7 +222,7 @@ public class MicroLisp{
                   case 2:
                     System.out.println("DEBUG HIGH\nTOKEN STREAM");
                     Token current = l.getNextToken();
-                    while (!current.type().equals("EOF")) {
+                    while (current.type() != TokenType.EOF) {
                       System.out.println(current);
                       current = l.getNextToken();
                     }
@@ -249,7 +277,7 @@ public class MicroLisp{
                   case 2:
                     System.out.println("DEBUG HIGH\nTOKEN STREAM");
                     Token current = l.getNextToken();
-                    while (!current.type().equals("EOF")) {
+                    while (current.type() != TokenType.EOF) {
                       System.out.println(current);
                       current = l.getNextToken();
                     }
@@ -274,8 +302,8 @@ public class MicroLisp{
         Parser parser = new Parser(src);
         while (true) {
             Node<Token> form = parser.parse();
-            Token<?,?> tok = form.getValue();
-            if (tok != null && "EOF".equals(tok.type())) {
+            Token<?> tok = form.getValue();
+            if (tok != null && tok.type() == TokenType.EOF) {
                 break;
             }
             evalWithOverflowContext(form, env);
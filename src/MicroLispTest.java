@@ -6,10 +6,18 @@ public class MicroLispTest {
 
     public static void main(String[] args) {
         Environment env = GlobalEnvironment.initGlobalEnvironment();
+        // -b runs the whole suite on the bytecode VM, -j with every lambda compiled on its first call
+        for (String arg : args) {
+            if (arg.equals("-b")) env.machine.bytecode = true;
+            if (arg.equals("-j")) env.machine.jitThreshold = 1;
+        }
         int passed = 0, failed = 0;
 
         // --- Core language features ---
         if (test("Lexer basic string", testLexerString())) passed++; else failed++;
+        if (test("Lexer rejects an unterminated string", testLexerUnterminatedString())) passed++; else failed++;
+        if (test("Lexer no longer ends input at ~", testLexerTilde())) passed++; else failed++;
+        if (test("Lexer tracks positions across the read buffer", testLexerBufferBoundary())) passed++; else failed++;
         if (test("LinkedList size", testLinkedListSize())) passed++; else failed++;
         if (test("LinkedList toString", testLinkedListToString())) passed++; else failed++;
         if (test("Simple arithmetic", testEval("(+ 1 2 3)", 6, env))) passed++; else failed++;
@@ -25,6 +33,7 @@ public class MicroLispTest {
         if (test("Quote lambda form", testEval("'(lambda (x) (+ x 1))", "(lambda (x) (+ x 1))", env))) passed++; else failed++;
         if (test("Quote define form", testEval("'(define foo 5)", "(define foo 5)", env))) passed++; else failed++;
         if (test("Quote cond form", testEval("'(cond (#t 1) (else 2))", "(cond (#t 1) (else 2))", env))) passed++; else failed++; 
+        if (test("Quoted symbols are one instance", testEval("(list (eq? 'a 'a) (eq? 'a (head '(a b))) (eq? 'a 'b))", "(#t #t #f)", env))) passed++; else failed++;
         if (test("Quasiquote unquote evaluates expression", testEval("`(1 ,(+ 2 3))", "(1 5)", env))) passed++; else failed++;
         if (test("Quasiquote splice literal list", testEval("`(1 ,@(2 3))", "(1 2 3)", env))) passed++; else failed++;
         if (test("Quasiquote splice evaluated list", testEval("`(1 ,@(list 2 3))", "(1 2 3)", env))) passed++; else failed++;
@@ -32,6 +41,12 @@ public class MicroLispTest {
         if (test("Quasiquote nested splice", testEval("`(a `(b ,@(list 1 2)))", "(a (quasi-quote (b (unquote-splicing (1 2)))))", env))) passed++; else failed++;
         if (test("Vector addition", testEval("(+ ($ 1 2) ($ 3 4))", "<4 6>", env))) passed++; else failed++;
         if (test("Vector scalar multiply", testEval("(* ($ 1 2) 3)", "<3 6>", env))) passed++; else failed++;
+        if (test("Unary minus negates", testEval("(- 5)", "-5", env))) passed++; else failed++;
+        if (test("Unary minus negates a float", testEval("(- 2.5)", "-2.5", env))) passed++; else failed++;
+        if (test("Unary minus negates a vector", testEval("(- ($ 1 2))", "<-1 -2>", env))) passed++; else failed++;
+        if (test("Unary divide takes the reciprocal", testEval("(/ 2)", "1/2", env))) passed++; else failed++;
+        if (test("Type errors name the kind of number", testFailsWith("(head 5)", "head: unsupported type INT", env))) passed++; else failed++;
+        if (test("Type errors name the kind of value", testFailsWith("(+ 1 \"a\")", "(type String)", env))) passed++; else failed++;
         // ---
         if (test("String literal", testEval("\"abc\"", "\"abc\"", env))) passed++; else failed++;
         if (test("Print output", testPrint("(print \"hello\")", "hello\n", env))) passed++; else failed++;
@@ -48,6 +63,8 @@ public class MicroLispTest {
         if (test("Lets sequential multiple bindings", testEval("(lets ((x 1) (y (+ x 1))) y)", 2, env))) passed++; else failed++;
         if (test("Lets shadowing variable", testEval("(lets ((x 10) (x (+ x 5))) x)", 15, env))) passed++; else failed++;
         if (test("Lets independent evaluation", testEval("(lets ((a 3) (b (* a 2)) (c (+ b 1))) c)", 7, env))) passed++; else failed++;
+        if (test("Letr mutual recursion", testEval("(letr ((ev (lambda (n) (cond ((= n 0) 1) (else (od (- n 1)))))) (od (lambda (n) (cond ((= n 0) 0) (else (ev (- n 1))))))) (list (ev 10) (od 7) (ev 7)))", "(1 1 0)", env))) passed++; else failed++;
+        if (test("Lets inside a loop body", testEval("(do (define sumsq (lambda (n acc) (cond ((= n 0) acc) (else (lets ((x n) (y (* x x))) (sumsq (- n 1) (+ acc y))))))) (sumsq 10000 0))", "333383335000", env))) passed++; else failed++;
         //if (test("Named let simple recursion to 10",//this went into an infinite recursion
         //         testEval("(let loop ((a 0)) (cond ((eq? a 10) \"done\") (else (loop (+ a 1)))))", "\"done\"", env))) passed++; else failed++;
         //if (test("Named let accumulates sum to 45",//I assume this  will too.
@@ -85,11 +102,42 @@ public class MicroLispTest {
         if (test("Zero-arg lambda returning empty list", testEval("((lambda () '()))", "()", env))) passed++; else failed++;
         if (test("Zero-arg lambda returning computed expression", testEval("((lambda () (+ 2 3)))", 5, env))) passed++; else failed++;
         if (test("Define + call zero-arg lambda returning computed expression", testEval("(do (define bar (lambda () (+ 1 2 3))) (bar))", 6, env))) passed++; else failed++;
+        // --- Arithmetic sites specialized to operand kinds ---
+        if (test("Arithmetic site follows kind changes", testEval("(do (define sq (lambda (a b) (+ (* a a) (* b b)))) (list (sq 3 4) (sq 1.5 2) (sq 3037000500 1) (sq 1/2 1/2) (sq 3 4)))", "(25 6.25 9223372037000250001 1/2 25)", env))) passed++; else failed++;
+        if (test("Comparison site follows kind changes", testEval("(do (define lt (lambda (a b) (< a b))) (list (lt 1 2) (lt 2.5 2) (lt 9007199254740993 9007199254740992.0) (lt 1/3 0.5)))", "(#t #f #f #t)", env))) passed++; else failed++;
+        if (test("Arithmetic site stays on longs past inexact quotients", testArithStaysLong())) passed++; else failed++;
+        // --- Fixnum and flonum folds ---
+        if (test("Fold promotes an overflowing sum", testEval("(+ 9223372036854775807 1)", "9223372036854775808", env))) passed++; else failed++;
+        if (test("Fold promotes an overflowing product", testEval("(* 3037000500 3037000500)", "9223372037000250000", env))) passed++; else failed++;
+        if (test("Fold promotes the one overflowing quotient", testEval("(/ -9223372036854775808 -1)", "9223372036854775808", env))) passed++; else failed++;
+        if (test("Fold keeps an inexact quotient exact", testEval("(/ 7 2)", "7/2", env))) passed++; else failed++;
+        if (test("Fold mixes fixnums, flonums and rationals", testEval("(+ 1 2.5 1/2)", "4.0", env))) passed++; else failed++;
+        // --- BIGFLOAT precision ---
+        if (test("Big functions follow set-precision", testEval("(do (set-precision 40) (let ((r (list (sqrt (to-inexact-big 2)) (* 4 (arctan (to-inexact-big 1))) (log (exp (to-inexact-big 3)))))) (do (set-precision 34) r)))", "(1.41421356237309504880168872420969807857 3.141592653589793238462643383279502884197 3.000000000000000000000000000000000000000)", env))) passed++; else failed++;
+        // --- Rationals ---
+        if (test("Rational sums and products stay reduced", testEval("(list (+ 1/3 1/3 1/3 1/6 1/6) (+ 1/2 1/3 1/4 1/5 1/6) (* (/ 9223372036854775807 2) (/ 4 9223372036854775806)) (+ (/ 1 (* 4611686018427387904 4)) 1) (- (+ (/ 1 9223372036854775807) (/ 1 9223372036854775807)) (/ 2 9223372036854775807)))", "(4/3 29/20 9223372036854775807/4611686018427387903 (18446744073709551617/18446744073709551616) 0)", env))) passed++; else failed++;
         // --- Mixed regression tests ---
         if (test("Mixed arity: zero and one arg coexist", testEval("(do (define id (lambda (x) x)) (define f (lambda () 7)) (+ (id 5) (f)))", 12, env))) passed++; else failed++;
         if (test("Nested zero-arg lambda inside another call", testEval("((lambda (x) (+ x ((lambda () 3)))) 4)", 7, env))) passed++; else failed++;
         if (test("Higher-order: zero-arg lambda returned and invoked", testEval("(((lambda () (lambda () 11))))", 11, env))) passed++; else failed++;
         if (test("Closure captures env in zero-arg lambda", testEval("((lambda (x) ((lambda () x))) 42)", 42, env))) passed++; else failed++;
+        // --- Bytecode VM, whatever mode the suite runs in ---
+        if (test("VM self tail call in a long loop", testVm("(do (define count (lambda (n acc) (cond ((= n 0) acc) (else (count (- n 1) (+ acc 1)))))) (count 1000000 0))", 1000000))) passed++; else failed++;
+        if (test("VM closure captures a register", testVm("(do (define make (lambda (n) (let ((k (* n 2))) (lambda (x) (+ x k n))))) (define f (make 5)) (define g (make 1)) (list (f 1) (g 1) (f 2)))", "(16 4 17)"))) passed++; else failed++;
+        if (test("VM closures keep their own registers", testVm("(do (define adders (lambda (n acc) (cond ((= n 0) acc) (else (adders (- n 1) (cons (lambda (x) (+ x n)) acc)))))) (define fs (adders 3 '())) (list ((head fs) 10) ((head (tail fs)) 10) ((head (tail (tail fs))) 10)))", "(11 12 13)"))) passed++; else failed++;
+        // --- Jit ---
+        if (test("Jit drops code speculating on a redefined global", testJitInvalidation())) passed++; else failed++;
+        if (test("Jit keeps frames apart past 255 locals", testJitManyLets())) passed++; else failed++;
+        // --- Startup images ---
+        if (test("Image restores closures", testImageRoundTrip(env))) passed++; else failed++;
+        if (test("Image of another version is refused", testImageVersion(env))) passed++; else failed++;
+        // --- Isolates ---
+        if (test("Isolates run concurrently", testIsolates(env))) passed++; else failed++;
+        // --- Parse cache ---
+        if (test("Parse cache follows edits and damage", testModuleCache(env))) passed++; else failed++;
+        // --- Modules ---
+        if (test("Modules load once and a failed import is retried", testImportOnce(env))) passed++; else failed++;
+        if (test("Module search skips unreadable directories", testUnreadableSearchDir())) passed++; else failed++;
         System.out.println("=============================================");
         System.out.println("Tests passed: " + passed);
         System.out.println("Tests failed: " + failed);
@@ -397,7 +445,52 @@ public class MicroLispTest {
     static boolean testLexerString() {
         Lexer l = new Lexer("\"abc\\n\"");
         Token t = l.getNextToken();
-        return t.type().equals("STRING") && ((String)t.value()).equals("abc\n");
+        return t.type() == TokenType.STRING && ((String)t.value()).equals("abc\n");
+    }
+
+    static boolean testLexerUnterminatedString() {
+        Lexer l = new Lexer("(print \"abc");
+        try {
+            l.getNextToken();
+            l.getNextToken();
+            l.getNextToken();
+            return false;
+        } catch (SyntaxException e) {
+            return e.getMessage().contains("Unterminated string starting at line 1, column 8");
+        }
+    }
+
+    // '~' used to stand for end of input, silently dropping whatever followed it; now a stray
+    // one is an error and one inside a comment is skipped with the rest of the comment.
+    static boolean testLexerTilde() {
+        Lexer comment = new Lexer("; x ~ y\nz");
+        Token z = comment.getNextToken();
+        if (z.type() != TokenType.SYMBOL || !z.value().equals("z")) return false;
+        Lexer l = new Lexer("a ~ b");
+        l.getNextToken();
+        try {
+            l.getNextToken();
+            return false;
+        } catch (SyntaxException e) {
+            return true;
+        }
+    }
+
+    // A symbol straddling the 8192-character read buffer keeps its text and position.
+    static boolean testLexerBufferBoundary() {
+        StringBuilder src = new StringBuilder();
+        for (int i = 0; i < 81; i++) {
+            src.append(" ".repeat(99)).append('\n');
+        }
+        src.append(" ".repeat(90)).append("straddle\n  next \"").append("s".repeat(9000)).append('"');
+        Lexer l = new Lexer(src.toString());
+        Token a = l.getNextToken();
+        Token b = l.getNextToken();
+        Token c = l.getNextToken();
+        return a.value().equals("straddle") && a.line() == 82 && a.column() == 91
+            && b.value().equals("next") && b.line() == 83 && b.column() == 3
+            && c.type() == TokenType.STRING && ((String) c.value()).length() == 9000
+            && l.getNextToken().type() == TokenType.EOF;
     }
 
     static boolean testLinkedListSize() {
@@ -422,6 +515,61 @@ public class MicroLispTest {
         return result != null && result.toString().equals(expected.toString());
     }
 
+    // Evaluates src in a fresh environment on the bytecode VM.
+    static boolean testVm(String src, Object expected) {
+        Environment vm = GlobalEnvironment.initGlobalEnvironment();
+        vm.machine.bytecode = true;
+        return testEval(src, expected, vm);
+    }
+
+    // A hot lambda speculates on the primitive bound to op; redefining op must drop that code.
+    static boolean testJitInvalidation() {
+        Environment jit = GlobalEnvironment.initGlobalEnvironment();
+        jit.machine.jitThreshold = 2;
+        eval("(define op +)", jit);
+        eval("(define f (lambda (a b) (op a b)))", jit);
+        eval("(f 5 3)", jit);
+        eval("(f 5 3)", jit);
+        Jit.Tiered body = (Jit.Tiered) ((Closure) eval("f", jit)).body;
+        if (!body.isCompiled()) return false;
+        eval("(define op -)", jit);
+        if (body.isCompiled() || !"2".equals(String.valueOf(eval("(f 5 3)", jit)))) return false;
+        eval("(f 5 3)", jit);
+        return body.isCompiled() && "2".equals(String.valueOf(eval("(f 5 3)", jit)));
+    }
+
+    // Compiled bodies with more lets than a one-byte local index reaches still read their own frames.
+    static boolean testJitManyLets() {
+        Environment jit = GlobalEnvironment.initGlobalEnvironment();
+        jit.machine.jitThreshold = 1;
+        String sequential = "(let ((v 0)) v) ".repeat(254);
+        String nested = "(let ((v 0)) ".repeat(300) + "x" + ")".repeat(300);
+        eval("(define f (lambda (x) (do " + sequential + "x)))", jit);
+        eval("(define g (lambda (x) " + nested + "))", jit);
+        for (String call : new String[] {"(f 7)", "(g 7)"}) {
+            if (!"7".equals(String.valueOf(eval(call, jit)))) return false;
+            if (!"7".equals(String.valueOf(eval(call, jit)))) return false;
+        }
+        return ((Jit.Tiered) ((Closure) eval("f", jit)).body).isCompiled()
+            && ((Jit.Tiered) ((Closure) eval("g", jit)).body).isCompiled();
+    }
+
+    // An inexact quotient or an overflow is the builtin's to finish, not a reason to deoptimize.
+    static boolean testArithStaysLong() {
+        Environment fresh = GlobalEnvironment.initGlobalEnvironment();
+        eval("(define f (lambda (a b) (/ a b)))", fresh);
+        eval("(define g (lambda (a b) (+ a b)))", fresh);
+        eval("(f 8 2)", fresh);
+        eval("(g 1 2)", fresh);
+        for (int i = 0; i < 2 * Code.Arith.MAX_DEOPTS; i++) {
+            if (!"7/2".equals(String.valueOf(eval("(f 7 2)", fresh)))) return false;
+            if (!"9223372036854775808".equals(String.valueOf(eval("(g 9223372036854775807 1)", fresh)))) return false;
+        }
+        Code.Arith div = (Code.Arith) ((Closure) eval("f", fresh)).body;
+        Code.Arith add = (Code.Arith) ((Closure) eval("g", fresh)).body;
+        return div.isLong() && add.isLong() && "4".equals(String.valueOf(eval("(f 8 2)", fresh)));
+    }
+
     static boolean testPrint(String src, String expectedOutput, Environment env) {
         String output = captureOutput(() -> eval(src, env));
         return output.equals(expectedOutput);
@@ -452,6 +600,223 @@ public class MicroLispTest {
         }
     }
 
+    static boolean testImageRoundTrip(Environment env) {
+        try {
+            File image = File.createTempFile("test", ".mui");
+            try {
+                eval("(define make-adder (lambda (n) (lambda (x) (+ x n))))", env);
+                eval("(define add5 (make-adder 5))", env);
+                Image.dump(env, image.toPath());
+                Environment fresh = GlobalEnvironment.initGlobalEnvironment();
+                fresh.machine.bytecode = env.machine.bytecode;
+                Image.restore(fresh, image.toPath());
+                return testEval("(+ (add5 10) ((make-adder 1) 1))", 17, fresh);
+            } finally {
+                image.delete();
+            }
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // An image whose version is not this build's is refused, not misread.
+    static boolean testImageVersion(Environment env) {
+        try {
+            File image = File.createTempFile("test", ".mui");
+            try {
+                eval("(define dumped 1)", env);
+                Image.dump(env, image.toPath());
+                byte[] bytes = java.nio.file.Files.readAllBytes(image.toPath());
+                int last = 5 + Image.VERSION.length() - 1; // magic, length, then the version
+                bytes[last] = (byte) (bytes[last] == 'f' ? 'e' : 'f');
+                java.nio.file.Files.write(image.toPath(), bytes);
+                try {
+                    Image.restore(GlobalEnvironment.initGlobalEnvironment(), image.toPath());
+                    return false;
+                } catch (IOException e) {
+                    return e.getMessage().contains("not an image of this interpreter version");
+                }
+            } finally {
+                image.delete();
+            }
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // A cached parse follows its source: an edit is picked up, and a damaged entry is parsed again
+    // and written anew.
+    static boolean testModuleCache(Environment env) {
+        String saved = System.getProperty("microlisp.cache");
+        try {
+            java.nio.file.Path dir = java.nio.file.Files.createTempDirectory("muc");
+            System.setProperty("microlisp.cache", dir.toString());
+            try {
+                java.nio.file.Path source = dir.resolve("probe.mu");
+                Interpreter isolate = new Interpreter(Interpreter.Prelude.of());
+                isolate.environment().machine.bytecode = env.machine.bytecode;
+                java.nio.file.Files.writeString(source, "(define probe (list 1 \"one\" 1/2))");
+                isolate.load(source);   // parsed and recorded
+                isolate.load(source);   // read back from the entry
+                java.util.List<java.nio.file.Path> before = cacheEntries(dir);
+                boolean fresh = isolate.eval("probe").toString().equals("(1 \"one\" 1/2)") && before.size() == 1;
+
+                java.nio.file.Files.writeString(source, "(define probe 2)");
+                isolate.load(source);
+                java.util.List<java.nio.file.Path> entries = cacheEntries(dir);
+                boolean edited = isolate.eval("probe").toString().equals("2") && entries.size() == 2;
+
+                // keep the new entry's header, replace its forms with bytes that are no token kind
+                java.nio.file.Path entry = entries.stream().filter(e -> !before.contains(e)).findFirst().orElseThrow();
+                byte[] bytes = java.nio.file.Files.readAllBytes(entry);
+                int header = 5 + ModuleCache.VERSION.length();
+                byte[] damaged = java.util.Arrays.copyOf(bytes, header + 8);
+                java.util.Arrays.fill(damaged, header, damaged.length, (byte) 0xFF);
+                java.nio.file.Files.write(entry, damaged);
+                isolate.eval("(define probe 0)");
+                isolate.load(source);
+                boolean reparsed = isolate.eval("probe").toString().equals("2");
+                boolean rewritten = java.util.Arrays.equals(java.nio.file.Files.readAllBytes(entry), bytes);
+                return fresh && edited && reparsed && rewritten;
+            } finally {
+                try (java.util.stream.Stream<java.nio.file.Path> files = java.nio.file.Files.list(dir)) {
+                    for (java.nio.file.Path f : files.toList()) java.nio.file.Files.delete(f);
+                }
+                java.nio.file.Files.delete(dir);
+            }
+        } catch (IOException e) {
+            return false;
+        } finally {
+            if (saved == null) System.clearProperty("microlisp.cache");
+            else System.setProperty("microlisp.cache", saved);
+        }
+    }
+
+    // A module imported by several files, under different spellings, runs once; one whose load
+    // fails is forgotten, so the next import reads it again.
+    static boolean testImportOnce(Environment env) {
+        String saved = System.getProperty("microlisp.cache");
+        try {
+            java.nio.file.Path dir = java.nio.file.Files.createTempDirectory("mod").toRealPath();
+            System.setProperty("microlisp.cache", dir.toString());
+            try {
+                String at = dir.toString().replace('\\', '/') + "/";
+                java.nio.file.Files.writeString(dir.resolve("counter.mu"), "(define loads (+ loads 1))");
+                java.nio.file.Files.writeString(dir.resolve("a.mu"), "(import \"" + at + "counter\")");
+                java.nio.file.Files.writeString(dir.resolve("b.mu"), "(import \"" + at + "../" + dir.getFileName() + "/counter.mu\")");
+                Interpreter isolate = new Interpreter(Interpreter.Prelude.of());
+                isolate.environment().machine.bytecode = env.machine.bytecode;
+                isolate.eval("(define loads 0)");
+                isolate.load(dir.resolve("a.mu"));
+                isolate.load(dir.resolve("b.mu"));
+                isolate.eval("(import \"" + at + "counter.mu\")");
+                boolean once = isolate.eval("loads").toString().equals("1");
+
+                java.nio.file.Path broken = dir.resolve("broken.mu");
+                java.nio.file.Files.writeString(broken, "(define tries (+ tries 1)) (no-such-procedure)");
+                isolate.eval("(define tries 0)");
+                String load = "(import \"" + at + "broken\")";
+                int failures = 0;
+                for (int i = 0; i < 2; i++) {
+                    try {
+                        isolate.eval(load);
+                    } catch (RuntimeException e) {
+                        failures++;
+                    }
+                }
+                java.nio.file.Files.writeString(broken, "(define tries (+ tries 1))");
+                isolate.eval(load);
+                isolate.eval(load);
+                boolean retried = failures == 2 && isolate.eval("tries").toString().equals("3");
+                return once && retried;
+            } finally {
+                try (java.util.stream.Stream<java.nio.file.Path> files = java.nio.file.Files.list(dir)) {
+                    for (java.nio.file.Path f : files.toList()) java.nio.file.Files.delete(f);
+                }
+                java.nio.file.Files.delete(dir);
+            }
+        } catch (IOException e) {
+            return false;
+        } finally {
+            if (saved == null) System.clearProperty("microlisp.cache");
+            else System.setProperty("microlisp.cache", saved);
+        }
+    }
+
+    // An unreadable directory below a search root hides only itself from the root's index. Root
+    // reads every directory, so run as root this only checks the walk itself.
+    static boolean testUnreadableSearchDir() {
+        String saved = System.getProperty("microlisp.path");
+        java.nio.file.Path root = null;
+        try {
+            root = java.nio.file.Files.createTempDirectory("mod");
+            java.nio.file.Path locked = java.nio.file.Files.createDirectory(root.resolve("locked"));
+            for (int i = 0; i < 8; i++) {
+                java.nio.file.Path dir = java.nio.file.Files.createDirectory(root.resolve("d" + i));
+                java.nio.file.Files.writeString(dir.resolve("walked" + i + ".mu"), "(define walked " + i + ")");
+            }
+            locked.toFile().setReadable(false, false);
+            locked.toFile().setExecutable(false, false);
+            System.setProperty("microlisp.path", root.toString());
+            ModuleRegistry registry = new ModuleRegistry();
+            for (int i = 0; i < 8; i++) {
+                if (!registry.resolve("walked" + i).id().endsWith("walked" + i + ".mu")) return false;
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        } finally {
+            if (saved == null) System.clearProperty("microlisp.path");
+            else System.setProperty("microlisp.path", saved);
+            if (root != null) {
+                root.resolve("locked").toFile().setReadable(true, false);
+                root.resolve("locked").toFile().setExecutable(true, false);
+                try (java.util.stream.Stream<java.nio.file.Path> files = java.nio.file.Files.walk(root)) {
+                    for (java.nio.file.Path f : files.sorted(java.util.Comparator.reverseOrder()).toList()) {
+                        java.nio.file.Files.delete(f);
+                    }
+                } catch (IOException e) {
+                    // left behind in the temp directory
+                }
+            }
+        }
+    }
+
+    static java.util.List<java.nio.file.Path> cacheEntries(java.nio.file.Path dir) throws IOException {
+        try (java.util.stream.Stream<java.nio.file.Path> files = java.nio.file.Files.list(dir)) {
+            return files.filter(f -> f.toString().endsWith(".muc")).sorted().toList();
+        }
+    }
+
+    static boolean testIsolates(Environment env) {
+        Interpreter.Prelude prelude = Interpreter.Prelude.standard();
+        java.util.concurrent.ExecutorService pool = java.util.concurrent.Executors.newFixedThreadPool(4);
+        try {
+            java.util.List<java.util.concurrent.Future<Object>> results = new java.util.ArrayList<>();
+            for (int i = 1; i <= 8; i++) {
+                String src = "(define n " + i + ")"
+                    + "(define sum (lambda (k acc) (cond ((= k 0) acc) (else (sum (- k 1) (+ acc n))))))"
+                    + "(foldl + 0 (map (lambda (x) (* x (sum 1000 0))) (list 1 2 3)))";
+                results.add(pool.submit(() -> {
+                    Interpreter isolate = new Interpreter(prelude);
+                    isolate.environment().machine.bytecode = env.machine.bytecode;
+                    isolate.environment().machine.jitThreshold = env.machine.jitThreshold;
+                    return isolate.eval(src);
+                }));
+            }
+            for (int i = 1; i <= 8; i++) {
+                if (!results.get(i - 1).get().toString().equals(String.valueOf(6000 * i))) {
+                    return false;
+                }
+            }
+            return new Interpreter(prelude).environment().lookup("n").isEmpty();
+        } catch (Exception e) {
+            return false;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
     static boolean testCondFails(String src, Environment env) {
         try {
             eval(src, env);
@@ -460,4 +825,13 @@ public class MicroLispTest {
             return e.getMessage().contains("cond: no true clause and no else clause");
         }
     }
+
+    static boolean testFailsWith(String src, String message, Environment env) {
+        try {
+            eval(src, env);
+            return false; // should not reach here
+        } catch (RuntimeException e) {
+            return e.getMessage().contains(message);
+        }
+    }
 }
@@ -0,0 +1,484 @@
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32C;
+
+/*
+ Cache of parsed source files (.muc), so import and loadOnStart do not lex and parse the same
+ library again on every run.
+
+ An entry is named by VERSION and a hash of the source bytes, so a changed file or a new
+ interpreter simply misses and is parsed again; stale entries are never read. VERSION is the
+ hand-bumped REVISION of the parser and format plus a checksum of the encoding's layout, the token
+ kinds and number types in order and the tags, so a build that adds or reorders any of them gets
+ entries of its own even when nobody bumped REVISION. An entry that cannot be decoded is ignored
+ and written again. On a miss the forms are recorded as they are parsed and evaluated, and the
+ entry is moved into place only once the whole file went through. Entries live in
+ ~/.microlisp/cache, or in the directory named by the microlisp.cache system property; "off"
+ disables the cache.
+
+ An entry holds the syntax trees, not compiled code: compiled code refers to the cells of one
+ environment. Each node is its token kind and value, its packed source position and its children;
+ counts and positions are varints, each distinct string is written once and then referred to by
+ index, and numbers are stored already parsed.
+*/
+final class ModuleCache {
+    // Bump whenever the parser or this format changes what a source file turns into. The layout
+    // checksum only notices renumbered kinds and tags, not a parser that builds other trees.
+    static final int REVISION = 1;
+    static final String VERSION = "muc-" + REVISION + "-" + fingerprint(layout());
+    private static final int MAGIC = 0x4D55431A; // "MUC" ^Z
+
+    // Opens the source; called at most twice, once to hash it and once more to parse it on a miss.
+    interface Source {
+        InputStream open() throws IOException;
+    }
+
+    // Top-level forms of one source file; next() returns an EOF node at the end, like Parser.parse().
+    interface Forms extends Closeable {
+        Node<Token> next() throws IOException;
+    }
+
+    private ModuleCache() {}
+
+    static Forms forms(Source source) throws IOException {
+        Path dir = directory();
+        if (dir == null) {
+            return parsing(source.open());
+        }
+        Path entry = dir.resolve(hash(source) + ".muc");
+        if (Files.isRegularFile(entry)) {
+            ArrayList<Node<Token>> forms = read(entry);
+            if (forms != null) {
+                return cached(forms);
+            }
+        }
+        try {
+            Files.createDirectories(dir);
+            return new Recording(source.open(), dir, entry);
+        } catch (IOException e) {
+            return parsing(source.open());
+        }
+    }
+
+    // The forms of an entry, or null when it is not a whole entry of this VERSION. It is decoded
+    // in full before any form is used, so a damaged entry is never half evaluated.
+    private static ArrayList<Node<Token>> read(Path entry) {
+        try (Input in = new Input(Files.newInputStream(entry))) {
+            if (in.int32() != MAGIC || !in.utf8().equals(VERSION)) {
+                return null;
+            }
+            ArrayList<Node<Token>> forms = new ArrayList<>();
+            while (in.u1() != 0) {
+                forms.add(in.node().compact());
+            }
+            return forms;
+        } catch (IOException | RuntimeException e) {
+            // unreadable or corrupt entry (a bad token kind or number): parse the source and write it again
+            return null;
+        }
+    }
+
+    private static Forms cached(ArrayList<Node<Token>> forms) {
+        return new Forms() {
+            private int next;
+            public Node<Token> next() {
+                return next < forms.size() ? forms.get(next++) : new Node<>(new Token<>(TokenType.EOF, "EOF"));
+            }
+            public void close() {}
+        };
+    }
+
+    // The revision, the token kinds and number types, in order, and the tags of this encoding:
+    // what decides how the bytes of an entry are read back and what trees they hold.
+    static String layout() {
+        StringBuilder sb = new StringBuilder("REVISION=").append(REVISION).append(' ');
+        for (TokenType kind : TokenType.values()) {
+            sb.append(kind.name()).append(' ');
+        }
+        for (Number.Type type : Number.Type.values()) {
+            sb.append(type.name()).append(' ');
+        }
+        return sb.append("NULL=").append(NULL).append(" STRING=").append(STRING)
+                 .append(" NUMBER=").append(NUMBER).append(" KIND_BITS=").append(KIND_BITS).toString();
+    }
+
+    // CRC32C and Adler32 of a layout description, standing in for a version number.
+    static String fingerprint(String layout) {
+        byte[] bytes = layout.getBytes(StandardCharsets.UTF_8);
+        CRC32C crc = new CRC32C();
+        crc.update(bytes);
+        Adler32 adler = new Adler32();
+        adler.update(bytes);
+        return String.format("%08x%08x", crc.getValue(), adler.getValue());
+    }
+
+    private static Path directory() {
+        String dir = System.getProperty("microlisp.cache");
+        if ("off".equals(dir)) {
+            return null;
+        }
+        if (dir != null) {
+            return Path.of(dir);
+        }
+        return Path.of(System.getProperty("user.home"), ".microlisp", "cache");
+    }
+
+    // CRC32C and Adler32 of the source plus its length: two intrinsic checksums are plenty to key a
+    // local cache, and unlike a MessageDigest they cost nothing to set up on a cold JVM.
+    private static String hash(Source source) throws IOException {
+        CRC32C crc = new CRC32C();
+        Adler32 adler = new Adler32();
+        long length = 0;
+        try (InputStream in = source.open()) {
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = in.read(buf)) >= 0) {
+                crc.update(buf, 0, n);
+                adler.update(buf, 0, n);
+                length += n;
+            }
+        }
+        return String.format("%s-%08x%08x-%x", VERSION, crc.getValue(), adler.getValue(), length);
+    }
+
+    private static Forms parsing(InputStream in) {
+        Parser parser = new Parser(new InputStreamReader(in, StandardCharsets.UTF_8));
+        return new Forms() {
+            public Node<Token> next() { return parser.parse(); }
+            public void close() throws IOException { in.close(); }
+        };
+    }
+
+    private static boolean isEof(Node<Token> form) {
+        return form.getValue() != null && form.getValue().type() == TokenType.EOF;
+    }
+
+    // Value tags, kept in the top bits of a node's first byte; the token kind is in the low five.
+    private static final int NULL = 0, STRING = 1, NUMBER = 2;
+    private static final int KIND_BITS = 5;
+
+    // ---------- reading an entry ----------
+
+    // Buffered reader of the encoding; unlike DataInputStream it takes no lock per byte.
+    // Image reads its files through it as well.
+    static final class Input implements Closeable {
+        private static final TokenType[] KINDS = TokenType.values();
+        private static final Number.Type[] NUMBER_TYPES = Number.Type.values();
+        private final InputStream in;
+        private final byte[] buf = new byte[8192];
+        private int pos;
+        private int len;
+        private final ArrayList<String> strings = new ArrayList<>();
+
+        Input(InputStream in) {
+            this.in = in;
+        }
+
+        int u1() throws IOException {
+            if (pos == len) {
+                len = in.read(buf, 0, buf.length);
+                pos = 0;
+                if (len <= 0) {
+                    len = 0;
+                    throw new EOFException("truncated file");
+                }
+            }
+            return buf[pos++] & 0xFF;
+        }
+
+        long varlong() throws IOException {
+            long value = 0;
+            for (int shift = 0; ; shift += 7) {
+                int b = u1();
+                value |= (long) (b & 0x7F) << shift;
+                if (b < 0x80) {
+                    return value;
+                }
+            }
+        }
+
+        int varint() throws IOException {
+            return (int) varlong();
+        }
+
+        // zig-zag encoded, so small negative numbers stay short
+        long signed() throws IOException {
+            long v = varlong();
+            return (v >>> 1) ^ -(v & 1);
+        }
+
+        int int32() throws IOException {
+            return (u1() << 24) | (u1() << 16) | (u1() << 8) | u1();
+        }
+
+        byte[] bytes() throws IOException {
+            byte[] out = new byte[varint()];
+            for (int i = 0; i < out.length; i++) {
+                out[i] = (byte) u1();
+            }
+            return out;
+        }
+
+        String utf8() throws IOException {
+            return new String(bytes(), StandardCharsets.UTF_8);
+        }
+
+        // An index into the strings read so far, or the next index followed by a new string.
+        String string() throws IOException {
+            int index = varint();
+            if (index < strings.size()) {
+                return strings.get(index);
+            }
+            String s = utf8().intern(); // symbol names are interned, as the Lexer does
+            strings.add(s);
+            return s;
+        }
+
+        Node<Token> node() throws IOException {
+            int head = u1();
+            TokenType kind = KINDS[head & ((1 << KIND_BITS) - 1)];
+            int position = varint();
+            Object value = switch (head >>> KIND_BITS) {
+                case NULL -> null;
+                case STRING -> string();
+                case NUMBER -> number();
+                default -> throw new IOException("corrupt node");
+            };
+            Node<Token> node = new Node<>(new Token<>(kind, value, position));
+            int n = varint();
+            for (int i = 0; i < n; i++) {
+                node.addChild(node());
+            }
+            return node;
+        }
+
+        private BigInteger big() throws IOException {
+            return new BigInteger(bytes());
+        }
+
+        Number number() throws IOException {
+            switch (NUMBER_TYPES[u1()]) {
+                case INT:         return Number.integer(signed());
+                case BIGINT:      return Number.integer(big());
+                case FLOAT:       return Number.real(Double.longBitsToDouble((long) int32() << 32 | (int32() & 0xFFFFFFFFL)));
+                case BIGFLOAT:    return Number.real(new BigDecimal(big(), (int) signed()));
+                case RATIONAL:    return Number.rational(signed(), signed());
+                case BIGRATIONAL: return Number.rational(big(), big());
+                case COMPLEX:     return Number.complex(number(), number());
+                case QUATERNION:  return Number.quaternion(number(), number(), number(), number());
+                default:          throw new IOException("corrupt number");
+            }
+        }
+
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    // ---------- writing an entry ----------
+
+    // Buffered writer of the encoding, the counterpart of Input.
+    static final class Output implements Closeable {
+        private final OutputStream out;
+        private final byte[] buf = new byte[8192];
+        private int len;
+        private final HashMap<String, Integer> strings = new HashMap<>();
+
+        Output(OutputStream out) {
+            this.out = out;
+        }
+
+        void u1(int b) throws IOException {
+            if (len == buf.length) {
+                out.write(buf, 0, len);
+                len = 0;
+            }
+            buf[len++] = (byte) b;
+        }
+
+        void varlong(long v) throws IOException {
+            while ((v & ~0x7FL) != 0) {
+                u1((int) (v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            u1((int) v);
+        }
+
+        void signed(long v) throws IOException {
+            varlong((v << 1) ^ (v >> 63));
+        }
+
+        void int32(int v) throws IOException {
+            u1(v >>> 24);
+            u1(v >>> 16);
+            u1(v >>> 8);
+            u1(v);
+        }
+
+        void bytes(byte[] bytes) throws IOException {
+            varlong(bytes.length);
+            for (byte b : bytes) {
+                u1(b);
+            }
+        }
+
+        void utf8(String s) throws IOException {
+            bytes(s.getBytes(StandardCharsets.UTF_8));
+        }
+
+        void string(String s) throws IOException {
+            Integer index = strings.get(s);
+            if (index != null) {
+                varlong(index);
+                return;
+            }
+            varlong(strings.size());
+            strings.put(s, strings.size());
+            utf8(s);
+        }
+
+        void node(Node<Token> node) throws IOException {
+            Token<?> t = node.getValue();
+            Object value = t.value();
+            int tag;
+            if (value == null) {
+                tag = NULL;
+            } else if (value instanceof String) {
+                tag = STRING;
+            } else if (value instanceof Number) {
+                tag = NUMBER;
+            } else {
+                throw new IOException("cannot encode token value " + value);
+            }
+            u1(tag << KIND_BITS | t.type().ordinal());
+            varlong(t.position() & 0xFFFFFFFFL);
+            if (tag == STRING) {
+                string((String) value);
+            } else if (tag == NUMBER) {
+                number((Number) value);
+            }
+            varlong(node.childCount());
+            for (int i = 0; i < node.childCount(); i++) {
+                node(node.child(i));
+            }
+        }
+
+        void number(Number n) throws IOException {
+            u1(n.type.ordinal());
+            switch (n.type) {
+                case INT -> signed(n.intVal());
+                case BIGINT -> bytes(n.bigVal().toByteArray());
+                case FLOAT -> {
+                    long bits = Double.doubleToRawLongBits(n.floatVal());
+                    int32((int) (bits >>> 32));
+                    int32((int) bits);
+                }
+                case BIGFLOAT -> {
+                    bytes(n.bigFloatVal().unscaledValue().toByteArray());
+                    signed(n.bigFloatVal().scale());
+                }
+                case RATIONAL -> {
+                    signed(n.num());
+                    signed(n.den());
+                }
+                case BIGRATIONAL -> {
+                    bytes(n.bigNum().toByteArray());
+                    bytes(n.bigDen().toByteArray());
+                }
+                case COMPLEX -> {
+                    number(n.realPart());
+                    number(n.ipart());
+                }
+                case QUATERNION -> {
+                    number(n.realPart());
+                    number(n.ipart());
+                    number(n.jpart());
+                    number(n.kpart());
+                }
+            }
+        }
+
+        public void close() throws IOException {
+            out.write(buf, 0, len);
+            len = 0;
+            out.close();
+        }
+    }
+
+    private static final class Recording implements Forms {
+        private final Parser parser;
+        private final InputStream source;
+        private final Path temp;
+        private final Path entry;
+        private final Output out;
+        private boolean recording = true;
+
+        Recording(InputStream source, Path dir, Path entry) throws IOException {
+            this.source = source;
+            this.parser = new Parser(new InputStreamReader(source, StandardCharsets.UTF_8));
+            this.entry = entry;
+            this.temp = Files.createTempFile(dir, "entry", ".tmp");
+            this.out = new Output(Files.newOutputStream(temp));
+            out.int32(MAGIC);
+            out.utf8(VERSION);
+        }
+
+        public Node<Token> next() throws IOException {
+            Node<Token> form = parser.parse();
+            if (!recording) {
+                return form;
+            }
+            try {
+                if (isEof(form)) {
+                    out.u1(0);
+                    out.close();
+                    recording = false;
+                    try {
+                        Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    } catch (AtomicMoveNotSupportedException e) {
+                        Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                } else {
+                    out.u1(1);
+                    out.node(form);
+                }
+            } catch (IOException e) {
+                // the cache is only an optimization: keep loading, just without an entry
+                abandon();
+            }
+            return form;
+        }
+
+        private void abandon() {
+            recording = false;
+            try {
+                out.close();
+                Files.deleteIfExists(temp);
+            } catch (IOException e) {
+                // nothing more to clean up
+            }
+        }
+
+        // Closing before the end of the file (an error while loading it) leaves no entry behind.
+        public void close() throws IOException {
+            source.close();
+            if (recording) {
+                abandon();
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ Modules imported into one environment. A module name is canonicalized to where its source lives,
+ the real path of a file or the URL of a bundled library, so `lists`, "lists.mu" and
+ "./src/lib/lists.mu" that name the same file are one module, and each module is evaluated at
+ most once per environment. A module is marked loaded before its forms run, so modules that import
+ each other terminate; a module that fails to load is forgotten and is read again by the next
+ import.
+
+ A name is looked up, in order:
+   1. as a path, absolute or relative to the working directory;
+   2. in each directory of the search path, given by the microlisp.path system property or the
+      MICROLISP_PATH environment variable, entries separated by the platform path separator;
+   3. among the bundled libraries under /lib/;
+   4. when no search path is configured, anywhere below the working directory.
+ Search roots are walked once per run into an index from file name to the first file of that name,
+ shared by every registry, instead of on every import. A file added below a root after its index
+ was built is only found when it sits directly in the root.
+*/
+final class ModuleRegistry {
+    private static final Map<Path, Map<String, Path>> indexes = new ConcurrentHashMap<>();
+
+    // Directories searched after a direct path and before the bundled libraries.
+    private final List<Path> searchPath;
+    // Canonical ids of modules loaded or being loaded.
+    private final Set<String> loaded;
+
+    ModuleRegistry() {
+        this(configuredPath(), new HashSet<>());
+    }
+
+    private ModuleRegistry(List<Path> searchPath, Set<String> loaded) {
+        this.searchPath = searchPath;
+        this.loaded = loaded;
+    }
+
+    // A resolved module: its canonical id and how to read it.
+    record Module(String id, ModuleCache.Source source) {}
+
+    // Registry for a forked environment, which already holds every definition loaded so far.
+    ModuleRegistry fork() {
+        return new ModuleRegistry(searchPath, new HashSet<>(loaded));
+    }
+
+    // Records the module as loaded; false if it already was.
+    boolean claim(Module module) {
+        return loaded.add(module.id());
+    }
+
+    void forget(Module module) {
+        loaded.remove(module.id());
+    }
+
+    // Ids of the modules loaded so far, for an image to restore.
+    List<String> ids() {
+        return new ArrayList<>(loaded);
+    }
+
+    void restore(List<String> ids) {
+        loaded.addAll(ids);
+    }
+
+    // Module name as written in an import: a symbol or string, with or without the .mu suffix.
+    static String fileName(String name) {
+        return name.endsWith(".mu") ? name : name + ".mu";
+    }
+
+    Module resolve(String name) throws IOException {
+        String filename = fileName(name);
+
+        Path direct = Path.of(filename);
+        if (Files.isRegularFile(direct)) {
+            return file(direct);
+        }
+        for (Path root : searchPath) {
+            Path found = find(root, filename);
+            if (found != null) {
+                return file(found);
+            }
+        }
+
+        URL bundled = ModuleRegistry.class.getResource("/lib/" + filename);
+        if (bundled != null) {
+            return new Module(bundled.toString(), bundled::openStream);
+        }
+
+        if (searchPath.isEmpty()) {
+            Path found = find(Path.of("").toAbsolutePath(), filename);
+            if (found != null) {
+                return file(found);
+            }
+        }
+        throw new FileNotFoundException("File not found in lib/ or workspace: " + filename);
+    }
+
+    private static Module file(Path path) throws IOException {
+        Path real = path.toRealPath();
+        return new Module(real.toString(), () -> Files.newInputStream(real));
+    }
+
+    // File named filename directly in root or, through the root's index, anywhere below it.
+    private static Path find(Path root, String filename) {
+        Path top = root.resolve(filename);
+        if (Files.isRegularFile(top)) {
+            return top;
+        }
+        Path indexed = indexes.computeIfAbsent(root, ModuleRegistry::index).get(filename);
+        return indexed != null && Files.isRegularFile(indexed) ? indexed : null;
+    }
+
+    private static Map<String, Path> index(Path root) {
+        Map<String, Path> index = new HashMap<>();
+        if (!Files.isDirectory(root)) {
+            return index;
+        }
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    String name = file.getFileName().toString();
+                    if (name.endsWith(".mu") && attrs.isRegularFile()) {
+                        index.putIfAbsent(name, file);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                // an unreadable part of the tree just contributes nothing; the walk goes on
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            // the visitor continues past every failure, so nothing ends the walk early
+        }
+        return index;
+    }
+
+    private static List<Path> configuredPath() {
+        String path = System.getProperty("microlisp.path");
+        if (path == null) {
+            path = System.getenv("MICROLISP_PATH");
+        }
+        List<Path> roots = new ArrayList<>();
+        if (path != null) {
+            for (String entry : path.split(File.pathSeparator)) {
+                if (!entry.isEmpty()) {
+                    roots.add(Path.of(entry).toAbsolutePath().normalize());
+                }
+            }
+        }
+        return roots;
+    }
+}
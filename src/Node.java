@@ -1,20 +1,25 @@
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
 
 /*
 This is a custom generic Node type, for creating tree like structures. Any value can be used for the value field,
-and it supports an arbitrary number of children. The children are currently stored as an ArrayList, but will be updated
-to a custom List type
+and it supports an arbitrary number of children. The children are stored in an array: leaves share a single
+empty array, and compact() trims a finished tree so every node's array is exactly as long as its child count.
  */
-@SuppressWarnings("rawtypes")
+@SuppressWarnings({"rawtypes", "unchecked"})
 public class Node<T> implements Comparable<Node<Token>> {
+    private static final Node[] NO_CHILDREN = new Node[0];
     T value;
-    ArrayList<Node<Token>> children = new ArrayList<Node<Token>>();
+    private Node<Token>[] children = NO_CHILDREN;
+    private int count;
 
     //constructor for Nodes with variable number of children
-    public Node(T value, ArrayList<Node<Token>> children_) {
+    public Node(T value, List<Node<Token>> children_) {
         this.value = value;
-        this.children.addAll(children_);
+        this.children = children_.toArray(new Node[0]);
+        this.count = children.length;
     }
     //constructor for leaf node
     public Node(T value){
@@ -26,46 +31,101 @@ public class Node<T> implements Comparable<Node<Token>> {
     public void setValue(T value) {
         this.value = value;
     }
-    //returns all child nodes
-    public ArrayList<Node<Token>> getChildren() {
-        return children;
+    //returns all child nodes, as a read-only view
+    public List<Node<Token>> getChildren() {
+        return new Children(children, count);
+    }
+    public int childCount() {
+        return count;
+    }
+    public Node<Token> child(int i) {
+        if (i >= count) {
+            throw new IndexOutOfBoundsException("child " + i + " of " + count);
+        }
+        return children[i];
     }
     //add an existing node as a child of this node
     public void addChild(Node<Token> child) {
-        children.add(child);
+        if (count == children.length) {
+            children = Arrays.copyOf(children, Math.max(4, count * 2));
+        }
+        children[count++] = child;
     }
-    
-   
+
+
     public void removeChild(Node<T> child) {
-        children.remove(child);
+        for (int i = 0; i < count; i++) {
+            if (children[i] == child) {
+                System.arraycopy(children, i + 1, children, i, count - i - 1);
+                children[--count] = null;
+                return;
+            }
+        }
     }
     //Add multiple nodes at once as child nodes
     @SafeVarargs
     @SuppressWarnings("varargs")
     public final void addChildren(Node<Token>... children_) {
-        Collections.addAll(children, children_);
+        for (Node<Token> child : children_) {
+            addChild(child);
+        }
     }
 
     //create a child node from a value
     public void createChild(Token value){
-        Node<Token> child = new Node<Token>(value);
-        children.add(child);
+        addChild(new Node<Token>(value));
+    }
+
+    //Trims the child arrays of this subtree to their exact sizes once nothing more will be added.
+    public Node<T> compact() {
+        if (count == 0) {
+            children = NO_CHILDREN;
+        } else if (children.length != count) {
+            children = Arrays.copyOf(children, count);
+        }
+        for (int i = 0; i < count; i++) {
+            children[i].compact();
+        }
+        return this;
     }
 
     //for debugging, traverses the tree and prints all values
     public void printNodes(int ind){
         System.out.println("   ".repeat(ind)+value);
-        for(Node<Token> child : children){
-            child.printNodes(ind + 1);
+        for (int i = 0; i < count; i++) {
+            children[i].printNodes(ind + 1);
         }
     }
     //If a node has no children, it is a leaf
     public boolean isLeaf(){
-        return children.isEmpty();
+        return count == 0;
     }
 
     @Override
     public int compareTo(Node<Token> tokenNode) {
         return 0;
     }
+
+    private static final class Children extends AbstractList<Node<Token>> implements RandomAccess {
+        private final Node<Token>[] nodes;
+        private final int size;
+
+        Children(Node<Token>[] nodes, int size) {
+            this.nodes = nodes;
+            this.size = size;
+        }
+
+        @Override
+        public Node<Token> get(int i) {
+            if (i >= size) {
+                throw new IndexOutOfBoundsException("child " + i + " of " + size);
+            }
+            return nodes[i];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
 }
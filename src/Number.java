@@ -44,22 +44,29 @@ import java.math.BigDecimal;
 import java.math.MathContext;
 import java.math.RoundingMode;
 import java.util.ArrayList;
-public final class Number {
+public abstract sealed class Number
+        permits Number.Fixnum, Number.Bignum, Number.Flonum, Number.Bigfloat,
+                Number.Ratnum, Number.BigRatnum, Number.Complex, Number.Quaternion {
     enum Type { INT, BIGINT, FLOAT, BIGFLOAT, RATIONAL, BIGRATIONAL, COMPLEX, QUATERNION }
 
+    /*
+     Each kind of number is its own compact subclass holding only its own parts, so a fixnum or
+     flonum takes 24 bytes instead of the 80 of one object carrying every kind's slots.
+     The type tag stays in the base class, where it costs nothing under the object alignment,
+     and the arithmetic dispatches on it as before. The accessors of the parts a kind does not
+     have answer 0 or null.
+    */
     public final Type type;
-    public final long intVal;
-    public final BigInteger bigVal;
-    public final double floatVal;
-    public final BigDecimal bigFloatVal;
-    public final long num;          // rational numerator
-    public final long den;          // rational denominator
-    public final BigInteger bigNum; // big rational numerator
-    public final BigInteger bigDen; // big rational denominator
-    public final Number real;       // real component
-    public final Number ipart;      // i component
-    public final Number jpart;      // j component
-    public final Number kpart;      // k component
+
+    // Integers in [SMALL_MIN, SMALL_MAX] are shared, as loop counters and indices mostly are.
+    private static final int SMALL_MIN = -128;
+    private static final int SMALL_MAX = 1024;
+    private static final Number[] SMALL = new Number[SMALL_MAX - SMALL_MIN + 1];
+    static {
+        for (int i = 0; i < SMALL.length; i++) {
+            SMALL[i] = new Fixnum(SMALL_MIN + i);
+        }
+    }
 
     // ------ Cached constants ------
     public static final Number ZERO_INT         = Number.integer(0);
@@ -80,37 +87,55 @@ public final class Number {
     public static final Number ONE_COMPLEX      = Number.complex(ONE_INT, ZERO_INT);
     public static final Number ONE_QUATERNION   = Number.quaternion(ONE_INT, ZERO_INT, ZERO_INT, ZERO_INT);
 
+    // ------ Precision ------
+    // Digits kept in BIGFLOAT results, DECIMAL128's 34 unless the microlisp.precision property
+    // says otherwise. Each interpreter keeps its own in its Machine; as arithmetic here is static,
+    // Evaluator.eval installs it for the thread while the interpreter's code runs.
+    static final MathContext DEFAULT_CONTEXT =
+        new MathContext(Integer.getInteger("microlisp.precision", 34), RoundingMode.HALF_EVEN);
+    private static final ThreadLocal<MathContext> context = ThreadLocal.withInitial(() -> DEFAULT_CONTEXT);
 
+    static MathContext context() {
+        return context.get();
+    }
 
-    
-    private Number(Type type, long intVal, BigInteger bigVal,
-                double floatVal, BigDecimal bigFloatVal,
-                long num, long den,
-                BigInteger bigNum, BigInteger bigDen,
-                Number real, Number ipart, Number jpart, Number kpart) {
+    // Makes mc the precision of this thread's BIGFLOAT results; returns the one it replaces.
+    static MathContext useContext(MathContext mc) {
+        MathContext previous = context.get();
+        context.set(mc);
+        return previous;
+    }
+
+    private Number(Type type) {
         this.type = type;
-        this.intVal = intVal;
-        this.bigVal = bigVal;
-        this.floatVal = floatVal;
-        this.bigFloatVal = bigFloatVal;
-        this.num = num;
-        this.den = den;
-        this.bigNum = bigNum;
-        this.bigDen = bigDen;
-        this.real = real;
-        this.ipart = ipart;
-        this.jpart = jpart;
-        this.kpart = kpart;
     }
 
+    // ---- Parts ----
+
+    public long intVal()            { return 0; }
+    public BigInteger bigVal()      { return null; }
+    public double floatVal()        { return 0.0; }
+    public BigDecimal bigFloatVal() { return null; }
+    public long num()               { return 0; }    // rational numerator
+    public long den()               { return 0; }    // rational denominator
+    public BigInteger bigNum()      { return null; } // big rational numerator
+    public BigInteger bigDen()      { return null; } // big rational denominator
+    public Number realPart()        { return null; } // real component
+    public Number ipart()           { return null; } // i component
+    public Number jpart()           { return null; } // j component
+    public Number kpart()           { return null; } // k component
+
     // ---- Factory methods ----
     
     public static Number integer(long value) {
-        return new Number(Type.INT, value, null, 0.0, null, 0, 0, null, null, null, null, null, null);
+        if (value >= SMALL_MIN && value <= SMALL_MAX) {
+            return SMALL[(int) value - SMALL_MIN];
+        }
+        return new Fixnum(value);
     }
 
     public static Number integer(BigInteger value) {
-        return new Number(Type.BIGINT, 0, value, 0.0, null, 0, 0, null, null, null, null, null, null);
+        return new Bignum(value);
     }
 
     public static Number rational(long p, long q) {
@@ -124,7 +149,7 @@ public final class Number {
             q = -q;
         }
         if (q == 1) return Number.integer(p);
-        return new Number(Type.RATIONAL, 0, null, 0.0, null, p, q, null, null, null, null, null, null);
+        return new Ratnum(p, q);
     }
 
     public static Number rational(BigInteger p, BigInteger q) {
@@ -138,7 +163,7 @@ public final class Number {
             q = q.negate();
         }
         if (q.equals(BigInteger.ONE)) return Number.integer(p);
-        return new Number(Type.BIGRATIONAL, 0, null, 0.0, null, 0, 0, p, q, null, null, null, null);
+        return new BigRatnum(p, q);
     }
 
     public static Number rational(Number numerator, Number denominator) {
@@ -147,8 +172,8 @@ public final class Number {
         if (denominator.type != Type.INT && denominator.type != Type.BIGINT)
             throw new IllegalArgumentException("denominator must be INT or BIGINT, got " + denominator.type);
 
-        if ((denominator.type == Type.INT && denominator.intVal == 0) ||
-            (denominator.type == Type.BIGINT && denominator.bigVal.signum() == 0)) {
+        if ((denominator.type == Type.INT && denominator.intVal() == 0) ||
+            (denominator.type == Type.BIGINT && denominator.bigVal().signum() == 0)) {
             throw new ArithmeticException("Division by zero in rational constructor");
         }
 
@@ -156,28 +181,28 @@ public final class Number {
         boolean denInt = denominator.type == Type.INT;
 
         if (numInt && denInt) {
-            return Number.rational(numerator.intVal, denominator.intVal);
+            return Number.rational(numerator.intVal(), denominator.intVal());
         }
 
-        BigInteger num = numInt ? BigInteger.valueOf(numerator.intVal) : numerator.bigVal;
-        BigInteger den = denInt ? BigInteger.valueOf(denominator.intVal) : denominator.bigVal;
+        BigInteger num = numInt ? BigInteger.valueOf(numerator.intVal()) : numerator.bigVal();
+        BigInteger den = denInt ? BigInteger.valueOf(denominator.intVal()) : denominator.bigVal();
         return Number.rational(num, den);
     }
 
     public static Number real(double value) {
-        return new Number(Type.FLOAT, 0, null, value, null, 0, 0, null, null, null, null, null, null);
+        return new Flonum(value);
     }
 
     public static Number real(BigDecimal value) {
-        return new Number(Type.BIGFLOAT, 0, null, 0.0, value, 0, 0, null, null, null, null, null, null);
+        return new Bigfloat(value);
     }
 
     public static Number complex(Number real, Number i) {
-        return new Number(Type.COMPLEX, 0, null, 0.0, null, 0, 0, null, null, real, i, null, null);
+        return new Complex(real, i);
     }
 
     public static Number quaternion(Number real, Number i, Number j, Number k) {
-        return new Number(Type.QUATERNION, 0, null, 0.0, null, 0, 0, null, null, real, i, j, k);
+        return new Quaternion(real, i, j, k);
     }
 
 
@@ -196,8 +221,8 @@ public final class Number {
     }
 
     private static String formatComplex(Number z) {
-        Number realPart = (z.real != null) ? z.real : ZERO_INT;
-        Number imagPart = (z.ipart != null) ? z.ipart : ZERO_INT;
+        Number realPart = (z.realPart() != null) ? z.realPart() : ZERO_INT;
+        Number imagPart = (z.ipart() != null) ? z.ipart() : ZERO_INT;
         if (isZero(imagPart)) {
             return realPart.toString();
         }
@@ -214,10 +239,10 @@ public final class Number {
     }
 
     private static String formatQuaternion(Number q) {
-        Number realPart = (q.real != null) ? q.real : ZERO_INT;
-        Number iPart = (q.ipart != null) ? q.ipart : ZERO_INT;
-        Number jPart = (q.jpart != null) ? q.jpart : ZERO_INT;
-        Number kPart = (q.kpart != null) ? q.kpart : ZERO_INT;
+        Number realPart = (q.realPart() != null) ? q.realPart() : ZERO_INT;
+        Number iPart = (q.ipart() != null) ? q.ipart() : ZERO_INT;
+        Number jPart = (q.jpart() != null) ? q.jpart() : ZERO_INT;
+        Number kPart = (q.kpart() != null) ? q.kpart() : ZERO_INT;
 
         StringBuilder sb = new StringBuilder();
         sb.append(realPart);
@@ -267,29 +292,39 @@ public final class Number {
 
 
     // ---- gcd helper ----
-    private static long gcd(long a, long b) {
-        a = Math.abs(a);
-        b = Math.abs(b);
-        while (b != 0) {
-            long temp = b;
-            b = a % b;
-            a = temp;
+    // Binary (Stein's) gcd: shifts and subtractions instead of divisions. gcd(0, 0) is 1, so the
+    // result can always be divided by.
+    static long gcd(long a, long b) {
+        if (a == 0) return b == 0 ? 1 : Math.abs(b);
+        if (b == 0) return Math.abs(a);
+        int shift = Long.numberOfTrailingZeros(a | b);
+        // odd parts; shifting before abs keeps Long.MIN_VALUE, whose odd part is -1, in range
+        a = Math.abs(a >> Long.numberOfTrailingZeros(a));
+        b = Math.abs(b >> Long.numberOfTrailingZeros(b));
+        while (a != b) {
+            if (a > b) {
+                a -= b;
+                a >>= Long.numberOfTrailingZeros(a);
+            } else {
+                b -= a;
+                b >>= Long.numberOfTrailingZeros(b);
+            }
         }
-        return a == 0 ? 1 : a;
+        return a << shift;
     }
 
 
     // Convert any scalar Number (not COMPLEX/QUATERNION) to BigDecimal.
     private static BigDecimal toBigDecimal(Number n) {
         switch (n.type) {
-            case BIGFLOAT:   return n.bigFloatVal;
-            case FLOAT:      return BigDecimal.valueOf(n.floatVal);
-            case BIGINT:     return new BigDecimal(n.bigVal);
-            case INT:        return BigDecimal.valueOf(n.intVal);
-            case BIGRATIONAL:return new BigDecimal(n.bigNum)
-                                .divide(new BigDecimal(n.bigDen), MathContext.DECIMAL128);
-            case RATIONAL:   return BigDecimal.valueOf(n.num)
-                                .divide(BigDecimal.valueOf(n.den), MathContext.DECIMAL128);
+            case BIGFLOAT:   return n.bigFloatVal();
+            case FLOAT:      return BigDecimal.valueOf(n.floatVal());
+            case BIGINT:     return new BigDecimal(n.bigVal());
+            case INT:        return BigDecimal.valueOf(n.intVal());
+            case BIGRATIONAL:return new BigDecimal(n.bigNum())
+                                .divide(new BigDecimal(n.bigDen()), context());
+            case RATIONAL:   return BigDecimal.valueOf(n.num())
+                                .divide(BigDecimal.valueOf(n.den()), context());
             default:
                 throw new IllegalArgumentException("toBigDecimal: non-scalar type " + n.type);
         }
@@ -297,12 +332,12 @@ public final class Number {
 
     public static double toDouble(Number n) {
         return switch (n.type) {
-            case INT          -> (double) n.intVal;
-            case BIGINT       -> n.bigVal.doubleValue();
-            case FLOAT        -> n.floatVal;
-            case BIGFLOAT     -> n.bigFloatVal.doubleValue();
-            case RATIONAL     -> (double) n.num / (double) n.den;
-            case BIGRATIONAL  -> n.bigNum.doubleValue() / n.bigDen.doubleValue();
+            case INT          -> (double) n.intVal();
+            case BIGINT       -> n.bigVal().doubleValue();
+            case FLOAT        -> n.floatVal();
+            case BIGFLOAT     -> n.bigFloatVal().doubleValue();
+            case RATIONAL     -> (double) n.num() / (double) n.den();
+            case BIGRATIONAL  -> n.bigNum().doubleValue() / n.bigDen().doubleValue();
             default -> throw new IllegalArgumentException("toDouble: non-scalar type " + n.type);
         };
     }
@@ -311,20 +346,33 @@ public final class Number {
         return n.type != Type.COMPLEX && n.type != Type.QUATERNION;
     }
 
+    // Sign test for a real number.
+    private static boolean isNegative(Number n) {
+        return switch (n.type) {
+            case INT          -> n.intVal() < 0;
+            case BIGINT       -> n.bigVal().signum() < 0;
+            case FLOAT        -> n.floatVal() < 0.0;
+            case BIGFLOAT     -> n.bigFloatVal().signum() < 0;
+            case RATIONAL     -> n.num() < 0;
+            case BIGRATIONAL  -> n.bigNum().signum() < 0;
+            default -> throw new IllegalArgumentException("sign of non-scalar type " + n.type);
+        };
+    }
+
     private static boolean isZero(Number n) {
         return switch (n.type) {
-            case INT          -> n.intVal == 0;
-            case BIGINT       -> n.bigVal.signum() == 0;
-            case FLOAT        -> n.floatVal == 0.0;
-            case BIGFLOAT     -> n.bigFloatVal.compareTo(BigDecimal.ZERO) == 0;
-            case RATIONAL     -> n.num == 0;
-            case BIGRATIONAL  -> n.bigNum.signum() == 0;
-            case COMPLEX      -> isZero(n.real != null ? n.real : ZERO_INT)
-                               && isZero(n.ipart != null ? n.ipart : ZERO_INT);
-            case QUATERNION   -> isZero(n.real != null ? n.real : ZERO_INT)
-                               && isZero(n.ipart != null ? n.ipart : ZERO_INT)
-                               && isZero(n.jpart != null ? n.jpart : ZERO_INT)
-                               && isZero(n.kpart != null ? n.kpart : ZERO_INT);
+            case INT          -> n.intVal() == 0;
+            case BIGINT       -> n.bigVal().signum() == 0;
+            case FLOAT        -> n.floatVal() == 0.0;
+            case BIGFLOAT     -> n.bigFloatVal().compareTo(BigDecimal.ZERO) == 0;
+            case RATIONAL     -> n.num() == 0;
+            case BIGRATIONAL  -> n.bigNum().signum() == 0;
+            case COMPLEX      -> isZero(n.realPart() != null ? n.realPart() : ZERO_INT)
+                               && isZero(n.ipart() != null ? n.ipart() : ZERO_INT);
+            case QUATERNION   -> isZero(n.realPart() != null ? n.realPart() : ZERO_INT)
+                               && isZero(n.ipart() != null ? n.ipart() : ZERO_INT)
+                               && isZero(n.jpart() != null ? n.jpart() : ZERO_INT)
+                               && isZero(n.kpart() != null ? n.kpart() : ZERO_INT);
         };
     }
 
@@ -333,23 +381,23 @@ public final class Number {
         BigInteger den;
         switch (n.type) {
             case INT: {
-                num = BigInteger.valueOf(n.intVal);
+                num = BigInteger.valueOf(n.intVal());
                 den = BigInteger.ONE;
                 break;
             }
             case BIGINT: {
-                num = n.bigVal;
+                num = n.bigVal();
                 den = BigInteger.ONE;
                 break;
             }
             case RATIONAL: {
-                num = BigInteger.valueOf(n.num);
-                den = BigInteger.valueOf(n.den);
+                num = BigInteger.valueOf(n.num());
+                den = BigInteger.valueOf(n.den());
                 break;
             }
             case BIGRATIONAL: {
-                num = n.bigNum;
-                den = n.bigDen;
+                num = n.bigNum();
+                den = n.bigDen();
                 break;
             }
             default:
@@ -394,18 +442,18 @@ public final class Number {
 
     private static BigInteger toBigIntegerExact(Number n) {
         return switch (n.type) {
-            case INT -> BigInteger.valueOf(n.intVal);
-            case BIGINT -> n.bigVal;
-            case RATIONAL -> (n.den == 1) ? BigInteger.valueOf(n.num) : null;
-            case BIGRATIONAL -> n.bigDen.equals(BigInteger.ONE) ? n.bigNum : null;
+            case INT -> BigInteger.valueOf(n.intVal());
+            case BIGINT -> n.bigVal();
+            case RATIONAL -> (n.den() == 1) ? BigInteger.valueOf(n.num()) : null;
+            case BIGRATIONAL -> n.bigDen().equals(BigInteger.ONE) ? n.bigNum() : null;
             case FLOAT -> {
-                double value = n.floatVal;
+                double value = n.floatVal();
                 if (!Double.isFinite(value)) yield null;
                 BigDecimal bd = BigDecimal.valueOf(value).stripTrailingZeros();
                 yield bd.scale() <= 0 ? bd.toBigIntegerExact() : null;
             }
             case BIGFLOAT -> {
-                BigDecimal bd = n.bigFloatVal.stripTrailingZeros();
+                BigDecimal bd = n.bigFloatVal().stripTrailingZeros();
                 try {
                     yield bd.scale() <= 0 ? bd.toBigIntegerExact() : null;
                 } catch (ArithmeticException ex) {
@@ -419,27 +467,29 @@ public final class Number {
     private static Number negate(Number n) {
         switch (n.type) {
             case INT:
-                return Number.integer(-n.intVal);
+                return Number.integer(-n.intVal());
             case BIGINT:
-                return Number.integer(n.bigVal.negate());
+                return Number.integer(n.bigVal().negate());
             case FLOAT:
-                return Number.real(-n.floatVal);
+                return Number.real(-n.floatVal());
             case BIGFLOAT:
-                return Number.real(n.bigFloatVal.negate());
+                return Number.real(n.bigFloatVal().negate());
             case RATIONAL:
-                return Number.rational(-n.num, n.den);
+                if (n.num() == Long.MIN_VALUE)
+                    return Number.rational(BigInteger.valueOf(n.num()).negate(), BigInteger.valueOf(n.den()));
+                return new Ratnum(-n.num(), n.den());
             case BIGRATIONAL:
-                return Number.rational(n.bigNum.negate(), n.bigDen);
+                return Number.rational(n.bigNum().negate(), n.bigDen());
             case COMPLEX: {
-                Number realneg  = negate(n.real != null  ? n.real  : Number.integer(0));
-                Number ipartneg = negate(n.ipart != null ? n.ipart : Number.integer(0));
+                Number realneg  = negate(n.realPart() != null  ? n.realPart()  : Number.integer(0));
+                Number ipartneg = negate(n.ipart() != null ? n.ipart() : Number.integer(0));
                 return Number.complex(realneg, ipartneg);
             }
             case QUATERNION: {
-                Number rneg = negate(n.real  != null ? n.real  : Number.integer(0));
-                Number ineg = negate(n.ipart != null ? n.ipart : Number.integer(0));
-                Number jneg = negate(n.jpart != null ? n.jpart : Number.integer(0));
-                Number kneg = negate(n.kpart != null ? n.kpart : Number.integer(0));
+                Number rneg = negate(n.realPart()  != null ? n.realPart()  : Number.integer(0));
+                Number ineg = negate(n.ipart() != null ? n.ipart() : Number.integer(0));
+                Number jneg = negate(n.jpart() != null ? n.jpart() : Number.integer(0));
+                Number kneg = negate(n.kpart() != null ? n.kpart() : Number.integer(0));
                 return Number.quaternion(rneg, ineg, jneg, kneg);
             }
             default:
@@ -460,12 +510,141 @@ public final class Number {
         return new Vector(elems);
     }
 
+    // ---- Fractions ----
+    /*
+     Sums, products and quotients of exact numbers of which at least one is a fraction. Operands
+     are in lowest terms with a positive denominator, an integer n being n/1, and the results are
+     formed so that they come out in lowest terms as well (Knuth, TAOCP 4.5.1): gcds are taken of
+     the operands' parts rather than of the unreduced result, and common factors are cancelled
+     before multiplying. So an intermediate overflows a long only when the reduced result nearly
+     does, and only then is the operation redone in BigIntegers.
+    */
+    private static boolean isFraction(Number a, Number b) {
+        return isExact(a) && isExact(b)
+            && (a.type == Type.RATIONAL || a.type == Type.BIGRATIONAL
+                || b.type == Type.RATIONAL || b.type == Type.BIGRATIONAL);
+    }
+
+    private static boolean isExact(Number n) {
+        return n.type == Type.INT || n.type == Type.BIGINT
+            || n.type == Type.RATIONAL || n.type == Type.BIGRATIONAL;
+    }
+
+    // True for the exact kinds whose parts are longs.
+    private static boolean isSmallFraction(Number n) {
+        return n.type == Type.INT || n.type == Type.RATIONAL;
+    }
+
+    private static long numerator(Number n) {
+        return n.type == Type.INT ? n.intVal() : n.num();
+    }
+
+    private static long denominator(Number n) {
+        return n.type == Type.INT ? 1 : n.den();
+    }
+
+    private static Number addFractions(Number a, Number b) {
+        if (isSmallFraction(a) && isSmallFraction(b)) {
+            try {
+                return addFractions(numerator(a), denominator(a), numerator(b), denominator(b));
+            } catch (ArithmeticException overflow) {
+                // redone below
+            }
+        }
+        BigInteger[] x = toBigFraction(a);
+        BigInteger[] y = toBigFraction(b);
+        return addFractions(x[0], x[1], y[0], y[1]);
+    }
+
+    private static Number multiplyFractions(Number a, Number b) {
+        if (isSmallFraction(a) && isSmallFraction(b)) {
+            try {
+                return multiplyFractions(numerator(a), denominator(a), numerator(b), denominator(b));
+            } catch (ArithmeticException overflow) {
+                // redone below
+            }
+        }
+        BigInteger[] x = toBigFraction(a);
+        BigInteger[] y = toBigFraction(b);
+        return multiplyFractions(x[0], x[1], y[0], y[1]);
+    }
+
+    // a/b divided by c/d is a/b times d/c, the sign moved to the numerator.
+    private static Number divideFractions(Number a, Number b) {
+        if (isZero(b)) throw new ArithmeticException("Division by zero");
+        if (isSmallFraction(a) && isSmallFraction(b)) {
+            long c = numerator(b);
+            long d = denominator(b);
+            try {
+                return c > 0 ? multiplyFractions(numerator(a), denominator(a), d, c)
+                             : multiplyFractions(numerator(a), denominator(a), -d, Math.negateExact(c));
+            } catch (ArithmeticException overflow) {
+                // redone below
+            }
+        }
+        BigInteger[] x = toBigFraction(a);
+        BigInteger[] y = toBigFraction(b);
+        return y[0].signum() > 0 ? multiplyFractions(x[0], x[1], y[1], y[0])
+                                 : multiplyFractions(x[0], x[1], y[1].negate(), y[0].negate());
+    }
+
+    // a/b + c/d. With g = gcd(b, d), the sum is t / (b/g d) for t = a d/g + c b/g, and t can only
+    // share a factor with the denominator through g.
+    private static Number addFractions(long a, long b, long c, long d) {
+        long g = gcd(b, d);
+        if (g == 1) {
+            return fraction(Math.addExact(Math.multiplyExact(a, d), Math.multiplyExact(c, b)),
+                            Math.multiplyExact(b, d));
+        }
+        long t = Math.addExact(Math.multiplyExact(a, d / g), Math.multiplyExact(c, b / g));
+        long g2 = gcd(t, g);
+        return fraction(t / g2, Math.multiplyExact(b / g, d / g2));
+    }
+
+    private static Number addFractions(BigInteger a, BigInteger b, BigInteger c, BigInteger d) {
+        BigInteger g = b.gcd(d);
+        if (g.equals(BigInteger.ONE)) {
+            return fraction(a.multiply(d).add(c.multiply(b)), b.multiply(d));
+        }
+        BigInteger t = a.multiply(d.divide(g)).add(c.multiply(b.divide(g)));
+        BigInteger g2 = t.gcd(g);
+        return fraction(t.divide(g2), b.divide(g).multiply(d.divide(g2)));
+    }
+
+    // a/b times c/d, cancelling a against d and c against b first.
+    private static Number multiplyFractions(long a, long b, long c, long d) {
+        long g1 = gcd(a, d);
+        long g2 = gcd(c, b);
+        return fraction(Math.multiplyExact(a / g1, c / g2), Math.multiplyExact(b / g2, d / g1));
+    }
+
+    private static Number multiplyFractions(BigInteger a, BigInteger b, BigInteger c, BigInteger d) {
+        BigInteger g1 = a.gcd(d);
+        BigInteger g2 = c.gcd(b);
+        return fraction(a.divide(g1).multiply(c.divide(g2)), b.divide(g2).multiply(d.divide(g1)));
+    }
+
+    // p/q already in lowest terms with q > 0.
+    private static Number fraction(long p, long q) {
+        if (p == 0) return ZERO_INT;
+        if (q == 1) return Number.integer(p);
+        return new Ratnum(p, q);
+    }
+
+    // p/q already in lowest terms with q > 0, in longs when both fit.
+    private static Number fraction(BigInteger p, BigInteger q) {
+        if (p.signum() == 0) return ZERO_INT;
+        if (p.bitLength() < 64 && q.bitLength() < 64) return fraction(p.longValue(), q.longValue());
+        if (q.equals(BigInteger.ONE)) return Number.integer(p);
+        return new BigRatnum(p, q);
+    }
+
     // ---- Addition ----
     public static Number add(Number a, Number b) {
         // Fast path: two small ints
         if (a.type == Type.INT && b.type == Type.INT) {
             try {
-                return Number.integer(Math.addExact(a.intVal, b.intVal));
+                return Number.integer(Math.addExact(a.intVal(), b.intVal()));
             } catch (ArithmeticException ignore) {
                 // fall through to general promotion
             }
@@ -473,8 +652,15 @@ public final class Number {
 
         // Fast path: two floats
         if (a.type == Type.FLOAT && b.type == Type.FLOAT) {
-            return Number.real(a.floatVal + b.floatVal);
+            return Number.real(a.floatVal() + b.floatVal());
+        }
+        // Fast path: a float and an int
+        if (a.type != b.type && isFixOrFlo(a) && isFixOrFlo(b)) {
+            double sum = toDouble(a) + toDouble(b);
+            if (Double.isFinite(sum)) return Number.real(sum);
         }
+        // Fast path: fractions
+        if (isFraction(a, b)) return addFractions(a, b);
 
         if (a.type.ordinal() < b.type.ordinal()) return add(b, a);
 
@@ -488,7 +674,7 @@ public final class Number {
             case COMPLEX:
                 // If RHS is a quaternion, promote the LHS complex to a quaternion and add there.
                 if (b.type == Type.QUATERNION) {
-                    Number qa = Number.quaternion(a.real, a.ipart, Number.integer(0), Number.integer(0));
+                    Number qa = Number.quaternion(a.realPart(), a.ipart(), Number.integer(0), Number.integer(0));
                     return addQuaternion(qa, b);
                 }
                 // Otherwise, keep your existing Complex promotion
@@ -498,7 +684,7 @@ public final class Number {
             case QUATERNION:
                 if (b.type != Type.QUATERNION) {
                     if (b.type == Type.COMPLEX) {
-                        b = Number.quaternion(b.real, b.ipart, Number.integer(0), Number.integer(0));
+                        b = Number.quaternion(b.realPart(), b.ipart(), Number.integer(0), Number.integer(0));
                     } else {
                         b = Number.quaternion(b, Number.integer(0), Number.integer(0), Number.integer(0));
                     }
@@ -529,44 +715,55 @@ public final class Number {
         // Fast path: two small ints
         if (a.type == Type.INT && b.type == Type.INT) {
             try {
-                return Number.integer(Math.subtractExact(a.intVal, b.intVal));
+                return Number.integer(Math.subtractExact(a.intVal(), b.intVal()));
             } catch (ArithmeticException ignore) {}
         }
         // Fast path: two floats
         if (a.type == Type.FLOAT && b.type == Type.FLOAT) {
-            return Number.real(a.floatVal - b.floatVal);
+            return Number.real(a.floatVal() - b.floatVal());
+        }
+        // Fast path: a float and an int
+        if (a.type != b.type && isFixOrFlo(a) && isFixOrFlo(b)) {
+            double difference = toDouble(a) - toDouble(b);
+            if (Double.isFinite(difference)) return Number.real(difference);
         }
+        if (isFraction(a, b)) return addFractions(a, negate(b));
         return add(a, negate(b));
     }
 
     public static Vector sub(Vector a, Vector b){
         return add(a, negate(b));
     }
+    // True for the two kinds held in a primitive, long or double, which mix without the tower.
+    static boolean isFixOrFlo(Number n) {
+        return n.type == Type.INT || n.type == Type.FLOAT;
+    }
+
     // ---- add helpers ----
     private static Number addInt(Number a, Number b) {
         // both a and b are INT or lower
         try {
-            long sum = Math.addExact(a.intVal, b.intVal);
+            long sum = Math.addExact(a.intVal(), b.intVal());
             return Number.integer(sum);
         } catch (ArithmeticException e) {
-            BigInteger sum = BigInteger.valueOf(a.intVal).add(BigInteger.valueOf(b.intVal));
+            BigInteger sum = BigInteger.valueOf(a.intVal()).add(BigInteger.valueOf(b.intVal()));
             return Number.integer(sum);
         }
     }
 
     private static Number addBigInt(Number a, Number b) {
-        BigInteger left = (a.type == Type.BIGINT) ? a.bigVal : BigInteger.valueOf(a.intVal);
-        BigInteger right = (b.type == Type.BIGINT) ? b.bigVal : BigInteger.valueOf(b.intVal);
+        BigInteger left = (a.type == Type.BIGINT) ? a.bigVal() : BigInteger.valueOf(a.intVal());
+        BigInteger right = (b.type == Type.BIGINT) ? b.bigVal() : BigInteger.valueOf(b.intVal());
         return Number.integer(left.add(right));
     }
 
     private static Number addFloat(Number a, Number b) {
-        double left = a.floatVal;
+        double left = a.floatVal();
         final double right;
         switch (b.type) {
-            case FLOAT:   right = b.floatVal; break;
-            case INT:     right = b.intVal;   break;
-            case BIGINT:  right = b.bigVal.doubleValue(); break;
+            case FLOAT:   right = b.floatVal(); break;
+            case INT:     right = b.intVal();   break;
+            case BIGINT:  right = b.bigVal().doubleValue(); break;
             default:      return addBigFloat(Number.real(BigDecimal.valueOf(left)), b);
         }
         double sum = left + right;
@@ -577,20 +774,18 @@ public final class Number {
     private static Number addBigFloat(Number a, Number b) {
         BigDecimal left  = toBigDecimal(a);
         BigDecimal right = toBigDecimal(b);
-        return Number.real(left.add(right));
+        return Number.real(left.add(right, context()));
     }
 
     private static Number addBigRational(Number a, Number b) {
-        BigInteger num = a.bigNum.multiply(b.bigDen).add(b.bigNum.multiply(a.bigDen));
-        BigInteger den = a.bigDen.multiply(b.bigDen);
-        return Number.rational(num, den);
+        return addFractions(a, b);
     }
 
     private static Number addComplex(Number a, Number b) {
-        Number aReal = (a.real != null) ? a.real : Number.integer(0);
-        Number aipart = (a.ipart != null) ? a.ipart : Number.integer(0);
-        Number bReal = (b.real != null) ? b.real : Number.integer(0);
-        Number bipart = (b.ipart != null) ? b.ipart : Number.integer(0);
+        Number aReal = (a.realPart() != null) ? a.realPart() : Number.integer(0);
+        Number aipart = (a.ipart() != null) ? a.ipart() : Number.integer(0);
+        Number bReal = (b.realPart() != null) ? b.realPart() : Number.integer(0);
+        Number bipart = (b.ipart() != null) ? b.ipart() : Number.integer(0);
 
         Number realPart = add(aReal, bReal);
         Number ipartPart = add(aipart, bipart);
@@ -599,15 +794,15 @@ public final class Number {
 
 
     private static Number addQuaternion(Number a, Number b) {
-        Number ar = (a.real  != null) ? a.real  : Number.integer(0);
-        Number ai = (a.ipart != null) ? a.ipart : Number.integer(0);
-        Number aj = (a.jpart != null) ? a.jpart : Number.integer(0);
-        Number ak = (a.kpart != null) ? a.kpart : Number.integer(0);
+        Number ar = (a.realPart()  != null) ? a.realPart()  : Number.integer(0);
+        Number ai = (a.ipart() != null) ? a.ipart() : Number.integer(0);
+        Number aj = (a.jpart() != null) ? a.jpart() : Number.integer(0);
+        Number ak = (a.kpart() != null) ? a.kpart() : Number.integer(0);
 
-        Number br = (b.real  != null) ? b.real  : Number.integer(0);
-        Number bi = (b.ipart != null) ? b.ipart : Number.integer(0);
-        Number bj = (b.jpart != null) ? b.jpart : Number.integer(0);
-        Number bk = (b.kpart != null) ? b.kpart : Number.integer(0);
+        Number br = (b.realPart()  != null) ? b.realPart()  : Number.integer(0);
+        Number bi = (b.ipart() != null) ? b.ipart() : Number.integer(0);
+        Number bj = (b.jpart() != null) ? b.jpart() : Number.integer(0);
+        Number bk = (b.kpart() != null) ? b.kpart() : Number.integer(0);
 
         return Number.quaternion(
             add(ar, br),
@@ -618,70 +813,24 @@ public final class Number {
     }
 
     private static Number addRational(Number a, Number b) {
-        long numerator = 0;
-        long denominator = 0;
 
         switch (a.type) {
             case RATIONAL: {
                 switch (b.type) {
-                    case RATIONAL: {
-                        try {
-                            numerator = Math.addExact(
-                                Math.multiplyExact(a.num, b.den),
-                                Math.multiplyExact(b.num, a.den)
-                            );
-                            denominator = Math.multiplyExact(a.den, b.den);
-                            return Number.rational(numerator, denominator);
-                        } catch (ArithmeticException e) {
-                            BigInteger numBig = BigInteger.valueOf(a.num)
-                                .multiply(BigInteger.valueOf(b.den))
-                                .add(BigInteger.valueOf(b.num)
-                                .multiply(BigInteger.valueOf(a.den)));
-                            BigInteger denBig = BigInteger.valueOf(a.den)
-                                .multiply(BigInteger.valueOf(b.den));
-                            return Number.rational(numBig, denBig);
-                        }
-                    }
-
-                    case INT: {
-                        try {
-                            numerator = Math.addExact(Math.multiplyExact(b.intVal, a.den), a.num);
-                            denominator = a.den;
-                            return Number.rational(numerator, denominator);
-                        } catch (ArithmeticException e) {
-                            BigInteger anum = BigInteger.valueOf(a.num);
-                            BigInteger aden = BigInteger.valueOf(a.den);
-                            BigInteger bnum = BigInteger.valueOf(b.intVal);
-                            BigInteger numBig = anum.add(bnum.multiply(aden));
-                            return Number.rational(numBig, aden);
-                        }
-                    }
-
-                    case BIGINT: {
-                        BigInteger anum = BigInteger.valueOf(a.num);
-                        BigInteger aden = BigInteger.valueOf(a.den);
-                        BigInteger bnum = b.bigVal;
-                        BigInteger numBig = anum.add(bnum.multiply(aden));
-                        return Number.rational(numBig, aden);
-                    }
-
-                    case BIGRATIONAL: {
-                        BigInteger anum = BigInteger.valueOf(a.num);
-                        BigInteger aden = BigInteger.valueOf(a.den);
-                        BigInteger numBig = anum.multiply(b.bigDen)
-                            .add(b.bigNum.multiply(aden));
-                        BigInteger denBig = aden.multiply(b.bigDen);
-                        return Number.rational(numBig, denBig);
-                    }
+                    case RATIONAL:
+                    case INT:
+                    case BIGINT:
+                    case BIGRATIONAL:
+                        return addFractions(a, b);
 
                     case FLOAT: {
-                        double left = ((double) a.num / (double) a.den);
-                        double sum  = left + b.floatVal;
+                        double left = ((double) a.num() / (double) a.den());
+                        double sum  = left + b.floatVal();
                         if (!Double.isFinite(sum)) {
                             // Promote to BigDecimal precision arithmetic
-                            BigDecimal leftBD = BigDecimal.valueOf(a.num)
-                                .divide(BigDecimal.valueOf(a.den), MathContext.DECIMAL128);
-                            BigDecimal rightBD = BigDecimal.valueOf(b.floatVal);
+                            BigDecimal leftBD = BigDecimal.valueOf(a.num())
+                                .divide(BigDecimal.valueOf(a.den()), context());
+                            BigDecimal rightBD = BigDecimal.valueOf(b.floatVal());
                             BigDecimal sumBD = leftBD.add(rightBD);
                             return Number.real(sumBD);
                         }
@@ -689,21 +838,21 @@ public final class Number {
                     }
 
                     case BIGFLOAT: {
-                        BigDecimal left = BigDecimal.valueOf(a.num)
-                            .divide(BigDecimal.valueOf(a.den), MathContext.DECIMAL128);
-                        BigDecimal sum = left.add(b.bigFloatVal);
+                        BigDecimal left = BigDecimal.valueOf(a.num())
+                            .divide(BigDecimal.valueOf(a.den()), context());
+                        BigDecimal sum = left.add(b.bigFloatVal(), context());
                         return Number.real(sum);
                     }
 
                     case COMPLEX: {
-                        Number realPart = addRational(a, b.real);
-                        return Number.complex(realPart, b.ipart);
+                        Number realPart = addRational(a, b.realPart());
+                        return Number.complex(realPart, b.ipart());
                     }
 
                     case QUATERNION: {
                         // Promote rational to quaternion (a + 0i + 0j + 0k)
-                        Number realPart = addRational(a, b.real);
-                        return Number.quaternion(realPart, b.ipart, b.jpart, b.kpart);
+                        Number realPart = addRational(a, b.realPart());
+                        return Number.quaternion(realPart, b.ipart(), b.jpart(), b.kpart());
                     }
 
                     default:
@@ -722,13 +871,20 @@ public final class Number {
         // Fast path: ints
         if (a.type == Type.INT && b.type == Type.INT) {
             try {
-                return Number.integer(Math.multiplyExact(a.intVal, b.intVal));
+                return Number.integer(Math.multiplyExact(a.intVal(), b.intVal()));
             } catch (ArithmeticException ignore) {}
         }
         // Fast path: floats
         if (a.type == Type.FLOAT && b.type == Type.FLOAT) {
-            return Number.real(a.floatVal * b.floatVal);
+            return Number.real(a.floatVal() * b.floatVal());
         }
+        // Fast path: a float and an int
+        if (a.type != b.type && isFixOrFlo(a) && isFixOrFlo(b)) {
+            double product = toDouble(a) * toDouble(b);
+            if (Double.isFinite(product)) return Number.real(product);
+        }
+        // Fast path: fractions
+        if (isFraction(a, b)) return multiplyFractions(a, b);
 
         // Preserve operand order for non-commutative pairs: COMPLEX ↔ QUATERNION.
         boolean nonCommutativePair =
@@ -749,7 +905,7 @@ public final class Number {
             case COMPLEX:
                 // Preserve order for non-commutative C×Q
                 if (b.type == Type.QUATERNION) {
-                    Number qa = Number.quaternion(a.real, a.ipart, Number.integer(0), Number.integer(0));
+                    Number qa = Number.quaternion(a.realPart(), a.ipart(), Number.integer(0), Number.integer(0));
                     return multiplyQuaternion(qa, b);
                 }
                 if (b.type != Type.COMPLEX)
@@ -758,7 +914,7 @@ public final class Number {
             case QUATERNION:
                 if (b.type != Type.QUATERNION) {
                     if (b.type == Type.COMPLEX) {
-                        b = Number.quaternion(b.real, b.ipart, Number.integer(0), Number.integer(0));
+                        b = Number.quaternion(b.realPart(), b.ipart(), Number.integer(0), Number.integer(0));
                     } else {
                         b = Number.quaternion(b, Number.integer(0), Number.integer(0), Number.integer(0));
                     }
@@ -788,28 +944,28 @@ public final class Number {
 
     private static Number multiplyInt(Number a, Number b) {
         try{
-            long product = Math.multiplyExact(a.intVal,b.intVal);
+            long product = Math.multiplyExact(a.intVal(),b.intVal());
             return Number.integer(product);
         }
         catch (ArithmeticException e) {
-            BigInteger bigProduct = BigInteger.valueOf(a.intVal).multiply(BigInteger.valueOf(b.intVal));
+            BigInteger bigProduct = BigInteger.valueOf(a.intVal()).multiply(BigInteger.valueOf(b.intVal()));
             return Number.integer(bigProduct);
         }
     }
 
     private static Number multiplyBigInt(Number a, Number b) {
-        BigInteger left = (a.type == Type.BIGINT) ? a.bigVal : BigInteger.valueOf(a.intVal);
-        BigInteger right = (b.type == Type.BIGINT) ? b.bigVal : BigInteger.valueOf(b.intVal);
+        BigInteger left = (a.type == Type.BIGINT) ? a.bigVal() : BigInteger.valueOf(a.intVal());
+        BigInteger right = (b.type == Type.BIGINT) ? b.bigVal() : BigInteger.valueOf(b.intVal());
         return Number.integer(left.multiply(right));
     }
     
     private static Number multiplyFloat(Number a, Number b) {
-        double left = a.floatVal;
+        double left = a.floatVal();
         final double right;
         switch (b.type) {
-            case FLOAT:   right = b.floatVal; break;
-            case INT:     right = b.intVal;   break;
-            case BIGINT:  right = b.bigVal.doubleValue(); break;
+            case FLOAT:   right = b.floatVal(); break;
+            case INT:     right = b.intVal();   break;
+            case BIGINT:  right = b.bigVal().doubleValue(); break;
             default:      return multiplyBigFloat(Number.real(BigDecimal.valueOf(left)), b);
         }
         double prod = left * right;
@@ -820,26 +976,26 @@ public final class Number {
     private static Number multiplyBigFloat(Number a, Number b) {
         BigDecimal left  = toBigDecimal(a);
         BigDecimal right = toBigDecimal(b);
-        return Number.real(left.multiply(right));
+        return Number.real(left.multiply(right, context()));
     }
 
     private static Number multiplyQuaternion(Number a, Number b) {
 
         if (b.type == Type.COMPLEX) {
-            Number qb = Number.quaternion(b.real, b.ipart, Number.integer(0), Number.integer(0));
+            Number qb = Number.quaternion(b.realPart(), b.ipart(), Number.integer(0), Number.integer(0));
             return multiplyQuaternion(a, qb);
         }
         // a = ar + ai*i + aj*j + ak*k
         // b = br + bi*i + bj*j + bk*k
-        Number ar = (a.real  != null) ? a.real  : Number.integer(0);
-        Number ai = (a.ipart != null) ? a.ipart : Number.integer(0);
-        Number aj = (a.jpart != null) ? a.jpart : Number.integer(0);
-        Number ak = (a.kpart != null) ? a.kpart : Number.integer(0);
+        Number ar = (a.realPart()  != null) ? a.realPart()  : Number.integer(0);
+        Number ai = (a.ipart() != null) ? a.ipart() : Number.integer(0);
+        Number aj = (a.jpart() != null) ? a.jpart() : Number.integer(0);
+        Number ak = (a.kpart() != null) ? a.kpart() : Number.integer(0);
 
-        Number br = (b.real  != null) ? b.real  : Number.integer(0);
-        Number bi = (b.ipart != null) ? b.ipart : Number.integer(0);
-        Number bj = (b.jpart != null) ? b.jpart : Number.integer(0);
-        Number bk = (b.kpart != null) ? b.kpart : Number.integer(0);
+        Number br = (b.realPart()  != null) ? b.realPart()  : Number.integer(0);
+        Number bi = (b.ipart() != null) ? b.ipart() : Number.integer(0);
+        Number bj = (b.jpart() != null) ? b.jpart() : Number.integer(0);
+        Number bk = (b.kpart() != null) ? b.kpart() : Number.integer(0);
 
         // Hamilton product:
         // real: ar*br - ai*bi - aj*bj - ak*bk
@@ -870,52 +1026,22 @@ public final class Number {
     }
 
     private static Number multiplyRational(Number a, Number b) {
-        long numerator = 0;
-        long denominator = 0;
         switch (a.type) {
             case RATIONAL: {
                 switch (b.type) {
-                    case RATIONAL: {
-                        try {
-                            numerator = Math.multiplyExact(a.num,b.num);
-                            denominator = Math.multiplyExact(a.den,b.den);
-                            return Number.rational(numerator,denominator);
-                        } catch (ArithmeticException e) {
-                            BigInteger numBig = BigInteger.valueOf(a.num).multiply(BigInteger.valueOf(b.num));
-                            BigInteger denBig = BigInteger.valueOf(a.den).multiply(BigInteger.valueOf(b.den));
-                            return Number.rational(numBig,denBig);
-                        }
-                    }
-
-                    case INT: {
-                        try {
-                            numerator = Math.multiplyExact(a.num,b.intVal);
-                            return Number.rational(numerator,a.den);
-                        } catch (ArithmeticException e) {
-                            BigInteger numBig = BigInteger.valueOf(a.num).multiply(BigInteger.valueOf(b.intVal));
-                            BigInteger denBig = BigInteger.valueOf(a.den);
-                            return Number.rational(numBig,denBig);
-                        }
-                    }
-                    case BIGINT: {
-                        BigInteger numBig = BigInteger.valueOf(a.num).multiply(b.bigVal);
-                        BigInteger denBig = BigInteger.valueOf(a.den);
-                        return Number.rational(numBig,denBig);
-                    }
-
-                    case BIGRATIONAL: {
-                        BigInteger numBig = BigInteger.valueOf(a.num).multiply(b.bigNum);
-                        BigInteger denBig = BigInteger.valueOf(a.den).multiply(b.bigDen);
-                        return Number.rational(numBig,denBig);
-                    }
+                    case RATIONAL:
+                    case INT:
+                    case BIGINT:
+                    case BIGRATIONAL:
+                        return multiplyFractions(a, b);
 
                     case FLOAT: {
-                        double left = ((double) a.num / (double) a.den);
-                        double product  = left*b.floatVal;
+                        double left = ((double) a.num() / (double) a.den());
+                        double product  = left*b.floatVal();
                         if (!Double.isFinite(product)) {
                             // Promote to BigDecimal precision arithmetic
-                            BigDecimal leftBD = BigDecimal.valueOf(a.num).divide(BigDecimal.valueOf(a.den), MathContext.DECIMAL128);
-                            BigDecimal rightBD = BigDecimal.valueOf(b.floatVal);
+                            BigDecimal leftBD = BigDecimal.valueOf(a.num()).divide(BigDecimal.valueOf(a.den()), context());
+                            BigDecimal rightBD = BigDecimal.valueOf(b.floatVal());
                             BigDecimal prodBD = leftBD.multiply(rightBD);
                             return Number.real(prodBD);
                         }
@@ -923,23 +1049,23 @@ public final class Number {
                     }
 
                     case BIGFLOAT: {
-                        BigDecimal left = BigDecimal.valueOf(a.num).divide(BigDecimal.valueOf(a.den), MathContext.DECIMAL128);
-                        BigDecimal product = left.multiply(b.bigFloatVal);
+                        BigDecimal left = BigDecimal.valueOf(a.num()).divide(BigDecimal.valueOf(a.den()), context());
+                        BigDecimal product = left.multiply(b.bigFloatVal(), context());
                         return Number.real(product);
                     }
 
                     case COMPLEX: {
-                        Number real = multiplyRational(a,b.real);
-                        Number ipart = multiplyRational(a,b.ipart);
+                        Number real = multiplyRational(a,b.realPart());
+                        Number ipart = multiplyRational(a,b.ipart());
                         return Number.complex(real,ipart);
                     }
 
                     case QUATERNION: {
                         // Scalar multiplication — multiply each component by the rational
-                        Number r = multiplyRational(a, b.real);
-                        Number i = multiplyRational(a, b.ipart);
-                        Number j = multiplyRational(a, b.jpart);
-                        Number k = multiplyRational(a, b.kpart);
+                        Number r = multiplyRational(a, b.realPart());
+                        Number i = multiplyRational(a, b.ipart());
+                        Number j = multiplyRational(a, b.jpart());
+                        Number k = multiplyRational(a, b.kpart());
                         return Number.quaternion(r, i, j, k);
                     }
                     default:
@@ -953,34 +1079,43 @@ public final class Number {
 
     }
     private static Number multiplyBigRational(Number a, Number b){
-        BigInteger numerator   = a.bigNum.multiply(b.bigNum);
-        BigInteger denominator = a.bigDen.multiply(b.bigDen);
-        return Number.rational(numerator,denominator);
+        return multiplyFractions(a, b);
     }
 
     private static Number multiplyComplex(Number a, Number b){
         if (b.type == Type.QUATERNION) {
             // promote a to quaternion for LEFT operand (not symmetric!)
-            Number qa = Number.quaternion(a.real, a.ipart, Number.integer(0), Number.integer(0));
+            Number qa = Number.quaternion(a.realPart(), a.ipart(), Number.integer(0), Number.integer(0));
             return multiplyQuaternion(qa, b); // correct
         }
-        Number real = add(multiply(a.real,b.real),negate(multiply(a.ipart,b.ipart)));
-        Number ipart = add(multiply(a.real,b.ipart),multiply(a.ipart,b.real));
+        Number real = add(multiply(a.realPart(),b.realPart()),negate(multiply(a.ipart(),b.ipart())));
+        Number ipart = add(multiply(a.realPart(),b.ipart()),multiply(a.ipart(),b.realPart()));
         return Number.complex(real,ipart);
     }
     //------ Division -------
     public static Number divide(Number a, Number b) { 
         // Fast path: two ints yielding int
         if (a.type == Type.INT && b.type == Type.INT) {
-            if (b.intVal == 0) throw new ArithmeticException("Division by zero");
-            if (a.intVal % b.intVal == 0) {
-                return Number.integer(a.intVal / b.intVal);
+            if (b.intVal() == 0) throw new ArithmeticException("Division by zero");
+            if (a.intVal() % b.intVal() == 0) {
+                try {
+                    return Number.integer(Math.divideExact(a.intVal(), b.intVal()));
+                } catch (ArithmeticException overflow) {
+                    return divideBigInt(a, b); // Long.MIN_VALUE / -1
+                }
             }
         }
         // Fast path: two floats
         if (a.type == Type.FLOAT && b.type == Type.FLOAT) {
-            return Number.real(a.floatVal / b.floatVal);
+            return Number.real(a.floatVal() / b.floatVal());
+        }
+        // Fast path: a float and an int
+        if (a.type != b.type && isFixOrFlo(a) && isFixOrFlo(b)) {
+            double quotient = toDouble(a) / toDouble(b);
+            if (Double.isFinite(quotient)) return Number.real(quotient);
         }
+        // Fast path: fractions
+        if (isFraction(a, b)) return divideFractions(a, b);
 
         switch (a.type) {
             case INT:         return divideInt(a, b);
@@ -991,7 +1126,7 @@ public final class Number {
             case BIGFLOAT:    return divideBigFloat(a, b);
             case COMPLEX:
                 if (b.type == Type.QUATERNION) {
-                    Number qa = Number.quaternion(a.real, a.ipart, Number.integer(0), Number.integer(0));
+                    Number qa = Number.quaternion(a.realPart(), a.ipart(), Number.integer(0), Number.integer(0));
                     return divideQuaternion(qa, b);
                 }
                 if (b.type != Type.COMPLEX)
@@ -1000,7 +1135,7 @@ public final class Number {
             case QUATERNION:
                 if (b.type != Type.QUATERNION) {
                     if (b.type == Type.COMPLEX) {
-                        b = Number.quaternion(b.real, b.ipart, Number.integer(0), Number.integer(0));
+                        b = Number.quaternion(b.realPart(), b.ipart(), Number.integer(0), Number.integer(0));
                     } else {
                         b = Number.quaternion(b, Number.integer(0), Number.integer(0), Number.integer(0));
                     }
@@ -1016,38 +1151,23 @@ public final class Number {
     private static Number divideInt(Number a, Number b) {
         switch (b.type) {
             case INT: {
-                if (b.intVal == 0) throw new ArithmeticException("Division by zero");
-                if (a.intVal % b.intVal == 0) return Number.integer(a.intVal / b.intVal);
-                return Number.rational(a.intVal, b.intVal);
+                if (b.intVal() == 0) throw new ArithmeticException("Division by zero");
+                if (a.intVal() % b.intVal() == 0) return Number.integer(a.intVal() / b.intVal());
+                return Number.rational(a.intVal(), b.intVal());
             }
             case BIGINT: {
-                if (b.bigVal.signum() == 0) throw new ArithmeticException("Division by zero");
-                return Number.rational(BigInteger.valueOf(a.intVal), b.bigVal);
-            }
-            case RATIONAL: {
-                if (b.num == 0) throw new ArithmeticException("Division by zero");
-                // a / (p/q) = a * (q/p)
-                try {
-                    long num = Math.multiplyExact(a.intVal, b.den);
-                    return Number.rational(num, b.num);
-                } catch (ArithmeticException e) {
-                    BigInteger num = BigInteger.valueOf(a.intVal).multiply(BigInteger.valueOf(b.den));
-                    BigInteger den = BigInteger.valueOf(b.num);
-                    return Number.rational(num, den);
-                }
-            }
-            case BIGRATIONAL: {
-                if (b.bigNum.signum() == 0) throw new ArithmeticException("Division by zero");
-                BigInteger num = BigInteger.valueOf(a.intVal).multiply(b.bigDen);
-                BigInteger den = b.bigNum;
-                return Number.rational(num, den);
+                if (b.bigVal().signum() == 0) throw new ArithmeticException("Division by zero");
+                return Number.rational(BigInteger.valueOf(a.intVal()), b.bigVal());
             }
+            case RATIONAL:
+            case BIGRATIONAL:
+                return divideFractions(a, b);
             case FLOAT: {
-                return Number.real(a.intVal / b.floatVal);
+                return Number.real(a.intVal() / b.floatVal());
             }
             case BIGFLOAT: {
-                return Number.real(BigDecimal.valueOf(a.intVal)
-                        .divide(b.bigFloatVal, MathContext.DECIMAL128));
+                return Number.real(BigDecimal.valueOf(a.intVal())
+                        .divide(b.bigFloatVal(), context()));
             }
             case COMPLEX: {
                 // treat a as a + 0i
@@ -1059,8 +1179,8 @@ public final class Number {
     }
 
     private static Number divideBigInt(Number a, Number b) {
-        BigInteger bigA = (a.type == Type.BIGINT) ? a.bigVal : BigInteger.valueOf(a.intVal);
-        BigInteger bigB = (b.type == Type.BIGINT) ? b.bigVal : BigInteger.valueOf(b.intVal);
+        BigInteger bigA = (a.type == Type.BIGINT) ? a.bigVal() : BigInteger.valueOf(a.intVal());
+        BigInteger bigB = (b.type == Type.BIGINT) ? b.bigVal() : BigInteger.valueOf(b.intVal());
 
         if (bigB.signum() == 0) throw new ArithmeticException("Division by zero");
         if (bigA.signum() == 0) return Number.integer(BigInteger.ZERO);
@@ -1074,41 +1194,41 @@ public final class Number {
     
 
     private static Number divideFloat(Number a, Number b) {
-        double left = a.floatVal;
+        double left = a.floatVal();
 
         switch (b.type) {
             case FLOAT: {
-                double q = left / b.floatVal;
+                double q = left / b.floatVal();
                 if (Double.isFinite(q)) return Number.real(q);
                 return Number.real(BigDecimal.valueOf(left)
-                        .divide(BigDecimal.valueOf(b.floatVal), MathContext.DECIMAL128));
+                        .divide(BigDecimal.valueOf(b.floatVal()), context()));
             }
             case INT: {
-                double q = left / b.intVal;
+                double q = left / b.intVal();
                 if (Double.isFinite(q)) return Number.real(q);
                 return Number.real(BigDecimal.valueOf(left)
-                        .divide(BigDecimal.valueOf(b.intVal), MathContext.DECIMAL128));
+                        .divide(BigDecimal.valueOf(b.intVal()), context()));
             }
             case BIGINT: {
                 return Number.real(BigDecimal.valueOf(left)
-                        .divide(new BigDecimal(b.bigVal), MathContext.DECIMAL128));
+                        .divide(new BigDecimal(b.bigVal()), context()));
             }
             case RATIONAL: {
                 // left / (p/q) = left * (q/p)
-                double right = ((double) b.num) / ((double) b.den);
+                double right = ((double) b.num()) / ((double) b.den());
                 double q = left / right;
                 if (Double.isFinite(q)) return Number.real(q);
-                BigDecimal num = BigDecimal.valueOf(left).multiply(BigDecimal.valueOf(b.den));
-                return Number.real(num.divide(BigDecimal.valueOf(b.num), MathContext.DECIMAL128));
+                BigDecimal num = BigDecimal.valueOf(left).multiply(BigDecimal.valueOf(b.den()));
+                return Number.real(num.divide(BigDecimal.valueOf(b.num()), context()));
             }
             case BIGRATIONAL: {
                 // left * (bigDen / bigNum)
-                BigDecimal num = BigDecimal.valueOf(left).multiply(new BigDecimal(b.bigDen));
-                return Number.real(num.divide(new BigDecimal(b.bigNum), MathContext.DECIMAL128));
+                BigDecimal num = BigDecimal.valueOf(left).multiply(new BigDecimal(b.bigDen()));
+                return Number.real(num.divide(new BigDecimal(b.bigNum()), context()));
             }
             case BIGFLOAT: {
                 return Number.real(BigDecimal.valueOf(left)
-                        .divide(b.bigFloatVal, MathContext.DECIMAL128));
+                        .divide(b.bigFloatVal(), context()));
             }
             case COMPLEX: {
                 return divideComplex(Number.complex(Number.real(left), Number.integer(0)), b);
@@ -1121,37 +1241,22 @@ public final class Number {
     private static Number divideBigFloat(Number a, Number b) {
         BigDecimal left  = toBigDecimal(a);
         BigDecimal right = toBigDecimal(b);
-        BigDecimal q = left.divide(right, MathContext.DECIMAL128);
+        BigDecimal q = left.divide(right, context());
         return Number.real(q);
     }
 
 
     private static Number divideRational(Number a, Number b) {
-        // b must not be zero
-        if ((b.type == Type.RATIONAL && b.num == 0) ||
-            (b.type == Type.INT && b.intVal == 0))
-            throw new ArithmeticException("Division by zero");
+        if (isExact(b)) return divideFractions(a, b);
 
-        // Reciprocal: swap numerator and denominator of b
+        // Reciprocal of an inexact b
         Number reciprocal;
         switch (b.type) {
-            case RATIONAL:
-                reciprocal = Number.rational(b.den, b.num);
-                break;
-            case BIGRATIONAL:
-                reciprocal = Number.rational(b.bigDen, b.bigNum);
-                break;
-            case INT:
-                reciprocal = Number.rational(1, b.intVal);
-                break;
-            case BIGINT:
-                reciprocal = Number.rational(BigInteger.ONE, b.bigVal);
-                break;
             case FLOAT:
-                reciprocal = Number.real(1.0 / b.floatVal);
+                reciprocal = Number.real(1.0 / b.floatVal());
                 break;
             case BIGFLOAT:
-                reciprocal = Number.real(BigDecimal.ONE.divide(b.bigFloatVal, MathContext.DECIMAL128));
+                reciprocal = Number.real(BigDecimal.ONE.divide(b.bigFloatVal(), context()));
                 break;
             case COMPLEX:
                 reciprocal = reciprocalComplex(b);
@@ -1165,20 +1270,19 @@ public final class Number {
         return multiplyRational(a, reciprocal);
     }
     private static Number divideBigRational(Number a, Number b){
-        Number reciprocal = Number.rational(b.bigDen,b.bigNum);  
-        return multiplyBigRational(a,reciprocal);
+        return divideFractions(a, b);
     }
 
     private static Number divideComplex(Number a, Number b){
-        Number denominator = add(multiply(b.real,b.real),multiply(b.ipart,b.ipart));
-        Number rnumerator  = add(multiply(a.real,b.real),multiply(a.ipart,b.ipart));
-        Number inumerator  = sub(multiply(a.ipart,b.real),multiply(a.real,b.ipart));        
+        Number denominator = add(multiply(b.realPart(),b.realPart()),multiply(b.ipart(),b.ipart()));
+        Number rnumerator  = add(multiply(a.realPart(),b.realPart()),multiply(a.ipart(),b.ipart()));
+        Number inumerator  = sub(multiply(a.ipart(),b.realPart()),multiply(a.realPart(),b.ipart()));        
         return Number.complex(divide(rnumerator, denominator),divide(inumerator, denominator));
     }
 
     private static Number reciprocalComplex(Number z) { 
-        Number a = z.real;
-        Number b = z.ipart; 
+        Number a = z.realPart();
+        Number b = z.ipart(); 
         Number a2 = multiply(a, a);
         Number b2 = multiply(b, b);
         Number denom = add(a2, b2);
@@ -1193,10 +1297,10 @@ public final class Number {
     }
 
     private static Number reciprocalQuaternion(Number q) {
-        Number ar = (q.real  != null) ? q.real  : Number.integer(0);
-        Number ai = (q.ipart != null) ? q.ipart : Number.integer(0);
-        Number aj = (q.jpart != null) ? q.jpart : Number.integer(0);
-        Number ak = (q.kpart != null) ? q.kpart : Number.integer(0);
+        Number ar = (q.realPart()  != null) ? q.realPart()  : Number.integer(0);
+        Number ai = (q.ipart() != null) ? q.ipart() : Number.integer(0);
+        Number aj = (q.jpart() != null) ? q.jpart() : Number.integer(0);
+        Number ak = (q.kpart() != null) ? q.kpart() : Number.integer(0);
 
         // |q|^2 = ar^2 + ai^2 + aj^2 + ak^2
         Number n2 = add(add(multiply(ar, ar), multiply(ai, ai)),
@@ -1275,7 +1379,7 @@ public final class Number {
         BigDecimal right = toBigDecimal(b);
         if (right.compareTo(BigDecimal.ZERO) == 0)
             throw new ArithmeticException("Modulo by zero");
-        BigDecimal quotient = left.divide(right, MathContext.DECIMAL128);
+        BigDecimal quotient = left.divide(right, context());
         BigDecimal floored = quotient.setScale(0, RoundingMode.FLOOR);
         BigDecimal remainder = left.subtract(right.multiply(floored));
         return Number.real(remainder);
@@ -1284,18 +1388,18 @@ public final class Number {
     private static Number modComplex(Number a, Number b) {
         if (b.type == Type.COMPLEX || b.type == Type.QUATERNION)
             throw new IllegalArgumentException("Modulo divisor for complex values must be scalar");
-        Number realPart = mod(a.real != null ? a.real : ZERO_INT, b);
-        Number imagPart = mod(a.ipart != null ? a.ipart : ZERO_INT, b);
+        Number realPart = mod(a.realPart() != null ? a.realPart() : ZERO_INT, b);
+        Number imagPart = mod(a.ipart() != null ? a.ipart() : ZERO_INT, b);
         return Number.complex(realPart, imagPart);
     }
 
     private static Number modQuaternion(Number a, Number b) {
         if (b.type == Type.COMPLEX || b.type == Type.QUATERNION)
             throw new IllegalArgumentException("Modulo divisor for quaternion values must be scalar");
-        Number realPart = mod(a.real != null ? a.real : ZERO_INT, b);
-        Number ipartPart = mod(a.ipart != null ? a.ipart : ZERO_INT, b);
-        Number jpartPart = mod(a.jpart != null ? a.jpart : ZERO_INT, b);
-        Number kpartPart = mod(a.kpart != null ? a.kpart : ZERO_INT, b);
+        Number realPart = mod(a.realPart() != null ? a.realPart() : ZERO_INT, b);
+        Number ipartPart = mod(a.ipart() != null ? a.ipart() : ZERO_INT, b);
+        Number jpartPart = mod(a.jpart() != null ? a.jpart() : ZERO_INT, b);
+        Number kpartPart = mod(a.kpart() != null ? a.kpart() : ZERO_INT, b);
         return Number.quaternion(realPart, ipartPart, jpartPart, kpartPart);
     }
 
@@ -1313,6 +1417,10 @@ public final class Number {
         if (!isScalar(base))
             throw new IllegalArgumentException("Non-integer exponents are unsupported for type " + base.type);
 
+        if (base.type == Type.BIGFLOAT || exponent.type == Type.BIGFLOAT) {
+            return powBigFloat(toBigDecimal(base), toBigDecimal(exponent));
+        }
+
         double baseValue = toDouble(base);
         double expValue = toDouble(exponent);
         if (!Double.isFinite(baseValue) || !Double.isFinite(expValue))
@@ -1333,6 +1441,23 @@ public final class Number {
         return Number.real(result);
     }
 
+    private static Number powBigFloat(BigDecimal base, BigDecimal exponent) {
+        MathContext mc = context();
+        if (base.signum() == 0) {
+            if (exponent.signum() <= 0)
+                throw new ArithmeticException("Exponentiation result undefined for given operands");
+            return ZERO_BIGFLOAT;
+        }
+        if (base.signum() > 0) {
+            return Number.real(BigMath.pow(base, exponent, mc));
+        }
+        // (-b)^y = b^y (cos(pi y) + i sin(pi y))
+        BigDecimal magnitude = BigMath.pow(base.negate(), exponent, mc);
+        BigDecimal angle = BigMath.pi(mc).multiply(exponent, mc);
+        return Number.complex(Number.real(magnitude.multiply(BigMath.cos(angle, mc), mc)),
+                              Number.real(magnitude.multiply(BigMath.sin(angle, mc), mc)));
+    }
+
     private static Number powInteger(Number base, BigInteger exponent) {
         if (exponent.signum() == 0) {
             return Number.one(base);
@@ -1365,18 +1490,18 @@ public final class Number {
     public static Number complexConjugate(Number z) {
         if (z.type != Type.COMPLEX)
             throw new IllegalArgumentException("complexConjugate expects COMPLEX, got " + z.type);
-        Number realPart = (z.real != null) ? z.real : ZERO_INT;
-        Number imagPart = (z.ipart != null) ? z.ipart : ZERO_INT;
+        Number realPart = (z.realPart() != null) ? z.realPart() : ZERO_INT;
+        Number imagPart = (z.ipart() != null) ? z.ipart() : ZERO_INT;
         return Number.complex(realPart, negate(imagPart));
     }
 
     public static Number quaternionConjugate(Number q) {
         if (q.type != Type.QUATERNION)
             throw new IllegalArgumentException("quaternionConjugate expects QUATERNION, got " + q.type);
-        Number ar = (q.real  != null) ? q.real  : ZERO_INT;
-        Number ai = (q.ipart != null) ? q.ipart : ZERO_INT;
-        Number aj = (q.jpart != null) ? q.jpart : ZERO_INT;
-        Number ak = (q.kpart != null) ? q.kpart : ZERO_INT;
+        Number ar = (q.realPart()  != null) ? q.realPart()  : ZERO_INT;
+        Number ai = (q.ipart() != null) ? q.ipart() : ZERO_INT;
+        Number aj = (q.jpart() != null) ? q.jpart() : ZERO_INT;
+        Number ak = (q.kpart() != null) ? q.kpart() : ZERO_INT;
         return Number.quaternion(ar, negate(ai), negate(aj), negate(ak));
     }
 
@@ -1398,12 +1523,12 @@ public final class Number {
         return switch (n.type) {
             case INT, BIGINT, RATIONAL, BIGRATIONAL -> true;
             case FLOAT, BIGFLOAT -> false;
-            case COMPLEX -> isExactNumber(n.real != null ? n.real : ZERO_INT)
-                          && isExactNumber(n.ipart != null ? n.ipart : ZERO_INT);
-            case QUATERNION -> isExactNumber(n.real != null ? n.real : ZERO_INT)
-                              && isExactNumber(n.ipart != null ? n.ipart : ZERO_INT)
-                              && isExactNumber(n.jpart != null ? n.jpart : ZERO_INT)
-                              && isExactNumber(n.kpart != null ? n.kpart : ZERO_INT);
+            case COMPLEX -> isExactNumber(n.realPart() != null ? n.realPart() : ZERO_INT)
+                          && isExactNumber(n.ipart() != null ? n.ipart() : ZERO_INT);
+            case QUATERNION -> isExactNumber(n.realPart() != null ? n.realPart() : ZERO_INT)
+                              && isExactNumber(n.ipart() != null ? n.ipart() : ZERO_INT)
+                              && isExactNumber(n.jpart() != null ? n.jpart() : ZERO_INT)
+                              && isExactNumber(n.kpart() != null ? n.kpart() : ZERO_INT);
         };
     }
 
@@ -1418,8 +1543,8 @@ public final class Number {
             case BIGFLOAT:
                 return null;
             case COMPLEX: {
-                Number realPart = (n.real != null) ? n.real : ZERO_INT;
-                Number imagPart = (n.ipart != null) ? n.ipart : ZERO_INT;
+                Number realPart = (n.realPart() != null) ? n.realPart() : ZERO_INT;
+                Number imagPart = (n.ipart() != null) ? n.ipart() : ZERO_INT;
                 if (!isExactNumber(realPart) || !isExactNumber(imagPart))
                     return null;
                 Number realSq = multiply(realPart, realPart);
@@ -1427,10 +1552,10 @@ public final class Number {
                 return add(realSq, imagSq);
             }
             case QUATERNION: {
-                Number ar = (n.real != null) ? n.real : ZERO_INT;
-                Number ai = (n.ipart != null) ? n.ipart : ZERO_INT;
-                Number aj = (n.jpart != null) ? n.jpart : ZERO_INT;
-                Number ak = (n.kpart != null) ? n.kpart : ZERO_INT;
+                Number ar = (n.realPart() != null) ? n.realPart() : ZERO_INT;
+                Number ai = (n.ipart() != null) ? n.ipart() : ZERO_INT;
+                Number aj = (n.jpart() != null) ? n.jpart() : ZERO_INT;
+                Number ak = (n.kpart() != null) ? n.kpart() : ZERO_INT;
                 if (!isExactNumber(ar) || !isExactNumber(ai) || !isExactNumber(aj) || !isExactNumber(ak))
                     return null;
                 Number sum = add(multiply(ar, ar), multiply(ai, ai));
@@ -1453,15 +1578,15 @@ public final class Number {
             case BIGFLOAT:
                 return Math.abs(toDouble(n));
             case COMPLEX: {
-                double realPart = toDouble(n.real != null ? n.real : ZERO_INT);
-                double imagPart = toDouble(n.ipart != null ? n.ipart : ZERO_INT);
+                double realPart = toDouble(n.realPart() != null ? n.realPart() : ZERO_INT);
+                double imagPart = toDouble(n.ipart() != null ? n.ipart() : ZERO_INT);
                 return Math.hypot(realPart, imagPart);
             }
             case QUATERNION: {
-                double realPart = toDouble(n.real != null ? n.real : ZERO_INT);
-                double iPart    = toDouble(n.ipart != null ? n.ipart : ZERO_INT);
-                double jPart    = toDouble(n.jpart != null ? n.jpart : ZERO_INT);
-                double kPart    = toDouble(n.kpart != null ? n.kpart : ZERO_INT);
+                double realPart = toDouble(n.realPart() != null ? n.realPart() : ZERO_INT);
+                double iPart    = toDouble(n.ipart() != null ? n.ipart() : ZERO_INT);
+                double jPart    = toDouble(n.jpart() != null ? n.jpart() : ZERO_INT);
+                double kPart    = toDouble(n.kpart() != null ? n.kpart() : ZERO_INT);
                 double sumSq = realPart * realPart + iPart * iPart + jPart * jPart + kPart * kPart;
                 return Math.sqrt(sumSq);
             }
@@ -1532,19 +1657,19 @@ public final class Number {
     public static Number toInexact(Number n) {
         return switch (n.type) {
             case FLOAT -> n;
-            case BIGFLOAT -> Number.real(n.bigFloatVal.doubleValue());
+            case BIGFLOAT -> Number.real(n.bigFloatVal().doubleValue());
             case INT, RATIONAL -> Number.real(toDouble(n));
             case BIGINT, BIGRATIONAL -> Number.real(toDouble(n));
             case COMPLEX -> {
-                Number realPart = toInexact(n.real != null ? n.real : ZERO_INT);
-                Number imagPart = toInexact(n.ipart != null ? n.ipart : ZERO_INT);
+                Number realPart = toInexact(n.realPart() != null ? n.realPart() : ZERO_INT);
+                Number imagPart = toInexact(n.ipart() != null ? n.ipart() : ZERO_INT);
                 yield Number.complex(realPart, imagPart);
             }
             case QUATERNION -> {
-                Number realPart = toInexact(n.real != null ? n.real : ZERO_INT);
-                Number iPart = toInexact(n.ipart != null ? n.ipart : ZERO_INT);
-                Number jPart = toInexact(n.jpart != null ? n.jpart : ZERO_INT);
-                Number kPart = toInexact(n.kpart != null ? n.kpart : ZERO_INT);
+                Number realPart = toInexact(n.realPart() != null ? n.realPart() : ZERO_INT);
+                Number iPart = toInexact(n.ipart() != null ? n.ipart() : ZERO_INT);
+                Number jPart = toInexact(n.jpart() != null ? n.jpart() : ZERO_INT);
+                Number kPart = toInexact(n.kpart() != null ? n.kpart() : ZERO_INT);
                 yield Number.quaternion(realPart, iPart, jPart, kPart);
             }
         };
@@ -1553,52 +1678,220 @@ public final class Number {
     public static Number toInexactBig(Number n) {
         return switch (n.type) {
             case BIGFLOAT -> n;
-            case FLOAT -> Number.real(BigDecimal.valueOf(n.floatVal));
-            case INT -> Number.real(BigDecimal.valueOf(n.intVal));
-            case BIGINT -> Number.real(new BigDecimal(n.bigVal));
+            case FLOAT -> Number.real(BigDecimal.valueOf(n.floatVal()));
+            case INT -> Number.real(BigDecimal.valueOf(n.intVal()));
+            case BIGINT -> Number.real(new BigDecimal(n.bigVal()));
             case RATIONAL -> {
-                BigDecimal value = BigDecimal.valueOf(n.num)
-                        .divide(BigDecimal.valueOf(n.den), MathContext.DECIMAL128);
+                BigDecimal value = BigDecimal.valueOf(n.num())
+                        .divide(BigDecimal.valueOf(n.den()), context());
                 yield Number.real(value);
             }
             case BIGRATIONAL -> {
-                BigDecimal value = new BigDecimal(n.bigNum)
-                        .divide(new BigDecimal(n.bigDen), MathContext.DECIMAL128);
+                BigDecimal value = new BigDecimal(n.bigNum())
+                        .divide(new BigDecimal(n.bigDen()), context());
                 yield Number.real(value);
             }
             case COMPLEX -> {
-                Number realPart = toInexactBig(n.real != null ? n.real : ZERO_INT);
-                Number imagPart = toInexactBig(n.ipart != null ? n.ipart : ZERO_INT);
+                Number realPart = toInexactBig(n.realPart() != null ? n.realPart() : ZERO_INT);
+                Number imagPart = toInexactBig(n.ipart() != null ? n.ipart() : ZERO_INT);
                 yield Number.complex(realPart, imagPart);
             }
             case QUATERNION -> {
-                Number realPart = toInexactBig(n.real != null ? n.real : ZERO_INT);
-                Number iPart = toInexactBig(n.ipart != null ? n.ipart : ZERO_INT);
-                Number jPart = toInexactBig(n.jpart != null ? n.jpart : ZERO_INT);
-                Number kPart = toInexactBig(n.kpart != null ? n.kpart : ZERO_INT);
+                Number realPart = toInexactBig(n.realPart() != null ? n.realPart() : ZERO_INT);
+                Number iPart = toInexactBig(n.ipart() != null ? n.ipart() : ZERO_INT);
+                Number jPart = toInexactBig(n.jpart() != null ? n.jpart() : ZERO_INT);
+                Number kPart = toInexactBig(n.kpart() != null ? n.kpart() : ZERO_INT);
                 yield Number.quaternion(realPart, iPart, jPart, kPart);
             }
         };
     }
 
-    @Override
-    public String toString() {
-        return switch (type) {
-            case INT          -> Long.toString(intVal);
-            case BIGINT       -> bigVal.toString();
-            case FLOAT        -> Double.toString(floatVal);
-            case BIGFLOAT     -> bigFloatVal.toPlainString();
-            case RATIONAL     -> (den == 1) ? Long.toString(num) : num + "/" + den;
-            case BIGRATIONAL  -> (bigDen.equals(BigInteger.ONE))
-                                    ? bigNum.toString()
-                                    : "(" + bigNum + "/" + bigDen + ")";
-            case COMPLEX      -> formatComplex(this);
-            case QUATERNION   -> formatQuaternion(this);
-        };
+    //------ Elementary functions -------
+    // A BIGFLOAT argument is computed to the current precision; any other goes through double.
+
+    public static Number sqrt(Number x) {
+        requireScalar("sqrt", x);
+        if (isNegative(x)) {
+            return Number.complex(ZERO_INT, sqrt(negate(x)));
+        }
+        if (x.type == Type.INT || x.type == Type.BIGINT) {
+            BigInteger n = x.type == Type.INT ? BigInteger.valueOf(x.intVal()) : x.bigVal();
+            BigInteger root = n.sqrt();
+            if (root.multiply(root).equals(n)) {
+                return root.bitLength() < 64 ? Number.integer(root.longValue()) : Number.integer(root);
+            }
+        }
+        if (x.type == Type.BIGFLOAT) {
+            return Number.real(BigMath.sqrt(x.bigFloatVal(), context()));
+        }
+        return Number.real(Math.sqrt(toDouble(x)));
     }
 
+    public static Number exp(Number x) {
+        requireScalar("exp", x);
+        if (x.type == Type.BIGFLOAT) {
+            return Number.real(BigMath.exp(x.bigFloatVal(), context()));
+        }
+        double result = Math.exp(toDouble(x));
+        if (!Double.isFinite(result))
+            throw new ArithmeticException("exp out of range: " + x);
+        return Number.real(result);
+    }
 
+    // Natural logarithm; that of a negative number is complex, log|x| + pi i.
+    public static Number log(Number x) {
+        requireScalar("log", x);
+        if (isZero(x))
+            throw new ArithmeticException("log of zero");
+        boolean negative = isNegative(x);
+        Number magnitude = negative ? negate(x) : x;
+        if (x.type == Type.BIGFLOAT) {
+            MathContext mc = context();
+            Number real = Number.real(BigMath.log(magnitude.bigFloatVal(), mc));
+            return negative ? Number.complex(real, Number.real(BigMath.pi(mc))) : real;
+        }
+        Number real = Number.real(Math.log(toDouble(magnitude)));
+        return negative ? Number.complex(real, Number.real(Math.PI)) : real;
+    }
 
+    public static Number sin(Number x) {
+        if (x.type == Type.BIGFLOAT) {
+            return Number.real(BigMath.sin(x.bigFloatVal(), context()));
+        }
+        return Number.real(Math.sin(toInexact(x).floatVal()));
+    }
+
+    public static Number cos(Number x) {
+        if (x.type == Type.BIGFLOAT) {
+            return Number.real(BigMath.cos(x.bigFloatVal(), context()));
+        }
+        return Number.real(Math.cos(toInexact(x).floatVal()));
+    }
+
+    public static Number tan(Number x) {
+        if (x.type == Type.BIGFLOAT) {
+            MathContext mc = context();
+            MathContext wider = new MathContext(mc.getPrecision() + 5, mc.getRoundingMode());
+            BigDecimal cos = BigMath.cos(x.bigFloatVal(), wider);
+            if (cos.signum() == 0)
+                throw new ArithmeticException("tan undefined at " + x);
+            return Number.real(BigMath.sin(x.bigFloatVal(), wider).divide(cos, mc));
+        }
+        return Number.real(Math.tan(toInexact(x).floatVal()));
+    }
+
+    public static Number asin(Number x) {
+        if (x.type == Type.BIGFLOAT) {
+            return Number.real(asinBig(x.bigFloatVal(), context()));
+        }
+        return Number.real(Math.asin(toInexact(x).floatVal()));
+    }
+
+    public static Number acos(Number x) {
+        if (x.type == Type.BIGFLOAT) {
+            MathContext mc = context();
+            MathContext wider = new MathContext(mc.getPrecision() + 5, mc.getRoundingMode());
+            BigDecimal halfPi = BigMath.pi(wider).divide(BigDecimal.valueOf(2), wider);
+            return Number.real(halfPi.subtract(asinBig(x.bigFloatVal(), wider), mc));
+        }
+        return Number.real(Math.acos(toInexact(x).floatVal()));
+    }
+
+    public static Number atan(Number x) {
+        if (x.type == Type.BIGFLOAT) {
+            return Number.real(BigMath.atan(x.bigFloatVal(), context()));
+        }
+        return Number.real(Math.atan(toInexact(x).floatVal()));
+    }
+
+    // asin x = atan(x / sqrt(1 - x^2)), for |x| <= 1.
+    private static BigDecimal asinBig(BigDecimal x, MathContext mc) {
+        int c = x.abs().compareTo(BigDecimal.ONE);
+        if (c > 0)
+            throw new ArithmeticException("asin out of domain: " + x);
+        if (c == 0) {
+            BigDecimal halfPi = BigMath.pi(mc).divide(BigDecimal.valueOf(2), mc);
+            return x.signum() < 0 ? halfPi.negate() : halfPi;
+        }
+        MathContext wider = new MathContext(mc.getPrecision() + 5, mc.getRoundingMode());
+        BigDecimal cos = BigDecimal.ONE.subtract(x.multiply(x, wider), wider).sqrt(wider);
+        return BigMath.atan(x.divide(cos, wider), mc);
+    }
 
+    private static void requireScalar(String name, Number x) {
+        if (!isScalar(x))
+            throw new IllegalArgumentException(name + " expects a real number, got " + x.type);
+    }
+
+    // ---- Kinds ----
+
+    static final class Fixnum extends Number {
+        private final long intVal;
+        Fixnum(long intVal) { super(Type.INT); this.intVal = intVal; }
+        @Override public long intVal() { return intVal; }
+        @Override public String toString() { return Long.toString(intVal); }
+    }
+
+    static final class Bignum extends Number {
+        private final BigInteger bigVal;
+        Bignum(BigInteger bigVal) { super(Type.BIGINT); this.bigVal = bigVal; }
+        @Override public BigInteger bigVal() { return bigVal; }
+        @Override public String toString() { return bigVal.toString(); }
+    }
+
+    static final class Flonum extends Number {
+        private final double floatVal;
+        Flonum(double floatVal) { super(Type.FLOAT); this.floatVal = floatVal; }
+        @Override public double floatVal() { return floatVal; }
+        @Override public String toString() { return Double.toString(floatVal); }
+    }
+
+    static final class Bigfloat extends Number {
+        private final BigDecimal bigFloatVal;
+        Bigfloat(BigDecimal bigFloatVal) { super(Type.BIGFLOAT); this.bigFloatVal = bigFloatVal; }
+        @Override public BigDecimal bigFloatVal() { return bigFloatVal; }
+        @Override public String toString() { return bigFloatVal.toPlainString(); }
+    }
 
+    static final class Ratnum extends Number {
+        private final long num, den;
+        Ratnum(long num, long den) { super(Type.RATIONAL); this.num = num; this.den = den; }
+        @Override public long num() { return num; }
+        @Override public long den() { return den; }
+        @Override public String toString() { return (den == 1) ? Long.toString(num) : num + "/" + den; }
+    }
+
+    static final class BigRatnum extends Number {
+        private final BigInteger bigNum, bigDen;
+        BigRatnum(BigInteger bigNum, BigInteger bigDen) { super(Type.BIGRATIONAL); this.bigNum = bigNum; this.bigDen = bigDen; }
+        @Override public BigInteger bigNum() { return bigNum; }
+        @Override public BigInteger bigDen() { return bigDen; }
+        @Override public String toString() {
+            return bigDen.equals(BigInteger.ONE) ? bigNum.toString() : "(" + bigNum + "/" + bigDen + ")";
+        }
+    }
+
+    static final class Complex extends Number {
+        private final Number real, ipart;
+        Complex(Number real, Number ipart) { super(Type.COMPLEX); this.real = real; this.ipart = ipart; }
+        @Override public Number realPart() { return real; }
+        @Override public Number ipart() { return ipart; }
+        @Override public String toString() { return formatComplex(this); }
+    }
+
+    static final class Quaternion extends Number {
+        private final Number real, ipart, jpart, kpart;
+        Quaternion(Number real, Number ipart, Number jpart, Number kpart) {
+            super(Type.QUATERNION);
+            this.real = real;
+            this.ipart = ipart;
+            this.jpart = jpart;
+            this.kpart = kpart;
+        }
+        @Override public Number realPart() { return real; }
+        @Override public Number ipart() { return ipart; }
+        @Override public Number jpart() { return jpart; }
+        @Override public Number kpart() { return kpart; }
+        @Override public String toString() { return formatQuaternion(this); }
+    }
 }
@@ -18,7 +18,7 @@ public class ParenCounter{
         Stack toks = new Stack<Token>();
 
         Token current = lexer.getNextToken();
-        while (!current.type().equals("EOF")){
+        while (current.type() != TokenType.EOF){
             toks.push(current);
             current = lexer.getNextToken();
         }
@@ -27,10 +27,9 @@ public class ParenCounter{
         current = (Token) toks.peek();
         int mismatch = 0;
         do {
-            String type = (String) current.type();
-            switch (type){
-                case "LPAREN": mismatch--; break;
-                case "RPAREN": mismatch++; break;
+            switch (current.type()){
+                case LPAREN: mismatch--; break;
+                case RPAREN: mismatch++; break;
                 default: break;
             }
             Token discard = (Token) toks.pop();
@@ -50,10 +49,9 @@ public class ParenCounter{
         ArrayList<Token> norm = new ArrayList<>();
         for (int i = 0; i < ret.size(); i++){
             Token t = ret.get(i);
-            String type = (String) t.type();
-            if ("LPAREN".equals(type) && i + 1 < ret.size()){
-                String next = (String) ret.get(i + 1).type();
-                if ("LET".equals(next) || "LETS".equals(next) || "COND".equals(next)) {
+            if (t.type() == TokenType.LPAREN && i + 1 < ret.size()){
+                TokenType next = ret.get(i + 1).type();
+                if (next == TokenType.LET || next == TokenType.LETS || next == TokenType.COND) {
                     // skip this LPAREN; the special form token stands in for the list head
                     continue;
                 }
@@ -72,22 +70,21 @@ public class ParenCounter{
         boolean namedlet = false;
       
         if (openToks.size() >2) {
-            namedlet = openToks.get(openToks.size()-1).type().equals("LPAREN") && openToks.get(openToks.size()-2).type().equals("SYMBOL") && openToks.get(openToks.size()-3).type().equals("LET"); 
+            namedlet = openToks.get(openToks.size()-1).type() == TokenType.LPAREN && openToks.get(openToks.size()-2).type() == TokenType.SYMBOL && openToks.get(openToks.size()-3).type() == TokenType.LET; 
             
         }
         else if (openToks.size() >1) {
-            let = openToks.get(openToks.size()-1).type().equals("LPAREN") && openToks.get(openToks.size()-2).type().equals("LET");
-            lets = openToks.get(openToks.size()-1).type().equals("LPAREN") && openToks.get(openToks.size()-2).type().equals("LETS");
+            let = openToks.get(openToks.size()-1).type() == TokenType.LPAREN && openToks.get(openToks.size()-2).type() == TokenType.LET;
+            lets = openToks.get(openToks.size()-1).type() == TokenType.LPAREN && openToks.get(openToks.size()-2).type() == TokenType.LETS;
         } 
         for (int i = 0; i < openToks.size(); i++){
-            String type = (String) openToks.get(i).type();
-            switch (type){
-                case "LPAREN":
-                case "RPAREN":
+            switch (openToks.get(i).type()){
+                case LPAREN:
+                case RPAREN:
                     ret++;
                     break;
 
-                case "LET":
+                case LET:
                     // outermost LET: align just after the '(' that starts the form
                     if (let) {
                         ret+=5;
@@ -98,7 +95,7 @@ public class ParenCounter{
                     }
                     break;
 
-                case "LETS":
+                case LETS:
                     if (lets) { 
                         ret+=6;
                         lets = false;
@@ -108,11 +105,11 @@ public class ParenCounter{
                     }// "lets "
                     break;
 
-                case "COND":
+                case COND:
                     ret += 6; // "cond "
                     break;
 
-                case "SYMBOL":
+                case SYMBOL:
                     if (namedlet ) {
                         ret += ((String) openToks.get(i).value()).length() + 4;
                         namedlet = false;
@@ -120,7 +117,7 @@ public class ParenCounter{
                     }
                     break;
 
-                case "NUMBER":
+                case NUMBER:
                     ret += openToks.get(i).value().toString().length();
                     break;
 
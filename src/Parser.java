@@ -1,8 +1,7 @@
+import java.io.Reader;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 /*
@@ -11,44 +10,47 @@ the abstract syntax tree using our Node class. It uses a recursive descent algor
  */
 public class Parser {
     Lexer lexer;
-    Token eof = new Token("EOF", "EOF");
-    List keywords = Arrays.asList(
-            "COND", "QUOTE", "LAMBDA", "UNQUOTE",
-            "DEFINE", "QQUOTE", "UNQUOTESPLICE",
-            "LIST", "DO", "LET", "LETS", "LETR");
+    // Structural tokens carry no source position, so all nodes of one kind share a token.
+    private static final Token<String> LIST = new Token<>(TokenType.LIST, "");
+    private static final Token<String> QUOTE = new Token<>(TokenType.QUOTE, "");
+    private static final Token<String> QQUOTE = new Token<>(TokenType.QQUOTE, "");
+    private static final Token<String> UNQUOTE = new Token<>(TokenType.UNQUOTE, "");
+    private static final Token<String> UNQUOTESPLICE = new Token<>(TokenType.UNQUOTESPLICE, "");
+    private static final Token<String> LET_NAMED = new Token<>(TokenType.LET_NAMED, "");
+    private static final Token<String> APPLY = new Token<>(TokenType.APPLY, "");
+    private static final Token<String> CALL0 = new Token<>(TokenType.CALL0, "");
+    private static final Token<String> EOF = new Token<>(TokenType.EOF, "EOF");
+    private static final Token<Object> PARAMS = new Token<>(TokenType.PARAMS, null);
+    private static final Token<Object> CLAUSE = new Token<>(TokenType.CLAUSE, null);
+    private static final Token<Object> BINDINGS = new Token<>(TokenType.BINDINGS, null);
+    private static final Token<Object> BINDING = new Token<>(TokenType.BINDING, null);
     boolean quoting = false;
     public Parser(String src) {
         this.lexer = new Lexer(src);
     }
+    public Parser(Reader in) {
+        this.lexer = new Lexer(in);
+    }
     // Parses a raw datum (used inside quoted expressions).
 
     private Node<Token> parseDatum() {
         Token tok = normalizeNumberToken(lexer.getNextToken());
 
-        // 'datum at datum level: produce a QUOTE node
-        if (tok.type().equals("QUOTE")) {
-            return parseQuoted();
-        }
-
-        if (tok.type().equals("QQUOTE")){
-            return parseQQuoted();
-        }
-
-        if (tok.type().equals("UNQUOTE")) {
-            return parseUnquote();
-        }
-
-        if (tok.type().equals("UNQUOTESPLICE")) {
-            return parseUnquoteSplicing();
+        switch (tok.type()) {
+            // 'datum at datum level: produce a QUOTE node
+            case QUOTE:         return parseQuoted();
+            case QQUOTE:        return parseQQuoted();
+            case UNQUOTE:       return parseUnquote();
+            case UNQUOTESPLICE: return parseUnquoteSplicing();
+            default:            break;
         }
 
-
-        if (tok.type().equals("LPAREN")) {
-            Node<Token> listNode = new Node<>(new Token("LIST",""));
+        if (tok.type() == TokenType.LPAREN) {
+            Node<Token> listNode = new Node<>(LIST);
 
             // Empty list?
             Token look = lexer.peekNextToken();
-            if (look.type().equals("RPAREN")) {
+            if (look.type() == TokenType.RPAREN) {
                 normalizeNumberToken(lexer.getNextToken()); // consume ')'
                 return listNode;
             }
@@ -58,7 +60,7 @@ public class Parser {
                 listNode.addChild(parseDatum());  // ← one *datum* per element, no raw-token children
 
                 Token next = lexer.peekNextToken();
-                if (next.type().equals("RPAREN")) {
+                if (next.type() == TokenType.RPAREN) {
                     normalizeNumberToken(lexer.getNextToken()); // consume ')'
                     break;
                 }
@@ -75,25 +77,25 @@ public class Parser {
     }
 
     private Node<Token> parseUnquote() {
-        Node<Token> n = new Node<>(new Token("UNQUOTE",""));
-        n.addChild(this.parse());
+        Node<Token> n = new Node<>(UNQUOTE);
+        n.addChild(parseForm());
         return n;
     }
 
     private Node<Token> parseUnquoteSplicing() {
-        Node<Token> n = new Node<>(new Token("UNQUOTESPLICE",""));
-        n.addChild(this.parse());
+        Node<Token> n = new Node<>(UNQUOTESPLICE);
+        n.addChild(parseForm());
         return n;
     }
 
     private Node<Token> parseQQuoted() {
         int depth = 1;
-        while (lexer.peekNextToken().type().equals("QQUOTE")) {
+        while (lexer.peekNextToken().type() == TokenType.QQUOTE) {
             normalizeNumberToken(lexer.getNextToken()); // consume extra `
             depth++;
         }
 
-        if (lexer.peekNextToken().type().equals("EOF")) {
+        if (lexer.peekNextToken().type() == TokenType.EOF) {
             throw new SyntaxException("Unexpected EOF while parsing quasiquote");
         }
 
@@ -102,7 +104,7 @@ public class Parser {
 
         // Wrap depth times with QQUOTE
         for (int i = 0; i < depth; i++) {
-            Node<Token> q = new Node<>(new Token<>("QQUOTE", ""));
+            Node<Token> q = new Node<>(QQUOTE);
             q.addChild(inner);
             inner = q;
         }
@@ -112,12 +114,12 @@ public class Parser {
     // Handles quote shorthand: 'x, ''x, '''x, etc. 
     private Node<Token> parseQuoted() {
         int depth = 1;
-        while (lexer.peekNextToken().type().equals("QUOTE")) {
+        while (lexer.peekNextToken().type() == TokenType.QUOTE) {
             normalizeNumberToken(lexer.getNextToken()); // consume extra '
             depth++;
         }
 
-        if (lexer.peekNextToken().type().equals("EOF")) {
+        if (lexer.peekNextToken().type() == TokenType.EOF) {
             throw new SyntaxException("Unexpected EOF while parsing quote");
         }
 
@@ -126,7 +128,7 @@ public class Parser {
 
         // Wrap depth times with QUOTE
         for (int i = 0; i < depth; i++) {
-            Node<Token> q = new Node<>(new Token<>("QUOTE", ""));
+            Node<Token> q = new Node<>(QUOTE);
             q.addChild(inner);
             inner = q;
         }
@@ -388,74 +390,72 @@ public class Parser {
     }
     @SuppressWarnings({"rawtypes", "unchecked"})
     private Token normalizeNumberToken(Token tok) {
-        if (tok != null && "NUMBER".equals(tok.type()) && tok.value() instanceof String s) {
-            return new Token("NUMBER", parseNumber(s), tok.line(), tok.column());
+        if (tok != null && tok.type() == TokenType.NUMBER && tok.value() instanceof String s) {
+            return new Token<>(TokenType.NUMBER, parseNumber(s), tok.position());
         }
         return tok;
     }
 
-    private Token copyToken(Token tok) {
-        return new Token(tok.type(), tok.value(), tok.line(), tok.column());
-    }
-
-    private Token tokenWithType(Token tok, String type, Object value) {
-        return new Token(type, value, tok.line(), tok.column());
-    }
 
     
+    // Parses the next top-level form; its child arrays are trimmed once the whole form is read.
     public Node<Token> parse() {
+        return parseForm().compact();
+    }
+
+    private Node<Token> parseForm() {
         //Get the first token for this recursive call
         Token current = normalizeNumberToken(lexer.getNextToken());
         //add an EOF token to the tree, will end the parsing operation
-        if (current.type().equals("EOF")) {
-            return new Node<>(new Token<>("EOF","EOF"));
+        if (current.type() == TokenType.EOF) {
+            return new Node<>(EOF);
         }
-        if (current.type().equals("NUMBER")){
+        if (current.type() == TokenType.NUMBER){
             return new Node<>(current);
         }
         // atoms: numbers, booleans, strings, symbols
-        if (current.type().equals("BOOLEAN") || current.type().equals("STRING") || current.type().equals("SYMBOL")) {
-            return new Node<>(copyToken(current));
+        if (current.type() == TokenType.BOOLEAN || current.type() == TokenType.STRING || current.type() == TokenType.SYMBOL) {
+            return new Node<>(current);
         }
         // ---------- shorthand quote handling ----------
-        else if (current.type().equals("QUOTE")) {
-            Node<Token> node = new Node<>(tokenWithType(current, "QUOTE", ""));
+        else if (current.type() == TokenType.QUOTE) {
+            Node<Token> node = new Node<>(current);
             node.addChild(parseDatum());   // parse raw datum
             return node;
         }
-        else if (current.type().equals("QQUOTE")) {
-            Node<Token> node = new Node<>(tokenWithType(current, "QQUOTE", ""));
+        else if (current.type() == TokenType.QQUOTE) {
+            Node<Token> node = new Node<>(current);
             node.addChild(parseDatum());
             return node;
         }
         // ---------- list / s-expression ----------
-        else if (current.type().equals("LPAREN")) {
+        else if (current.type() == TokenType.LPAREN) {
             current = normalizeNumberToken(lexer.getNextToken());
 
-            if (current.type().equals("EOF")) {
+            if (current.type() == TokenType.EOF) {
                 throw new SyntaxException("Unexpected EOF encountered: '(' not matched with ')'");
             }
-            if (current.type().equals("RPAREN")) {
-                return new Node<>(new Token("LIST", ""));
+            if (current.type() == TokenType.RPAREN) {
+                return new Node<>(LIST);
             }
             // Case 1: operator is a keyword (lambda, define, etc.)
-            if (keywords.contains(current.type())) {
+            if (current.type().keyword) {
                 Node<Token> node = new Node<>(current);
                 current = normalizeNumberToken(lexer.getNextToken());
                 // ---------- lambda special form ----------
-                if (node.getValue().type().equals("LAMBDA")) {
-                    if (!current.type().equals("LPAREN")) {
+                if (node.getValue().type() == TokenType.LAMBDA) {
+                    if (current.type() != TokenType.LPAREN) {
                         throw new SyntaxException("Lambda must be followed by a parameter list in parentheses");
                     }                    
                     // Parse parameter list (possibly empty)
-                    Node<Token> paramList = new Node<>(new Token("PARAMS", null));
+                    Node<Token> paramList = new Node<>(PARAMS);
                     current = normalizeNumberToken(lexer.getNextToken());
-                    if (current.type().equals("RPAREN")) {
+                    if (current.type() == TokenType.RPAREN) {
                         // No parameters at all — fine
                         node.addChild(paramList);
                     } else {
-                        while (!current.type().equals("RPAREN")) {
-                            if (!current.type().equals("SYMBOL")) {
+                        while (current.type() != TokenType.RPAREN) {
+                            if (current.type() != TokenType.SYMBOL) {
                                 throw new SyntaxException("Parameter list must contain only symbols, found: " + current);
                             }
                             paramList.createChild(current);
@@ -464,64 +464,64 @@ public class Parser {
                         node.addChild(paramList);
                     }                    
                     // Parse body expression
-                    node.addChild(this.parse());
+                    node.addChild(parseForm());
                     // NEW: consume the closing ')' of the (lambda …) form
                     Token closer = normalizeNumberToken(lexer.getNextToken());
-                    if (!closer.type().equals("RPAREN")) {
+                    if (closer.type() != TokenType.RPAREN) {
                         throw new SyntaxException("Lambda must end with ')', found: " + closer);
                     }
                     return node;
                 }
-                if (node.getValue().type().equals("QQUOTE")) {
-                    if (current.type().equals("LPAREN")) {
-                        lexer.backUp();
+                if (node.getValue().type() == TokenType.QQUOTE) {
+                    if (current.type() == TokenType.LPAREN) {
+                        lexer.pushBack(current);
                         Node<Token> datum = parseDatum();
-                        Token<?, ?> maybeCloser = lexer.peekNextToken();
-                        if (maybeCloser.type().equals("RPAREN")) {
+                        Token<?> maybeCloser = lexer.peekNextToken();
+                        if (maybeCloser.type() == TokenType.RPAREN) {
                             normalizeNumberToken(lexer.getNextToken());
-                        } else if (!maybeCloser.type().equals("EOF")) {
+                        } else if (maybeCloser.type() != TokenType.EOF) {
                             throw new SyntaxException("quasi-quote: expected ')' to close (quasi-quote ...), found: " + maybeCloser);
                         }
                         node.addChild(datum);
                         return node;
                     }
 
-                    if (current.type().equals("QQUOTE")) {
+                    if (current.type() == TokenType.QQUOTE) {
                         node.addChild(parseQQuoted());
-                        Token<?, ?> outerClose = lexer.peekNextToken();
-                        if (outerClose.type().equals("RPAREN")) {
+                        Token<?> outerClose = lexer.peekNextToken();
+                        if (outerClose.type() == TokenType.RPAREN) {
                             normalizeNumberToken(lexer.getNextToken());
-                        } else if (!outerClose.type().equals("EOF")) {
+                        } else if (outerClose.type() != TokenType.EOF) {
                             throw new SyntaxException("quasi-quote: expected ')' to close (quasi-quote ...), found: " + outerClose);
                         }
                         return node;
                     }
 
                     node.createChild(current);
-                    Token<?, ?> outerClose = lexer.peekNextToken();
-                    if (outerClose.type().equals("RPAREN")) {
+                    Token<?> outerClose = lexer.peekNextToken();
+                    if (outerClose.type() == TokenType.RPAREN) {
                         normalizeNumberToken(lexer.getNextToken());
-                    } else if (!outerClose.type().equals("EOF")) {
+                    } else if (outerClose.type() != TokenType.EOF) {
                         throw new SyntaxException("quasi-quote: expected ')' to close (quasi-quote ...), found: " + outerClose);
                     }
                     return node;
                 }
 
                 // ---------- quote special form ----------
-                if (node.getValue().type().equals("QUOTE")) {
+                if (node.getValue().type() == TokenType.QUOTE) {
                     // 'current' is already the first token after QUOTE
-                    if (current.type().equals("LPAREN")) {
+                    if (current.type() == TokenType.LPAREN) {
                         //empty list handling 
                             
-                        lexer.backUp();
+                        lexer.pushBack(current);
                         // Parse the quoted datum — may be (), (x), or nested structures
                         Node<Token> datum = parseDatum();
 
                         // Peek to see if there's a closing ')' for the (quote …)
-                        Token<?, ?> maybeCloser = lexer.peekNextToken();
-                        if (maybeCloser.type().equals("RPAREN")) {
+                        Token<?> maybeCloser = lexer.peekNextToken();
+                        if (maybeCloser.type() == TokenType.RPAREN) {
                             normalizeNumberToken(lexer.getNextToken()); // consume it normally
-                        } else if (!maybeCloser.type().equals("EOF")) {
+                        } else if (maybeCloser.type() != TokenType.EOF) {
                             throw new SyntaxException("quote: expected ')' to close (quote ...), found: " + maybeCloser);
                         }
 
@@ -530,12 +530,12 @@ public class Parser {
                     }
 
                     // If the datum starts with a shorthand quote again: (quote 'x), (quote ''x), …
-                    if (current.type().equals("QUOTE")) {
+                    if (current.type() == TokenType.QUOTE) {
                         node.addChild(parseQuoted());
-                        Token<?, ?> outerClose = lexer.peekNextToken();
-                        if (outerClose.type().equals("RPAREN")) {
+                        Token<?> outerClose = lexer.peekNextToken();
+                        if (outerClose.type() == TokenType.RPAREN) {
                             normalizeNumberToken(lexer.getNextToken());
-                        } else if (!outerClose.type().equals("EOF")) {
+                        } else if (outerClose.type() != TokenType.EOF) {
                             throw new SyntaxException("quote: expected ')' to close (quote ...), found: " + outerClose);
                         }
                         return node;
@@ -543,30 +543,30 @@ public class Parser {
 
                     // Atom after QUOTE (symbol/number/string/boolean)
                     node.createChild(current);
-                    Token<?, ?> outerClose = lexer.peekNextToken();
-                    if (outerClose.type().equals("RPAREN")) {
+                    Token<?> outerClose = lexer.peekNextToken();
+                    if (outerClose.type() == TokenType.RPAREN) {
                         normalizeNumberToken(lexer.getNextToken());
-                    } else if (!outerClose.type().equals("EOF")) {
+                    } else if (outerClose.type() != TokenType.EOF) {
                         throw new SyntaxException("quote: expected ')' to close (quote ...), found: " + outerClose);
                     }
                     return node;
                 }
                 // ---------- cond special form ----------
-                if (node.getValue().type().equals("COND")) {                    
+                if (node.getValue().type() == TokenType.COND) {                    
                     // Parse each clause until the closing RPAREN of cond
-                    while (!current.type().equals("RPAREN")) {
-                        if (!current.type().equals("LPAREN")) {
+                    while (current.type() != TokenType.RPAREN) {
+                        if (current.type() != TokenType.LPAREN) {
                             throw new SyntaxException("cond clauses must be lists, found: " + current);
                         }
                         // Enter clause list
                         current = normalizeNumberToken(lexer.getNextToken());
-                        Node<Token> clause = new Node<>(new Token("CLAUSE", null));
+                        Node<Token> clause = new Node<>(CLAUSE);
                         // Parse predicate (allow any expression, including literals like #f or 1)
-                        if (current.type().equals("LPAREN")) {
-                            lexer.backUp();
-                            clause.addChild(this.parse());
+                        if (current.type() == TokenType.LPAREN) {
+                            lexer.pushBack(current);
+                            clause.addChild(parseForm());
                             current = normalizeNumberToken(lexer.getNextToken());
-                        } else if (current.type().equals("QUOTE")) {
+                        } else if (current.type() == TokenType.QUOTE) {
                             clause.addChild(parseQuoted());
                             current = normalizeNumberToken(lexer.getNextToken());
                         } else {
@@ -575,17 +575,13 @@ public class Parser {
                             current = normalizeNumberToken(lexer.getNextToken());
                         }
 
-                        // Advance if any trailing whitespace or comments before body
-                        while (current.type().equals("WHITESPACE") || current.type().equals("COMMENT")) {
-                            current = normalizeNumberToken(lexer.getNextToken());
-                        }                                            
                         // Parse body expressions until RPAREN
-                        while (!current.type().equals("RPAREN")) {
-                            if (current.type().equals("LPAREN")) {
-                                lexer.backUp();
-                                clause.addChild(this.parse());
+                        while (current.type() != TokenType.RPAREN) {
+                            if (current.type() == TokenType.LPAREN) {
+                                lexer.pushBack(current);
+                                clause.addChild(parseForm());
                                 current = normalizeNumberToken(lexer.getNextToken());
-                            } else if (current.type().equals("QUOTE")) {
+                            } else if (current.type() == TokenType.QUOTE) {
                                 clause.addChild(parseQuoted());   // handle 'datum (e.g., '())
                                 current = normalizeNumberToken(lexer.getNextToken());
                             } else {
@@ -602,18 +598,18 @@ public class Parser {
                   return node; 
                 }
                 // ---------- do block form -------- 
-                if (node.getValue().type().equals("DO")){ 
-                    while (!current.type().equals("RPAREN")) { 
-                        if (current.type().equals("LPAREN")){ 
-                            lexer.backUp(); 
-                            node.addChild(this.parse()); 
+                if (node.getValue().type() == TokenType.DO){ 
+                    while (current.type() != TokenType.RPAREN) { 
+                        if (current.type() == TokenType.LPAREN){ 
+                            lexer.pushBack(current); 
+                            node.addChild(parseForm()); 
                             current = normalizeNumberToken(lexer.getNextToken()); 
-                        } else if (current.type().equals("QUOTE")) { 
+                        } else if (current.type() == TokenType.QUOTE) { 
                             node.addChild(parseQuoted()); 
                             current = normalizeNumberToken(lexer.getNextToken()); 
-                        } else if (current.type().equals("SYMBOL") || current.type().equals("NUMBER") 
-                                || current.type().equals("BOOLEAN") || current.type().equals("CHARACTER") 
-                                || current.type().equals("STRING")) {
+                        } else if (current.type() == TokenType.SYMBOL || current.type() == TokenType.NUMBER 
+                                || current.type() == TokenType.BOOLEAN || current.type() == TokenType.CHARACTER 
+                                || current.type() == TokenType.STRING) {
                             node.createChild(current); 
                             current = normalizeNumberToken(lexer.getNextToken()); 
                         } 
@@ -621,75 +617,75 @@ public class Parser {
                     return node;
                 }
                 // ---------- LET ----------
-                if (node.getValue().type().equals("LET") ||
-                    node.getValue().type().equals("LETS") ||
-                    node.getValue().type().equals("LETR")) {
+                if (node.getValue().type() == TokenType.LET ||
+                    node.getValue().type() == TokenType.LETS ||
+                    node.getValue().type() == TokenType.LETR) {
                     // --- Named let detection ---
-                    if (current.type().equals("SYMBOL")) {
+                    if (current.type() == TokenType.SYMBOL) {
                         Node<Token> nameNode = new Node<>(current); // the let name
                         current = normalizeNumberToken(lexer.getNextToken());
-                        if (!current.type().equals("LPAREN")) {
+                        if (current.type() != TokenType.LPAREN) {
                             throw new SyntaxException("Named let must be followed by a binding list in parentheses");
                         }
                         // Parse binding list
-                        Node<Token> bindings = new Node<>(new Token("BINDINGS", null));
+                        Node<Token> bindings = new Node<>(BINDINGS);
                         current = normalizeNumberToken(lexer.getNextToken());
-                        while (!current.type().equals("RPAREN")) {
-                            if (!current.type().equals("LPAREN")) {
+                        while (current.type() != TokenType.RPAREN) {
+                            if (current.type() != TokenType.LPAREN) {
                                 throw new SyntaxException("each let binding must be enclosed in parentheses");
                             }
                             current = normalizeNumberToken(lexer.getNextToken());
-                            if (!current.type().equals("SYMBOL")) {
+                            if (current.type() != TokenType.SYMBOL) {
                                 throw new SyntaxException("binding must start with a symbol, found: " + current);
                             }
-                            Node<Token> pair = new Node<>(new Token("BINDING", null));
+                            Node<Token> pair = new Node<>(BINDING);
                             pair.createChild(current);
-                            Node<Token> valueExpr = this.parse();
+                            Node<Token> valueExpr = parseForm();
                             pair.addChild(valueExpr);
                             Token closer = normalizeNumberToken(lexer.getNextToken());
-                            if (!closer.type().equals("RPAREN")) {
+                            if (closer.type() != TokenType.RPAREN) {
                                 throw new SyntaxException("binding must end with ')', found: " + closer);
                             }
                             bindings.addChild(pair);
                             current = normalizeNumberToken(lexer.getNextToken());
                         }
                         // After bindings list, parse body
-                        Node<Token> body = this.parse();
+                        Node<Token> body = parseForm();
                         Token closer = normalizeNumberToken(lexer.getNextToken());
-                        if (!closer.type().equals("RPAREN")) {
+                        if (closer.type() != TokenType.RPAREN) {
                             throw new SyntaxException("Named let must end with ')', found: " + closer);
                         }
                         // Wrap as (LET-NAMED name bindings body)
-                        Node<Token> namedNode = new Node<>(new Token("LET-NAMED", ""));
+                        Node<Token> namedNode = new Node<>(LET_NAMED);
                         namedNode.addChild(nameNode);
                         namedNode.addChild(bindings);
                         namedNode.addChild(body);
                         return namedNode;
                     }
                     // ---- regular let parsing ----- 
-                    if (!current.type().equals("LPAREN")) {
+                    if (current.type() != TokenType.LPAREN) {
                         throw new SyntaxException(node.getValue().type() + " must be followed by a binding list in parentheses");
                     }
-                    Node<Token> bindings = new Node<>(new Token("BINDINGS", null));
+                    Node<Token> bindings = new Node<>(BINDINGS);
                     current = normalizeNumberToken(lexer.getNextToken()); // enter the binding list
-                    while (!current.type().equals("RPAREN")) {
-                        if (!current.type().equals("LPAREN")) {
+                    while (current.type() != TokenType.RPAREN) {
+                        if (current.type() != TokenType.LPAREN) {
                             throw new SyntaxException("each " + node.getValue().type() + " binding must be enclosed in parentheses");
                         }
 
                         current = normalizeNumberToken(lexer.getNextToken());
-                        if (!current.type().equals("SYMBOL")) {
+                        if (current.type() != TokenType.SYMBOL) {
                             throw new SyntaxException("binding must start with a symbol, found: " + current);
                         }
 
-                        Node<Token> pair = new Node<>(new Token("BINDING", null));
+                        Node<Token> pair = new Node<>(BINDING);
                         pair.createChild(current);
 
-                        Node<Token> valueExpr = this.parse();
+                        Node<Token> valueExpr = parseForm();
                         pair.addChild(valueExpr);
 
                         Token closer = normalizeNumberToken(lexer.getNextToken());
-                        if (!closer.type().equals("RPAREN")) {
+                        if (closer.type() != TokenType.RPAREN) {
                             throw new SyntaxException("binding must end with ')', found: " + closer);
                         }
 
@@ -698,50 +694,50 @@ public class Parser {
                     }
 
                     node.addChild(bindings);
-                    node.addChild(this.parse());
+                    node.addChild(parseForm());
 
                     Token closer = normalizeNumberToken(lexer.getNextToken());
-                    if (!closer.type().equals("RPAREN")) {
+                    if (closer.type() != TokenType.RPAREN) {
                         throw new SyntaxException(node.getValue().type() + " must end with ')', found: " + closer);
                     }
 
                     return node;
                 }
                 // ---------- general keyword form ----------
-                while (!current.type().equals("RPAREN")) {
-                    if (current.type().equals("LPAREN")) {
-                        lexer.backUp();
-                        node.addChild(this.parse());
+                while (current.type() != TokenType.RPAREN) {
+                    if (current.type() == TokenType.LPAREN) {
+                        lexer.pushBack(current);
+                        node.addChild(parseForm());
                         current = normalizeNumberToken(lexer.getNextToken());
-                    } else if (current.type().equals("DOT")) {
+                    } else if (current.type() == TokenType.DOT) {
                         // Parse dotted pair
                         Node<Token> dotNode = new Node<>(current);
                         Token next = normalizeNumberToken(lexer.getNextToken());
-                        if (next.type().equals("RPAREN")) {
+                        if (next.type() == TokenType.RPAREN) {
                             throw new SyntaxException("Dot must be followed by an element");
                         }
-                        if (next.type().equals("LPAREN")) {
-                            lexer.backUp();
-                            dotNode.addChild(this.parse());
+                        if (next.type() == TokenType.LPAREN) {
+                            lexer.pushBack(next);
+                            dotNode.addChild(parseForm());
                         } else {
                             dotNode.addChild(new Node<>(next));
                         }
                         node.addChild(dotNode);
                         // after parsing dotted cdr, require a closing RPAREN
                         current = normalizeNumberToken(lexer.getNextToken());
-                        if (!current.type().equals("RPAREN")) {
+                        if (current.type() != TokenType.RPAREN) {
                             throw new SyntaxException("Dotted pair must end the list");
                         }
                         return node;
-                    } else if (current.type().equals("QUOTE")) {
+                    } else if (current.type() == TokenType.QUOTE) {
                         node.addChild(parseQuoted());
                         current = normalizeNumberToken(lexer.getNextToken());
-                    } else if (current.type().equals("QQUOTE")) {
+                    } else if (current.type() == TokenType.QQUOTE) {
                         node.addChild(parseQQuoted());
                         current = normalizeNumberToken(lexer.getNextToken());
-                    } else if (current.type().equals("SYMBOL") || current.type().equals("NUMBER") ||
-                              current.type().equals("BOOLEAN") || current.type().equals("CHARACTER") ||
-                              current.type().equals("STRING")) {
+                    } else if (current.type() == TokenType.SYMBOL || current.type() == TokenType.NUMBER ||
+                              current.type() == TokenType.BOOLEAN || current.type() == TokenType.CHARACTER ||
+                              current.type() == TokenType.STRING) {
                         node.createChild(current);
                         current = normalizeNumberToken(lexer.getNextToken());
                     }
@@ -750,29 +746,29 @@ public class Parser {
             }
             
             // Case 2: operator itself is a subexpression — e.g. ((foo 1) 2)
-            else if (current.type().equals("LPAREN")) {
-                lexer.backUp();
+            else if (current.type() == TokenType.LPAREN) {
+                lexer.pushBack(current);
 
                 // Parse the operator expression fully
-                Node<Token> opExpr = this.parse();
+                Node<Token> opExpr = parseForm();
 
                 // Create an APPLY node to represent (APPLY opExpr arg1 arg2 ...)
-                Node<Token> apply = new Node<>(new Token("APPLY", ""));
+                Node<Token> apply = new Node<>(APPLY);
 
                 // First child is the operator expression itself
                 apply.addChild(opExpr);
 
                 // Now gather arguments until closing RPAREN
                 current = normalizeNumberToken(lexer.getNextToken());
-                while (!current.type().equals("RPAREN")) {
-                    if (current.type().equals("LPAREN")) {
-                        lexer.backUp();
-                        apply.addChild(this.parse());
+                while (current.type() != TokenType.RPAREN) {
+                    if (current.type() == TokenType.LPAREN) {
+                        lexer.pushBack(current);
+                        apply.addChild(parseForm());
                         current = normalizeNumberToken(lexer.getNextToken());
-                    } else if (current.type().equals("QUOTE")) {
+                    } else if (current.type() == TokenType.QUOTE) {
                         apply.addChild(parseQuoted());
                         current = normalizeNumberToken(lexer.getNextToken());
-                    } else if (current.type().equals("QQUOTE")) {
+                    } else if (current.type() == TokenType.QQUOTE) {
                         apply.addChild(parseQQuoted());
                         current = normalizeNumberToken(lexer.getNextToken());
                     } else {
@@ -785,38 +781,38 @@ public class Parser {
             }
 
             // Case 3: operator is a plain symbol
-            else if (current.type().equals("SYMBOL")) {
+            else if (current.type() == TokenType.SYMBOL) {
                 Node<Token> node = new Node<>(current);
                 current = normalizeNumberToken(lexer.getNextToken());
-                while (!current.type().equals("RPAREN")) {
-                    if (current.type().equals("LPAREN")) {
-                        lexer.backUp();
-                        node.addChild(this.parse());
+                while (current.type() != TokenType.RPAREN) {
+                    if (current.type() == TokenType.LPAREN) {
+                        lexer.pushBack(current);
+                        node.addChild(parseForm());
                         current = normalizeNumberToken(lexer.getNextToken());
-                    } else if (current.type().equals("DOT")) {
+                    } else if (current.type() == TokenType.DOT) {
                         // Parse dotted pair
                         Node<Token> dotNode = new Node<>(current);
                         Token next = normalizeNumberToken(lexer.getNextToken());
-                        if (next.type().equals("RPAREN")) {
+                        if (next.type() == TokenType.RPAREN) {
                             throw new SyntaxException("Dot must be followed by an element");
                         }
-                        if (next.type().equals("LPAREN")) {
-                            lexer.backUp();
-                            dotNode.addChild(this.parse());
+                        if (next.type() == TokenType.LPAREN) {
+                            lexer.pushBack(next);
+                            dotNode.addChild(parseForm());
                         } else {
                             dotNode.addChild(new Node<>(next));
                         }
                         node.addChild(dotNode);
                         // after parsing dotted cdr, require a closing RPAREN
                         current = normalizeNumberToken(lexer.getNextToken());
-                        if (!current.type().equals("RPAREN")) {
+                        if (current.type() != TokenType.RPAREN) {
                             throw new SyntaxException("Dotted pair must end the list");
                         }
                         return node;
-                    } else if (current.type().equals("QUOTE")) {
+                    } else if (current.type() == TokenType.QUOTE) {
                         node.addChild(parseQuoted());
                         current = normalizeNumberToken(lexer.getNextToken());
-                    } else if (current.type().equals("QQUOTE")) {
+                    } else if (current.type() == TokenType.QQUOTE) {
                         node.addChild(parseQQuoted());
                         current = normalizeNumberToken(lexer.getNextToken());
                     } else {
@@ -826,24 +822,24 @@ public class Parser {
                 }
 
                 if (node.getChildren().isEmpty()) {
-                    node.addChild(new Node<>(new Token("CALL0","")));
+                    node.addChild(new Node<>(CALL0));
                 }
                 return node;
             }
             // Case 4: operator is a literal number (list starting with number)
-            else if (current.type().equals("NUMBER")) {
-                Node<Token> node = new Node<>(new Token<>("LIST",""));
+            else if (current.type() == TokenType.NUMBER) {
+                Node<Token> node = new Node<>(LIST);
                 node.createChild(current);
                 current = normalizeNumberToken(lexer.getNextToken());
-                while (!current.type().equals("RPAREN")) {
-                    if (current.type().equals("LPAREN")) {
-                        lexer.backUp();
-                        node.addChild(this.parse());
+                while (current.type() != TokenType.RPAREN) {
+                    if (current.type() == TokenType.LPAREN) {
+                        lexer.pushBack(current);
+                        node.addChild(parseForm());
                         current = normalizeNumberToken(lexer.getNextToken());
-                    } else if (current.type().equals("QUOTE")) {
+                    } else if (current.type() == TokenType.QUOTE) {
                         node.addChild(parseQuoted());
                         current = normalizeNumberToken(lexer.getNextToken());
-                    } else if (current.type().equals("QQUOTE")) {
+                    } else if (current.type() == TokenType.QQUOTE) {
                         node.addChild(parseQQuoted());
                         current = normalizeNumberToken(lexer.getNextToken());
                     } else {
@@ -855,21 +851,21 @@ public class Parser {
             }
             
             // Case 5: operator is a literal (boolean, string, or character)
-            else if (current.type().equals("BOOLEAN") ||
-                    current.type().equals("STRING")  ||
-                    current.type().equals("CHARACTER")) {
-                Node<Token> node = new Node<>(new Token<>("LIST",""));
+            else if (current.type() == TokenType.BOOLEAN ||
+                    current.type() == TokenType.STRING  ||
+                    current.type() == TokenType.CHARACTER) {
+                Node<Token> node = new Node<>(LIST);
                 node.createChild(current);
                 current = normalizeNumberToken(lexer.getNextToken());
-                while (!current.type().equals("RPAREN")) {
-                    if (current.type().equals("LPAREN")) {
-                        lexer.backUp();
-                        node.addChild(this.parse());
+                while (current.type() != TokenType.RPAREN) {
+                    if (current.type() == TokenType.LPAREN) {
+                        lexer.pushBack(current);
+                        node.addChild(parseForm());
                         current = normalizeNumberToken(lexer.getNextToken());
-                    } else if (current.type().equals("QUOTE")) {
+                    } else if (current.type() == TokenType.QUOTE) {
                         node.addChild(parseQuoted());
                         current = normalizeNumberToken(lexer.getNextToken());
-                    } else if (current.type().equals("QQUOTE")) {
+                    } else if (current.type() == TokenType.QQUOTE) {
                         node.addChild(parseQQuoted());
                         current = normalizeNumberToken(lexer.getNextToken());
                     } else {
@@ -882,10 +878,10 @@ public class Parser {
         }
         
         else {
-            return parse(); // fallback
+            return parseForm(); // fallback
         }
 
         // --- FINAL FALLBACK to satisfy compiler ---
-        return new Node<>(new Token<>("EOF","EOF"));
-    } // end of parse()
+        return new Node<>(EOF);
+    } // end of parseForm()
 }
@@ -39,66 +39,66 @@ public class PixelGraphics{
 
     
     public static void addPixelGraphicsEnv(Environment env){
-        env.addFrame(
-            new Pair<>("create-window", (BiFunction<PixelGraphics,Object,ImageDisplay>) (image, name) -> { 
+        env.addPrimitives(
+            Primitive.of("create-window", (BiFunction<PixelGraphics,Object,ImageDisplay>) (image, name) -> { 
                 return new ImageDisplay(image, coerceToJavaString(name));
             }),
-            new Pair<>("refresh-window", (Function<ImageDisplay,String>) (window) -> { 
+            Primitive.of("refresh-window", (Function<ImageDisplay,Bool>) (window) -> { 
                 window.refresh();
-                return "#t"; 
+                return Bool.TRUE; 
             }),
-            new Pair<>("close-window", (Function<ImageDisplay,String>) (window) -> {
+            Primitive.of("close-window", (Function<ImageDisplay,Bool>) (window) -> {
                 window.dispose();
-                return "#t";
+                return Bool.TRUE;
             }),
-            new Pair<>("create-graphics-device", (BiFunction<Number,Number,PixelGraphics>) (width, height) -> {
-                return new PixelGraphics((int)width.intVal, (int)height.intVal);
+            Primitive.of("create-graphics-device", (BiFunction<Number,Number,PixelGraphics>) (width, height) -> {
+                return new PixelGraphics((int)width.intVal(), (int)height.intVal());
             }),
-            new Pair<>("write-image", (BiFunction<PixelGraphics,File,String>) (graphicsDevice, file) ->{
+            Primitive.of("write-image", (BiFunction<PixelGraphics,File,Bool>) (graphicsDevice, file) ->{
                 try {
                     ImageIO.write(graphicsDevice.canvas, "png", file);
                     System.out.println("Image " + file.getName() + " saved successfully");
-                    return "#t";
+                    return Bool.TRUE;
                 } catch (IOException e) {
                     System.err.println("Error saving PNG image: " + e.getMessage());
                     e.printStackTrace();
-                    return "#f";
+                    return Bool.FALSE;
                 }
             }),
-            new Pair<>("make-color", (TriFunction<Number,Number,Number,Integer>) (red,green,blue) -> {
-                return (int)color((int)red.intVal, (int)green.intVal, (int)blue.intVal);
+            Primitive.of("make-color", (TriFunction<Number,Number,Number,Integer>) (red,green,blue) -> {
+                return (int)color((int)red.intVal(), (int)green.intVal(), (int)blue.intVal());
             }),
-            new Pair<>("make-rgba", (QuadFunction<Number,Number,Number,Number,Integer>) (alpha,red,green,blue) -> {
-                return (int)color((int)alpha.intVal, (int)red.intVal, (int)green.intVal, (int)blue.intVal);
+            Primitive.of("make-rgba", (QuadFunction<Number,Number,Number,Number,Integer>) (alpha,red,green,blue) -> {
+                return (int)color((int)alpha.intVal(), (int)red.intVal(), (int)green.intVal(), (int)blue.intVal());
             }),
-            new Pair<>("draw-pixel", (QuadFunction<PixelGraphics,Number,Number,Integer,String>) (image,x,y,color)-> {
+            Primitive.of("draw-pixel", (QuadFunction<PixelGraphics,Number,Number,Integer,Bool>) (image,x,y,color)-> {
                 try {
-                    image.putPixel((int)x.intVal,(int)y.intVal,color);
-                    return "#t";
+                    image.putPixel((int)x.intVal(),(int)y.intVal(),color);
+                    return Bool.TRUE;
                 }
                 catch (ArrayIndexOutOfBoundsException e){
                     System.out.println(e);
-                    return "#f";
+                    return Bool.FALSE;
                 }
             }),
-            new Pair<>("fill", (BiFunction<PixelGraphics, Integer, String>) (img,color) ->{
+            Primitive.of("fill", (BiFunction<PixelGraphics, Integer, Bool>) (img,color) ->{
                 img.fillCanvas(color);
-                return "#t";
+                return Bool.TRUE;
             }),
-            new Pair<>("wait", (Function<Number,String>) (time) -> {
-                wait((int)time.intVal);
-                return "#t";
+            Primitive.of("wait", (Function<Number,Bool>) (time) -> {
+                wait((int)time.intVal());
+                return Bool.TRUE;
             }),
-            new Pair<>("image-width", (Function<PixelGraphics,Integer>) (img) -> {
+            Primitive.of("image-width", (Function<PixelGraphics,Integer>) (img) -> {
                 return img.width;
             }),
-            new Pair<>("image-height", (Function<PixelGraphics,Integer>) (img) -> {
+            Primitive.of("image-height", (Function<PixelGraphics,Integer>) (img) -> {
                 return img.height;
             }),
-            new Pair<>("set-row", (TriFunction<PixelGraphics, Number, Vector, String>) (img, yNum, colors) -> {
-                int y = (int) yNum.intVal;
+            Primitive.of("set-row", (TriFunction<PixelGraphics, Number, Vector, Bool>) (img, yNum, colors) -> {
+                int y = (int) yNum.intVal();
                 if (y < 0 || y >= img.height) {
-                    return "#f";
+                    return Bool.FALSE;
                 }
                 int limit = Math.min(img.width, colors.size);
                 for (int x = 0; x < limit; x++) {
@@ -107,79 +107,79 @@ public class PixelGraphics{
                     if (c instanceof Integer ci) {
                         color = ci;
                     } else if (c instanceof Number n) {
-                        color = (int) n.intVal;
+                        color = (int) n.intVal();
                     } else {
                         continue;
                     }
                     img.setRGBSafe(x, y, color);
                 }
-                return "#t";
+                return Bool.TRUE;
             }),
-            new Pair<>("lines", (HexFunction<PixelGraphics, Number, Number, Number, Number, Integer, String>)
+            Primitive.of("lines", (HexFunction<PixelGraphics, Number, Number, Number, Number, Integer, Bool>)
                 (img, x0, y0, x1, y1, color) -> {
-                    img.drawLineBresenham((int) x0.intVal,(int) y0.intVal,(int) x1.intVal,(int) y1.intVal, (int) color);
-                    return "#t";
+                    img.drawLineBresenham((int) x0.intVal(),(int) y0.intVal(),(int) x1.intVal(),(int) y1.intVal(), (int) color);
+                    return Bool.TRUE;
             }),
-            new Pair<>("circle", (PentaFunction<PixelGraphics, Number, Number, Number, Integer, String>)
+            Primitive.of("circle", (PentaFunction<PixelGraphics, Number, Number, Number, Integer, Bool>)
                 (img, cx, cy, r, color) -> {
                     // Defensive: ignore negative radii
-                    int R = (int) r.intVal;
-                    if (R < 0) return "#t";
-                    img.drawCircleBresenham((int) cx.intVal, (int) cy.intVal, R, color);
-                    return "#t";
+                    int R = (int) r.intVal();
+                    if (R < 0) return Bool.TRUE;
+                    img.drawCircleBresenham((int) cx.intVal(), (int) cy.intVal(), R, color);
+                    return Bool.TRUE;
             }),
-            new Pair<>("fill-circle", (PentaFunction<PixelGraphics, Number, Number, Number, Integer, String>)
+            Primitive.of("fill-circle", (PentaFunction<PixelGraphics, Number, Number, Number, Integer, Bool>)
                 (img, cx, cy, r, color) -> {
-                    int R = (int) r.intVal;
-                    if (R < 0) return "#t";
-                    img.fillCircle((int) cx.intVal, (int) cy.intVal, R, color);
-                    return "#t";
+                    int R = (int) r.intVal();
+                    if (R < 0) return Bool.TRUE;
+                    img.fillCircle((int) cx.intVal(), (int) cy.intVal(), R, color);
+                    return Bool.TRUE;
             }),
             // ----- text primitives begin -----
-            new Pair<>("text-begin", (Function<PixelGraphics, Graphics2D>) PixelGraphics::beginTextSession),
-            new Pair<>("text-end", (Function<Graphics2D, String>) (ctx) -> {
+            Primitive.of("text-begin", (Function<PixelGraphics, Graphics2D>) PixelGraphics::beginTextSession),
+            Primitive.of("text-end", (Function<Graphics2D, Bool>) (ctx) -> {
                 if (ctx == null) {
-                    return "#f";
+                    return Bool.FALSE;
                 }
                 ctx.dispose();
-                return "#t";
+                return Bool.TRUE;
             }),
-            new Pair<>("text-set-font",
-                (QuadFunction<Graphics2D, Object, Object, Number, String>) (ctx, familyObj, styleObj, sizeNum) -> {
+            Primitive.of("text-set-font",
+                (QuadFunction<Graphics2D, Object, Object, Number, Bool>) (ctx, familyObj, styleObj, sizeNum) -> {
                     if (ctx == null) {
                         System.out.println("text-set-font: no graphics context");
-                        return "#f";
+                        return Bool.FALSE;
                     }
                     String family = coerceToJavaString(familyObj);
                     int style = parseFontStyle(styleObj);
-                    int size = Math.max(1, (int) sizeNum.intVal);
+                    int size = Math.max(1, (int) sizeNum.intVal());
                     ctx.setFont(new Font(family, style, size));
-                    return "#t";
+                    return Bool.TRUE;
                 }),
-            new Pair<>("text-set-color",
-                (PentaFunction<Graphics2D, Number, Number, Number, Number, String>) (ctx, rNum, gNum, bNum, aNum) -> {
+            Primitive.of("text-set-color",
+                (PentaFunction<Graphics2D, Number, Number, Number, Number, Bool>) (ctx, rNum, gNum, bNum, aNum) -> {
                     if (ctx == null) {
                         System.out.println("text-set-color: no graphics context");
-                        return "#f";
+                        return Bool.FALSE;
                     }
-                    int r = clampColorComponent((int) rNum.intVal);
-                    int g = clampColorComponent((int) gNum.intVal);
-                    int b = clampColorComponent((int) bNum.intVal);
-                    int a = clampColorComponent((int) aNum.intVal);
+                    int r = clampColorComponent((int) rNum.intVal());
+                    int g = clampColorComponent((int) gNum.intVal());
+                    int b = clampColorComponent((int) bNum.intVal());
+                    int a = clampColorComponent((int) aNum.intVal());
                     ctx.setColor(new Color(r, g, b, a));
-                    return "#t";
+                    return Bool.TRUE;
                 }),
-            new Pair<>("text-draw",
-                (QuadFunction<Graphics2D, Number, Number, Object, String>) (ctx, xNum, yNum, textObj) -> {
+            Primitive.of("text-draw",
+                (QuadFunction<Graphics2D, Number, Number, Object, Bool>) (ctx, xNum, yNum, textObj) -> {
                     if (ctx == null) {
                         System.out.println("text-draw: no graphics context");
-                        return "#f";
+                        return Bool.FALSE;
                     }
                     String text = coerceToJavaString(textObj);
-                    ctx.drawString(text, (int) xNum.intVal, (int) yNum.intVal);
-                    return "#t";
+                    ctx.drawString(text, (int) xNum.intVal(), (int) yNum.intVal());
+                    return Bool.TRUE;
                 }),
-            new Pair<>("text-measure",
+            Primitive.of("text-measure",
                 (BiFunction<Graphics2D, Object, Tuple>) (ctx, textObj) -> {
                     if (ctx == null) {
                         System.out.println("text-measure: no graphics context");
@@ -357,7 +357,7 @@ public class PixelGraphics{
 
     private static int parseFontStyle(Object styleObj) {
         if (styleObj instanceof Number numberStyle) {
-            return mapStyleFromInt((int) numberStyle.intVal);
+            return mapStyleFromInt((int) numberStyle.intVal());
         }
         String style = coerceToJavaString(styleObj).toLowerCase();
         switch (style) {
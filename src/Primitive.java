@@ -0,0 +1,180 @@
+import java.util.function.Consumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/*
+ A builtin procedure. Call sites pick an entry point by argument count: invoke0 to invoke4 take
+ their arguments directly, so the common small calls need neither an argument array nor a type
+ test on the procedure, and invoke(Object[]) handles any count. Every primitive knows its name
+ and arity, so argument count errors are reported the same way for all of them.
+
+ Builtins are written as ordinary lambdas and wrapped with the of(...) factory matching their
+ shape; variadic(...) wraps a lambda that receives all of its arguments as one list.
+*/
+abstract class Primitive {
+    static final int VARIADIC = -1;
+
+    final String name;
+    final int arity;
+
+    Primitive(String name, int arity) {
+        this.name = name;
+        this.arity = arity;
+    }
+
+    Object invoke0() { return invoke(new Object[0]); }
+    Object invoke1(Object a) { return invoke(new Object[] { a }); }
+    Object invoke2(Object a, Object b) { return invoke(new Object[] { a, b }); }
+    Object invoke3(Object a, Object b, Object c) { return invoke(new Object[] { a, b, c }); }
+    Object invoke4(Object a, Object b, Object c, Object d) { return invoke(new Object[] { a, b, c, d }); }
+
+    // Entry point for any argument count.
+    abstract Object invoke(Object[] args);
+
+    final void checkArity(int got) {
+        if (got != arity) {
+            throw new SyntaxException("Procedure " + name + " expects " + arity
+                + (arity == 1 ? " argument" : " arguments") + ", got " + got);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "#<procedure " + name + ">";
+    }
+
+    // ---------- factories ----------
+
+    static Primitive of(String name, Supplier<?> fn) {
+        return new Primitive(name, 0) {
+            @Override Object invoke0() { return fn.get(); }
+            @Override Object invoke(Object[] args) {
+                checkArity(args.length);
+                return fn.get();
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    static <A, R> Primitive of(String name, Function<A, R> fn) {
+        Function<Object, R> f = (Function<Object, R>) fn;
+        return new Primitive(name, 1) {
+            @Override Object invoke1(Object a) { return f.apply(a); }
+            @Override Object invoke(Object[] args) {
+                checkArity(args.length);
+                return f.apply(args[0]);
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    static <A, B, R> Primitive of(String name, BiFunction<A, B, R> fn) {
+        BiFunction<Object, Object, R> f = (BiFunction<Object, Object, R>) fn;
+        return new Primitive(name, 2) {
+            @Override Object invoke2(Object a, Object b) { return f.apply(a, b); }
+            @Override Object invoke(Object[] args) {
+                checkArity(args.length);
+                return f.apply(args[0], args[1]);
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    static <A, B, C, R> Primitive of(String name, TriFunction<A, B, C, R> fn) {
+        TriFunction<Object, Object, Object, R> f = (TriFunction<Object, Object, Object, R>) fn;
+        return new Primitive(name, 3) {
+            @Override Object invoke3(Object a, Object b, Object c) { return f.apply(a, b, c); }
+            @Override Object invoke(Object[] args) {
+                checkArity(args.length);
+                return f.apply(args[0], args[1], args[2]);
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    static <A, B, C, D, R> Primitive of(String name, QuadFunction<A, B, C, D, R> fn) {
+        QuadFunction<Object, Object, Object, Object, R> f = (QuadFunction<Object, Object, Object, Object, R>) fn;
+        return new Primitive(name, 4) {
+            @Override Object invoke4(Object a, Object b, Object c, Object d) { return f.apply(a, b, c, d); }
+            @Override Object invoke(Object[] args) {
+                checkArity(args.length);
+                return f.apply(args[0], args[1], args[2], args[3]);
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    static <A, B, C, D, E, R> Primitive of(String name, PentaFunction<A, B, C, D, E, R> fn) {
+        PentaFunction<Object, Object, Object, Object, Object, R> f =
+            (PentaFunction<Object, Object, Object, Object, Object, R>) fn;
+        return new Primitive(name, 5) {
+            @Override Object invoke(Object[] args) {
+                checkArity(args.length);
+                return f.apply(args[0], args[1], args[2], args[3], args[4]);
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    static <A, B, C, D, E, F, R> Primitive of(String name, HexFunction<A, B, C, D, E, F, R> fn) {
+        HexFunction<Object, Object, Object, Object, Object, Object, R> f =
+            (HexFunction<Object, Object, Object, Object, Object, Object, R>) fn;
+        return new Primitive(name, 6) {
+            @Override Object invoke(Object[] args) {
+                checkArity(args.length);
+                return f.apply(args[0], args[1], args[2], args[3], args[4], args[5]);
+            }
+        };
+    }
+
+    // Any number of arguments, passed to fn as a single list.
+    static Primitive variadic(String name, Function<LinkedList<?>, ?> fn) {
+        return new Primitive(name, VARIADIC) {
+            @Override Object invoke(Object[] args) {
+                return fn.apply(new LinkedList<>(args));
+            }
+        };
+    }
+
+    // Wraps a value built on one of the older functional interfaces, or returns null if the
+    // value is not one. Consumers answer #t, as they always have.
+    @SuppressWarnings("unchecked")
+    static Primitive adapt(String name, Object fn) {
+        if (fn instanceof Primitive p) return p;
+        if (fn instanceof Supplier<?> f) return of(name, f);
+        if (fn instanceof Function<?,?> f) return legacyFunction(name, (Function<Object, Object>) f);
+        if (fn instanceof BiFunction<?,?,?> f) return of(name, f);
+        if (fn instanceof TriFunction<?,?,?,?> f) return of(name, f);
+        if (fn instanceof QuadFunction<?,?,?,?,?> f) return of(name, f);
+        if (fn instanceof PentaFunction<?,?,?,?,?,?> f) return of(name, f);
+        if (fn instanceof HexFunction<?,?,?,?,?,?,?> f) return of(name, f);
+        if (fn instanceof Consumer<?> f) {
+            Consumer<Object> c = (Consumer<Object>) f;
+            return of(name, (Function<Object, Object>) a -> { c.accept(a); return Bool.TRUE; });
+        }
+        if (fn instanceof BiConsumer<?,?> f) {
+            BiConsumer<Object, Object> c = (BiConsumer<Object, Object>) f;
+            return of(name, (BiFunction<Object, Object, Object>) (a, b) -> { c.accept(a, b); return Bool.TRUE; });
+        }
+        if (fn instanceof TriConsumer<?,?,?> f) {
+            TriConsumer<Object, Object, Object> c = (TriConsumer<Object, Object, Object>) f;
+            return of(name, (TriFunction<Object, Object, Object, Object>) (a, b, c2) -> { c.accept(a, b, c2); return Bool.TRUE; });
+        }
+        return null;
+    }
+
+    // A bare Function could be unary or take its arguments as a list; it was always called
+    // directly with one argument and with the argument list otherwise.
+    private static Primitive legacyFunction(String name, Function<Object, Object> fn) {
+        return new Primitive(name, VARIADIC) {
+            @Override Object invoke1(Object a) { return fn.apply(a); }
+            @Override Object invoke(Object[] args) {
+                if (args.length == 1) {
+                    return fn.apply(args[0]);
+                }
+                return fn.apply(new LinkedList<>(args));
+            }
+        };
+    }
+}
@@ -1,17 +1,59 @@
-public class Symbol {
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ Symbols are interned: intern returns the one Symbol for each name, so symbols are compared and
+ hashed by identity. The table only holds its symbols weakly; a symbol nothing refers to any more
+ is collected and its entry dropped the next time the table is used.
+*/
+public final class Symbol {
+    private static final ConcurrentHashMap<String, Entry> table = new ConcurrentHashMap<>();
+    private static final ReferenceQueue<Symbol> collected = new ReferenceQueue<>();
+
+    private static final class Entry extends WeakReference<Symbol> {
+        final String name;
+        Entry(Symbol symbol) {
+            super(symbol, collected);
+            this.name = symbol.name;
+        }
+    }
+
     public final String name;
-    public Symbol(String name) { this.name = name; }
 
-    @Override
-    public String toString() { return name; }
+    private Symbol(String name) { this.name = name; }
 
-    @Override
-    public boolean equals(Object o) {
-        if (this == o) return true;
-        if (!(o instanceof Symbol)) return false;
-        return name.equals(((Symbol)o).name);
+    public static Symbol intern(String name) {
+        purge();
+        Entry entry = table.get(name);
+        Symbol symbol = entry == null ? null : entry.get();
+        if (symbol != null) {
+            return symbol;
+        }
+        Symbol fresh = new Symbol(name);
+        Entry mine = new Entry(fresh);
+        for (;;) {
+            Entry prev = table.putIfAbsent(name, mine);
+            if (prev == null) {
+                return fresh;
+            }
+            Symbol existing = prev.get();
+            if (existing != null) {
+                return existing;
+            }
+            if (table.replace(name, prev, mine)) {
+                return fresh;
+            }
+        }
+    }
+
+    private static void purge() {
+        for (Reference<? extends Symbol> ref; (ref = collected.poll()) != null; ) {
+            table.remove(((Entry) ref).name, ref);
+        }
     }
 
     @Override
-    public int hashCode() { return name.hashCode(); }
+    public String toString() { return name; }
 }
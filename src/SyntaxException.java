@@ -4,12 +4,12 @@ public class SyntaxException extends RuntimeException {
         super(message);
     }
 
-    public SyntaxException(String message, Token<?, ?> token) {
+    public SyntaxException(String message, Token<?> token) {
         super(message + locationSuffix(token));
     }
 
-    private static String locationSuffix(Token<?, ?> token) {
-        if (token instanceof Token<?, ?> tok && tok.hasLocation()) {
+    private static String locationSuffix(Token<?> token) {
+        if (token instanceof Token<?> tok && tok.hasLocation()) {
             return " at line " + tok.line() + ", column " + tok.column();
         }
         return "";
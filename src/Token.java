@@ -1,19 +1,47 @@
-// Generic token type that can optionally carry source location information.
-public record Token<String, T>(String type, T value, int line, int column) {
-    public Token(String type, T value) {
-        this(type, value, -1, -1);
+// Generic token that can optionally carry source location information.
+// The location is packed into one int: the line in the high 20 bits and the column in the low 12,
+// each clamped to its field, with 0 meaning no location.
+public record Token<T>(TokenType type, T value, int position) {
+    private static final int COLUMN_BITS = 12;
+    private static final int MAX_COLUMN = (1 << COLUMN_BITS) - 1;
+    private static final int MAX_LINE = (1 << (32 - COLUMN_BITS)) - 1;
+
+    public Token(TokenType type, T value) {
+        this(type, value, 0);
+    }
+
+    public Token(TokenType type, T value, int line, int column) {
+        this(type, value, pack(line, column));
+    }
+
+    static int pack(int line, int column) {
+        if (line < 1 || column < 1) {
+            return 0;
+        }
+        return (Math.min(line, MAX_LINE) << COLUMN_BITS) | Math.min(column, MAX_COLUMN);
+    }
+
+    static int lineOf(int position) { return position == 0 ? -1 : position >>> COLUMN_BITS; }
+    static int columnOf(int position) { return position == 0 ? -1 : position & MAX_COLUMN; }
+
+    public int line() {
+        return lineOf(position);
+    }
+
+    public int column() {
+        return columnOf(position);
     }
 
     public boolean hasLocation() {
-        return line >= 1 && column >= 1;
+        return position != 0;
     }
 
     @Override
     public boolean equals(Object other) {
         if (this == other) return true;
-        if (!(other instanceof Token<?, ?> tok)) return false;
+        if (!(other instanceof Token<?> tok)) return false;
         Object otherValue = tok.value();
-        return this.type.equals(tok.type())
+        return this.type == tok.type()
                 && (this.value == null ? otherValue == null : this.value.equals(otherValue));
     }
 
@@ -23,4 +51,9 @@ public record Token<String, T>(String type, T value, int line, int column) {
         result = 31 * result + (value == null ? 0 : value.hashCode());
         return result;
     }
+
+    @Override
+    public String toString() {
+        return "Token[type=" + type + ", value=" + value + ", line=" + line() + ", column=" + column() + "]";
+    }
 }
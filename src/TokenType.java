@@ -0,0 +1,32 @@
+/*
+ Kinds of Token. The Lexer produces the first group; the Parser adds the structural kinds when it
+ builds the syntax tree, so every Node carries one of these from parsing through compilation.
+
+ keyword marks the special forms the Parser treats as operators of their own rather than as
+ calls. toString keeps the spelling the kinds had as strings, so LET_NAMED prints as LET-NAMED.
+*/
+public enum TokenType {
+    // ---------- lexical ----------
+    EOF, LPAREN, RPAREN, DOT,
+    SYMBOL, NUMBER, STRING, BOOLEAN, CHARACTER,
+    QUOTE(true), QQUOTE(true), UNQUOTE(true), UNQUOTESPLICE(true),
+    LAMBDA(true), COND(true), DEFINE(true), LIST(true), DO(true),
+    LET(true), LETS(true), LETR(true),
+    // ---------- built by the Parser ----------
+    LET_NAMED, APPLY, CALL0, PARAMS, CLAUSE, BINDINGS, BINDING;
+
+    final boolean keyword;
+
+    TokenType() {
+        this(false);
+    }
+
+    TokenType(boolean keyword) {
+        this.keyword = keyword;
+    }
+
+    @Override
+    public String toString() {
+        return this == LET_NAMED ? "LET-NAMED" : name();
+    }
+}
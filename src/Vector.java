@@ -32,14 +32,14 @@ public class Vector{
     }
 
     public static void addVectorEnv(Environment env){
-        env.addFrame(
-            new Pair<>("length", (Function<Vector, Number>) (vect) -> {
+        env.addPrimitives(
+            Primitive.of("length", (Function<Vector, Number>) (vect) -> {
                 return Number.integer(vect.size);
             }),
-            new Pair<>("list->vector", (Function<LinkedList, Vector>) (elems) -> {
+            Primitive.of("list->vector", (Function<LinkedList, Vector>) (elems) -> {
                 return new Vector(elems);
             }),
-            new Pair<>("vector->list", (Function<Vector, LinkedList>) (vector) -> {
+            Primitive.of("vector->list", (Function<Vector, LinkedList>) (vector) -> {
                 return new LinkedList(vector.elems);
             })
         );
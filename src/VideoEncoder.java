@@ -18,67 +18,68 @@ public final class VideoEncoder {
         }
     }
 
-    private static final Map<PixelGraphics, RecordingSession> sessions = new HashMap<>();
-
     public static void addVideoEnv(Environment env) {
-        env.addFrame(
-            new Pair<>("start-recording",
-                (TriFunction<PixelGraphics, Number, File, String>) (gfx, fpsNum, file) -> {
+        // Recordings belong to the environment these builtins are installed in, so interpreters
+        // running on different threads never share the table.
+        Map<PixelGraphics, RecordingSession> sessions = new HashMap<>();
+        env.addPrimitives(
+            Primitive.of("start-recording",
+                (TriFunction<PixelGraphics, Number, File, Bool>) (gfx, fpsNum, file) -> {
                     if (gfx == null || fpsNum == null || file == null) {
                         System.out.println("start-recording: expected canvas, fps, and file");
-                        return "#f";
+                        return Bool.FALSE;
                     }
                     if (sessions.containsKey(gfx)) {
                         System.out.println("start-recording: recording already active for canvas");
-                        return "#f";
+                        return Bool.FALSE;
                     }
 
-                    int fps = Math.max(1, (int) fpsNum.intVal);
+                    int fps = Math.max(1, (int) fpsNum.intVal());
                     File parent = file.getParentFile();
                     if (parent != null && !parent.exists() && !parent.mkdirs()) {
                         System.out.println("start-recording: unable to create directory " + parent);
-                        return "#f";
+                        return Bool.FALSE;
                     }
 
                     try {
                         AWTSequenceEncoder encoder = AWTSequenceEncoder.createSequenceEncoder(file, fps);
                         sessions.put(gfx, new RecordingSession(encoder));
-                        return "#t";
+                        return Bool.TRUE;
                     } catch (IOException e) {
                         System.out.println("start-recording failed: " + e.getMessage());
-                        return "#f";
+                        return Bool.FALSE;
                     }
                 }),
 
-            new Pair<>("encode-frame",
-                (Function<PixelGraphics, String>) gfx -> {
+            Primitive.of("encode-frame",
+                (Function<PixelGraphics, Bool>) gfx -> {
                     RecordingSession session = sessions.get(gfx);
                     if (session == null) {
                         System.out.println("encode-frame: no active recording for canvas");
-                        return "#f";
+                        return Bool.FALSE;
                     }
                     try {
                         session.encoder.encodeImage(snapshot(gfx));
-                        return "#t";
+                        return Bool.TRUE;
                     } catch (IOException e) {
                         System.out.println("encode-frame failed: " + e.getMessage());
-                        return "#f";
+                        return Bool.FALSE;
                     }
                 }),
 
-            new Pair<>("stop-recording",
-                (Function<PixelGraphics, String>) gfx -> {
+            Primitive.of("stop-recording",
+                (Function<PixelGraphics, Bool>) gfx -> {
                     RecordingSession session = sessions.remove(gfx);
                     if (session == null) {
                         System.out.println("stop-recording: no active recording for canvas");
-                        return "#f";
+                        return Bool.FALSE;
                     }
                     try {
                         session.encoder.finish();
-                        return "#t";
+                        return Bool.TRUE;
                     } catch (IOException e) {
                         System.out.println("stop-recording failed: " + e.getMessage());
-                        return "#f";
+                        return Bool.FALSE;
                     }
                 })
         );